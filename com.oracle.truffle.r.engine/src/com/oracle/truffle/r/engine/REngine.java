@@ -150,7 +150,12 @@ final class REngine implements Engine, Engine.Timings {
         this.globalFrame = stateREnvironment.getGlobalFrame();
         this.startTime = System.nanoTime();
         if (context.getKind() == RContext.ContextKind.SHARE_NOTHING) {
-            initializeShared();
+            if (context.getTemplate() == null) {
+                initializeShared();
+            } else {
+                // the graphics state in the base environment was restored from the template
+                RGraphics.initialize();
+            }
         }
     }
 
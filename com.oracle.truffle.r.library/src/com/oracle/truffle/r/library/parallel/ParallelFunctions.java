@@ -22,10 +22,18 @@
  */
 package com.oracle.truffle.r.library.parallel;
 
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.size;
+
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.rng.lecuyer.LEcuyerCMRG;
 
 /**
  * The .Call support for the parallel package.
@@ -37,4 +45,35 @@ public class ParallelFunctions {
             return RRuntime.asLogical(RContext.getInstance().getParent() != null);
         }
     }
+
+    /**
+     * Implements {@code nextRNGStream}, the seed is checked to be an L'Ecuyer-CMRG seed in R code.
+     */
+    public abstract static class NextStream extends RExternalBuiltinNode.Arg1 {
+        @Override
+        protected void createCasts(CastBuilder casts) {
+            casts.arg(0).asIntegerVector().mustBe(size(7), RError.NO_CALLER, RError.Message.GENERIC, "invalid value of 'seed'");
+        }
+
+        @Specialization
+        protected RIntVector nextStream(RAbstractIntVector seed) {
+            return RDataFactory.createIntVector(LEcuyerCMRG.nextStream(seed.materialize().getDataWithoutCopying()), RDataFactory.COMPLETE_VECTOR);
+        }
+    }
+
+    /**
+     * Implements {@code nextRNGSubStream}, the seed is checked to be an L'Ecuyer-CMRG seed in R
+     * code.
+     */
+    public abstract static class NextSubStream extends RExternalBuiltinNode.Arg1 {
+        @Override
+        protected void createCasts(CastBuilder casts) {
+            casts.arg(0).asIntegerVector().mustBe(size(7), RError.NO_CALLER, RError.Message.GENERIC, "invalid value of 'seed'");
+        }
+
+        @Specialization
+        protected RIntVector nextSubStream(RAbstractIntVector seed) {
+            return RDataFactory.createIntVector(LEcuyerCMRG.nextSubStream(seed.materialize().getDataWithoutCopying()), RDataFactory.COMPLETE_VECTOR);
+        }
+    }
 }
@@ -14,6 +14,9 @@ package com.oracle.truffle.r.library.stats;
 
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.instanceOf;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.object.DynamicObject;
@@ -21,6 +24,7 @@ import com.oracle.truffle.r.nodes.attributes.SetAttributeNode;
 import com.oracle.truffle.r.nodes.attributes.SetAttributeNodeGen;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
+import com.oracle.truffle.r.runtime.ParallelKernels;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -28,10 +32,24 @@ import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
-import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
 public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
-    private static final NACheck naCheck = NACheck.create();
+
+    /**
+     * Number of output columns (observations) processed together, their data stays in cache while
+     * the other observations of a tile stream by.
+     */
+    private static final int TILE = 32;
+
+    /**
+     * Number of observations paired with a column tile in one pass.
+     */
+    private static final int ROW_TILE = 256;
+
+    /**
+     * GnuR keeps at most this many warnings, reporting more of them has no visible effect.
+     */
+    private static final int MAX_WARNINGS = 50;
 
     @Override
     protected void createCasts(CastBuilder casts) {
@@ -47,11 +65,9 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                     @Cached("create()") SetAttributeNode setAttrNode) {
         int nr = RRuntime.nrows(x);
         int nc = RRuntime.ncols(x);
-        int n = nr * (nr - 1) / 2; /* avoid int overflow for N ~ 50,000 */
-        double[] ans = new double[n];
         RDoubleVector xm = x.materialize();
-        rdistance(xm.getDataWithoutCopying(), nr, nc, ans, false, methodObj, p);
-        RDoubleVector result = RDataFactory.createDoubleVector(ans, naCheck.neverSeenNA());
+        double[] ans = distanceBlock(xm.getDataWithoutCopying(), nr, nc, methodObj, p, 0, nr);
+        RDoubleVector result = RDataFactory.createDoubleVector(ans, !hasNA(ans));
         DynamicObject resultAttrs = result.initAttributes();
         RStringVector names = (RStringVector) list.getAttr(RRuntime.NAMES_ATTR_KEY);
         for (int i = 0; i < names.getLength(); i++) {
@@ -75,6 +91,15 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         return RRuntime.isFinite(a) && RRuntime.isFinite(b);
     }
 
+    private static boolean hasNA(double[] d) {
+        for (int i = 0; i < d.length; i++) {
+            if (RRuntime.isNA(d[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static Method getMethod(int method) {
         if (method < 1 || method > Method.values().length) {
             throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "distance(): invalid distance");
@@ -82,30 +107,80 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         return Method.values()[method - 1];
     }
 
-    private static void rdistance(double[] x, int nr, int nc, double[] d, boolean diag, Method method, double p) {
-        int ij; /* can exceed 2^31 - 1, but Java can't handle that */
-        //
+    /**
+     * Offset of the distances of observation {@code j} in the lower triangle (without diagonal)
+     * of {@code nr} observations, stored by columns as in class {@code dist}.
+     */
+    public static long columnOffset(int nr, int j) {
+        return (long) j * (nr - 1) - (long) j * (j - 1) / 2;
+    }
+
+    /**
+     * Computes the part of the {@code dist} vector that belongs to the columns (observations)
+     * {@code [fromCol, toCol)}, i.e. the distances of each of these observations to all
+     * observations after it. The whole vector is obtained with {@code fromCol = 0} and
+     * {@code toCol = nr}, smaller ranges allow to process the distances of data sets whose full
+     * {@code dist} does not fit into memory.
+     */
+    @TruffleBoundary
+    public static double[] distanceBlock(double[] x, int nr, int nc, Method method, double p, int fromCol, int toCol) {
         if (method == Method.MINKOWSKI) {
             if (!RRuntime.isFinite(p) || p <= 0) {
                 throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "distance(): invalid p");
             }
         }
-        int dc = diag ? 0 : 1; /* diag=1: we do the diagonal */
-        ij = 0;
-        naCheck.enable(true);
-        for (int j = 0; j <= nr; j++) {
-            for (int i = j + dc; i < nr; i++) {
-                double r = method.dist(x, nr, nc, i, j, p);
-                naCheck.check(r);
-                d[ij++] = r;
+        long base = columnOffset(nr, fromCol);
+        long length = columnOffset(nr, toCol) - base;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw RError.error(RError.SHOW_CALLER2, RError.Message.VECTOR_SIZE_TOO_LARGE);
+        }
+        double[] d = new double[(int) length];
+        if (d.length == 0) {
+            return d;
+        }
+
+        // observations are rows of x, make them contiguous
+        double[] xt = new double[nr * nc];
+        for (int k = 0; k < nc; k++) {
+            int src = k * nr;
+            for (int i = 0; i < nr; i++) {
+                xt[i * nc + k] = x[src + i];
+            }
+        }
+
+        AtomicLong nonFiniteTotal = new AtomicLong();
+        int tiles = (toCol - fromCol + TILE - 1) / TILE;
+        ParallelKernels.forEachBlock(tiles, 1, length * nc, (fromTile, toTile) -> {
+            int[] nonFinite = new int[1];
+            for (int t = fromTile; t < toTile; t++) {
+                int j0 = fromCol + t * TILE;
+                int j1 = Math.min(toCol, j0 + TILE);
+                for (int i0 = j0 + 1; i0 < nr; i0 += ROW_TILE) {
+                    int i1 = Math.min(nr, i0 + ROW_TILE);
+                    for (int j = j0; j < j1; j++) {
+                        int offset = (int) (columnOffset(nr, j) - base) - j - 1;
+                        for (int i = Math.max(i0, j + 1); i < i1; i++) {
+                            d[offset + i] = method.dist(xt, nc, i * nc, j * nc, p, nonFinite);
+                        }
+                    }
+                }
+            }
+            if (nonFinite[0] != 0) {
+                nonFiniteTotal.addAndGet(nonFinite[0]);
             }
+        });
+
+        long warnings = Math.min(MAX_WARNINGS, nonFiniteTotal.get());
+        for (int i = 0; i < warnings; i++) {
+            RError.warning(RError.SHOW_CALLER2, RError.Message.GENERIC, "treating non-finite values as NA");
         }
+        return d;
     }
 
     public enum Method {
         EUCLIDEAN {
             @Override
-            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nc, final int i1in, final int i2in, double p, int[] nonFinite) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -123,8 +198,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                             count++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
+                    i1++;
+                    i2++;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
@@ -139,7 +214,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         MAXIMUM {
             @Override
-            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nc, final int i1in, final int i2in, double p, int[] nonFinite) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -159,8 +234,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                             count++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
+                    i1++;
+                    i2++;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
@@ -172,7 +247,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         MANHATTAN {
             @Override
-            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nc, final int i1in, final int i2in, double p, int[] nonFinite) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -190,8 +265,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                             count++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
+                    i1++;
+                    i2++;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
@@ -206,7 +281,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         CANBERRA {
             @Override
-            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nc, final int i1in, final int i2in, double p, int[] nonFinite) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -232,8 +307,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                             }
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
+                    i1++;
+                    i2++;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
@@ -248,7 +323,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         BINARY {
             @Override
-            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nc, final int i1in, final int i2in, double p, int[] nonFinite) {
                 int i1 = i1in;
                 int i2 = i2in;
                 int total;
@@ -263,7 +338,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                 for (j = 0; j < nc; j++) {
                     if (bothNonNAN(x[i1], x[i2])) {
                         if (!bothFinite(x[i1], x[i2])) {
-                            RError.warning(RError.SHOW_CALLER2, RError.Message.GENERIC, "treating non-finite values as NA");
+                            nonFinite[0]++;
                         } else {
                             if (x[i1] != 0. || x[i2] != 0.) {
                                 count++;
@@ -274,8 +349,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                             total++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
+                    i1++;
+                    i2++;
                 }
 
                 if (total == 0) {
@@ -291,7 +366,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         MINKOWSKI {
             @Override
-            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nc, final int i1in, final int i2in, double p, int[] nonFinite) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -309,8 +384,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                             count++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
+                    i1++;
+                    i2++;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
@@ -323,7 +398,25 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
 
         };
 
-        public abstract double dist(double[] x, int nr, int nc, int i1, int i2, double p);
+        /**
+         * Distance between the observations starting at {@code i1} and {@code i2} in the
+         * row-major buffer {@code x} with {@code nc} variables per observation. Methods that would
+         * warn about a value increment {@code nonFinite[0]} instead, the caller reports the
+         * warnings once the distances have been computed.
+         */
+        public abstract double dist(double[] x, int nc, int i1, int i2, double p, int[] nonFinite);
+
+        /**
+         * Maps the name of a method, as accepted by {@code dist()}, to the method.
+         */
+        public static Method fromName(String name) {
+            for (Method m : values()) {
+                if (m.name().equalsIgnoreCase(name)) {
+                    return m;
+                }
+            }
+            throw RError.error(RError.SHOW_CALLER, RError.Message.GENERIC, "distance(): invalid distance");
+        }
     }
 
 }
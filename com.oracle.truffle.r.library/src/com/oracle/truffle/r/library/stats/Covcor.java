@@ -11,7 +11,8 @@
  */
 package com.oracle.truffle.r.library.stats;
 
-import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.eq;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.gte;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.lte;
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
 import static com.oracle.truffle.r.runtime.RError.NO_CALLER;
 import static com.oracle.truffle.r.runtime.RError.SHOW_CALLER;
@@ -24,12 +25,13 @@ import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.api.profiles.LoopConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
+import com.oracle.truffle.r.runtime.ParallelKernels;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
+import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
-import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.nodes.RBaseNode;
@@ -50,7 +52,7 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
     protected void createCasts(CastBuilder casts) {
         casts.arg(0).mustNotBeNull(SHOW_CALLER, Message.IS_NULL, "x").asDoubleVector();
         casts.arg(1).allowNull().asDoubleVector();
-        casts.arg(2).asIntegerVector().findFirst().mustBe(eq(4), this, Message.NYI, "covcor: other method than 4 not implemented.");
+        casts.arg(2).asIntegerVector().findFirst().mustBe(gte(1).and(lte(5)), this, Message.GENERIC, "invalid 'use' (computational method)");
         casts.arg(3).asLogicalVector().findFirst().map(toBoolean());
     }
 
@@ -78,12 +80,13 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
 
     private final LoopConditionProfile loopLength = LoopConditionProfile.createCountingProfile();
 
-    public RDoubleVector corcov(RDoubleVector x, RDoubleVector y, @SuppressWarnings("unused") int method, boolean iskendall, RBaseNode invokingNode) throws RError {
+    public RDoubleVector corcov(RDoubleVector x, RDoubleVector y, int method, boolean iskendall, RBaseNode invokingNode) throws RError {
         boolean ansmat;
-        boolean naFail;
-        boolean everything;
+        boolean naFail = false;
+        boolean everything = false;
+        boolean pairwise = false;
         boolean sd0;
-        boolean emptyErr;
+        boolean emptyErr = true;
         int n;
         int ncx;
         int ncy;
@@ -114,16 +117,29 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
             ncy = 1;
         }
 
-        // TODO adopt full use semantics
-
-        /* "default: complete" (easier for -Wall) */
-        naFail = false;
-        everything = false;
-        emptyErr = true;
-
-        // case 4: /* "everything": NAs are propagated */
-        everything = true;
-        emptyErr = false;
+        switch (method) {
+            case 1: /* use all : no NAs */
+                naFail = true;
+                break;
+            case 2: /* complete */
+                if (x.getLength() == 0) {
+                    error.enter();
+                    error("no complete element pairs");
+                }
+                break;
+            case 3: /* pairwise.complete */
+                pairwise = true;
+                break;
+            case 4: /* "everything": NAs are propagated */
+                everything = true;
+                emptyErr = false;
+                break;
+            case 5: /* "na.or.complete": NAs are propagated */
+                emptyErr = false;
+                break;
+            default:
+                throw RInternalError.shouldNotReachHere();
+        }
 
         if (emptyErr && x.getLength() == 0) {
             error.enter();
@@ -132,23 +148,32 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
 
         double[] answerData = new double[ncx * ncy];
 
-        double[] xm = new double[ncx];
-        if (y == null) {
-            if (everything) {
+        double[] xData = x.getDataWithoutCopying();
+        double[] yData = y == null ? null : y.getDataWithoutCopying();
+        if (everything && (iskendall || CovcorKernels.hasNaN(xData) || (yData != null && CovcorKernels.hasNaN(yData)))) {
+            double[] xm = new double[ncx];
+            if (y == null) {
                 sd0 = covNA1(n, ncx, x, xm, answerData, isCor, iskendall);
             } else {
-                RIntVector ind = RDataFactory.createIntVector(n);
-                complete1(n, ncx, x, ind, naFail);
-                sd0 = covComplete1(n, ncx, x, xm, ind, answerData, isCor, iskendall);
+                double[] ym = new double[ncy];
+                sd0 = covNA2(n, ncx, ncy, x, y, xm, ym, answerData, isCor, iskendall);
             }
+        } else if (iskendall) {
+            throw new UnsupportedOperationException("kendall's unsupported");
+        } else if (pairwise) {
+            sd0 = CovcorKernels.pairwise(xData, ncx, yData, ncy, n, isCor, answerData);
         } else {
-            double[] ym = new double[ncy];
-            if (everything) {
-                sd0 = covNA2(n, ncx, ncy, x, y, xm, ym, answerData, isCor, iskendall);
-            } else {
-                RIntVector ind = RDataFactory.createIntVector(n);
-                complete2(n, ncx, ncy, x, y, ind, naFail);
-                sd0 = covComplete2(n, ncx, ncy, x, y, xm, ym, ind, answerData, isCor, iskendall);
+            // without NAs, "everything" gives the same result as the complete cases
+            int[] rows = everything ? null : CovcorKernels.completeRows(xData, ncx, yData, ncy, n);
+            if (naFail && rows != null) {
+                error.enter();
+                error("missing observations in cov/cor");
+            }
+            int nobs = rows == null ? n : rows.length;
+            sd0 = covComplete(n, ncx, ncy, xData, yData, rows, nobs, answerData);
+            if (emptyErr && nobs == 0) {
+                error.enter();
+                error("no complete element pairs");
             }
         }
 
@@ -185,245 +210,29 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         return x.getDimensions()[0];
     }
 
-    private void complete1(int n, int ncx, RDoubleVector x, RIntVector ind, boolean naFail) {
-        int i;
-        int j;
-        for (i = 0; i < n; i++) {
-            ind.updateDataAt(i, 1, check);
-        }
-        for (j = 0; j < ncx; j++) {
-            // z = &x[j * n];
-            for (i = 0; i < n; i++) {
-                if (Double.isNaN(x.getDataAt(j * n + i))) {
-                    if (naFail) {
-                        error("missing observations in cov/cor");
-                    } else {
-                        ind.updateDataAt(i, 0, check);
-                    }
-                }
-            }
-        }
-    }
-
-    private void complete2(int n, int ncx, int ncy, RDoubleVector x, RDoubleVector y, RIntVector ind, boolean naFail) {
-        int i;
-        int j;
-        for (i = 0; i < n; i++) {
-            ind.updateDataAt(i, 1, check);
-        }
-        for (j = 0; j < ncx; j++) {
-            // z = &x[j * n];
-            for (i = 0; i < n; i++) {
-                if (Double.isNaN(x.getDataAt(j * n + i))) {
-                    if (naFail) {
-                        error("missing observations in cov/cor");
-                    } else {
-                        ind.updateDataAt(i, 0, check);
-                    }
-                }
-            }
-        }
-
-        for (j = 0; j < ncy; j++) {
-            // z = &y[j * n];
-            for (i = 0; i < n; i++) {
-                if (Double.isNaN(y.getDataAt(j * n + i))) {
-                    if (naFail) {
-                        error("missing observations in cov/cor");
-                    } else {
-                        ind.updateDataAt(i, 0, check);
-                    }
-                }
-            }
-        }
-    }
-
-    private static boolean covComplete1(int n, int ncx, RDoubleVector x, double[] xm, RIntVector indInput, double[] ans, boolean cor, boolean kendall) {
-        int n1 = -1;
-        int nobs;
-        boolean isSd0 = false;
-
-        /* total number of complete observations */
-        nobs = 0;
-        for (int k = 0; k < n; k++) {
-            if (indInput.getDataAt(k) != 0) {
-                nobs++;
-            }
-        }
+    /**
+     * Covariance (or correlation) over the complete observations given by {@code rows}
+     * ({@code null} means all {@code n} rows), see {@link CovcorKernels}.
+     */
+    private boolean covComplete(int n, int ncx, int ncy, double[] xData, double[] yData, int[] rows, int nobs, double[] ans) {
         if (nobs <= 1) { /* too many missing */
-            for (int i = 0; i < ans.length; i++) {
-                ans[i] = RRuntime.DOUBLE_NA;
-            }
-            return isSd0;
-        }
-
-        RIntVector ind = indInput;
-        if (nobs == ind.getLength()) {
-            // No values of ind are zeroed.
-            ind = null;
-        }
-
-        if (!kendall) {
-            mean(x, xm, ind, n, ncx, nobs);
-            n1 = nobs - 1;
-        }
-        for (int i = 0; i < ncx; i++) {
-            if (!kendall) {
-                double xxm = xm[i];
-                for (int j = 0; j <= i; j++) {
-                    double yym = xm[j];
-                    double sum = 0.0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind == null || ind.getDataAt(k) != 0) {
-                            sum += (x.getDataAt(i * n + k) - xxm) * (x.getDataAt(j * n + k) - yym);
-                        }
-                    }
-                    double r = sum / n1;
-                    ans[i + j * ncx] = r;
-                    ans[j + i * ncx] = r;
-                }
-            } else { /* Kendall's tau */
-                throw new UnsupportedOperationException("kendall's unsupported");
-            }
-        }
-
-        if (cor) {
-            for (int i = 0; i < ncx; i++) {
-                xm[i] = Math.sqrt(ans[i + i * ncx]);
-            }
-            for (int i = 0; i < ncx; i++) {
-                for (int j = 0; j < i; j++) {
-                    if (xm[i] == 0 || xm[j] == 0) {
-                        isSd0 = true;
-                        ans[i + j * ncx] = RRuntime.DOUBLE_NA;
-                        ans[j + i * ncx] = RRuntime.DOUBLE_NA;
-                    } else {
-                        double sum = ans[i + j * ncx] / (xm[i] * xm[j]);
-                        if (sum > 1.0) {
-                            sum = 1.0;
-                        }
-                        ans[i + j * ncx] = sum;
-                        ans[j + i * ncx] = sum;
-                    }
-                }
-                ans[i + i * ncx] = 1.0;
-            }
-        }
-
-        return isSd0;
-    }
-
-    private static boolean covComplete2(int n, int ncx, int ncy, RDoubleVector x, RDoubleVector y, double[] xm, double[] ym, RIntVector indInput, double[] ans, boolean cor, boolean kendall) {
-        int n1 = -1;
-        int nobs;
-        boolean isSd0 = false;
-
-        /* total number of complete observations */
-        nobs = 0;
-        for (int k = 0; k < n; k++) {
-            if (indInput.getDataAt(k) != 0) {
-                nobs++;
-            }
-        }
-        if (nobs <= 1) { /* too many missing */
-            for (int i = 0; i < ans.length; i++) {
-                ans[i] = RRuntime.DOUBLE_NA;
-            }
-            return isSd0;
-        }
-
-        RIntVector ind = indInput;
-        if (nobs == ind.getLength()) {
-            // No values of ind are zeroed.
-            ind = null;
-        }
-
-        if (!kendall) {
-            mean(x, xm, ind, n, ncx, nobs);
-            mean(y, ym, ind, n, ncy, nobs);
-            n1 = nobs - 1;
-        }
-        for (int i = 0; i < ncx; i++) {
-            if (!kendall) {
-                double xxm = xm[i];
-                for (int j = 0; j < ncy; j++) {
-                    double yym = ym[j];
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind == null || ind.getDataAt(k) != 0) {
-                            sum += (x.getDataAt(i * n + k) - xxm) * (y.getDataAt(j * n + k) - yym);
-                        }
-                    }
-                    ans[i + j * ncx] = (sum / n1);
-                }
-            } else { /* Kendall's tau */
-                throw new UnsupportedOperationException("kendall's unsupported");
-            }
-        }
-
-        if (cor) {
-            covsdev(x, xm, ind, n, ncx, n1, kendall); /* -> xm[.] */
-            covsdev(y, ym, ind, n, ncy, n1, kendall); /* -> ym[.] */
-
-            for (int i = 0; i < ncx; i++) {
-                for (int j = 0; j < ncy; j++) {
-                    double divisor = (xm[i] * ym[j]);
-                    if (divisor == 0.0) {
-                        isSd0 = true;
-                        ans[i + j * ncx] = RRuntime.DOUBLE_NA;
-                    } else {
-                        double value = ans[i + j * ncx] / divisor;
-                        if (value > 1) {
-                            value = 1;
-                        }
-                        ans[i + j * ncx] = value;
-                    }
-                }
-            }
-        }
-        return isSd0;
-    }
-
-    private static void covsdev(RDoubleVector vector, double[] vectorM, RIntVector ind, int n, int len, int n1, boolean kendall) {
-        for (int i = 0; i < len; i++) {
-            double sum = 0;
-            if (!kendall) {
-                double xxm = vectorM[i];
-                for (int k = 0; k < n; k++) {
-                    if (ind == null || ind.getDataAt(k) != 0) {
-                        double value = vector.getDataAt(i * n + k);
-                        sum += (value - xxm) * (value - xxm);
-                    }
-                }
-                sum /= n1;
-            } else { /* Kendall's tau */
-                throw new UnsupportedOperationException("kendall's unsupported");
-            }
-            vectorM[i] = Math.sqrt(sum);
-        }
-    }
-
-    private static void mean(RDoubleVector vector, double[] vectorM, RIntVector ind, int n, int len, int nobs) {
-        /* variable means */
-        for (int i = 0; i < len; i++) {
-            double sum = 0.0;
-            for (int k = 0; k < n; k++) {
-                if (ind == null || ind.getDataAt(k) != 0) {
-                    sum += vector.getDataAt(i * n + k);
-                }
-            }
-            double tmp = sum / nobs;
-            if (!Double.isInfinite(tmp)) {
-                sum = 0.0;
-                for (int k = 0; k < n; k++) {
-                    if (ind == null || ind.getDataAt(k) != 0) {
-                        sum += (vector.getDataAt(i * n + k) - tmp);
-                    }
-                }
-                tmp = tmp + sum / nobs;
+            tooManyMissing.enter();
+            Arrays.fill(ans, RRuntime.DOUBLE_NA);
+            return false;
+        }
+        int n1 = nobs - 1;
+        boolean parallel = ParallelKernels.useParallel((long) ncx * ncy * nobs);
+        double[] zx = CovcorKernels.center(xData, n, ncx, rows, nobs, parallel);
+        double[] zy = yData == null ? zx : CovcorKernels.center(yData, n, ncy, rows, nobs, parallel);
+        CovcorKernels.crossprod(zx, ncx, zy, ncy, nobs, n1, ans, parallel);
+        if (isCor) {
+            if (yData == null) {
+                return CovcorKernels.scaleSymmetric(ans, ncx);
+            } else {
+                return CovcorKernels.scale(ans, ncx, ncy, CovcorKernels.sdev(zx, ncx, nobs, n1), CovcorKernels.sdev(zy, ncy, nobs, n1));
             }
-            vectorM[i] = tmp;
         }
+        return false;
     }
 
     private static boolean[] findNAs(int n, int nc, RDoubleVector v) {
@@ -0,0 +1,440 @@
+/*
+ * This material is distributed under the GNU General Public License
+ * Version 2. You may review the terms of this license at
+ * http://www.gnu.org/licenses/gpl-2.0.html
+ *
+ * Copyright (c) 1995-2012, The R Core Team
+ * Copyright (c) 2003, The R Foundation
+ * Copyright (c) 2016, Oracle and/or its affiliates
+ *
+ * All rights reserved.
+ */
+package com.oracle.truffle.r.library.stats;
+
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.ParallelKernels;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Cache-blocked kernels used by {@link Covcor} for the "complete" ({@code use = "all.obs"},
+ * {@code "complete.obs"}, {@code "na.or.complete"} and NA-free {@code "everything"}) and the
+ * {@code "pairwise.complete.obs"} methods.
+ *
+ * The complete methods center every column once into a compact buffer that only contains the
+ * complete observations and then compute the (lower triangle of the) cross-product matrix tile by
+ * tile. The pairwise method does the same for columns without missing values and falls back to a
+ * per-pair evaluation driven by NA bit masks only for the pairs that actually contain missing
+ * values. The summation order within each output element is the same as in GnuR's cov.c, tiles
+ * are distributed over {@link ParallelKernels} for large inputs.
+ */
+final class CovcorKernels {
+
+    /**
+     * Number of variables per side of an output tile.
+     */
+    private static final int TILE = 64;
+
+    /**
+     * Number of observations processed per pass over a tile, so that the tile's columns stay in
+     * cache.
+     */
+    private static final int ROW_BLOCK = 512;
+
+    private CovcorKernels() {
+        // only static methods
+    }
+
+    static boolean hasNaN(double[] data) {
+        for (int i = 0; i < data.length; i++) {
+            if (Double.isNaN(data[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the indices of the rows that have no missing value in any column of {@code x} or
+     * {@code y}, or {@code null} if all {@code n} rows are complete.
+     */
+    @TruffleBoundary
+    static int[] completeRows(double[] x, int ncx, double[] y, int ncy, int n) {
+        boolean[] incomplete = new boolean[n];
+        int nobs = markIncomplete(x, ncx, n, incomplete, n);
+        if (y != null) {
+            nobs = markIncomplete(y, ncy, n, incomplete, nobs);
+        }
+        if (nobs == n) {
+            return null;
+        }
+        int[] rows = new int[nobs];
+        int r = 0;
+        for (int k = 0; k < n; k++) {
+            if (!incomplete[k]) {
+                rows[r++] = k;
+            }
+        }
+        return rows;
+    }
+
+    private static int markIncomplete(double[] data, int nc, int n, boolean[] incomplete, int nobs) {
+        int result = nobs;
+        for (int j = 0; j < nc; j++) {
+            int offset = j * n;
+            for (int k = 0; k < n; k++) {
+                if (!incomplete[k] && Double.isNaN(data[offset + k])) {
+                    incomplete[k] = true;
+                    result--;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies the observations selected by {@code rows} ({@code null} means all rows) of each
+     * column into a compact column-major buffer and centers them by the column mean, which is
+     * computed with the same two-pass scheme as the {@code MEAN} macro in GnuR.
+     */
+    @TruffleBoundary
+    static double[] center(double[] x, int n, int nc, int[] rows, int nobs, boolean parallel) {
+        double[] z = new double[nobs * nc];
+        ParallelKernels.forEachBlock(nc, 16, parallel, (from, to) -> {
+            for (int j = from; j < to; j++) {
+                int src = j * n;
+                int dst = j * nobs;
+                if (rows == null) {
+                    System.arraycopy(x, src, z, dst, nobs);
+                } else {
+                    for (int r = 0; r < nobs; r++) {
+                        z[dst + r] = x[src + rows[r]];
+                    }
+                }
+                double sum = 0.0;
+                for (int r = 0; r < nobs; r++) {
+                    sum += z[dst + r];
+                }
+                double mean = sum / nobs;
+                if (RRuntime.isFinite(mean)) {
+                    sum = 0.0;
+                    for (int r = 0; r < nobs; r++) {
+                        sum += z[dst + r] - mean;
+                    }
+                    mean = mean + sum / nobs;
+                }
+                for (int r = 0; r < nobs; r++) {
+                    z[dst + r] -= mean;
+                }
+            }
+        });
+        return z;
+    }
+
+    /**
+     * Computes {@code ans[i + j * ncx] = sum(zx[, i] * zy[, j]) / n1} for centered buffers
+     * produced by {@link #center}. If {@code zy == zx}, only the lower triangle is computed and
+     * then mirrored.
+     */
+    @TruffleBoundary
+    static void crossprod(double[] zx, int ncx, double[] zy, int ncy, int nobs, int n1, double[] ans, boolean parallel) {
+        boolean symmetric = zx == zy;
+        int tileRows = (ncx + TILE - 1) / TILE;
+        int tileCols = (ncy + TILE - 1) / TILE;
+        ParallelKernels.forEachBlock(tileRows, 1, parallel, (fromTile, toTile) -> {
+            double[] acc = new double[TILE * TILE];
+            for (int ti = fromTile; ti < toTile; ti++) {
+                int i0 = ti * TILE;
+                int i1 = Math.min(ncx, i0 + TILE);
+                int lastTile = symmetric ? ti : tileCols - 1;
+                for (int tj = 0; tj <= lastTile; tj++) {
+                    int j0 = tj * TILE;
+                    int j1 = Math.min(ncy, j0 + TILE);
+                    boolean diagonal = symmetric && ti == tj;
+                    Arrays.fill(acc, 0.0);
+                    for (int k0 = 0; k0 < nobs; k0 += ROW_BLOCK) {
+                        int k1 = Math.min(nobs, k0 + ROW_BLOCK);
+                        for (int i = i0; i < i1; i++) {
+                            int xi = i * nobs;
+                            int jEnd = diagonal ? i + 1 : j1;
+                            for (int j = j0; j < jEnd; j++) {
+                                int yj = j * nobs;
+                                int a = (i - i0) * TILE + (j - j0);
+                                double sum = acc[a];
+                                for (int k = k0; k < k1; k++) {
+                                    sum += zx[xi + k] * zy[yj + k];
+                                }
+                                acc[a] = sum;
+                            }
+                        }
+                    }
+                    for (int i = i0; i < i1; i++) {
+                        int jEnd = diagonal ? i + 1 : j1;
+                        for (int j = j0; j < jEnd; j++) {
+                            double r = acc[(i - i0) * TILE + (j - j0)] / n1;
+                            ans[i + j * ncx] = r;
+                            if (symmetric) {
+                                ans[j + i * ncx] = r;
+                            }
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Standard deviations of the columns of a centered buffer.
+     */
+    @TruffleBoundary
+    static double[] sdev(double[] z, int nc, int nobs, int n1) {
+        double[] sd = new double[nc];
+        for (int j = 0; j < nc; j++) {
+            int offset = j * nobs;
+            double sum = 0.0;
+            for (int k = 0; k < nobs; k++) {
+                double u = z[offset + k];
+                sum += u * u;
+            }
+            sd[j] = Math.sqrt(sum / n1);
+        }
+        return sd;
+    }
+
+    /**
+     * Turns a symmetric covariance matrix into a correlation matrix. Returns {@code true} if some
+     * standard deviation was zero.
+     */
+    static boolean scaleSymmetric(double[] ans, int ncx) {
+        boolean sd0 = false;
+        double[] sd = new double[ncx];
+        for (int i = 0; i < ncx; i++) {
+            sd[i] = Math.sqrt(ans[i + i * ncx]);
+        }
+        for (int i = 0; i < ncx; i++) {
+            for (int j = 0; j < i; j++) {
+                if (sd[i] == 0 || sd[j] == 0) {
+                    sd0 = true;
+                    ans[i + j * ncx] = RRuntime.DOUBLE_NA;
+                    ans[j + i * ncx] = RRuntime.DOUBLE_NA;
+                } else {
+                    double r = ans[i + j * ncx] / (sd[i] * sd[j]);
+                    if (r > 1.0) {
+                        r = 1.0;
+                    }
+                    ans[i + j * ncx] = r;
+                    ans[j + i * ncx] = r;
+                }
+            }
+            ans[i + i * ncx] = 1.0;
+        }
+        return sd0;
+    }
+
+    /**
+     * Turns a {@code ncx x ncy} covariance matrix into a correlation matrix given the standard
+     * deviations of both sides. Returns {@code true} if some standard deviation was zero.
+     */
+    static boolean scale(double[] ans, int ncx, int ncy, double[] xsd, double[] ysd) {
+        boolean sd0 = false;
+        for (int i = 0; i < ncx; i++) {
+            for (int j = 0; j < ncy; j++) {
+                double divisor = xsd[i] * ysd[j];
+                if (divisor == 0.0) {
+                    sd0 = true;
+                    ans[i + j * ncx] = RRuntime.DOUBLE_NA;
+                } else {
+                    double r = ans[i + j * ncx] / divisor;
+                    if (r > 1.0) {
+                        r = 1.0;
+                    }
+                    ans[i + j * ncx] = r;
+                }
+            }
+        }
+        return sd0;
+    }
+
+    /**
+     * Computes the {@code "pairwise.complete.obs"} covariance or correlation of the columns of
+     * {@code x} and {@code y} ({@code y == null} means {@code y = x}). Returns {@code true} if a
+     * zero standard deviation was encountered.
+     */
+    @TruffleBoundary
+    static boolean pairwise(double[] x, int ncx, double[] y, int ncy, int n, boolean cor, double[] ans) {
+        boolean symmetric = y == null;
+        long[][] naX = naMasks(x, ncx, n);
+        long[][] naY = symmetric ? naX : naMasks(y, ncy, n);
+        boolean parallel = ParallelKernels.useParallel((long) ncx * ncy * n);
+
+        // columns without NAs can be centered once, their pairs then reduce to a dot product
+        double[] zx = centerComplete(x, ncx, n, naX);
+        double[] zy = symmetric ? zx : centerComplete(y, ncy, n, naY);
+        double[] ssx = sumOfSquares(zx, ncx, n, naX);
+        double[] ssy = symmetric ? ssx : sumOfSquares(zy, ncy, n, naY);
+
+        boolean[] sd0 = new boolean[ncx];
+        ParallelKernels.forEachBlock(ncx, ParallelKernels.blockSize(ncx, 4), parallel, (from, to) -> {
+            int[] valid = new int[n];
+            double[] yData = symmetric ? x : y;
+            for (int i = from; i < to; i++) {
+                int jEnd = symmetric ? i + 1 : ncy;
+                for (int j = 0; j < jEnd; j++) {
+                    double r;
+                    if (naX[i] == null && naY[j] == null) {
+                        r = pairComplete(zx, i, zy, j, n, cor, ssx[i], ssy[j], sd0);
+                    } else {
+                        r = pairMasked(x, i, naX[i], yData, j, naY[j], n, cor, valid, sd0);
+                    }
+                    ans[i + j * ncx] = r;
+                    if (symmetric) {
+                        ans[j + i * ncx] = r;
+                    }
+                }
+            }
+        });
+        for (int i = 0; i < ncx; i++) {
+            if (sd0[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a bit mask of the missing values for each column, {@code null} for columns without
+     * missing values.
+     */
+    private static long[][] naMasks(double[] data, int nc, int n) {
+        long[][] masks = new long[nc][];
+        int words = (n + 63) >>> 6;
+        for (int j = 0; j < nc; j++) {
+            int offset = j * n;
+            long[] mask = null;
+            for (int k = 0; k < n; k++) {
+                if (Double.isNaN(data[offset + k])) {
+                    if (mask == null) {
+                        mask = new long[words];
+                    }
+                    mask[k >>> 6] |= 1L << k;
+                }
+            }
+            masks[j] = mask;
+        }
+        return masks;
+    }
+
+    /**
+     * Centers the complete columns by their plain mean, as done by GnuR's pairwise code.
+     */
+    private static double[] centerComplete(double[] data, int nc, int n, long[][] masks) {
+        double[] z = new double[nc * n];
+        for (int j = 0; j < nc; j++) {
+            if (masks[j] == null) {
+                int offset = j * n;
+                double mean = 0.0;
+                for (int k = 0; k < n; k++) {
+                    mean += data[offset + k];
+                }
+                mean /= n;
+                for (int k = 0; k < n; k++) {
+                    z[offset + k] = data[offset + k] - mean;
+                }
+            }
+        }
+        return z;
+    }
+
+    private static double[] sumOfSquares(double[] z, int nc, int n, long[][] masks) {
+        double[] ss = new double[nc];
+        for (int j = 0; j < nc; j++) {
+            if (masks[j] == null) {
+                int offset = j * n;
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += z[offset + k] * z[offset + k];
+                }
+                ss[j] = sum;
+            }
+        }
+        return ss;
+    }
+
+    private static double pairComplete(double[] zx, int i, double[] zy, int j, int n, boolean cor, double xss, double yss, boolean[] sd0) {
+        if (n < 2) {
+            return RRuntime.DOUBLE_NA;
+        }
+        int xi = i * n;
+        int yj = j * n;
+        double sum = 0.0;
+        for (int k = 0; k < n; k++) {
+            sum += zx[xi + k] * zy[yj + k];
+        }
+        return finishPair(sum, xss, yss, n - 1, cor, i, sd0);
+    }
+
+    private static double pairMasked(double[] x, int i, long[] maskX, double[] y, int j, long[] maskY, int n, boolean cor, int[] valid, boolean[] sd0) {
+        // collect the rows that are complete for this pair
+        int nobs = 0;
+        int words = (n + 63) >>> 6;
+        for (int w = 0; w < words; w++) {
+            long missing = (maskX == null ? 0L : maskX[w]) | (maskY == null ? 0L : maskY[w]);
+            int base = w << 6;
+            if (missing == 0L) {
+                int end = Math.min(n, base + 64);
+                for (int k = base; k < end; k++) {
+                    valid[nobs++] = k;
+                }
+            } else {
+                long bits = ~missing;
+                if (base + 64 > n) {
+                    bits &= (1L << (n - base)) - 1;
+                }
+                while (bits != 0L) {
+                    valid[nobs++] = base + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        if (nobs < 2) {
+            return RRuntime.DOUBLE_NA;
+        }
+        int xi = i * n;
+        int yj = j * n;
+        double xmean = 0.0;
+        double ymean = 0.0;
+        for (int r = 0; r < nobs; r++) {
+            int k = valid[r];
+            xmean += x[xi + k];
+            ymean += y[yj + k];
+        }
+        xmean /= nobs;
+        ymean /= nobs;
+        double sum = 0.0;
+        double xss = 0.0;
+        double yss = 0.0;
+        for (int r = 0; r < nobs; r++) {
+            int k = valid[r];
+            double xm = x[xi + k] - xmean;
+            double ym = y[yj + k] - ymean;
+            sum += xm * ym;
+            xss += xm * xm;
+            yss += ym * ym;
+        }
+        return finishPair(sum, xss, yss, nobs - 1, cor, i, sd0);
+    }
+
+    private static double finishPair(double sum, double xss, double yss, int n1, boolean cor, int i, boolean[] sd0) {
+        if (cor) {
+            if (xss == 0.0 || yss == 0.0) {
+                sd0[i] = true;
+                return RRuntime.DOUBLE_NA;
+            }
+            double r = (sum / n1) / (Math.sqrt(xss / n1) * Math.sqrt(yss / n1));
+            return r > 1.0 ? 1.0 : r;
+        } else {
+            return sum / n1;
+        }
+    }
+}
@@ -29,6 +29,7 @@ public abstract class DoubleCentre extends RExternalBuiltinNode.Arg1 {
         RDoubleVector aVec = aVecAbs.materialize();
         int n = RRuntime.nrows(aVec);
         double[] a = aVec.getDataWithoutCopying(); // does not copy
+        aVec.resetDataHash();
 
         for (int i = 0; i < n; i++) {
             double sum = 0;
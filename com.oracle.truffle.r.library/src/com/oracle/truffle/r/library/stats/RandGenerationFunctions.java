@@ -23,6 +23,7 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.profiles.BranchProfile;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.api.profiles.LoopConditionProfile;
 import com.oracle.truffle.api.profiles.ValueProfile;
 import com.oracle.truffle.r.library.stats.RandGenerationFunctionsFactory.ConvertToLengthNodeGen;
@@ -69,6 +70,31 @@ public final class RandGenerationFunctions {
         public double expRand() {
             return SExp.expRand(generator);
         }
+
+        /**
+         * Fills {@code result} with uniform values, equivalent to calling {@link #unifRand()} for
+         * each element.
+         */
+        public void unifRand(double[] result) {
+            generator.genrandDoubles(result, 0, result.length);
+        }
+
+        /**
+         * Returns {@code true} if {@link #normRand(double[])} can be used with the current normal
+         * generation method.
+         */
+        public boolean isBulkNormRand() {
+            return normKind == NormKind.INVERSION;
+        }
+
+        /**
+         * Fills {@code result} with standard normal values, equivalent to calling
+         * {@link #normRand()} for each element.
+         */
+        public void normRand(double[] result) {
+            assert isBulkNormRand();
+            SNorm.normRand(generator, result, 0, result.length);
+        }
     }
 
     // inspired by the DEFRAND{X}_REAL and DEFRAND{X}_INT macros in GnuR
@@ -88,11 +114,23 @@ public final class RandGenerationFunctions {
 
     public interface RandFunction2_Double {
         double evaluate(double a, double b, RandomNumberProvider rand);
+
+        /**
+         * Optional bulk variant of {@link #evaluate(double, double, RandomNumberProvider)} used
+         * when both parameters are scalars: fills the whole {@code result} array, consuming the
+         * same random values as the element-wise evaluation would. Returns {@code false} (without
+         * touching the generator) if there is no bulk implementation for the given parameters.
+         * Implementations may only accept parameters for which no {@code NaN} is produced.
+         */
+        default boolean evaluateAll(double a, double b, double[] result, RandomNumberProvider rand) {
+            return false;
+        }
     }
 
     static final class RandGenerationProfiles {
         final BranchProfile nanResult = BranchProfile.create();
         final BranchProfile nan = BranchProfile.create();
+        final ConditionProfile scalarParams = ConditionProfile.createBinaryProfile();
         final VectorLengthProfile resultVectorLengthProfile = VectorLengthProfile.create();
         final LoopConditionProfile loopConditionProfile = LoopConditionProfile.createCountingProfile();
         final ValueProfile randClassProfile = ValueProfile.createClassProfile();
@@ -162,6 +200,10 @@ public final class RandGenerationFunctions {
         result = new double[length];
         RRNG.getRNGState();
         RandomNumberProvider rand = profiles.createRandProvider();
+        if (profiles.scalarParams.profile(aLength == 1 && bLength == 1) && function.evaluateAll(a.getDataAt(0), b.getDataAt(0), result, rand)) {
+            RRNG.putRNGState();
+            return RDataFactory.createDoubleVector(result, RDataFactory.COMPLETE_VECTOR);
+        }
         for (int i = 0; profiles.loopConditionProfile.inject(i < length); i++) {
             double aValue = a.getDataAt(i % aLength);
             double bValue = b.getDataAt(i % bLength);
@@ -26,4 +26,16 @@ public final class Rnorm implements RandFunction2_Double {
             return mu + sigma * rand.normRand();
         }
     }
+
+    @Override
+    public boolean evaluateAll(double mu, double sigma, double[] result, RandomNumberProvider rand) {
+        if (!Double.isFinite(mu) || !Double.isFinite(sigma) || sigma <= 0. || !rand.isBulkNormRand()) {
+            return false;
+        }
+        rand.normRand(result);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = mu + sigma * result[i];
+        }
+        return true;
+    }
 }
@@ -37,4 +37,17 @@ public final class Runif implements RandFunction2_Double {
         }
         return min + rand.unifRand() * (max - min);
     }
+
+    @Override
+    public boolean evaluateAll(double min, double max, double[] result, RandomNumberProvider rand) {
+        if (!RRuntime.isFinite(min) || !RRuntime.isFinite(max) || max <= min) {
+            return false;
+        }
+        rand.unifRand(result);
+        double range = max - min;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = min + result[i] * range;
+        }
+        return true;
+    }
 }
@@ -37,4 +37,26 @@ public final class SNorm {
         u1 = (int) (BIG * u1) + rand.genrandDouble();
         return Random2.qnorm5(u1 / BIG, 0.0, 1.0, true, false);
     }
+
+    /**
+     * Number of values generated per batch by the bulk variant of {@code normRand}.
+     */
+    private static final int BATCH = 512;
+
+    /**
+     * Bulk variant of {@link #normRand(RandomNumberGenerator, NormKind)} for the
+     * {@link NormKind#INVERSION} method. Each value consumes exactly two uniform values, so they
+     * can be drawn in one go without changing the sequence.
+     */
+    public static void normRand(RandomNumberGenerator rand, double[] result, int offset, int count) {
+        double[] uniforms = new double[2 * Math.min(count, BATCH)];
+        for (int start = 0; start < count; start += BATCH) {
+            int n = Math.min(BATCH, count - start);
+            rand.genrandDoubles(uniforms, 0, 2 * n);
+            for (int i = 0; i < n; i++) {
+                double u1 = (int) (BIG * uniforms[2 * i]) + uniforms[2 * i + 1];
+                result[offset + start + i] = Random2.qnorm5(u1 / BIG, 0.0, 1.0, true, false);
+            }
+        }
+    }
 }
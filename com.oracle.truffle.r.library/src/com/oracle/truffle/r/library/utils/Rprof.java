@@ -103,9 +103,9 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements RDataFa
                 }
                 if (memProfiling) {
                     RDataFactory.addListener(this);
-                    RDataFactory.setTracingState(true);
+                    RDataFactory.enableTracing();
                     MemoryCopyTracer.addListener(this);
-                    MemoryCopyTracer.setTracingState(true);
+                    MemoryCopyTracer.enable();
                 }
                 // interval is in seconds, we convert to millis
                 long intervalInMillis = (long) (1E3 * intervalD);
@@ -352,8 +352,8 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements RDataFa
             out.close();
             this.setOut(null);
             if (this.memoryProfiling) {
-                RDataFactory.setTracingState(false);
-                MemoryCopyTracer.setTracingState(false);
+                RDataFactory.disableTracing();
+                MemoryCopyTracer.disable();
             }
 
         }
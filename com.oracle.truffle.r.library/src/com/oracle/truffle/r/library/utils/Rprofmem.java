@@ -65,7 +65,7 @@ public abstract class Rprofmem extends RExternalBuiltinNode.Arg3 implements RDat
                 PrintStream out = new PrintStream(new FileOutputStream(filename, append));
                 profmemState.initialize(out, thresholdVec.getDataAt(0));
                 RDataFactory.addListener(this);
-                RDataFactory.setTracingState(true);
+                RDataFactory.enableTracing();
             } catch (IOException ex) {
                 throw RError.error(this, RError.Message.GENERIC, String.format("Rprofmem: cannot open profile file '%s'", filename));
             }
@@ -161,8 +161,10 @@ public abstract class Rprofmem extends RExternalBuiltinNode.Arg3 implements RDat
 
         @Override
         public void cleanup(int status) {
-            RDataFactory.setTracingState(false);
-            closeAndResetOut();
+            if (out() != null) {
+                RDataFactory.disableTracing();
+                closeAndResetOut();
+            }
         }
     }
 
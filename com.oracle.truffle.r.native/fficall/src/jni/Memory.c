@@ -13,18 +13,13 @@
 #include <stdlib.h>
 #include <string.h>
 
-#define T_MEM_TABLE_INITIAL_SIZE 0
-// The table of transient objects that have been allocated dur the current FFI call
-static void **tMemTable;
+#define T_MEM_TABLE_INITIAL_SIZE 16
+// The table of transient objects that have been allocated during the current FFI call,
+// per thread as the calls in different threads end independently
+static __thread void **tMemTable;
 // hwm of tMemTable
-static int tMemTableIndex;
-static int tMemTableLength;
-
-void init_memory(JNIEnv *env) {
-    tMemTable = malloc(sizeof(void*) * T_MEM_TABLE_INITIAL_SIZE);
-    tMemTableLength = T_MEM_TABLE_INITIAL_SIZE;
-    tMemTableIndex = 0;
-}
+static __thread int tMemTableIndex;
+static __thread int tMemTableLength;
 
 void *R_chk_calloc(size_t nelem, size_t elsize);
 
@@ -32,17 +27,19 @@ void *R_chk_calloc(size_t nelem, size_t elsize);
 char *R_alloc(size_t n, int size) {
     void *p = R_chk_calloc(n, size);
     if (tMemTableIndex >= tMemTableLength) {
-	int newLength = 2 * tMemTableLength;
+	int newLength = tMemTableLength == 0 ? T_MEM_TABLE_INITIAL_SIZE : 2 * tMemTableLength;
 	void *newtMemTable = malloc(sizeof(void*) * newLength);
 	if (newtMemTable == NULL) {
 	    fatalError("malloc failure");
 	}
-	memcpy(newtMemTable, tMemTable, tMemTableLength * sizeof(void*));
-	free(tMemTable);
+	if (tMemTable != NULL) {
+	    memcpy(newtMemTable, tMemTable, tMemTableLength * sizeof(void*));
+	    free(tMemTable);
+	}
 	tMemTable = newtMemTable;
 	tMemTableLength = newLength;
     }
-    tMemTable[tMemTableIndex] = p;
+    tMemTable[tMemTableIndex++] = p;
     return (char*) p;
 }
 
@@ -61,6 +58,7 @@ void allocExit() {
     for (i = 0; i < tMemTableIndex; i++) {
 	free(tMemTable[i]);
     }
+    tMemTableIndex = 0;
 }
 
 void *R_chk_calloc(size_t nelem, size_t elsize) {
@@ -37,7 +37,7 @@ void init_parse(JNIEnv *env) {
 }
 
 SEXP R_ParseVector(SEXP text, int n, ParseStatus *z, SEXP srcfile) {
-	JNIEnv *env = getEnv();
+	JNIEnv *env = getEnvFlushed();
 	jobject result = (*env)->CallStaticObjectMethod(env, CallRFFIHelperClass, parseMethodID, text, n, srcfile);
 	*z = (*env)->GetIntField(env, result, parseStatusFieldID);
     return (*env)->GetObjectField(env, result, parseExprFieldID);
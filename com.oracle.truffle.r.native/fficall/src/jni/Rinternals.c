@@ -80,8 +80,6 @@ static jmethodID SETCDR_MethodID;
 static jmethodID SETCADR_MethodID;
 static jmethodID SYMVALUE_MethodID;
 static jmethodID SET_SYMVALUE_MethodID;
-static jmethodID SET_STRING_ELT_MethodID;
-static jmethodID SET_VECTOR_ELT_MethodID;
 jmethodID RAW_MethodID;
 jmethodID INTEGER_MethodID;
 jmethodID REAL_MethodID;
@@ -133,7 +131,7 @@ static jmethodID Rf_ncolsMethodID;
 static jclass CharSXPWrapperClass;
 static jfieldID CharSXPWrapperContentsFieldID;
 
-jmethodID setCompleteMethodID;
+jmethodID releaseNativeDataMethodID;
 
 void init_internals(JNIEnv *env) {
 	Rf_ScalarIntegerMethodID = checkGetMethodID(env, CallRFFIHelperClass, "Rf_ScalarInteger", "(I)Lcom/oracle/truffle/r/runtime/data/RIntVector;", 1);
@@ -185,12 +183,10 @@ void init_internals(JNIEnv *env) {
 	SETCADR_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "SETCADR", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", 1);
 	SYMVALUE_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "SYMVALUE", "(Ljava/lang/Object;)Ljava/lang/Object;", 1);
 	SET_SYMVALUE_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "SET_SYMVALUE", "(Ljava/lang/Object;Ljava/lang/Object;)V", 1);
-	SET_STRING_ELT_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "SET_STRING_ELT", "(Ljava/lang/Object;ILjava/lang/Object;)V", 1);
-	SET_VECTOR_ELT_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "SET_VECTOR_ELT", "(Ljava/lang/Object;ILjava/lang/Object;)V", 1);
-	RAW_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "RAW", "(Ljava/lang/Object;)[B", 1);
-	REAL_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "REAL", "(Ljava/lang/Object;)[D", 1);
+	RAW_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "RAW", "(Ljava/lang/Object;)Ljava/lang/Object;", 1);
+	REAL_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "REAL", "(Ljava/lang/Object;)Ljava/lang/Object;", 1);
 	LOGICAL_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "LOGICAL", "(Ljava/lang/Object;)[B", 1);
-	INTEGER_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "INTEGER", "(Ljava/lang/Object;)[I", 1);
+	INTEGER_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "INTEGER", "(Ljava/lang/Object;)Ljava/lang/Object;", 1);
 	STRING_ELT_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "STRING_ELT", "(Ljava/lang/Object;I)Ljava/lang/Object;", 1);
 	VECTOR_ELT_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "VECTOR_ELT", "(Ljava/lang/Object;I)Ljava/lang/Object;", 1);
 	LENGTH_MethodID = checkGetMethodID(env, CallRFFIHelperClass, "LENGTH", "(Ljava/lang/Object;)I", 1);
@@ -236,7 +232,7 @@ void init_internals(JNIEnv *env) {
     Rf_nrowsMethodID = checkGetMethodID(env, CallRFFIHelperClass, "Rf_nrows", "(Ljava/lang/Object;)I", 1);
     Rf_ncolsMethodID = checkGetMethodID(env, CallRFFIHelperClass, "Rf_ncols", "(Ljava/lang/Object;)I", 1);
 
-    setCompleteMethodID = checkGetMethodID(env, CallRFFIHelperClass, "setComplete", "(Ljava/lang/Object;Z)V", 1);
+    releaseNativeDataMethodID = checkGetMethodID(env, CallRFFIHelperClass, "releaseNativeData", "(Ljava/lang/Object;Ljava/lang/Object;Z)V", 1);
 }
 
 static jstring stringFromCharSXP(JNIEnv *thisenv, SEXP charsxp) {
@@ -291,7 +287,7 @@ SEXP Rf_allocVector3(SEXPTYPE t, R_xlen_t len, R_allocator_t* allocator) {
 
 SEXP Rf_allocArray(SEXPTYPE t, SEXP dims) {
 	TRACE(TARGppd, t, dims);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_allocateArrayMethodID, t, dims);
 	return checkRef(thisenv, result);
 }
@@ -318,14 +314,14 @@ SEXP Rf_allocSExp(SEXPTYPE t) {
 
 SEXP Rf_cons(SEXP car, SEXP cdr) {
 	TRACE(TARGpp, car, cdr);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_consMethodID, car, cdr);
     return checkRef(thisenv, result);
 }
 
 void Rf_defineVar(SEXP symbol, SEXP value, SEXP rho) {
 	TRACE(TARGppp, symbol, value, rho);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	(*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_defineVarMethodID, symbol, value, rho);
 }
 
@@ -343,7 +339,7 @@ SEXP Rf_dimnamesgets(SEXP x, SEXP y) {
 
 SEXP Rf_eval(SEXP expr, SEXP env) {
 	TRACE(TARGpp, expr, env);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     updateNativeArrays(thisenv);
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_evalMethodID, expr, env);
     return checkRef(thisenv, result);
@@ -351,56 +347,56 @@ SEXP Rf_eval(SEXP expr, SEXP env) {
 
 SEXP Rf_findFun(SEXP symbol, SEXP rho) {
 	TRACE(TARGpp, symbol, rho);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_findfunMethodID, symbol, rho);
 	return checkRef(thisenv, result);
 }
 
 SEXP Rf_findVar(SEXP sym, SEXP rho) {
 	TRACE(TARGpp, sym, rho);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result =(*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_findVarMethodID, sym, rho);
     return checkRef(thisenv, result);
 }
 
 SEXP Rf_findVarInFrame(SEXP rho, SEXP sym) {
 	TRACE(TARGpp, rho, sym);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result =(*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_findVarInFrameMethodID, rho, sym);
     return checkRef(thisenv, result);
 }
 
 SEXP Rf_findVarInFrame3(SEXP rho, SEXP sym, Rboolean b) {
 	TRACE(TARGppd, rho, sym, b);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_findVarInFrame3MethodID, rho, sym, b);
     return checkRef(thisenv, result);
 }
 
 SEXP Rf_getAttrib(SEXP vec, SEXP name) {
 	TRACE(TARGpp, vec, name);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_getAttribMethodID, vec, name);
 	return checkRef(thisenv, result);
 }
 
 SEXP Rf_setAttrib(SEXP vec, SEXP name, SEXP val) {
 	TRACE(TARGppp, vec,name, val);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	(*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, Rf_setAttribMethodID, vec, name, val);
 	return val;
 }
 
 SEXP Rf_duplicate(SEXP x) {
 	TRACE(TARGp, x);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_duplicateMethodID, x, 1);
 	return checkRef(thisenv, result);
 }
 
 SEXP Rf_shallow_duplicate(SEXP x) {
 	TRACE(TARGp, x);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_duplicateMethodID, x, 0);
 	return checkRef(thisenv, result);
 }
@@ -408,7 +404,7 @@ SEXP Rf_shallow_duplicate(SEXP x) {
 R_xlen_t Rf_any_duplicated(SEXP x, Rboolean from_last) {
 	TRACE(TARGpd, x, from_last);
     if (!isVector(x)) error(_("'duplicated' applies only to vectors"));
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
     return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, Rf_anyDuplicatedMethodID, x, from_last);
 }
 
@@ -435,7 +431,7 @@ int Rf_countContexts(int x, int y) {
 
 Rboolean Rf_inherits(SEXP x, const char * klass) {
 	TRACE(TARGps, x, klass);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     jstring klazz = (*thisenv)->NewStringUTF(thisenv, klass);
     return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, Rf_inheritsMethodID, x, klazz);
 }
@@ -522,9 +518,37 @@ SEXP Rf_mkCharLen(const char *x, int y) {
 	return Rf_mkCharLenCE(x, y, CE_NATIVE);
 }
 
+// Creates the CHARSXP of an ASCII string without an upcall (ASCII is also modified UTF-8)
+static SEXP mkCharASCII(JNIEnv *thisenv, const char *x, int len) {
+	char buf[256];
+	char *chars = len < sizeof(buf) ? buf : malloc(len + 1);
+	memcpy(chars, x, len);
+	chars[len] = 0;
+	jstring string = (*thisenv)->NewStringUTF(thisenv, chars);
+	if (chars != buf) {
+		free(chars);
+	}
+	SEXP result = (*thisenv)->AllocObject(thisenv, CharSXPWrapperClass);
+	(*thisenv)->SetObjectField(thisenv, result, CharSXPWrapperContentsFieldID, string);
+	(*thisenv)->DeleteLocalRef(thisenv, string);
+	return result;
+}
+
 SEXP Rf_mkCharLenCE(const char *x, int len, cetype_t enc) {
 	TRACE(TARGsdd, x, len, enc);
 	JNIEnv *thisenv = getEnv();
+	int ascii = 1;
+	for (int i = 0; i < len; i++) {
+		unsigned char c = x[i];
+		if (c == 0 || c >= 0x80) {
+			ascii = 0;
+			break;
+		}
+	}
+	if (ascii) {
+		// a new object is never one of the cached global refs
+		return mkCharASCII(thisenv, x, len);
+	}
 	jbyteArray bytes = (*thisenv)->NewByteArray(thisenv, len);
 	(*thisenv)->SetByteArrayRegion(thisenv, bytes, 0, len, (const jbyte *) x);
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_mkCharLenCEMethodID, bytes, (int) enc);
@@ -542,13 +566,13 @@ SEXP Rf_mkString(const char *s) {
 
 int Rf_ncols(SEXP x) {
 	TRACE(TARGs, x);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, Rf_ncolsMethodID, x);
 }
 
 int Rf_nrows(SEXP x) {
 	TRACE(TARGs, x);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, Rf_nrowsMethodID, x);
 }
 
@@ -618,7 +642,7 @@ void Rf_warningcall(SEXP x, const char *format, ...) {
 	va_start(ap,format);
 	Rvsnprintf(buf, BUFSIZE - 1, format, ap);
 	va_end(ap);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	jstring string = (*thisenv)->NewStringUTF(thisenv, buf);
 	(*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_warningcallMethodID, x, string);
 }
@@ -680,13 +704,13 @@ void R_ProcessEvents(void) {
 
 // Tools package support, not in public API
 SEXP R_NewHashedEnv(SEXP parent, SEXP size) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, R_NewHashedEnvMethodID, parent, size);
 	return checkRef(thisenv, result);
 }
 
 SEXP Rf_classgets(SEXP vec, SEXP klass) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_classgetsMethodID, vec, klass);
 	return checkRef(thisenv, result);
 }
@@ -714,7 +738,7 @@ const char *Rf_translateCharUTF8(SEXP x) {
 
 SEXP Rf_lengthgets(SEXP x, R_len_t y) {
 	TRACE(TARGp, x);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	invalidateNativeArray(thisenv, x);
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_lengthgetsMethodID, x, y);
 	return checkRef(thisenv, result);
@@ -730,7 +754,7 @@ SEXP R_lsInternal(SEXP env, Rboolean all) {
 }
 
 SEXP R_lsInternal3(SEXP env, Rboolean all, Rboolean sorted) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, R_lsInternal3MethodID, env, all, sorted);
 	return checkRef(thisenv, result);
 }
@@ -741,7 +765,7 @@ SEXP Rf_namesgets(SEXP x, SEXP y) {
 
 SEXP GetOption1(SEXP tag)
 {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_GetOption1MethodID, tag);
 	return checkRef(thisenv, result);
 }
@@ -802,34 +826,34 @@ Rboolean Rf_GetOptionDeviceAsk(void)
 
 void Rf_gsetVar(SEXP symbol, SEXP value, SEXP rho)
 {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	(*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_gsetVarMethodID, symbol, value, rho);
 }
 
 SEXP TAG(SEXP e) {
     TRACE(TARGp, e);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, TAG_MethodID, e);
     return checkRef(thisenv, result);
 }
 
 SEXP PRINTNAME(SEXP e) {
     TRACE(TARGp, e);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, PRINTNAME_MethodID, e);
     return checkRef(thisenv, result);
 }
 
 SEXP CAR(SEXP e) {
     TRACE(TARGp, e);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, CAR_MethodID, e);
     return checkRef(thisenv, result);
 }
 
 SEXP CDR(SEXP e) {
     TRACE(TARGp, e);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, CDR_MethodID, e);
     return checkRef(thisenv, result);
 }
@@ -846,14 +870,14 @@ SEXP CDAR(SEXP e) {
 
 SEXP CADR(SEXP e) {
     TRACE(TARGp, e);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, CADR_MethodID, e);
     return checkRef(thisenv, result);
 }
 
 SEXP CDDR(SEXP e) {
     TRACE(TARGp, e);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, CDDR_MethodID, e);
     return checkRef(thisenv, result);
 }
@@ -865,7 +889,7 @@ SEXP CDDDR(SEXP e) {
 
 SEXP CADDR(SEXP e) {
     TRACE(TARGp, e);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, CADDR_MethodID, e);
     return checkRef(thisenv, result);
 }
@@ -891,27 +915,27 @@ void SET_MISSING(SEXP x, int v) {
 
 void SET_TAG(SEXP x, SEXP y) {
     TRACE(TARGpp, x, y);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, SET_TAG_MethodID, x, y);
 }
 
 SEXP SETCAR(SEXP x, SEXP y) {
     TRACE(TARGpp, x, y);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, SETCAR_MethodID, x, y);
     return checkRef(thisenv, result);
 }
 
 SEXP SETCDR(SEXP x, SEXP y) {
     TRACE(TARGpp, x, y);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, SETCDR_MethodID, x, y);
     return checkRef(thisenv, result);
 }
 
 SEXP SETCADR(SEXP x, SEXP y) {
     TRACE(TARGpp, x, y);
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, SETCADR_MethodID, x, y);
     return checkRef(thisenv, result);
 }
@@ -944,12 +968,12 @@ SEXP CLOENV(SEXP x) {
 }
 
 int RDEBUG(SEXP x) {
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, RDEBUGMethodID, x);
 }
 
 int RSTEP(SEXP x) {
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, RSTEPMethodID, x);
 }
 
@@ -959,12 +983,12 @@ int RTRACE(SEXP x) {
 }
 
 void SET_RDEBUG(SEXP x, int v) {
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     (*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, SET_RDEBUGMethodID, x, v);
 }
 
 void SET_RSTEP(SEXP x, int v) {
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     (*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, SET_RSTEPMethodID, x, v);
 }
 
@@ -985,7 +1009,7 @@ void SET_CLOENV(SEXP x, SEXP v) {
 }
 
 SEXP SYMVALUE(SEXP x) {
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, SYMVALUE_MethodID, x);
     return checkRef(thisenv, result);
 }
@@ -1004,7 +1028,7 @@ void SET_DDVAL(SEXP x, int v) {
 }
 
 void SET_SYMVALUE(SEXP x, SEXP v) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	(*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, SET_SYMVALUE_MethodID, x, v);
 }
 
@@ -1017,7 +1041,7 @@ SEXP FRAME(SEXP x) {
 }
 
 SEXP ENCLOS(SEXP x) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, ENCLOSMethodID, x);
     return checkRef(thisenv, result);
 }
@@ -1058,7 +1082,7 @@ SEXP PRENV(SEXP x) {
 }
 
 SEXP PRVALUE(SEXP x) {
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, PRVALUEMethodID, x);
     return checkRef(thisenv, result);
 }
@@ -1171,7 +1195,7 @@ Rcomplex *COMPLEX(SEXP x){
 
 SEXP STRING_ELT(SEXP x, R_xlen_t i){
 	TRACE(TARGpd, x, i);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, STRING_ELT_MethodID, x, i);
     return checkRef(thisenv, result);
 }
@@ -1179,7 +1203,7 @@ SEXP STRING_ELT(SEXP x, R_xlen_t i){
 
 SEXP VECTOR_ELT(SEXP x, R_xlen_t i){
 	TRACE(TARGpd, x, i);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, VECTOR_ELT_MethodID, x, i);
     return checkRef(thisenv, result);
 }
@@ -1187,14 +1211,14 @@ SEXP VECTOR_ELT(SEXP x, R_xlen_t i){
 void SET_STRING_ELT(SEXP x, R_xlen_t i, SEXP v){
 	TRACE("%s(%p, %d, %p)\n", x, i, v);
 	JNIEnv *thisenv = getEnv();
-	(*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, SET_STRING_ELT_MethodID, x, i, v);
+	stageElt(thisenv, x, i, v);
 }
 
 
 SEXP SET_VECTOR_ELT(SEXP x, R_xlen_t i, SEXP v){
 	TRACE("%s(%p, %d, %p)\n", x, i, v);
 	JNIEnv *thisenv = getEnv();
-	(*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, SET_VECTOR_ELT_MethodID, x, i, v);
+	stageElt(thisenv, x, i, v);
 	return v;
 }
 
@@ -1212,14 +1236,14 @@ SEXP *VECTOR_PTR(SEXP x){
 
 SEXP Rf_asChar(SEXP x){
 	TRACE(TARGp, x);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_asCharMethodID, x);
 	return checkRef(thisenv, result);
 }
 
 SEXP Rf_PairToVectorList(SEXP x){
 	TRACE(TARGp, x);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, Rf_PairToVectorListMethodID, x);
 	return checkRef(thisenv, result);
 }
@@ -1236,13 +1260,13 @@ SEXP Rf_asCharacterFactor(SEXP x){
 
 int Rf_asLogical(SEXP x){
 	TRACE(TARGp, x);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, Rf_asLogicalMethodID, x);
 }
 
 int Rf_asInteger(SEXP x) {
 	TRACE(TARGp, x);
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, Rf_asIntegerMethodID, x);
 }
 
@@ -1269,7 +1293,7 @@ SEXP ATTRIB(SEXP x){
 }
 
 int OBJECT(SEXP x){
-	JNIEnv *env = getEnv();
+	JNIEnv *env = getEnvFlushed();
 	return 	(*env)->CallStaticIntMethod(env, CallRFFIHelperClass, OBJECT_MethodID, x);
 }
 
@@ -1279,7 +1303,7 @@ int MARK(SEXP x){
 }
 
 int NAMED(SEXP x){
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, NAMED_MethodID, x);
 }
 
@@ -1297,7 +1321,7 @@ void SET_TYPEOF(SEXP x, int v){
 }
 
 SEXP SET_TYPEOF_FASTR(SEXP x, int v){
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, SET_TYPEOF_FASTR_MethodID, x, v);
     return checkRef(thisenv, result);
 }
@@ -1311,7 +1335,7 @@ void SET_ATTRIB(SEXP x, SEXP v){
 }
 
 void DUPLICATE_ATTRIB(SEXP to, SEXP from){
-    JNIEnv *thisenv = getEnv();
+    JNIEnv *thisenv = getEnvFlushed();
     (*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, DUPLICATE_ATTRIB_MethodID, to, from);
 }
 
@@ -1366,7 +1390,7 @@ R_len_t R_BadLongVector(SEXP x, const char *y, int z) {
 }
 
 int IS_S4_OBJECT(SEXP x) {
-	JNIEnv *env = getEnv();
+	JNIEnv *env = getEnvFlushed();
 	return 	(*env)->CallStaticIntMethod(env, CallRFFIHelperClass, isS4ObjectMethodID, x);
 }
 
@@ -1417,7 +1441,7 @@ SEXP R_NamespaceEnvSpec(SEXP rho) {
 }
 
 SEXP R_FindNamespace(SEXP info) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, R_FindNamespaceMethodID, info);
 	return checkRef(thisenv, result);
 }
@@ -1443,7 +1467,7 @@ void R_MakeActiveBinding(SEXP sym, SEXP fun, SEXP env) {
 }
 
 Rboolean R_BindingIsLocked(SEXP sym, SEXP env) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, R_BindingIsLockedID, sym, env);
 }
 
@@ -1465,7 +1489,7 @@ SEXP Rf_asS4(SEXP x, Rboolean b, int i) {
 }
 
 static SEXP R_tryEvalInternal(SEXP x, SEXP y, int *ErrorOccurred, jboolean silent) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
     updateNativeArrays(thisenv);
 	jobject tryResult =  (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, R_tryEvalMethodID, x, y, silent);
 	// If tryResult is NULL, an error occurred
@@ -1506,40 +1530,40 @@ SEXP R_forceAndCall(SEXP e, int n, SEXP rho) {
 }
 
 SEXP R_MakeExternalPtr(void *p, SEXP tag, SEXP prot) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result =  (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, R_MakeExternalPtrMethodID, (jlong) p, tag, prot);
     return checkRef(thisenv, result);
 }
 
 void *R_ExternalPtrAddr(SEXP s) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	return (void *) (*thisenv)->CallStaticLongMethod(thisenv, CallRFFIHelperClass, R_ExternalPtrAddrMethodID, s);
 }
 
 SEXP R_ExternalPtrTag(SEXP s) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result =  (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, R_ExternalPtrTagMethodID, s);
     return checkRef(thisenv, result);
 }
 
 SEXP R_ExternalPtrProt(SEXP s) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	SEXP result =  (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, R_ExternalPtrProtMethodID, s);
     return checkRef(thisenv, result);
 }
 
 void R_SetExternalPtrAddr(SEXP s, void *p) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	(*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, R_SetExternalPtrAddrMethodID, s, (jlong) p);
 }
 
 void R_SetExternalPtrTag(SEXP s, SEXP tag) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	(*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, R_SetExternalPtrTagMethodID, s, tag);
 }
 
 void R_SetExternalPtrProtected(SEXP s, SEXP p) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	(*thisenv)->CallStaticVoidMethod(thisenv, CallRFFIHelperClass, R_SetExternalPtrProtMethodID, s, p);
 }
 
@@ -1636,16 +1660,16 @@ void R_dot_Last(void) {
 
 
 Rboolean R_compute_identical(SEXP x, SEXP y, int flags) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
 	return (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, R_computeIdenticalMethodID, x, y, flags);
 }
 
 void Rf_copyListMatrix(SEXP s, SEXP t, Rboolean byrow) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
     (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, Rf_copyListMatrixMethodID, s, t, byrow);
 }
 
 void Rf_copyMatrix(SEXP s, SEXP t, Rboolean byrow) {
-	JNIEnv *thisenv = getEnv();
+	JNIEnv *thisenv = getEnvFlushed();
     (*thisenv)->CallStaticIntMethod(thisenv, CallRFFIHelperClass, Rf_copyMatrixMethodID, s, t, byrow);
 }
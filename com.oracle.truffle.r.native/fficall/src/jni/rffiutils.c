@@ -28,17 +28,17 @@
 /*
  * All calls pass through one of the call(N) methods in rfficall.c, which carry the JNIEnv value,
  * that needs to be saved for reuse in the many R functions such as Rf_allocVector.
- * Currently only single threaded access is permitted (via a semaphore in CallRFFIWithJNI)
- * so we are safe to use static variables. TODO Figure out where to store such state
- * (portably) for MT use. JNI provides no help.
+ * The JNIEnv is only valid in the thread it was passed to, and native calls can be made
+ * from several threads at once (e.g. by contexts running in parallel), so the JNIEnv and
+ * all other state of the calls in progress is kept per thread in a CallState, see below.
+ * The only state shared by all threads is set up once by the init_ functions (class and
+ * method ids, R variables) plus the table of cached global refs, which has a lock.
  */
 jclass CallRFFIHelperClass;
 jclass CharSXPWrapperClass;
 
 static jmethodID validateMethodID;
 
-static JNIEnv *curenv = NULL;
-
 // default for trace output when enabled
 FILE *traceFile = NULL;
 
@@ -51,44 +51,111 @@ typedef struct globalRefTable_struct {
 static GlobalRefElem *cachedGlobalRefs;
 static int cachedGlobalRefsHwm;
 static int cachedGlobalRefsLength;
+// guards cachedGlobalRefs, which is shared by all threads
+static pthread_mutex_t cachedGlobalRefsLock = PTHREAD_MUTEX_INITIALIZER;
 
 // Data structure for managing the required copying of
 // Java arrays to return C arrays, e.g, int*.
 // N.B. There are actually two levels to this as FastR
 // wraps, e.g.,  int[] in an RIntVector.
+// Vectors held in off-heap memory (see RMappedVector.createOffHeap) are handed out
+// as the address of their direct buffer, without copying; jArray is NULL for those.
 typedef struct nativeArrayTable_struct {
 	SEXPTYPE type;
 	SEXP obj;         // The jobject (SEXP) that data is derived from (e.g, RIntVector)
-	void *jArray;     // the jarray corresponding to obj
+	void *jArray;     // the jarray corresponding to obj, NULL if data is the address of a direct buffer
 	void *data;       // the (possibly) copied (or pinned) data from JNI GetXXXArrayElements
+	jint hash;        // System.identityHashCode(obj)
+	int next;         // index of the next element in the same bucket, -1 at the end of the chain
 } NativeArrayElem;
 
 #define NATIVE_ARRAY_TABLE_INITIAL_SIZE 64
-// A table of vectors that have been accessed and whose contents, e.g. the actual data
-// as a primitive array have been copied and handed out to the native code.
-static NativeArrayElem *nativeArrayTable;
-// hwm of nativeArrayTable
-static int nativeArrayTableHwm;
-static int nativeArrayTableLength;
-static void releaseNativeArray(JNIEnv *env, int index, int freedata);
+#define NATIVE_ARRAY_BUCKETS_INITIAL_SIZE 64
+#define CALLDEPTH_STACK_SIZE 16
+#define STAGED_ELTS_SIZE 1024
+
+// The state of the native calls in progress in one thread.
+typedef struct callState_struct {
+	// the JNIEnv of the thread
+	JNIEnv *env;
+	// native down call depth, indexes nativeArrayTableHwmStack
+	int callDepth;
+	// A table of vectors that have been accessed and whose contents, e.g. the actual data
+	// as a primitive array have been copied and handed out to the native code.
+	NativeArrayElem *nativeArrayTable;
+	// hwm of nativeArrayTable
+	int nativeArrayTableHwm;
+	int nativeArrayTableLength;
+	// Hash index of nativeArrayTable, the heads of the chains of elements with the same
+	// identity hash code modulo the (power of two) number of buckets. Elements are only added
+	// and removed at the hwm, so the chains are ordered by decreasing index and removing
+	// the elements above a hwm just pops the heads of their chains.
+	int *nativeArrayBuckets;
+	int nativeArrayBucketsLength;
+	// The element found last, checked first as code tends to call, e.g., REAL(x) repeatedly
+	// on the same x. The same reference always denotes the same object, so this check needs
+	// no call to Java.
+	int lastNativeArray;
+	int nativeArrayTableHwmStack[CALLDEPTH_STACK_SIZE];
+	// stack of jmp_buf ptrs for non-local control transfer on error
+	jmp_buf *callErrorJmpBufTable[CALLDEPTH_STACK_SIZE];
+	// The element writes of SET_STRING_ELT and SET_VECTOR_ELT that have not been applied
+	// yet, see stageElt.
+	SEXP stagedEltTargets[STAGED_ELTS_SIZE];
+	SEXP stagedEltValues[STAGED_ELTS_SIZE];
+	jint stagedEltIndices[STAGED_ELTS_SIZE];
+	int stagedEltCount;
+} CallState;
+
+// The CallState of the current thread, created by the first setEnv in the thread. The key
+// only serves to free the state when the thread terminates.
+static __thread CallState *callState;
+static pthread_key_t callStateKey;
+static pthread_once_t callStateKeyOnce = PTHREAD_ONCE_INIT;
+
+static void releaseNativeArray(JNIEnv *env, CallState *state, int index, int freedata);
+
+static jclass SystemClass;
+static jmethodID identityHashCodeMethodID;
+static jclass ObjectClass;
+static jmethodID setElementsMethodID;
 
 static int isEmbedded = 0;
 void setEmbedded() {
 	isEmbedded = 1;
 }
 
-// native down call depth, indexes nativeArrayTableHwmStack
-int callDepth = 0;
+static void freeCallState(void *value) {
+	CallState *state = (CallState *) value;
+	free(state->nativeArrayTable);
+	free(state->nativeArrayBuckets);
+	free(state);
+}
 
-#define CALLDEPTH_STACK_SIZE 16
-static int nativeArrayTableHwmStack[CALLDEPTH_STACK_SIZE];
+static void createCallStateKey() {
+	pthread_key_create(&callStateKey, freeCallState);
+}
 
-// stack of jmp_buf ptrs for non-local control transfer on error
-static jmp_buf* callErrorJmpBufTable[CALLDEPTH_STACK_SIZE];
+static CallState *createCallState(JNIEnv *env) {
+	CallState *state = calloc(1, sizeof(CallState));
+	if (state == NULL) {
+		fatalError("FFI call state allocation failure");
+	}
+	state->env = env;
+	state->nativeArrayTable = calloc(NATIVE_ARRAY_TABLE_INITIAL_SIZE, sizeof(NativeArrayElem));
+	state->nativeArrayTableLength = NATIVE_ARRAY_TABLE_INITIAL_SIZE;
+	state->nativeArrayBuckets = malloc(NATIVE_ARRAY_BUCKETS_INITIAL_SIZE * sizeof(int));
+	memset(state->nativeArrayBuckets, -1, NATIVE_ARRAY_BUCKETS_INITIAL_SIZE * sizeof(int));
+	state->nativeArrayBucketsLength = NATIVE_ARRAY_BUCKETS_INITIAL_SIZE;
+	state->lastNativeArray = -1;
+	pthread_once(&callStateKeyOnce, createCallStateKey);
+	pthread_setspecific(callStateKey, state);
+	return state;
+}
 
 
 void init_utils(JNIEnv *env) {
-	curenv = env;
+	setEnv(env);
 	if (TRACE_ENABLED && traceFile == NULL) {
 		if (!isEmbedded) {
 			traceFile = stdout;
@@ -114,9 +181,10 @@ void init_utils(JNIEnv *env) {
     cachedGlobalRefs = calloc(CACHED_GLOBALREFS_INITIAL_SIZE, sizeof(GlobalRefElem));
     cachedGlobalRefsLength = CACHED_GLOBALREFS_INITIAL_SIZE;
     cachedGlobalRefsHwm = 0;
-	nativeArrayTable = calloc(NATIVE_ARRAY_TABLE_INITIAL_SIZE, sizeof(NativeArrayElem));
-	nativeArrayTableLength = NATIVE_ARRAY_TABLE_INITIAL_SIZE;
-	nativeArrayTableHwm = 0;
+	SystemClass = checkFindClass(env, "java/lang/System");
+	identityHashCodeMethodID = checkGetMethodID(env, SystemClass, "identityHashCode", "(Ljava/lang/Object;)I", 1);
+	ObjectClass = checkFindClass(env, "java/lang/Object");
+	setElementsMethodID = checkGetMethodID(env, CallRFFIHelperClass, "setElements", "([Ljava/lang/Object;[I[Ljava/lang/Object;I)V", 1);
 }
 
 const char *stringToChars(JNIEnv *jniEnv, jstring string) {
@@ -133,38 +201,106 @@ const char *stringToChars(JNIEnv *jniEnv, jstring string) {
 
 void callEnter(JNIEnv *env, jmp_buf *jmpbuf) {
 	setEnv(env);
-	//printf("callEnter: callDepth %d, jmpbufptr %p\n", callDepth, jmpbuf);
-	callErrorJmpBufTable[callDepth] = jmpbuf;
-	if (callDepth >= CALLDEPTH_STACK_SIZE) {
+	CallState *state = callState;
+	//printf("callEnter: callDepth %d, jmpbufptr %p\n", state->callDepth, jmpbuf);
+	if (state->callDepth >= CALLDEPTH_STACK_SIZE) {
 		fatalError("call stack overflow\n");
 	}
-	nativeArrayTableHwmStack[callDepth] = nativeArrayTableHwm;
-	callDepth++;
+	state->callErrorJmpBufTable[state->callDepth] = jmpbuf;
+	state->nativeArrayTableHwmStack[state->callDepth] = state->nativeArrayTableHwm;
+	state->callDepth++;
 }
 
 jmp_buf *getErrorJmpBuf() {
-	// printf("getErrorJmpBuf: callDepth %d, jmpbufptr %p\n", callDepth, callErrorJmpBufTable[callDepth - 1]);
-	return callErrorJmpBufTable[callDepth - 1];
+	CallState *state = callState;
+	// printf("getErrorJmpBuf: callDepth %d, jmpbufptr %p\n", state->callDepth, state->callErrorJmpBufTable[state->callDepth - 1]);
+	return state->callErrorJmpBufTable[state->callDepth - 1];
 }
 
 void callExit(JNIEnv *env) {
-	int oldHwm = nativeArrayTableHwmStack[callDepth - 1];
-	for (int i = oldHwm; i < nativeArrayTableHwm; i++) {
-               releaseNativeArray(env, i, 1);
+	CallState *state = callState;
+	if ((*env)->ExceptionCheck(env)) {
+		// the call failed, its results are never seen and no upcall may be made
+		state->stagedEltCount = 0;
+	} else {
+		flushElts(env);
+	}
+	int oldHwm = state->nativeArrayTableHwmStack[state->callDepth - 1];
+	for (int i = state->nativeArrayTableHwm - 1; i >= oldHwm; i--) {
+		releaseNativeArray(env, state, i, 1);
+		// i is the head of its chain, see nativeArrayBuckets
+		state->nativeArrayBuckets[state->nativeArrayTable[i].hash & (state->nativeArrayBucketsLength - 1)] = state->nativeArrayTable[i].next;
+	}
+	state->nativeArrayTableHwm = oldHwm;
+	state->lastNativeArray = -1;
+	state->callDepth--;
+	if (state->callDepth == 0) {
+		allocExit();
+	}
+}
+
+/*
+ * Building a character vector or list from C takes an upcall per element, which dominates
+ * the cost of, e.g., a reader producing a million strings. So the writes are staged here and
+ * applied by a single upcall per STAGED_ELTS_SIZE elements, when the .Call returns or
+ * whenever Java code may observe the elements or their sharing state: by any upcall that is
+ * passed a SEXP (see getEnvFlushed), except for TYPEOF, LENGTH, the CHARSXP accessors and
+ * those handing out vector data, which do not look at list or string elements.
+ * The writes are applied in order, and the references are valid until the .Call returns
+ * as it owns them or they are global refs.
+ */
+void stageElt(JNIEnv *env, SEXP x, int i, SEXP v) {
+	CallState *state = callState;
+	int n = state->stagedEltCount;
+	state->stagedEltTargets[n] = x;
+	state->stagedEltIndices[n] = i;
+	state->stagedEltValues[n] = v;
+	state->stagedEltCount = n + 1;
+	// outside a .Call (e.g. embedded) there is no return that would apply the writes
+	if (state->stagedEltCount == STAGED_ELTS_SIZE || state->callDepth == 0) {
+		flushElts(env);
+	}
+}
+
+void flushElts(JNIEnv *env) {
+	CallState *state = callState;
+	int n = state->stagedEltCount;
+	if (n == 0) {
+		return;
+	}
+	state->stagedEltCount = 0;
+	jobjectArray targets = (*env)->NewObjectArray(env, n, ObjectClass, NULL);
+	jobjectArray values = (*env)->NewObjectArray(env, n, ObjectClass, NULL);
+	jintArray indices = (*env)->NewIntArray(env, n);
+	for (int i = 0; i < n; i++) {
+		(*env)->SetObjectArrayElement(env, targets, i, state->stagedEltTargets[i]);
+		(*env)->SetObjectArrayElement(env, values, i, state->stagedEltValues[i]);
 	}
-	nativeArrayTableHwm = oldHwm;
-	callDepth--;
+	(*env)->SetIntArrayRegion(env, indices, 0, n, state->stagedEltIndices);
+	(*env)->CallStaticVoidMethod(env, CallRFFIHelperClass, setElementsMethodID, targets, indices, values, n);
+	(*env)->DeleteLocalRef(env, targets);
+	(*env)->DeleteLocalRef(env, values);
+	(*env)->DeleteLocalRef(env, indices);
+}
+
+static jint identityHash(JNIEnv *env, SEXP x) {
+	return (*env)->CallStaticIntMethod(env, SystemClass, identityHashCodeMethodID, x);
 }
 
 void invalidateNativeArray(JNIEnv *env, SEXP oldObj) {
-	for (int i = 0; i < nativeArrayTableHwm; i++) {
-		NativeArrayElem cv = nativeArrayTable[i];
-		if ((*env)->IsSameObject(env, cv.obj, oldObj)) {
+	CallState *state = callState;
+	flushElts(env);
+	jint hash = identityHash(env, oldObj);
+	for (int i = state->nativeArrayBuckets[hash & (state->nativeArrayBucketsLength - 1)]; i >= 0; i = state->nativeArrayTable[i].next) {
+		NativeArrayElem cv = state->nativeArrayTable[i];
+		if (cv.obj != NULL && cv.hash == hash && (*env)->IsSameObject(env, cv.obj, oldObj)) {
 #if TRACE_NATIVE_ARRAYS
 			fprintf(traceFile, "invalidateNativeArray(%p): found\n", oldObj);
 #endif
-			releaseNativeArray(env, i, 1);
-			nativeArrayTable[i].obj = NULL;
+			releaseNativeArray(env, state, i, 1);
+			// the element stays in its chain until callExit, but never matches again
+			state->nativeArrayTable[i].obj = NULL;
+			state->lastNativeArray = -1;
 		}
 	}
 #if TRACE_NATIVE_ARRAYS
@@ -173,84 +309,143 @@ void invalidateNativeArray(JNIEnv *env, SEXP oldObj) {
 }
 
 void updateNativeArrays(JNIEnv *env) {
-	int oldHwm = nativeArrayTableHwmStack[callDepth - 1];
-	for (int i = oldHwm; i < nativeArrayTableHwm; i++) {
-        releaseNativeArray(env, i, 0);
+	CallState *state = callState;
+	flushElts(env);
+	int oldHwm = state->nativeArrayTableHwmStack[state->callDepth - 1];
+	for (int i = oldHwm; i < state->nativeArrayTableHwm; i++) {
+        releaseNativeArray(env, state, i, 0);
 	}
 }
 
 
-static void *findNativeArray(JNIEnv *env, SEXP x) {
-	int i;
-	for (i = 0; i < nativeArrayTableHwm; i++) {
-		NativeArrayElem cv = nativeArrayTable[i];
-		if (cv.obj != NULL) {
+static int findNativeArray(JNIEnv *env, CallState *state, SEXP x, jint hash) {
+	for (int i = state->nativeArrayBuckets[hash & (state->nativeArrayBucketsLength - 1)]; i >= 0; i = state->nativeArrayTable[i].next) {
+		NativeArrayElem cv = state->nativeArrayTable[i];
+		if (cv.obj != NULL && cv.hash == hash) {
 			if ((*env)->IsSameObject(env, cv.obj, x)) {
-				void *data = cv.data;
 #if TRACE_NATIVE_ARRAYS
-				fprintf(traceFile, "findNativeArray(%p): found %p\n", x, data);
+				fprintf(traceFile, "findNativeArray(%p): found %p\n", x, cv.data);
 #endif
-				return data;
+				return i;
 			}
 		}
 	}
 #if TRACE_NATIVE_ARRAYS
 	fprintf(traceFile, "findNativeArray(%p): not found\n", x);
 #endif
-	return NULL;
+	return -1;
+}
+
+static void growNativeArrayBuckets(CallState *state) {
+	int newLength = 2 * state->nativeArrayBucketsLength;
+	int *newBuckets = malloc(newLength * sizeof(int));
+	if (newBuckets == NULL) {
+		fatalError("FFI copied vectors index expansion failure");
+	}
+	memset(newBuckets, -1, newLength * sizeof(int));
+	// relinking in increasing index order keeps the chains ordered by decreasing index
+	for (int i = 0; i < state->nativeArrayTableHwm; i++) {
+		int bucket = state->nativeArrayTable[i].hash & (newLength - 1);
+		state->nativeArrayTable[i].next = newBuckets[bucket];
+		newBuckets[bucket] = i;
+	}
+	free(state->nativeArrayBuckets);
+	state->nativeArrayBuckets = newBuckets;
+	state->nativeArrayBucketsLength = newLength;
 }
 
-static void addNativeArray(JNIEnv *env, SEXP x, SEXPTYPE type, void *jArray, void *data) {
+static void addNativeArray(JNIEnv *env, CallState *state, SEXP x, jint hash, SEXPTYPE type, void *jArray, void *data) {
 #if TRACE_NATIVE_ARRAYS
-	fprintf(traceFile, "addNativeArray(x=%p, t=%p, ix=%d)\n", x, data, nativeArrayTableHwm);
+	fprintf(traceFile, "addNativeArray(x=%p, t=%p, ix=%d)\n", x, data, state->nativeArrayTableHwm);
 #endif
 	// check for overflow
-	if (nativeArrayTableHwm >= nativeArrayTableLength) {
-		int newLength = 2 * nativeArrayTableLength;
+	if (state->nativeArrayTableHwm >= state->nativeArrayTableLength) {
+		int newLength = 2 * state->nativeArrayTableLength;
 		NativeArrayElem *newnativeArrayTable = calloc(newLength, sizeof(NativeArrayElem));
 		if (newnativeArrayTable == NULL) {
 			fatalError("FFI copied vectors table expansion failure");
 		}
-		memcpy(newnativeArrayTable, nativeArrayTable, nativeArrayTableLength * sizeof(NativeArrayElem));
-		free(nativeArrayTable);
-		nativeArrayTable = newnativeArrayTable;
-		nativeArrayTableLength = newLength;
+		memcpy(newnativeArrayTable, state->nativeArrayTable, state->nativeArrayTableLength * sizeof(NativeArrayElem));
+		free(state->nativeArrayTable);
+		state->nativeArrayTable = newnativeArrayTable;
+		state->nativeArrayTableLength = newLength;
+	}
+	if (state->nativeArrayTableHwm >= 2 * state->nativeArrayBucketsLength) {
+		growNativeArrayBuckets(state);
+	}
+	int bucket = hash & (state->nativeArrayBucketsLength - 1);
+	state->nativeArrayTable[state->nativeArrayTableHwm].obj = x;
+	state->nativeArrayTable[state->nativeArrayTableHwm].data = data;
+	state->nativeArrayTable[state->nativeArrayTableHwm].type = type;
+	state->nativeArrayTable[state->nativeArrayTableHwm].jArray = jArray;
+	state->nativeArrayTable[state->nativeArrayTableHwm].hash = hash;
+	state->nativeArrayTable[state->nativeArrayTableHwm].next = state->nativeArrayBuckets[bucket];
+	state->nativeArrayBuckets[bucket] = state->nativeArrayTableHwm;
+	state->nativeArrayTableHwm++;
+}
+
+// the upcall failed (e.g. a read-only mapped vector), exit the whole call like Rf_error
+static void checkNativeArrayUpcall(JNIEnv *thisenv) {
+	if ((*thisenv)->ExceptionCheck(thisenv)) {
+		longjmp(*getErrorJmpBuf(), 1);
 	}
-	nativeArrayTable[nativeArrayTableHwm].obj = x;
-	nativeArrayTable[nativeArrayTableHwm].data = data;
-	nativeArrayTable[nativeArrayTableHwm].type = type;
-	nativeArrayTable[nativeArrayTableHwm].jArray = jArray;
-	nativeArrayTableHwm++;
 }
 
 void *getNativeArray(JNIEnv *thisenv, SEXP x, SEXPTYPE type) {
-	void *data = findNativeArray(thisenv, x);
+	CallState *state = callState;
+	if (state->lastNativeArray >= 0 && state->nativeArrayTable[state->lastNativeArray].obj == x) {
+		return state->nativeArrayTable[state->lastNativeArray].data;
+	}
+	jint hash = identityHash(thisenv, x);
+	int index = findNativeArray(thisenv, state, x, hash);
+	if (index >= 0) {
+		state->lastNativeArray = index;
+		return state->nativeArrayTable[index].data;
+	}
+	void *data;
 	jboolean isCopy;
-	if (data == NULL) {
-		jarray jArray;
-		switch (type) {
+	jarray jArray;
+	switch (type) {
 		case INTSXP: {
-			jintArray intArray = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, INTEGER_MethodID, x);
-			int len = (*thisenv)->GetArrayLength(thisenv, intArray);
-			data = (*thisenv)->GetIntArrayElements(thisenv, intArray, &isCopy);
-			jArray = intArray;
+			jobject intData = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, INTEGER_MethodID, x);
+			checkNativeArrayUpcall(thisenv);
+			data = (*thisenv)->GetDirectBufferAddress(thisenv, intData);
+			if (data != NULL) {
+				jArray = NULL;
+			} else {
+				jintArray intArray = (jintArray) intData;
+				data = (*thisenv)->GetIntArrayElements(thisenv, intArray, &isCopy);
+				jArray = intArray;
+			}
 			break;
 		}
 
 		case REALSXP: {
-			jdoubleArray doubleArray = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, REAL_MethodID, x);
-			int len = (*thisenv)->GetArrayLength(thisenv, doubleArray);
-			data = (*thisenv)->GetDoubleArrayElements(thisenv, doubleArray, &isCopy);
-			jArray = doubleArray;
+			jobject doubleData = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, REAL_MethodID, x);
+			checkNativeArrayUpcall(thisenv);
+			data = (*thisenv)->GetDirectBufferAddress(thisenv, doubleData);
+			if (data != NULL) {
+				jArray = NULL;
+			} else {
+				jdoubleArray doubleArray = (jdoubleArray) doubleData;
+				data = (*thisenv)->GetDoubleArrayElements(thisenv, doubleArray, &isCopy);
+				jArray = doubleArray;
+			}
 			break;
 		}
 
 		case RAWSXP: {
-		    jbyteArray byteArray = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, RAW_MethodID, x);
-		    int len = (*thisenv)->GetArrayLength(thisenv, byteArray);
-		    data = (*thisenv)->GetByteArrayElements(thisenv, byteArray, &isCopy);
-	        jArray = byteArray;
-	        break;
+			jobject byteData = (*thisenv)->CallStaticObjectMethod(thisenv, CallRFFIHelperClass, RAW_MethodID, x);
+			checkNativeArrayUpcall(thisenv);
+			data = (*thisenv)->GetDirectBufferAddress(thisenv, byteData);
+			if (data != NULL) {
+				jArray = NULL;
+			} else {
+				jbyteArray byteArray = (jbyteArray) byteData;
+				data = (*thisenv)->GetByteArrayElements(thisenv, byteArray, &isCopy);
+				jArray = byteArray;
+			}
+			break;
 		}
 
 		case LGLSXP: {
@@ -272,17 +467,22 @@ void *getNativeArray(JNIEnv *thisenv, SEXP x, SEXPTYPE type) {
 		default:
 			fatalError("getNativeArray: unexpected type");
 
-		}
-		addNativeArray(thisenv, x, type, jArray, data);
 	}
+	addNativeArray(thisenv, state, x, hash, type, jArray, data);
+	state->lastNativeArray = state->nativeArrayTableHwm - 1;
 	return data;
 }
 
-static void releaseNativeArray(JNIEnv *env, int i, int freedata) {
-	NativeArrayElem cv = nativeArrayTable[i];
+static void releaseNativeArray(JNIEnv *env, CallState *state, int i, int freedata) {
+	NativeArrayElem cv = state->nativeArrayTable[i];
 #if TRACE_NATIVE_ARRAYS
                fprintf(traceFile, "releaseNativeArray(x=%p, ix=%d, freedata=%d)\n", cv.obj, i, freedata);
 #endif
+	if (cv.obj != NULL && cv.jArray == NULL) {
+		// the native code worked on the vector itself, nothing to copy back, but it may have written NAs
+		(*env)->CallStaticVoidMethod(env, CallRFFIHelperClass, releaseNativeDataMethodID, cv.obj, NULL, JNI_FALSE);
+		return;
+	}
 	if (cv.obj != NULL) {
 		jboolean complete = JNI_FALSE; // pessimal
 		switch (cv.type) {
@@ -332,8 +532,8 @@ static void releaseNativeArray(JNIEnv *env, int i, int freedata) {
 		default:
 			fatalError("releaseNativeArray type");
 		}
-		// update complete status
-		(*env)->CallVoidMethod(env, cv.obj, setCompleteMethodID, cv.obj, complete);
+		// write back copies of mapped vectors and update complete status
+		(*env)->CallStaticVoidMethod(env, CallRFFIHelperClass, releaseNativeDataMethodID, cv.obj, cv.jArray, complete);
 
         if (freedata) {
             // free up the slot
@@ -342,6 +542,7 @@ static void releaseNativeArray(JNIEnv *env, int i, int freedata) {
 	}
 }
 
+// callers hold cachedGlobalRefsLock
 static SEXP findCachedGlobalRef(JNIEnv *env, SEXP obj) {
 	for (int i = 0; i < cachedGlobalRefsHwm; i++) {
 		GlobalRefElem elem = cachedGlobalRefs[i];
@@ -358,7 +559,8 @@ static SEXP findCachedGlobalRef(JNIEnv *env, SEXP obj) {
 	return NULL;
 }
 
-SEXP addGlobalRef(JNIEnv *env, SEXP obj, int permanent) {
+// callers hold cachedGlobalRefsLock
+static SEXP addCachedGlobalRef(JNIEnv *env, SEXP obj, int permanent) {
 	SEXP gref;
 	if (cachedGlobalRefsHwm >= cachedGlobalRefsLength) {
 		int newLength = cachedGlobalRefsLength * 2;
@@ -384,8 +586,17 @@ SEXP addGlobalRef(JNIEnv *env, SEXP obj, int permanent) {
 	return gref;
 }
 
+SEXP addGlobalRef(JNIEnv *env, SEXP obj, int permanent) {
+	pthread_mutex_lock(&cachedGlobalRefsLock);
+	SEXP gref = addCachedGlobalRef(env, obj, permanent);
+	pthread_mutex_unlock(&cachedGlobalRefsLock);
+	return gref;
+}
+
 SEXP checkRef(JNIEnv *env, SEXP obj) {
+	pthread_mutex_lock(&cachedGlobalRefsLock);
 	SEXP gref = findCachedGlobalRef(env, obj);
+	pthread_mutex_unlock(&cachedGlobalRefsLock);
 	TRACE(TARGpp, obj, gref);
 	if (gref == NULL) {
 		return obj;
@@ -395,14 +606,17 @@ SEXP checkRef(JNIEnv *env, SEXP obj) {
 }
 
 SEXP createGlobalRef(JNIEnv *env, SEXP obj, int permanent) {
+	pthread_mutex_lock(&cachedGlobalRefsLock);
 	SEXP gref = findCachedGlobalRef(env, obj);
 	if (gref == NULL) {
-		gref = addGlobalRef(env, obj, permanent);
+		gref = addCachedGlobalRef(env, obj, permanent);
 	}
+	pthread_mutex_unlock(&cachedGlobalRefsLock);
 	return gref;
 }
 
 void releaseGlobalRef(JNIEnv *env, SEXP obj) {
+	pthread_mutex_lock(&cachedGlobalRefsLock);
 	for (int i = 0; i < cachedGlobalRefsHwm; i++) {
 		GlobalRefElem elem = cachedGlobalRefs[i];
 		if (elem.gref == NULL || elem.permanent) {
@@ -416,6 +630,7 @@ void releaseGlobalRef(JNIEnv *env, SEXP obj) {
 			cachedGlobalRefs[i].gref = NULL;
 		}
 	}
+	pthread_mutex_unlock(&cachedGlobalRefsLock);
 }
 
 void validateRef(JNIEnv *env, SEXP x, const char *msg) {
@@ -428,17 +643,38 @@ void validateRef(JNIEnv *env, SEXP x, const char *msg) {
 }
 
 void validate(SEXP x) {
-	(*curenv)->CallStaticObjectMethod(curenv, CallRFFIHelperClass, validateMethodID, x);
+	JNIEnv *env = getEnv();
+	(*env)->CallStaticObjectMethod(env, CallRFFIHelperClass, validateMethodID, x);
 }
 
 JNIEnv *getEnv() {
-//	fprintf(traceFile, "getEnv()=%p\n", curenv);
-	return curenv;
+	CallState *state = callState;
+	if (state == NULL) {
+		// e.g. a thread started by package code; without a JNIEnv there is no way to raise an R error
+		fprintf(stderr, "FastR: R API function called from a thread that is not running a native call\n");
+		abort();
+	}
+//	fprintf(traceFile, "getEnv()=%p\n", state->env);
+	return state->env;
+}
+
+/*
+ * getEnv for upcalls that are passed a SEXP: Java code may look at the elements of the vector,
+ * or evaluate code that does, so the staged SET_STRING_ELT/SET_VECTOR_ELT writes are applied first.
+ */
+JNIEnv *getEnvFlushed() {
+	JNIEnv *env = getEnv();
+	flushElts(env);
+	return env;
 }
 
 void setEnv(JNIEnv *env) {
 //	printf("setEnv(%p)\n", env);
-	curenv = env;
+	if (callState == NULL) {
+		callState = createCallState(env);
+	} else {
+		callState->env = env;
+	}
 }
 
 void *unimplemented(char *msg) {
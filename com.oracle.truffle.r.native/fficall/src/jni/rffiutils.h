@@ -29,10 +29,13 @@
 #include <limits.h>
 #include <Rinternals.h>
 #include <setjmp.h>
+#include <pthread.h>
 
 #define VALIDATE_REFS 1
 
 JNIEnv *getEnv();
+// getEnv for upcalls with SEXP arguments, applies the staged element writes first
+JNIEnv *getEnvFlushed();
 void setEnv(JNIEnv *env);
 
 jclass checkFindClass(JNIEnv *env, const char *name);
@@ -60,10 +63,10 @@ void validateRef(JNIEnv *env, SEXP x, const char *msg);
 void callEnter(JNIEnv *env, jmp_buf *error_exit);
 // exiting a top-level JNI call
 void callExit(JNIEnv *env);
-// called by callExit to deallocate transient memory
+// called by the outermost callExit of a thread to deallocate transient memory
 void allocExit();
 
-// returns the jmp_buf at the current call depth
+// returns the jmp_buf at the current call depth of the current thread
 jmp_buf *getErrorJmpBuf();
 
 // Given the x denotes an R vector type, return a pointer to
@@ -73,6 +76,11 @@ void *getNativeArray(JNIEnv *env, SEXP x, SEXPTYPE type);
 // data and thus the old C array should be invalidated
 void invalidateNativeArray(JNIEnv *env, SEXP oldObj);
 void updateNativeArrays(JNIEnv *env);
+// Stages the element write x[i] = v of SET_STRING_ELT or SET_VECTOR_ELT
+void stageElt(JNIEnv *env, SEXP x, int i, SEXP v);
+// Applies the staged element writes of the current thread, called wherever Java code may
+// observe the elements (also by updateNativeArrays and callExit)
+void flushElts(JNIEnv *env);
 
 SEXP addGlobalRef(JNIEnv *env, SEXP obj, int permanent);
 
@@ -123,8 +131,6 @@ extern jmethodID INTEGER_MethodID;
 extern jmethodID LOGICAL_MethodID;
 extern jmethodID REAL_MethodID;
 extern jmethodID RAW_MethodID;
-extern jmethodID setCompleteMethodID;
-
-extern int callDepth;
+extern jmethodID releaseNativeDataMethodID;
 
 #endif /* RFFIUTILS_H */
@@ -30,6 +30,7 @@ import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.api.profiles.ValueProfile;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
@@ -53,6 +54,7 @@ import com.oracle.truffle.r.runtime.ops.na.NACheck;
 public abstract class AnyNA extends RBuiltinNode {
 
     private final NACheck naCheck = NACheck.create();
+    private final ConditionProfile knownNoNAProfile = ConditionProfile.createBinaryProfile();
 
     private final boolean recursionAllowed;
 
@@ -85,6 +87,9 @@ public abstract class AnyNA extends RBuiltinNode {
     }
 
     private <T extends RAbstractVector> byte doVector(T vector, VectorIndexPredicate<T> predicate) {
+        if (knownNoNAProfile.profile(vector.isKnownNoNA())) {
+            return RRuntime.LOGICAL_FALSE;
+        }
         naCheck.enable(vector);
         for (int i = 0; i < vector.getLength(); i++) {
             if (predicate.apply(vector, i)) {
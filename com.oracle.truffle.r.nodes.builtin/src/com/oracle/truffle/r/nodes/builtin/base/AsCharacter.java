@@ -28,27 +28,39 @@ import static com.oracle.truffle.r.runtime.RDispatch.INTERNAL_GENERIC;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
 
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.nodes.unary.CastStringNode;
 import com.oracle.truffle.r.runtime.RDeparse;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractListVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
 @RBuiltin(name = "as.character", kind = PRIMITIVE, parameterNames = {"x", "..."}, dispatch = INTERNAL_GENERIC, behavior = PURE)
 public abstract class AsCharacter extends RBuiltinNode {
 
+    /**
+     * Integer and double vectors of at least this length are converted lazily, e.g.
+     * {@code head(as.character(x))} then only converts a few elements.
+     */
+    private static final int DEFERRED_MIN_LENGTH = 64;
+
     private final ConditionProfile noAttributes = ConditionProfile.createBinaryProfile();
+    private final ConditionProfile deferProfile = ConditionProfile.createBinaryProfile();
 
     @Override
     protected void createCasts(CastBuilder casts) {
-        casts.arg("x").allowNull().mapIf(instanceOf(RAbstractListVector.class).not(), asStringVector());
+        casts.arg("x").allowNull().mapIf(instanceOf(RAbstractListVector.class).or(instanceOf(RAbstractIntVector.class)).or(instanceOf(RAbstractDoubleVector.class)).not(), asStringVector());
     }
 
     @Specialization
@@ -65,6 +77,25 @@ public abstract class AsCharacter extends RBuiltinNode {
         }
     }
 
+    @Specialization
+    protected RAbstractStringVector asCharacter(RAbstractIntVector v,
+                    @Cached("createNonPreserving()") CastStringNode castString) {
+        return asCharacterNumeric(v, castString);
+    }
+
+    @Specialization
+    protected RAbstractStringVector asCharacter(RAbstractDoubleVector v,
+                    @Cached("createNonPreserving()") CastStringNode castString) {
+        return asCharacterNumeric(v, castString);
+    }
+
+    private RAbstractStringVector asCharacterNumeric(RAbstractVector v, CastStringNode castString) {
+        if (deferProfile.profile(v.getLength() >= DEFERRED_MIN_LENGTH)) {
+            return RDataFactory.createDeferredStringVector(v);
+        }
+        return (RAbstractStringVector) castString.executeString(v);
+    }
+
     @Specialization
     protected RStringVector asCharacter(RAbstractListVector list) {
         int len = list.getLength();
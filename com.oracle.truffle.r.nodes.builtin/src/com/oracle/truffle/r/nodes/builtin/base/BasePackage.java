@@ -90,12 +90,26 @@ import com.oracle.truffle.r.nodes.builtin.fastr.FastRContext;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRContextFactory;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRDebug;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRDebugNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRDistBlock;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRDistBlockNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRGroupedAggregate;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRGroupedAggregateNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRIdentity;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRIdentityNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRInspect;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRInspectNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRInterop;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRInteropFactory;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRMergeJoin;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRMergeJoinNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRMmapVector;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRMmapVectorNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRMmapWrite;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRMmapWriteNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastROffHeapVector;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastROffHeapVectorNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRPerfReport;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRPerfReportNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRPkgSource;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRPkgSourceNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRefCountInfo;
@@ -104,6 +118,7 @@ import com.oracle.truffle.r.nodes.builtin.fastr.FastRStackTrace;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRStackTraceNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRStats.FastRProfAttr;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRStats.FastRProfFuncounts;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRStats.FastRProfFunctions;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRStats.FastRProfTypecounts;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRStatsFactory;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRSyntaxTree;
@@ -341,10 +356,13 @@ public class BasePackage extends RBuiltinPackage {
         add(FastRContext.ChannelReceive.class, FastRContextFactory.ChannelReceiveNodeGen::create);
         add(FastRContext.ChannelSelect.class, FastRContextFactory.ChannelSelectNodeGen::create);
         add(FastRContext.ChannelSend.class, FastRContextFactory.ChannelSendNodeGen::create);
+        add(FastRContext.Snapshot.class, FastRContextFactory.SnapshotNodeGen::create);
         add(FastRContext.Spawn.class, FastRContextFactory.SpawnNodeGen::create);
         add(FastRContext.Join.class, FastRContextFactory.JoinNodeGen::create);
         add(FastrDqrls.class, FastrDqrlsNodeGen::create);
         add(FastRDebug.class, FastRDebugNodeGen::create);
+        add(FastRDistBlock.class, FastRDistBlockNodeGen::create);
+        add(FastRGroupedAggregate.class, FastRGroupedAggregateNodeGen::create);
         add(FastRIdentity.class, FastRIdentityNodeGen::create);
         add(FastRTry.class, FastRTryNodeGen::create);
         add(FastRInspect.class, FastRInspectNodeGen::create);
@@ -355,12 +373,18 @@ public class BasePackage extends RBuiltinPackage {
         add(FastRInterop.IsNull.class, FastRInteropFactory.IsNullNodeGen::create);
         add(FastRInterop.IsExecutable.class, FastRInteropFactory.IsExecutableNodeGen::create);
         add(FastRInterop.ToBoolean.class, FastRInteropFactory.ToBooleanNodeGen::create);
+        add(FastRMergeJoin.class, FastRMergeJoinNodeGen::create);
+        add(FastRMmapVector.class, FastRMmapVectorNodeGen::create);
+        add(FastRMmapWrite.class, FastRMmapWriteNodeGen::create);
+        add(FastROffHeapVector.class, FastROffHeapVectorNodeGen::create);
         add(FastRRefCountInfo.class, FastRRefCountInfoNodeGen::create);
+        add(FastRPerfReport.class, FastRPerfReportNodeGen::create);
         add(FastRPkgSource.class, FastRPkgSourceNodeGen::create);
         add(FastRStackTrace.class, FastRStackTraceNodeGen::create);
         add(FastRProfAttr.class, FastRStatsFactory.FastRProfAttrNodeGen::create);
         add(FastRProfTypecounts.class, FastRStatsFactory.FastRProfTypecountsNodeGen::create);
         add(FastRProfFuncounts.class, FastRStatsFactory.FastRProfFuncountsNodeGen::create);
+        add(FastRProfFunctions.class, FastRStatsFactory.FastRProfFunctionsNodeGen::create);
         add(FastRSyntaxTree.class, FastRSyntaxTreeNodeGen::create);
         add(FastRThrowIt.class, FastRThrowItNodeGen::create);
         add(FastRTrace.Trace.class, FastRTraceFactory.TraceNodeGen::create);
@@ -18,6 +18,8 @@ import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
@@ -29,6 +31,27 @@ public abstract class ColMeans extends ColSumsBase {
 
     @Child private BinaryArithmetic add = BinaryArithmetic.ADD.createOperation();
 
+    @Specialization
+    protected RDoubleVector colMeans(RDoubleVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.colSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, true));
+    }
+
+    @Specialization
+    protected RDoubleVector colMeans(RIntVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.colSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, true));
+    }
+
+    @Specialization
+    protected RDoubleVector colMeans(RLogicalVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.colSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, true));
+    }
+
     @Specialization(guards = "!naRm")
     protected RDoubleVector colMeansNaRmFalse(RAbstractDoubleVector x, int rowNum, int colNum, @SuppressWarnings("unused") boolean naRm) {
         checkVectorLength(x, rowNum, colNum);
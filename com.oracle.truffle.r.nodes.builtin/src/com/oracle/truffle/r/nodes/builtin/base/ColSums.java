@@ -32,6 +32,8 @@ import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
@@ -45,6 +47,27 @@ public abstract class ColSums extends ColSumsBase {
     private final ConditionProfile removeNA = ConditionProfile.createBinaryProfile();
     private final ValueProfile concreteVectorProfile = ValueProfile.createClassProfile();
 
+    @Specialization
+    protected RDoubleVector colSums(RDoubleVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.colSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, false));
+    }
+
+    @Specialization
+    protected RDoubleVector colSums(RIntVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.colSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, false));
+    }
+
+    @Specialization
+    protected RDoubleVector colSums(RLogicalVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.colSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, false));
+    }
+
     @Specialization
     protected RDoubleVector colSums(RAbstractDoubleVector x, int rowNum, int colNum, boolean rnaParam) {
         checkVectorLength(x, rowNum, colNum);
@@ -61,6 +61,13 @@ public abstract class ColSumsBase extends RBuiltinNode {
         }
     }
 
+    /**
+     * Creates the result of one of the {@link ColSumsKernels}.
+     */
+    protected static RDoubleVector createResult(double[] result) {
+        return RDataFactory.createDoubleVector(result, ColSumsKernels.isComplete(result));
+    }
+
     @Specialization(guards = {"rowNum == 0", "colNum == 0"})
     @SuppressWarnings("unused")
     protected static RDoubleVector doEmptyMatrix(Object x, int rowNum, int colNum, boolean naRm) {
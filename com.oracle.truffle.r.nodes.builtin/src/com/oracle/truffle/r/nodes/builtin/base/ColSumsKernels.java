@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.ParallelKernels;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Kernels of {@link ColSums}, {@link ColMeans}, {@link RowSums} and {@link RowMeans} that work
+ * directly on the stores of materialized vectors.
+ *
+ * The column kernels sum {@link #UNROLL} columns at once, the row kernels accumulate a block of
+ * {@link #ROW_BLOCK} rows column by column, so that the matrix is always read sequentially and the
+ * accumulators stay in cache. Column or row blocks are distributed over {@link ParallelKernels}
+ * for large matrices. Every result element is summed in the same order as in the generic
+ * implementations, so the results do not depend on the blocking. Without {@code na.rm} the first
+ * {@code NA} or {@code NaN} in a column (row) determines the result, which is found by rescanning
+ * only the columns (rows) whose sum turned out to be {@code NaN}.
+ */
+final class ColSumsKernels {
+
+    private static final int UNROLL = 4;
+    private static final int ROW_BLOCK = 1024;
+
+    private ColSumsKernels() {
+        // only static methods
+    }
+
+    @TruffleBoundary
+    static double[] colSums(double[] x, int rowNum, int colNum, boolean naRm, boolean mean) {
+        double[] result = new double[colNum];
+        ParallelKernels.forEachBlock(colNum, ParallelKernels.blockSize(colNum, UNROLL), (long) rowNum * colNum, (from, to) -> {
+            int c = from;
+            if (!naRm) {
+                for (; c <= to - UNROLL; c += UNROLL) {
+                    int off0 = c * rowNum;
+                    int off1 = off0 + rowNum;
+                    int off2 = off1 + rowNum;
+                    int off3 = off2 + rowNum;
+                    double s0 = 0;
+                    double s1 = 0;
+                    double s2 = 0;
+                    double s3 = 0;
+                    for (int i = 0; i < rowNum; i++) {
+                        s0 += x[off0 + i];
+                        s1 += x[off1 + i];
+                        s2 += x[off2 + i];
+                        s3 += x[off3 + i];
+                    }
+                    result[c] = finishColumn(x, off0, rowNum, s0, mean);
+                    result[c + 1] = finishColumn(x, off1, rowNum, s1, mean);
+                    result[c + 2] = finishColumn(x, off2, rowNum, s2, mean);
+                    result[c + 3] = finishColumn(x, off3, rowNum, s3, mean);
+                }
+            }
+            for (; c < to; c++) {
+                int off = c * rowNum;
+                double sum = 0;
+                if (naRm) {
+                    int count = 0;
+                    for (int i = 0; i < rowNum; i++) {
+                        double el = x[off + i];
+                        if (!Double.isNaN(el)) {
+                            sum += el;
+                            count++;
+                        }
+                    }
+                    result[c] = mean ? (count == 0 ? Double.NaN : sum / count) : sum;
+                } else {
+                    for (int i = 0; i < rowNum; i++) {
+                        sum += x[off + i];
+                    }
+                    result[c] = finishColumn(x, off, rowNum, sum, mean);
+                }
+            }
+        });
+        return result;
+    }
+
+    private static double finishColumn(double[] x, int off, int rowNum, double sum, boolean mean) {
+        if (Double.isNaN(sum)) {
+            return firstNaN(x, off, 1, rowNum, sum);
+        }
+        return mean ? sum / rowNum : sum;
+    }
+
+    /**
+     * Returns the first {@code NA} or {@code NaN} among {@code n} elements starting at
+     * {@code off}, or {@code sum} if there is none (e.g., for {@code Inf - Inf}).
+     */
+    private static double firstNaN(double[] x, int off, int stride, int n, double sum) {
+        for (int i = 0, pos = off; i < n; i++, pos += stride) {
+            double el = x[pos];
+            if (Double.isNaN(el)) {
+                return RRuntime.isNA(el) ? RRuntime.DOUBLE_NA : Double.NaN;
+            }
+        }
+        return sum;
+    }
+
+    @TruffleBoundary
+    static double[] colSums(int[] x, int rowNum, int colNum, boolean naRm, boolean mean) {
+        double[] result = new double[colNum];
+        ParallelKernels.forEachBlock(colNum, ParallelKernels.blockSize(colNum, UNROLL), (long) rowNum * colNum, (from, to) -> {
+            for (int c = from; c < to; c++) {
+                int off = c * rowNum;
+                double sum = 0;
+                int count = 0;
+                for (int i = 0; i < rowNum; i++) {
+                    int el = x[off + i];
+                    if (el != RRuntime.INT_NA) {
+                        sum += el;
+                        count++;
+                    }
+                }
+                result[c] = finishCount(sum, count, rowNum, naRm, mean);
+            }
+        });
+        return result;
+    }
+
+    @TruffleBoundary
+    static double[] colSums(byte[] x, int rowNum, int colNum, boolean naRm, boolean mean) {
+        double[] result = new double[colNum];
+        ParallelKernels.forEachBlock(colNum, ParallelKernels.blockSize(colNum, UNROLL), (long) rowNum * colNum, (from, to) -> {
+            for (int c = from; c < to; c++) {
+                int off = c * rowNum;
+                double sum = 0;
+                int count = 0;
+                for (int i = 0; i < rowNum; i++) {
+                    byte el = x[off + i];
+                    if (el != RRuntime.LOGICAL_NA) {
+                        sum += el;
+                        count++;
+                    }
+                }
+                result[c] = finishCount(sum, count, rowNum, naRm, mean);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Result for integer and logical input, where {@code count < n} means that there were
+     * {@code NA}s.
+     */
+    private static double finishCount(double sum, int count, int n, boolean naRm, boolean mean) {
+        if (naRm) {
+            return mean ? (count == 0 ? Double.NaN : sum / count) : sum;
+        } else if (count < n) {
+            return RRuntime.DOUBLE_NA;
+        }
+        return mean ? sum / n : sum;
+    }
+
+    @TruffleBoundary
+    static double[] rowSums(double[] x, int rowNum, int colNum, boolean naRm, boolean mean) {
+        double[] result = new double[rowNum];
+        forEachRowBlock(rowNum, colNum, (from, to) -> {
+            int[] counts = naRm ? new int[to - from] : null;
+            for (int c = 0; c < colNum; c++) {
+                int off = c * rowNum;
+                if (naRm) {
+                    for (int r = from; r < to; r++) {
+                        double el = x[off + r];
+                        if (!Double.isNaN(el)) {
+                            result[r] += el;
+                            counts[r - from]++;
+                        }
+                    }
+                } else {
+                    for (int r = from; r < to; r++) {
+                        result[r] += x[off + r];
+                    }
+                }
+            }
+            for (int r = from; r < to; r++) {
+                double sum = result[r];
+                if (naRm) {
+                    int count = counts[r - from];
+                    result[r] = mean ? (count == 0 ? Double.NaN : sum / count) : sum;
+                } else if (Double.isNaN(sum)) {
+                    result[r] = firstNaN(x, r, rowNum, colNum, sum);
+                } else {
+                    result[r] = mean ? sum / colNum : sum;
+                }
+            }
+        });
+        return result;
+    }
+
+    @TruffleBoundary
+    static double[] rowSums(int[] x, int rowNum, int colNum, boolean naRm, boolean mean) {
+        double[] result = new double[rowNum];
+        forEachRowBlock(rowNum, colNum, (from, to) -> {
+            int[] counts = new int[to - from];
+            for (int c = 0; c < colNum; c++) {
+                int off = c * rowNum;
+                for (int r = from; r < to; r++) {
+                    int el = x[off + r];
+                    if (el != RRuntime.INT_NA) {
+                        result[r] += el;
+                        counts[r - from]++;
+                    }
+                }
+            }
+            for (int r = from; r < to; r++) {
+                result[r] = finishCount(result[r], counts[r - from], colNum, naRm, mean);
+            }
+        });
+        return result;
+    }
+
+    @TruffleBoundary
+    static double[] rowSums(byte[] x, int rowNum, int colNum, boolean naRm, boolean mean) {
+        double[] result = new double[rowNum];
+        forEachRowBlock(rowNum, colNum, (from, to) -> {
+            int[] counts = new int[to - from];
+            for (int c = 0; c < colNum; c++) {
+                int off = c * rowNum;
+                for (int r = from; r < to; r++) {
+                    byte el = x[off + r];
+                    if (el != RRuntime.LOGICAL_NA) {
+                        result[r] += el;
+                        counts[r - from]++;
+                    }
+                }
+            }
+            for (int r = from; r < to; r++) {
+                result[r] = finishCount(result[r], counts[r - from], colNum, naRm, mean);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Splits the rows into blocks of at most {@link #ROW_BLOCK} rows, the blocks are processed in
+     * parallel for large matrices.
+     */
+    private static void forEachRowBlock(int rowNum, int colNum, ParallelKernels.BlockBody body) {
+        boolean parallel = ParallelKernels.useParallel((long) rowNum * colNum);
+        ParallelKernels.forEachBlock(rowNum, ROW_BLOCK, parallel, body);
+    }
+
+    /**
+     * Returns {@code true} if none of the results is {@code NA}.
+     */
+    static boolean isComplete(double[] result) {
+        for (int i = 0; i < result.length; i++) {
+            if (RRuntime.isNA(result[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -19,15 +19,12 @@ import static com.oracle.truffle.r.runtime.RDispatch.MATH_GROUP_GENERIC;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
 
-import java.util.Arrays;
-
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.RError;
-import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RAttributeProfiles;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -37,12 +34,10 @@ import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
-import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
 @RBuiltin(name = "cummax", kind = PRIMITIVE, parameterNames = {"x"}, dispatch = MATH_GROUP_GENERIC, behavior = PURE)
 public abstract class CumMax extends RBuiltinNode {
 
-    private final NACheck na = NACheck.create();
     private final RAttributeProfiles attrProfiles = RAttributeProfiles.create();
 
     @Override
@@ -79,46 +74,16 @@ public abstract class CumMax extends RBuiltinNode {
 
     @Specialization
     protected RDoubleVector cummax(RAbstractDoubleVector v) {
-        double[] cmaxV = new double[v.getLength()];
-        double max = v.getDataAt(0);
-        cmaxV[0] = max;
-        na.enable(v);
-        int i;
-        for (i = 1; i < v.getLength(); i++) {
-            if (v.getDataAt(i) > max) {
-                max = v.getDataAt(i);
-            }
-            if (na.check(v.getDataAt(i))) {
-                break;
-            }
-            cmaxV[i] = max;
-        }
-        if (!na.neverSeenNA()) {
-            Arrays.fill(cmaxV, i, cmaxV.length, RRuntime.DOUBLE_NA);
-        }
-        return RDataFactory.createDoubleVector(cmaxV, na.neverSeenNA(), v.getNames(attrProfiles));
+        double[] res = new double[v.getLength()];
+        int naFrom = CumulativeKernels.cumExtreme(v.materialize().getDataWithoutCopying(), res, true);
+        return RDataFactory.createDoubleVector(res, naFrom == res.length, v.getNames(attrProfiles));
     }
 
     @Specialization(contains = "cummaxIntSequence")
     protected RIntVector cummax(RAbstractIntVector v) {
-        int[] cmaxV = new int[v.getLength()];
-        int max = v.getDataAt(0);
-        cmaxV[0] = max;
-        na.enable(v);
-        int i;
-        for (i = 1; i < v.getLength(); i++) {
-            if (v.getDataAt(i) > max) {
-                max = v.getDataAt(i);
-            }
-            if (na.check(v.getDataAt(i))) {
-                break;
-            }
-            cmaxV[i] = max;
-        }
-        if (!na.neverSeenNA()) {
-            Arrays.fill(cmaxV, i, cmaxV.length, RRuntime.INT_NA);
-        }
-        return RDataFactory.createIntVector(cmaxV, na.neverSeenNA(), v.getNames(attrProfiles));
+        int[] res = new int[v.getLength()];
+        int naFrom = CumulativeKernels.cumExtreme(v.materialize().getDataWithoutCopying(), res, true);
+        return RDataFactory.createIntVector(res, naFrom == res.length, v.getNames(attrProfiles));
     }
 
 }
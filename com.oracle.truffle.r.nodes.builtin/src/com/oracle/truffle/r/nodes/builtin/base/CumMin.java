@@ -19,15 +19,12 @@ import static com.oracle.truffle.r.runtime.RDispatch.MATH_GROUP_GENERIC;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
 
-import java.util.Arrays;
-
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.RError;
-import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RAttributeProfiles;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -37,12 +34,10 @@ import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
-import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
 @RBuiltin(name = "cummin", kind = PRIMITIVE, parameterNames = {"x"}, dispatch = MATH_GROUP_GENERIC, behavior = PURE)
 public abstract class CumMin extends RBuiltinNode {
 
-    private final NACheck na = NACheck.create();
     private final RAttributeProfiles attrProfiles = RAttributeProfiles.create();
 
     @Override
@@ -79,46 +74,16 @@ public abstract class CumMin extends RBuiltinNode {
 
     @Specialization
     protected RDoubleVector cummin(RAbstractDoubleVector v) {
-        double[] cminV = new double[v.getLength()];
-        double min = v.getDataAt(0);
-        cminV[0] = min;
-        na.enable(v);
-        int i;
-        for (i = 1; i < v.getLength(); i++) {
-            if (v.getDataAt(i) < min) {
-                min = v.getDataAt(i);
-            }
-            if (na.check(v.getDataAt(i))) {
-                break;
-            }
-            cminV[i] = min;
-        }
-        if (!na.neverSeenNA()) {
-            Arrays.fill(cminV, i, cminV.length, RRuntime.DOUBLE_NA);
-        }
-        return RDataFactory.createDoubleVector(cminV, na.neverSeenNA(), v.getNames(attrProfiles));
+        double[] res = new double[v.getLength()];
+        int naFrom = CumulativeKernels.cumExtreme(v.materialize().getDataWithoutCopying(), res, false);
+        return RDataFactory.createDoubleVector(res, naFrom == res.length, v.getNames(attrProfiles));
     }
 
     @Specialization(contains = "cumminIntSequence")
     protected RIntVector cummin(RAbstractIntVector v) {
-        int[] cminV = new int[v.getLength()];
-        int min = v.getDataAt(0);
-        cminV[0] = min;
-        na.enable(v);
-        int i;
-        for (i = 1; i < v.getLength(); i++) {
-            if (v.getDataAt(i) < min) {
-                min = v.getDataAt(i);
-            }
-            if (na.check(v.getDataAt(i))) {
-                break;
-            }
-            cminV[i] = min;
-        }
-        if (!na.neverSeenNA()) {
-            Arrays.fill(cminV, i, cminV.length, RRuntime.INT_NA);
-        }
-        return RDataFactory.createIntVector(cminV, na.neverSeenNA(), v.getNames(attrProfiles));
+        int[] res = new int[v.getLength()];
+        int naFrom = CumulativeKernels.cumExtreme(v.materialize().getDataWithoutCopying(), res, false);
+        return RDataFactory.createIntVector(res, naFrom == res.length, v.getNames(attrProfiles));
     }
 
 }
@@ -71,46 +71,16 @@ public abstract class CumProd extends RBuiltinNode {
 
     @Specialization
     protected RIntVector cumprod(RAbstractIntVector arg) {
-        int[] array = new int[arg.getLength()];
-        na.enable(arg);
-        int prev = 1;
-        int i;
-        for (i = 0; i < arg.getLength(); i++) {
-            if (na.check(arg.getDataAt(i))) {
-                break;
-            }
-            prev = mul.op(prev, arg.getDataAt(i));
-            if (na.check(prev)) {
-                break;
-            }
-            array[i] = prev;
-        }
-        if (!na.neverSeenNA()) {
-            Arrays.fill(array, i, array.length, RRuntime.INT_NA);
-        }
-        return RDataFactory.createIntVector(array, !na.neverSeenNA(), arg.getNames(attrProfiles));
+        int[] res = new int[arg.getLength()];
+        int naFrom = CumulativeKernels.cumprod(arg.materialize().getDataWithoutCopying(), res);
+        return RDataFactory.createIntVector(res, naFrom == res.length, arg.getNames(attrProfiles));
     }
 
     @Specialization
     protected RDoubleVector cumprod(RAbstractDoubleVector arg) {
-        double[] array = new double[arg.getLength()];
-        na.enable(arg);
-        double prev = 1;
-        int i;
-        for (i = 0; i < arg.getLength(); i++) {
-            if (na.check(arg.getDataAt(i))) {
-                break;
-            }
-            prev = mul.op(prev, arg.getDataAt(i));
-            if (na.check(prev)) {
-                break;
-            }
-            array[i] = prev;
-        }
-        if (!na.neverSeenNA()) {
-            Arrays.fill(array, i, array.length, RRuntime.DOUBLE_NA);
-        }
-        return RDataFactory.createDoubleVector(array, !na.neverSeenNA(), arg.getNames(attrProfiles));
+        double[] res = new double[arg.getLength()];
+        int naFrom = CumulativeKernels.cumprod(arg.materialize().getDataWithoutCopying(), res);
+        return RDataFactory.createDoubleVector(res, naFrom == res.length, arg.getNames(attrProfiles));
     }
 
     @Specialization
@@ -133,6 +103,6 @@ public abstract class CumProd extends RBuiltinNode {
         if (!na.neverSeenNA()) {
             Arrays.fill(array, 2 * i, array.length, RRuntime.DOUBLE_NA);
         }
-        return RDataFactory.createComplexVector(array, !na.neverSeenNA(), arg.getNames(attrProfiles));
+        return RDataFactory.createComplexVector(array, na.neverSeenNA(), arg.getNames(attrProfiles));
     }
 }
@@ -38,6 +38,7 @@ import java.util.Arrays;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RAttributeProfiles;
@@ -98,6 +99,7 @@ public abstract class CumSum extends RBuiltinNode {
             res[i] = prev;
         }
         if (!na.neverSeenNA()) {
+            RError.warning(this, RError.Message.INTEGER_OVERFLOW_CUMSUM);
             Arrays.fill(res, i, res.length, RRuntime.INT_NA);
         }
         return RDataFactory.createIntVector(res, na.neverSeenNA(), arg.getNames(attrProfiles));
@@ -106,42 +108,19 @@ public abstract class CumSum extends RBuiltinNode {
     @Specialization
     protected RDoubleVector cumsum(RAbstractDoubleVector arg) {
         double[] res = new double[arg.getLength()];
-        double prev = 0.0;
-        na.enable(true);
-        int i;
-        for (i = 0; i < arg.getLength(); i++) {
-            prev = add.op(prev, arg.getDataAt(i));
-            if (na.check(arg.getDataAt(i))) {
-                break;
-            }
-            res[i] = prev;
-        }
-        if (!na.neverSeenNA()) {
-            Arrays.fill(res, i, res.length, RRuntime.DOUBLE_NA);
-        }
-        return RDataFactory.createDoubleVector(res, na.neverSeenNA(), arg.getNames(attrProfiles));
+        int naFrom = CumulativeKernels.cumsum(arg.materialize().getDataWithoutCopying(), res);
+        return RDataFactory.createDoubleVector(res, naFrom == res.length, arg.getNames(attrProfiles));
     }
 
     @Specialization
     protected RIntVector cumsum(RAbstractIntVector arg) {
-        int[] res = new int[arg.getLength()];
-        int prev = 0;
-        int i;
-        na.enable(true);
-        for (i = 0; i < arg.getLength(); i++) {
-            if (na.check(arg.getDataAt(i))) {
-                break;
-            }
-            prev = add.op(prev, arg.getDataAt(i));
-            if (na.check(prev)) {
-                break;
-            }
-            res[i] = prev;
-        }
-        if (!na.neverSeenNA()) {
-            Arrays.fill(res, i, res.length, RRuntime.INT_NA);
+        int[] x = arg.materialize().getDataWithoutCopying();
+        int[] res = new int[x.length];
+        int naFrom = CumulativeKernels.cumsum(x, res);
+        if (naFrom < x.length && !RRuntime.isNA(x[naFrom])) {
+            RError.warning(this, RError.Message.INTEGER_OVERFLOW_CUMSUM);
         }
-        return RDataFactory.createIntVector(res, na.neverSeenNA(), arg.getNames(attrProfiles));
+        return RDataFactory.createIntVector(res, naFrom == res.length, arg.getNames(attrProfiles));
     }
 
     @Specialization
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.ParallelKernels;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Prefix scans over primitive arrays for {@code cumsum}, {@code cumprod}, {@code cummax} and
+ * {@code cummin}. Each kernel writes the scan of {@code x} into {@code res} and returns the index
+ * from which on the result is {@code NA}, which is the first {@code NA} element or, for integers,
+ * the first element where the result overflows, and {@code x.length} if there is none.
+ *
+ * Except for the double sums and products, which are always sequential, vectors of at least
+ * {@link #BLOCKED_THRESHOLD} elements are scanned in two passes over fixed-size blocks: the first
+ * pass scans each block on its own and computes the block totals, the second one combines each
+ * block with the total of the preceding blocks. Both passes run in parallel if the vector is large
+ * enough. This is only done where combining the blocks gives exactly the sequential result.
+ */
+final class CumulativeKernels {
+
+    private static final int BLOCK_SIZE = 1 << 14;
+    private static final int BLOCKED_THRESHOLD = 1 << 17;
+
+    private CumulativeKernels() {
+        // only static methods
+    }
+
+    private static int blocks(int n) {
+        return n < BLOCKED_THRESHOLD ? 1 : (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    private static void forEachBlock(int n, int blocks, ParallelKernels.BlockBody body) {
+        if (blocks == 1) {
+            body.run(0, n);
+        } else {
+            ParallelKernels.forEachBlock(n, BLOCK_SIZE, n, body);
+        }
+    }
+
+    private static int firstNA(int[] blockNA, int n) {
+        for (int na : blockNA) {
+            if (na >= 0) {
+                return na;
+            }
+        }
+        return n;
+    }
+
+    @TruffleBoundary
+    static int cumsum(double[] x, double[] res) {
+        return scan(x, res, false);
+    }
+
+    @TruffleBoundary
+    static int cumprod(double[] x, double[] res) {
+        return scan(x, res, true);
+    }
+
+    /**
+     * Double sums and products are scanned sequentially: combining block totals would change the
+     * rounding and the overflow behavior (and e.g. {@code Inf * 0} would turn the zeros after an
+     * overflowing block into {@code NaN}), so the results would differ from GnuR.
+     */
+    private static int scan(double[] x, double[] res, boolean product) {
+        int n = x.length;
+        double acc = product ? 1 : 0;
+        int i;
+        for (i = 0; i < n; i++) {
+            double v = x[i];
+            if (RRuntime.isNA(v)) {
+                break;
+            }
+            acc = product ? acc * v : acc + v;
+            res[i] = acc;
+        }
+        Arrays.fill(res, i, n, RRuntime.DOUBLE_NA);
+        return i;
+    }
+
+    @TruffleBoundary
+    static int cumsum(int[] x, int[] res) {
+        int n = x.length;
+        int blocks = blocks(n);
+        long[] offsets = new long[blocks + 1];
+        if (blocks > 1) {
+            // the block totals cannot overflow a long
+            forEachBlock(n, blocks, (from, to) -> {
+                long sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += x[i];
+                }
+                offsets[from / BLOCK_SIZE + 1] = sum;
+            });
+            for (int b = 0; b < blocks; b++) {
+                offsets[b + 1] += offsets[b];
+            }
+        }
+        int[] blockCut = new int[blocks];
+        forEachBlock(n, blocks, (from, to) -> {
+            long sum = offsets[from / BLOCK_SIZE];
+            int cut = -1;
+            for (int i = from; i < to; i++) {
+                int v = x[i];
+                sum += v;
+                // INT_MIN is NA
+                if (RRuntime.isNA(v) || sum > Integer.MAX_VALUE || sum <= Integer.MIN_VALUE) {
+                    cut = i;
+                    break;
+                }
+                res[i] = (int) sum;
+            }
+            blockCut[from / BLOCK_SIZE] = cut;
+        });
+        int cut = firstNA(blockCut, n);
+        Arrays.fill(res, cut, n, RRuntime.INT_NA);
+        return cut;
+    }
+
+    /**
+     * Integer products overflow after a few non-trivial factors, so this is a plain sequential
+     * loop.
+     */
+    @TruffleBoundary
+    static int cumprod(int[] x, int[] res) {
+        int n = x.length;
+        long prod = 1;
+        int i;
+        for (i = 0; i < n; i++) {
+            int v = x[i];
+            prod *= v;
+            if (RRuntime.isNA(v) || prod > Integer.MAX_VALUE || prod <= Integer.MIN_VALUE) {
+                break;
+            }
+            res[i] = (int) prod;
+        }
+        Arrays.fill(res, i, n, RRuntime.INT_NA);
+        return i;
+    }
+
+    /**
+     * {@code cummax} or {@code cummin}: from the first {@code NaN} on the result is {@code NaN},
+     * from the first {@code NA} on it is {@code NA}.
+     */
+    @TruffleBoundary
+    static int cumExtreme(double[] x, double[] res, boolean max) {
+        int n = x.length;
+        int blocks = blocks(n);
+        double[] totals = new double[blocks];
+        int[] blockNA = new int[blocks];
+        int[] blockNaN = new int[blocks];
+        forEachBlock(n, blocks, (from, to) -> {
+            double acc = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            int na = -1;
+            int nan = -1;
+            for (int i = from; i < to; i++) {
+                double v = x[i];
+                if (Double.isNaN(v)) {
+                    if (RRuntime.isNA(v)) {
+                        na = i;
+                        break;
+                    } else if (nan < 0) {
+                        nan = i;
+                    }
+                } else if (max ? v > acc : v < acc) {
+                    acc = v;
+                }
+                res[i] = acc;
+            }
+            totals[from / BLOCK_SIZE] = acc;
+            blockNA[from / BLOCK_SIZE] = na;
+            blockNaN[from / BLOCK_SIZE] = nan;
+        });
+        int cut = firstNA(blockNA, n);
+        if (blocks > 1) {
+            double[] offsets = new double[blocks];
+            double offset = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            for (int b = 0; b < blocks; b++) {
+                offsets[b] = offset;
+                offset = max ? Math.max(offset, totals[b]) : Math.min(offset, totals[b]);
+            }
+            forEachBlock(n, blocks, (from, to) -> {
+                int b = from / BLOCK_SIZE;
+                int end = Math.min(to, cut);
+                for (int i = from; i < end; i++) {
+                    res[i] = max ? Math.max(offsets[b], res[i]) : Math.min(offsets[b], res[i]);
+                }
+            });
+        }
+        int nan = Math.min(firstNA(blockNaN, n), cut);
+        Arrays.fill(res, nan, cut, Double.NaN);
+        Arrays.fill(res, cut, n, RRuntime.DOUBLE_NA);
+        return cut;
+    }
+
+    @TruffleBoundary
+    static int cumExtreme(int[] x, int[] res, boolean max) {
+        int n = x.length;
+        int blocks = blocks(n);
+        int[] totals = new int[blocks];
+        int[] blockNA = new int[blocks];
+        forEachBlock(n, blocks, (from, to) -> {
+            int acc = max ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            int na = -1;
+            for (int i = from; i < to; i++) {
+                int v = x[i];
+                if (RRuntime.isNA(v)) {
+                    na = i;
+                    break;
+                } else if (max ? v > acc : v < acc) {
+                    acc = v;
+                }
+                res[i] = acc;
+            }
+            totals[from / BLOCK_SIZE] = acc;
+            blockNA[from / BLOCK_SIZE] = na;
+        });
+        int cut = firstNA(blockNA, n);
+        if (blocks > 1) {
+            int[] offsets = new int[blocks];
+            int offset = max ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            for (int b = 0; b < blocks; b++) {
+                offsets[b] = offset;
+                offset = max ? Math.max(offset, totals[b]) : Math.min(offset, totals[b]);
+            }
+            forEachBlock(n, blocks, (from, to) -> {
+                int b = from / BLOCK_SIZE;
+                int end = Math.min(to, cut);
+                for (int i = from; i < end; i++) {
+                    res[i] = max ? Math.max(offsets[b], res[i]) : Math.min(offsets[b], res[i]);
+                }
+            });
+        }
+        Arrays.fill(res, cut, n, RRuntime.INT_NA);
+        return cut;
+    }
+}
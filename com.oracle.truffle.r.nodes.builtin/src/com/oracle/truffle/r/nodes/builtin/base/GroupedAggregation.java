@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.ParallelKernels;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Single-pass grouped aggregation shared by {@code rowsum}, {@code split}, {@code tabulate} and
+ * {@code .fastr.grouped.aggregate} (which in turn backs the {@code tapply} fast path). Groups are
+ * given as 1-based integer codes, like the codes of a factor; {@code NA} codes and codes outside of
+ * {@code [1, nGroups]} are ignored.
+ *
+ * Large inputs with comparatively few groups are aggregated in fixed-size blocks, each into its own
+ * set of accumulators, which are then merged in block order. Whether this happens only depends on
+ * the size of the input, not on whether the blocks actually run in parallel, so the results do not
+ * depend on the number of available threads.
+ */
+public final class GroupedAggregation {
+
+    public enum Op {
+        SUM,
+        MEAN,
+        MIN,
+        MAX,
+        VAR;
+
+        public static Op fromName(String name) {
+            switch (name) {
+                case "sum":
+                    return SUM;
+                case "mean":
+                    return MEAN;
+                case "min":
+                    return MIN;
+                case "max":
+                    return MAX;
+                case "var":
+                    return VAR;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Minimal input length for aggregating into per-block accumulators.
+     */
+    private static final int PARTIAL_THRESHOLD = 1 << 18;
+
+    /**
+     * State of the {@code NaN} values seen in a group, {@code NA} dominates other {@code NaN}s.
+     */
+    private static final byte SEEN_NAN = 1;
+    private static final byte SEEN_NA = 2;
+
+    private GroupedAggregation() {
+        // only static methods
+    }
+
+    /**
+     * Returns {@code codes} recycled to {@code length}, or {@code codes} itself if it already has
+     * that length.
+     */
+    public static int[] recycle(int[] codes, int length) {
+        if (codes.length == length || codes.length == 0) {
+            return codes;
+        }
+        int[] result = new int[length];
+        for (int i = 0; i < length; i += codes.length) {
+            System.arraycopy(codes, 0, result, i, Math.min(codes.length, length - i));
+        }
+        return result;
+    }
+
+    private static int blocks(int n, int nGroups) {
+        // per-block accumulators only pay off (and only fit into memory) for few groups
+        if (n < PARTIAL_THRESHOLD || (long) nGroups * 16 > n) {
+            return 1;
+        }
+        return (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    private static void forEachPartial(int n, int blocks, ParallelKernels.BlockBody body) {
+        if (blocks == 1) {
+            body.run(0, n);
+        } else {
+            ParallelKernels.forEachBlock(n, BLOCK_SIZE, n, body);
+        }
+    }
+
+    /**
+     * Number of elements in each group, i.e., {@code tabulate(codes, nGroups)}.
+     */
+    @TruffleBoundary
+    public static int[] count(int[] codes, int nGroups) {
+        int n = codes.length;
+        int blocks = blocks(n, nGroups);
+        int[][] partial = new int[blocks][];
+        forEachPartial(n, blocks, (from, to) -> {
+            int[] counts = new int[nGroups];
+            for (int i = from; i < to; i++) {
+                int g = codes[i] - 1;
+                // NA codes are negative
+                if (g >= 0 && g < nGroups) {
+                    counts[g]++;
+                }
+            }
+            partial[from / BLOCK_SIZE] = counts;
+        });
+        int[] result = partial[0];
+        for (int b = 1; b < blocks; b++) {
+            for (int g = 0; g < nGroups; g++) {
+                result[g] += partial[b][g];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of non-{@code NaN} elements of {@code x[offset, offset + codes.length)} in each group.
+     */
+    @TruffleBoundary
+    public static int[] countValid(double[] x, int offset, int[] codes, int nGroups) {
+        return accumulate(x, offset, codes, nGroups, Op.SUM, true).count;
+    }
+
+    /**
+     * Applies {@code op} to the elements of {@code x[offset, offset + codes.length)} in each group,
+     * with the semantics of the corresponding R function on a double vector. Empty groups give
+     * {@code 0} for {@code sum}, {@code NaN} for {@code mean}, {@code Inf}/{@code -Inf} for
+     * {@code min}/{@code max} and {@code NA} for {@code var}.
+     */
+    @TruffleBoundary
+    public static double[] aggregate(double[] x, int offset, int[] codes, int nGroups, Op op, boolean naRm) {
+        Accumulator acc = accumulate(x, offset, codes, nGroups, op, naRm);
+        double[] result = acc.value;
+        switch (op) {
+            case SUM:
+                break;
+            case MEAN:
+                meanCorrection(x, offset, codes, nGroups, acc);
+                break;
+            case MIN:
+            case MAX:
+                for (int g = 0; g < nGroups; g++) {
+                    if (acc.nan[g] == SEEN_NA) {
+                        result[g] = RRuntime.DOUBLE_NA;
+                    } else if (acc.nan[g] == SEEN_NAN) {
+                        result[g] = Double.NaN;
+                    }
+                }
+                break;
+            case VAR:
+                for (int g = 0; g < nGroups; g++) {
+                    result[g] = acc.nan[g] != 0 || acc.count[g] < 2 ? RRuntime.DOUBLE_NA : acc.m2[g] / (acc.count[g] - 1);
+                }
+                break;
+            default:
+                throw RInternalError.shouldNotReachHere();
+        }
+        return result;
+    }
+
+    /**
+     * Sums the elements of {@code x[offset, offset + codes.length)} in each group with the
+     * semantics of {@code rowsum} on an integer matrix: {@code NA} if there is a {@code NA} and
+     * {@code naRm} is {@code false}, or if the sum overflows.
+     */
+    @TruffleBoundary
+    public static int[] sumInt(int[] x, int offset, int[] codes, int nGroups, boolean naRm) {
+        int n = codes.length;
+        int blocks = blocks(n, nGroups);
+        long[][] partial = new long[blocks][];
+        forEachPartial(n, blocks, (from, to) -> {
+            long[] sums = new long[nGroups];
+            for (int i = from; i < to; i++) {
+                int g = codes[i] - 1;
+                if (g >= 0 && g < nGroups) {
+                    int v = x[offset + i];
+                    if (RRuntime.isNA(v)) {
+                        if (!naRm) {
+                            sums[g] = Long.MIN_VALUE;
+                        }
+                    } else if (sums[g] != Long.MIN_VALUE) {
+                        long s = sums[g] + v;
+                        // once out of the int range, the group stays NA
+                        sums[g] = s < Integer.MIN_VALUE || s > Integer.MAX_VALUE ? Long.MIN_VALUE : s;
+                    }
+                }
+            }
+            partial[from / BLOCK_SIZE] = sums;
+        });
+        int[] result = new int[nGroups];
+        for (int g = 0; g < nGroups; g++) {
+            long s = 0;
+            for (int b = 0; b < blocks && s != Long.MIN_VALUE; b++) {
+                long p = partial[b][g];
+                s = p == Long.MIN_VALUE ? Long.MIN_VALUE : s + p;
+                if (s < Integer.MIN_VALUE || s > Integer.MAX_VALUE) {
+                    s = Long.MIN_VALUE;
+                }
+            }
+            result[g] = s == Long.MIN_VALUE ? RRuntime.INT_NA : (int) s;
+        }
+        return result;
+    }
+
+    /**
+     * Per group accumulators: {@code value} is the sum, the minimum/maximum or the running mean
+     * (for {@link Op#VAR}), {@code count} the number of elements that were not skipped.
+     */
+    private static final class Accumulator {
+        final double[] value;
+        final int[] count;
+        final double[] m2;
+        final byte[] nan;
+
+        Accumulator(int nGroups, Op op) {
+            value = new double[nGroups];
+            count = new int[nGroups];
+            m2 = op == Op.VAR ? new double[nGroups] : null;
+            nan = new byte[nGroups];
+            if (op == Op.MIN) {
+                Arrays.fill(value, Double.POSITIVE_INFINITY);
+            } else if (op == Op.MAX) {
+                Arrays.fill(value, Double.NEGATIVE_INFINITY);
+            }
+        }
+
+        void merge(Accumulator other, Op op) {
+            for (int g = 0; g < value.length; g++) {
+                switch (op) {
+                    case SUM:
+                    case MEAN:
+                        value[g] += other.value[g];
+                        break;
+                    case MIN:
+                        value[g] = Math.min(value[g], other.value[g]);
+                        break;
+                    case MAX:
+                        value[g] = Math.max(value[g], other.value[g]);
+                        break;
+                    case VAR:
+                        // Chan et al., combining the moments of two partitions
+                        int n = count[g] + other.count[g];
+                        if (other.count[g] > 0) {
+                            double delta = other.value[g] - value[g];
+                            m2[g] += other.m2[g] + delta * delta * count[g] * other.count[g] / n;
+                            value[g] += delta * other.count[g] / n;
+                        }
+                        break;
+                    default:
+                        throw RInternalError.shouldNotReachHere();
+                }
+                count[g] += other.count[g];
+                nan[g] = (byte) Math.max(nan[g], other.nan[g]);
+            }
+        }
+    }
+
+    private static Accumulator accumulate(double[] x, int offset, int[] codes, int nGroups, Op op, boolean naRm) {
+        int n = codes.length;
+        int blocks = blocks(n, nGroups);
+        Accumulator[] partial = new Accumulator[blocks];
+        forEachPartial(n, blocks, (from, to) -> {
+            Accumulator acc = new Accumulator(nGroups, op);
+            for (int i = from; i < to; i++) {
+                int g = codes[i] - 1;
+                if (g >= 0 && g < nGroups) {
+                    double v = x[offset + i];
+                    if (Double.isNaN(v)) {
+                        if (naRm) {
+                            continue;
+                        }
+                        acc.nan[g] = RRuntime.isNA(v) ? SEEN_NA : (byte) Math.max(acc.nan[g], SEEN_NAN);
+                    }
+                    switch (op) {
+                        case SUM:
+                        case MEAN:
+                            acc.value[g] += v;
+                            break;
+                        case MIN:
+                            if (v < acc.value[g]) {
+                                acc.value[g] = v;
+                            }
+                            break;
+                        case MAX:
+                            if (v > acc.value[g]) {
+                                acc.value[g] = v;
+                            }
+                            break;
+                        case VAR:
+                            // Welford's update, NaNs make the result NA anyway
+                            double delta = v - acc.value[g];
+                            acc.value[g] += delta / (acc.count[g] + 1);
+                            acc.m2[g] += delta * (v - acc.value[g]);
+                            break;
+                        default:
+                            throw RInternalError.shouldNotReachHere();
+                    }
+                    acc.count[g]++;
+                }
+            }
+            partial[from / BLOCK_SIZE] = acc;
+        });
+        for (int b = 1; b < blocks; b++) {
+            partial[0].merge(partial[b], op);
+        }
+        return partial[0];
+    }
+
+    /**
+     * Turns the sums into means, including the second pass that {@code mean} does to correct the
+     * rounding error of the sum.
+     */
+    private static void meanCorrection(double[] x, int offset, int[] codes, int nGroups, Accumulator acc) {
+        double[] mean = acc.value;
+        for (int g = 0; g < nGroups; g++) {
+            mean[g] = acc.count[g] == 0 ? Double.NaN : mean[g] / acc.count[g];
+        }
+        int n = codes.length;
+        int blocks = blocks(n, nGroups);
+        double[][] partial = new double[blocks][];
+        forEachPartial(n, blocks, (from, to) -> {
+            double[] correction = new double[nGroups];
+            for (int i = from; i < to; i++) {
+                int g = codes[i] - 1;
+                if (g >= 0 && g < nGroups && RRuntime.isFinite(mean[g])) {
+                    double v = x[offset + i];
+                    if (!Double.isNaN(v)) {
+                        correction[g] += v - mean[g];
+                    }
+                }
+            }
+            partial[from / BLOCK_SIZE] = correction;
+        });
+        for (int g = 0; g < nGroups; g++) {
+            if (RRuntime.isFinite(mean[g])) {
+                double correction = 0;
+                for (int b = 0; b < blocks; b++) {
+                    correction += partial[b][g];
+                }
+                mean[g] += correction / acc.count[g];
+            }
+        }
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.ParallelKernels;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Hash join of the rows of two tables on one or more key columns, the engine behind
+ * {@code .fastr.merge.join}. Key columns are given as arrays of {@code int} (integer and logical),
+ * {@code double} or {@link String} values, corresponding columns of both sides must have the same
+ * representation. Keys compare like in {@code match}: {@code NA} matches {@code NA}, all
+ * {@code NaN}s match each other and {@code -0} matches {@code 0}.
+ *
+ * The hash table is built on the smaller side, the larger side only probes it, which is done in
+ * parallel for large tables. The tables are open addressing tables of primitive keys, so that no
+ * key is boxed. The matched pairs are grouped by key, the keys in the order of their first
+ * occurrence in {@code x}, and for each key the {@code x} rows, each combined with all {@code y}
+ * rows, are in their original order. This is not always the order of {@code merge}, see
+ * {@link #joinInMergeOrder}.
+ */
+public final class HashJoin {
+
+    private static final int PROBE_BLOCK_SIZE = 1 << 14;
+
+    private HashJoin() {
+        // only static methods
+    }
+
+    /**
+     * The 1-based row indices of a join, see {@code .Internal(merge(...))}. {@code xAlone} and
+     * {@code yAlone} are {@code null} unless requested.
+     */
+    public static final class Result {
+        public final int[] xi;
+        public final int[] yi;
+        public final int[] xAlone;
+        public final int[] yAlone;
+
+        Result(int[] xi, int[] yi, int[] xAlone, int[] yAlone) {
+            this.xi = xi;
+            this.yi = yi;
+            this.xAlone = xAlone;
+            this.yAlone = yAlone;
+        }
+    }
+
+    /**
+     * The keys of the rows of both sides: the dense id of the key of each row, {@code -1} for the
+     * rows without a partner, and the {@code rank} of each id by its first occurrence in {@code x}.
+     */
+    private static final class Keys {
+        final int[] xIds;
+        final int[] yIds;
+        final int[] rank;
+        final int nRanks;
+
+        Keys(int[] xIds, int[] yIds, int[] rank, int nRanks) {
+            this.xIds = xIds;
+            this.yIds = yIds;
+            this.rank = rank;
+            this.nRanks = nRanks;
+        }
+    }
+
+    /**
+     * Joins the rows of {@code x} and {@code y}, each given as an array of key columns. Returns
+     * {@code null} if the number of result rows exceeds the maximum vector length.
+     */
+    @TruffleBoundary
+    public static Result join(Object[] x, int nx, Object[] y, int ny, boolean allX, boolean allY) {
+        Keys keys = keys(x, nx, y, ny);
+        return assemble(keys.xIds, keys.yIds, keys.rank, keys.nRanks, allX, allY);
+    }
+
+    /**
+     * As {@link #join}, but with the pairs and the rows that are alone in the order of
+     * {@code merge}, for {@code merge.data.frame}. The hash tables only replace the matching of the
+     * keys: the rank of the key of a row orders the rows like the indices into the common keys that
+     * {@code merge.data.frame} computes with {@code match}, so {@link #joinIndices} on the ranks
+     * gives the same result as on these indices.
+     */
+    @TruffleBoundary
+    public static Result joinInMergeOrder(Object[] x, int nx, Object[] y, int ny, boolean allX, boolean allY) {
+        Keys keys = keys(x, nx, y, ny);
+        return joinIndices(ranks(keys.xIds, keys.rank), ranks(keys.yIds, keys.rank), allX, allY);
+    }
+
+    /**
+     * The 1-based rank of the key of each row, {@code 0} for the rows that are alone.
+     */
+    private static int[] ranks(int[] ids, int[] rank) {
+        int[] result = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = ids[i] < 0 ? 0 : rank[ids[i]] + 1;
+        }
+        return result;
+    }
+
+    private static Keys keys(Object[] x, int nx, Object[] y, int ny) {
+        assert x.length == y.length && x.length > 0;
+        boolean buildX = nx <= ny;
+        Object[] build = buildX ? x : y;
+        Object[] probe = buildX ? y : x;
+        int nBuild = buildX ? nx : ny;
+        int nProbe = buildX ? ny : nx;
+
+        // dense key ids of the build side, -1 on the probe side for keys that do not occur there
+        int[] buildIds = null;
+        int[] probeIds = null;
+        for (int c = 0; c < build.length; c++) {
+            int[] buildCodes = new int[nBuild];
+            int[] probeCodes;
+            if (build[c] instanceof String[]) {
+                String[] buildColumn = (String[]) build[c];
+                String[] probeColumn = (String[]) probe[c];
+                StringTable table = new StringTable();
+                for (int i = 0; i < nBuild; i++) {
+                    buildCodes[i] = table.add(buildColumn[i]);
+                }
+                probeCodes = probe(nProbe, i -> table.get(probeColumn[i]));
+            } else {
+                Object buildColumn = build[c];
+                Object probeColumn = probe[c];
+                LongTable table = new LongTable();
+                for (int i = 0; i < nBuild; i++) {
+                    buildCodes[i] = table.add(key(buildColumn, i));
+                }
+                probeCodes = probe(nProbe, i -> table.get(key(probeColumn, i)));
+            }
+            if (c == 0) {
+                buildIds = buildCodes;
+                probeIds = probeCodes;
+            } else {
+                // combine the ids so far with the codes of this column
+                LongTable tuples = new LongTable();
+                for (int i = 0; i < nBuild; i++) {
+                    buildIds[i] = tuples.add(tuple(buildIds[i], buildCodes[i]));
+                }
+                int[] ids = probeIds;
+                probeIds = probe(nProbe, i -> ids[i] < 0 || probeCodes[i] < 0 ? -1 : tuples.get(tuple(ids[i], probeCodes[i])));
+            }
+        }
+        int[] xIds = buildX ? buildIds : probeIds;
+        int[] yIds = buildX ? probeIds : buildIds;
+        int nIds = maxPlusOne(buildIds);
+
+        // rank the keys by their first occurrence in x, rows without a partner are alone
+        int[] yCount = new int[nIds];
+        for (int id : yIds) {
+            if (id >= 0) {
+                yCount[id]++;
+            }
+        }
+        int[] rank = new int[nIds];
+        boolean[] inX = new boolean[nIds];
+        int nRanks = 0;
+        for (int i = 0; i < nx; i++) {
+            int id = xIds[i];
+            if (id >= 0 && yCount[id] > 0) {
+                if (!inX[id]) {
+                    inX[id] = true;
+                    rank[id] = nRanks++;
+                }
+            } else {
+                xIds[i] = -1;
+            }
+        }
+        for (int i = 0; i < ny; i++) {
+            if (yIds[i] >= 0 && !inX[yIds[i]]) {
+                yIds[i] = -1;
+            }
+        }
+        return new Keys(xIds, yIds, rank, nRanks);
+    }
+
+    private static int maxPlusOne(int[] ids) {
+        int max = -1;
+        for (int id : ids) {
+            max = Math.max(max, id);
+        }
+        return max + 1;
+    }
+
+    private static long tuple(int id, int code) {
+        return ((long) id << 32) | (code & 0xFFFFFFFFL);
+    }
+
+    private static long key(Object column, int i) {
+        if (column instanceof int[]) {
+            return ((int[]) column)[i];
+        } else {
+            double value = ((double[]) column)[i];
+            if (RRuntime.isNA(value)) {
+                return Double.doubleToRawLongBits(RRuntime.DOUBLE_NA);
+            }
+            // normalizes -0 and the NaNs
+            return Double.doubleToLongBits(value + 0.0);
+        }
+    }
+
+    /*
+     * The build side tables are no longer modified, so that the probes can look them up
+     * concurrently.
+     */
+
+    private static int[] probe(int n, IntUnaryOperator lookup) {
+        int[] codes = new int[n];
+        ParallelKernels.forEachBlock(n, PROBE_BLOCK_SIZE, n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                codes[i] = lookup.applyAsInt(i);
+            }
+        });
+        return codes;
+    }
+
+    private static int hash(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Open addressing table from {@code long} keys to dense codes, which are assigned in the order
+     * the keys are added. {@link #get} does not modify the table.
+     */
+    private static final class LongTable {
+        private long[] keys = new long[16];
+        // code + 1 of the key in the slot, 0 for an empty slot
+        private int[] codes = new int[16];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); codes[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return codes[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        int add(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            for (; codes[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return codes[i] - 1;
+                }
+            }
+            keys[i] = key;
+            codes[i] = ++size;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        private static int slot(long key, int mask) {
+            return hash(Long.hashCode(key * 0x9E3779B97F4A7C15L)) & mask;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCodes = codes;
+            keys = new long[oldKeys.length * 2];
+            codes = new int[oldCodes.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldCodes[j] != 0) {
+                    int i = slot(oldKeys[j], mask);
+                    while (codes[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    codes[i] = oldCodes[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * As {@link LongTable}, for {@link String} keys. The {@code NA} string gets a code of its own,
+     * it does not match {@code "NA"}.
+     */
+    private static final class StringTable {
+        private String[] keys = new String[16];
+        private int[] codes = new int[16];
+        private int size;
+        private int naCode = -1;
+
+        int get(String key) {
+            if (RRuntime.isNA(key)) {
+                return naCode;
+            }
+            int mask = keys.length - 1;
+            for (int i = hash(key.hashCode()) & mask; codes[i] != 0; i = (i + 1) & mask) {
+                if (keys[i].equals(key)) {
+                    return codes[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        int add(String key) {
+            if (RRuntime.isNA(key)) {
+                if (naCode < 0) {
+                    naCode = size++;
+                }
+                return naCode;
+            }
+            int mask = keys.length - 1;
+            int i = hash(key.hashCode()) & mask;
+            for (; codes[i] != 0; i = (i + 1) & mask) {
+                if (keys[i].equals(key)) {
+                    return codes[i] - 1;
+                }
+            }
+            keys[i] = key;
+            codes[i] = ++size;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            int[] oldCodes = codes;
+            keys = new String[oldKeys.length * 2];
+            codes = new int[oldCodes.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldCodes[j] != 0) {
+                    int i = hash(oldKeys[j].hashCode()) & mask;
+                    while (codes[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    codes[i] = oldCodes[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the result from the key ids of the rows, {@code -1} for the rows that are alone. The
+     * pairs are grouped by the {@code rank} of their key.
+     */
+    private static Result assemble(int[] xIds, int[] yIds, int[] rank, int nRanks, boolean allX, boolean allY) {
+        int[] xStart = groupStarts(xIds, rank, nRanks);
+        int[] yStart = groupStarts(yIds, rank, nRanks);
+        long size = 0;
+        for (int r = 0; r < nRanks; r++) {
+            size += (long) (xStart[r + 1] - xStart[r]) * (yStart[r + 1] - yStart[r]);
+        }
+        if (size > Integer.MAX_VALUE) {
+            return null;
+        }
+        int[] xRows = groupRows(xIds, rank, xStart.clone());
+        int[] yRows = groupRows(yIds, rank, yStart.clone());
+
+        int[] xi = new int[(int) size];
+        int[] yi = new int[(int) size];
+        int k = 0;
+        for (int r = 0; r < nRanks; r++) {
+            for (int i = xStart[r]; i < xStart[r + 1]; i++) {
+                for (int j = yStart[r]; j < yStart[r + 1]; j++) {
+                    xi[k] = xRows[i] + 1;
+                    yi[k++] = yRows[j] + 1;
+                }
+            }
+        }
+        return new Result(xi, yi, allX ? alone(xIds) : null, allY ? alone(yIds) : null);
+    }
+
+    /**
+     * Counting sort of the rows by the rank of their key, keeping the row order within a key.
+     */
+    private static int[] groupRows(int[] ids, int[] rank, int[] start) {
+        int[] rows = new int[start[start.length - 1]];
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= 0) {
+                rows[start[rank[ids[i]]]++] = i;
+            }
+        }
+        return rows;
+    }
+
+    private static int[] groupStarts(int[] ids, int[] rank, int nRanks) {
+        int[] start = new int[nRanks + 1];
+        for (int id : ids) {
+            if (id >= 0) {
+                start[rank[id] + 1]++;
+            }
+        }
+        for (int r = 0; r < nRanks; r++) {
+            start[r + 1] += start[r];
+        }
+        return start;
+    }
+
+    private static int[] alone(int[] ids) {
+        int count = 0;
+        for (int id : ids) {
+            count += id < 0 ? 1 : 0;
+        }
+        int[] result = new int[count];
+        for (int i = 0, k = 0; i < ids.length; i++) {
+            if (ids[i] < 0) {
+                result[k++] = i + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The join for {@code .Internal(merge(xinds, yinds, all.x, all.y))}, where the rows are
+     * already keyed: {@code xinds} and {@code yinds} are 1-based indices of the common keys, with
+     * {@code 0} for rows without a match. This reproduces GnuR's order exactly: the rows of each
+     * side are sorted by their key index with the same, unstable, shell sort as GnuR's
+     * {@code isort_with_index}, so the rows of a key, and the rows that are alone, do not always
+     * come in their original order.
+     */
+    @TruffleBoundary
+    public static Result joinIndices(int[] xInds, int[] yInds, boolean allX, boolean allY) {
+        int nx = xInds.length;
+        int ny = yInds.length;
+        int[] xs = xInds.clone();
+        int[] ys = yInds.clone();
+        int[] ix = new int[nx];
+        int[] iy = new int[ny];
+        for (int i = 0; i < nx; i++) {
+            ix[i] = i + 1;
+        }
+        for (int i = 0; i < ny; i++) {
+            iy[i] = i + 1;
+        }
+        isortWithIndex(xs, ix);
+        isortWithIndex(ys, iy);
+        int nxLone = countLone(xs);
+        int nyLone = countLone(ys);
+
+        long size = 0;
+        for (int i = nxLone, j = nyLone; i < nx;) {
+            int key = xs[i];
+            int nnx = groupEnd(xs, i, key);
+            j = groupStart(ys, j, key);
+            int nny = groupEnd(ys, j, key);
+            size += (long) (nnx - i) * (nny - j);
+            i = nnx;
+            j = nny;
+        }
+        if (size > Integer.MAX_VALUE) {
+            return null;
+        }
+        int[] xi = new int[(int) size];
+        int[] yi = new int[(int) size];
+        int k = 0;
+        for (int i = nxLone, j = nyLone; i < nx;) {
+            int key = xs[i];
+            int nnx = groupEnd(xs, i, key);
+            j = groupStart(ys, j, key);
+            int nny = groupEnd(ys, j, key);
+            for (int i0 = i; i0 < nnx; i0++) {
+                for (int j0 = j; j0 < nny; j0++) {
+                    xi[k] = ix[i0];
+                    yi[k++] = iy[j0];
+                }
+            }
+            i = nnx;
+            j = nny;
+        }
+        return new Result(xi, yi, allX ? Arrays.copyOf(ix, nxLone) : null, allY ? Arrays.copyOf(iy, nyLone) : null);
+    }
+
+    /**
+     * GnuR's {@code isort_with_index}.
+     */
+    private static void isortWithIndex(int[] x, int[] indx) {
+        int n = x.length;
+        int h = 1;
+        while (h <= n / 9) {
+            h = 3 * h + 1;
+        }
+        for (; h > 0; h /= 3) {
+            for (int i = h; i < n; i++) {
+                int v = x[i];
+                int iv = indx[i];
+                int j = i;
+                while (j >= h && x[j - h] > v) {
+                    x[j] = x[j - h];
+                    indx[j] = indx[j - h];
+                    j -= h;
+                }
+                x[j] = v;
+                indx[j] = iv;
+            }
+        }
+    }
+
+    private static int countLone(int[] sorted) {
+        int i = 0;
+        while (i < sorted.length && sorted[i] <= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int groupStart(int[] sorted, int from, int key) {
+        int j = from;
+        while (j < sorted.length && sorted[j] < key) {
+            j++;
+        }
+        return j;
+    }
+
+    private static int groupEnd(int[] sorted, int from, int key) {
+        int j = from;
+        while (j < sorted.length && sorted[j] == key) {
+            j++;
+        }
+        return j;
+    }
+}
@@ -26,6 +26,7 @@ import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import com.oracle.truffle.api.CompilerDirectives;
@@ -43,15 +44,28 @@ import com.oracle.truffle.r.runtime.Utils;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RAttributable;
 import com.oracle.truffle.r.runtime.data.RAttributesLayout;
+import com.oracle.truffle.r.runtime.data.RComplex;
+import com.oracle.truffle.r.runtime.data.RComplexVector;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RExternalPtr;
 import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLanguage;
 import com.oracle.truffle.r.runtime.data.RListBase;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RPairList;
+import com.oracle.truffle.r.runtime.data.RRawVector;
 import com.oracle.truffle.r.runtime.data.RS4Object;
+import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.RSymbol;
+import com.oracle.truffle.r.runtime.data.RVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractRawVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.env.REnvironment;
 import com.oracle.truffle.r.runtime.nodes.IdenticalVisitor;
@@ -86,6 +100,12 @@ public abstract class Identical extends RBuiltinNode {
         casts.arg("ignore.environment").asLogicalVector().findFirst(RRuntime.LOGICAL_FALSE).map(toBoolean());
     }
 
+    /**
+     * Atomic vectors shorter than this are compared directly, without computing their hashes.
+     */
+    private static final int HASH_MIN_LENGTH = 64;
+
+    private final ConditionProfile sameObjectProfile = ConditionProfile.createBinaryProfile();
     private final ConditionProfile vecLengthProfile = ConditionProfile.createBinaryProfile();
     private final ConditionProfile differentTypesProfile = ConditionProfile.createBinaryProfile();
 
@@ -135,26 +155,30 @@ public abstract class Identical extends RBuiltinNode {
     @SuppressWarnings("unused")
     @Specialization
     protected byte doInternalIdentical(double x, double y, boolean numEq, boolean singleNA, boolean attribAsSet, boolean ignoreBytecode, boolean ignoreEnvironment) {
+        return RRuntime.asLogical(identicalDouble(x, y, numEq, singleNA));
+    }
+
+    private static boolean identicalDouble(double x, double y, boolean numEq, boolean singleNA) {
         if (singleNA) {
             if (RRuntime.isNA(x)) {
-                return RRuntime.asLogical(RRuntime.isNA(y));
+                return RRuntime.isNA(y);
             } else if (RRuntime.isNA(y)) {
-                return RRuntime.LOGICAL_FALSE;
+                return false;
             } else if (Double.isNaN(x)) {
-                return RRuntime.asLogical(Double.isNaN(y));
+                return Double.isNaN(y);
             } else if (Double.isNaN(y)) {
-                return RRuntime.LOGICAL_FALSE;
+                return false;
             }
         }
         if (numEq) {
             if (!singleNA) {
                 if (Double.isNaN(x) || Double.isNaN(y)) {
-                    return RRuntime.asLogical(Double.doubleToRawLongBits(x) == Double.doubleToRawLongBits(y));
+                    return Double.doubleToRawLongBits(x) == Double.doubleToRawLongBits(y);
                 }
             }
-            return RRuntime.asLogical(x == y);
+            return x == y;
         }
-        return RRuntime.asLogical(Double.doubleToRawLongBits(x) == Double.doubleToRawLongBits(y));
+        return Double.doubleToRawLongBits(x) == Double.doubleToRawLongBits(y);
     }
 
     private byte identicalAttr(RAttributable x, RAttributable y, boolean numEq, boolean singleNA, boolean attribAsSet, boolean ignoreBytecode, boolean ignoreEnvironment) {
@@ -263,32 +287,200 @@ public abstract class Identical extends RBuiltinNode {
 
     @Specialization(guards = "!vectorsLists(x, y)")
     protected byte doInternalIdenticalGeneric(RAbstractVector x, RAbstractVector y, boolean numEq, boolean singleNA, boolean attribAsSet, boolean ignoreBytecode, boolean ignoreEnvironment) {
+        if (sameObjectProfile.profile(x == y)) {
+            return RRuntime.LOGICAL_TRUE;
+        }
         if (vecLengthProfile.profile(x.getLength() != y.getLength()) || differentTypesProfile.profile(x.getRType() != y.getRType())) {
             return RRuntime.LOGICAL_FALSE;
-        } else {
-            for (int i = 0; i < x.getLength(); i++) {
-                if (!x.getDataAtAsObject(i).equals(y.getDataAtAsObject(i))) {
-                    return RRuntime.LOGICAL_FALSE;
-                }
-            }
+        }
+        if (!identicalData(x, y, numEq, singleNA)) {
+            return RRuntime.LOGICAL_FALSE;
         }
         return identicalAttr(x, y, numEq, singleNA, attribAsSet, ignoreBytecode, ignoreEnvironment);
     }
 
     @Specialization
     protected byte doInternalIdenticalGeneric(RListBase x, RListBase y, boolean numEq, boolean singleNA, boolean attribAsSet, boolean ignoreBytecode, boolean ignoreEnvironment) {
+        if (sameObjectProfile.profile(x == y)) {
+            return RRuntime.LOGICAL_TRUE;
+        }
         if (x.getLength() != y.getLength()) {
             return RRuntime.LOGICAL_FALSE;
         }
-        for (int i = 0; i < x.getLength(); i++) {
-            byte res = identicalRecursive(x.getDataAt(i), y.getDataAt(i), numEq, singleNA, attribAsSet, ignoreBytecode, ignoreEnvironment);
-            if (res == RRuntime.LOGICAL_FALSE) {
-                return RRuntime.LOGICAL_FALSE;
+        if (hashesDiffer(x, y)) {
+            return RRuntime.LOGICAL_FALSE;
+        }
+        if (x.getInternalStore() != y.getInternalStore()) {
+            for (int i = 0; i < x.getLength(); i++) {
+                byte res = identicalRecursive(x.getDataAt(i), y.getDataAt(i), numEq, singleNA, attribAsSet, ignoreBytecode, ignoreEnvironment);
+                if (res == RRuntime.LOGICAL_FALSE) {
+                    return RRuntime.LOGICAL_FALSE;
+                }
             }
         }
         return identicalAttr(x, y, numEq, singleNA, attribAsSet, ignoreBytecode, ignoreEnvironment);
     }
 
+    /**
+     * Compares the elements of two atomic vectors of the same type and length. Vectors that share
+     * their store are equal without looking at the elements, shared vectors with different
+     * {@link RVector#getDataHash() hashes} are not, all other vectors are compared on their stores
+     * if they are materialized.
+     */
+    @TruffleBoundary
+    private static boolean identicalData(RAbstractVector x, RAbstractVector y, boolean numEq, boolean singleNA) {
+        int length = x.getLength();
+        switch (x.getRType()) {
+            case Integer:
+                if (x instanceof RIntVector && y instanceof RIntVector) {
+                    int[] xData = ((RIntVector) x).getReadonlyStore();
+                    int[] yData = ((RIntVector) y).getReadonlyStore();
+                    if (xData == yData) {
+                        return true;
+                    } else if (hashesDiffer(x, y)) {
+                        return false;
+                    }
+                    for (int i = 0; i < length; i++) {
+                        if (xData[i] != yData[i]) {
+                            return false;
+                        }
+                    }
+                } else {
+                    RAbstractIntVector xInt = (RAbstractIntVector) x;
+                    RAbstractIntVector yInt = (RAbstractIntVector) y;
+                    for (int i = 0; i < length; i++) {
+                        if (xInt.getDataAt(i) != yInt.getDataAt(i)) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            case Double:
+                if (x instanceof RDoubleVector && y instanceof RDoubleVector) {
+                    double[] xData = ((RDoubleVector) x).getReadonlyStore();
+                    double[] yData = ((RDoubleVector) y).getReadonlyStore();
+                    if (xData == yData) {
+                        return true;
+                    } else if (hashesDiffer(x, y)) {
+                        return false;
+                    }
+                    for (int i = 0; i < length; i++) {
+                        // equal bits are identical under any flags
+                        if (Double.doubleToRawLongBits(xData[i]) != Double.doubleToRawLongBits(yData[i]) && !identicalDouble(xData[i], yData[i], numEq, singleNA)) {
+                            return false;
+                        }
+                    }
+                } else {
+                    RAbstractDoubleVector xDouble = (RAbstractDoubleVector) x;
+                    RAbstractDoubleVector yDouble = (RAbstractDoubleVector) y;
+                    for (int i = 0; i < length; i++) {
+                        if (!identicalDouble(xDouble.getDataAt(i), yDouble.getDataAt(i), numEq, singleNA)) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            case Logical:
+                if (x instanceof RLogicalVector && y instanceof RLogicalVector) {
+                    byte[] xData = ((RLogicalVector) x).getInternalStore();
+                    byte[] yData = ((RLogicalVector) y).getInternalStore();
+                    return xData == yData || (!hashesDiffer(x, y) && Arrays.equals(xData, yData));
+                } else {
+                    RAbstractLogicalVector xLogical = (RAbstractLogicalVector) x;
+                    RAbstractLogicalVector yLogical = (RAbstractLogicalVector) y;
+                    for (int i = 0; i < length; i++) {
+                        if (xLogical.getDataAt(i) != yLogical.getDataAt(i)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            case Raw:
+                if (x instanceof RRawVector && y instanceof RRawVector) {
+                    byte[] xData = ((RRawVector) x).getInternalStore();
+                    byte[] yData = ((RRawVector) y).getInternalStore();
+                    return xData == yData || (!hashesDiffer(x, y) && Arrays.equals(xData, yData));
+                } else {
+                    RAbstractRawVector xRaw = (RAbstractRawVector) x;
+                    RAbstractRawVector yRaw = (RAbstractRawVector) y;
+                    for (int i = 0; i < length; i++) {
+                        if (xRaw.getRawDataAt(i) != yRaw.getRawDataAt(i)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            case Complex:
+                if (x instanceof RComplexVector && y instanceof RComplexVector) {
+                    double[] xData = ((RComplexVector) x).getInternalStore();
+                    double[] yData = ((RComplexVector) y).getInternalStore();
+                    if (xData == yData) {
+                        return true;
+                    } else if (hashesDiffer(x, y)) {
+                        return false;
+                    }
+                    // real and imaginary parts are interleaved
+                    for (int i = 0; i < 2 * length; i++) {
+                        if (!identicalDouble(xData[i], yData[i], numEq, singleNA)) {
+                            return false;
+                        }
+                    }
+                } else {
+                    RAbstractComplexVector xComplex = (RAbstractComplexVector) x;
+                    RAbstractComplexVector yComplex = (RAbstractComplexVector) y;
+                    for (int i = 0; i < length; i++) {
+                        RComplex xValue = xComplex.getDataAt(i);
+                        RComplex yValue = yComplex.getDataAt(i);
+                        if (!identicalDouble(xValue.getRealPart(), yValue.getRealPart(), numEq, singleNA) ||
+                                        !identicalDouble(xValue.getImaginaryPart(), yValue.getImaginaryPart(), numEq, singleNA)) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            case Character:
+                if (x instanceof RStringVector && y instanceof RStringVector) {
+                    if (((RStringVector) x).getInternalStore() == ((RStringVector) y).getInternalStore()) {
+                        return true;
+                    } else if (hashesDiffer(x, y)) {
+                        return false;
+                    }
+                }
+                RAbstractStringVector xString = (RAbstractStringVector) x;
+                RAbstractStringVector yString = (RAbstractStringVector) y;
+                for (int i = 0; i < length; i++) {
+                    String xValue = xString.getDataAt(i);
+                    String yValue = yString.getDataAt(i);
+                    // NA_character_ is not identical to "NA"
+                    if (xValue != yValue && (RRuntime.isNA(xValue) || RRuntime.isNA(yValue) || !xValue.equals(yValue))) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                for (int i = 0; i < length; i++) {
+                    if (!x.getDataAtAsObject(i).equals(y.getDataAtAsObject(i))) {
+                        return false;
+                    }
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Computing a hash costs as much as comparing the elements, so it is only used for shared
+     * vectors (lists of any length), where it is cached and repeated comparisons against the same
+     * object, as done by memoization, reject mismatches without looking at the elements.
+     */
+    private static boolean hashesDiffer(RAbstractVector x, RAbstractVector y) {
+        if (x instanceof RVector && y instanceof RVector && (x instanceof RListBase || x.getLength() >= HASH_MIN_LENGTH)) {
+            RVector<?> xVector = (RVector<?>) x;
+            RVector<?> yVector = (RVector<?>) y;
+            return xVector.isShared() && yVector.isShared() && xVector.getDataHash() != yVector.getDataHash();
+        }
+        return false;
+    }
+
     @SuppressWarnings("unused")
     @Specialization
     protected byte doInternalIdenticalGeneric(RFunction x, RAbstractContainer y, boolean numEq, boolean singleNA, boolean attribAsSet, boolean ignoreBytecode, boolean ignoreEnvironment) {
@@ -309,6 +501,9 @@ public abstract class Identical extends RBuiltinNode {
 
     @Specialization
     protected byte doInternalIdenticalGeneric(RS4Object x, RS4Object y, boolean numEq, boolean singleNA, boolean attribAsSet, boolean ignoreBytecode, boolean ignoreEnvironment) {
+        if (x == y) {
+            return RRuntime.LOGICAL_TRUE;
+        }
         if (x.isS4() != y.isS4()) {
             return RRuntime.LOGICAL_FALSE;
         }
@@ -323,6 +518,9 @@ public abstract class Identical extends RBuiltinNode {
 
     @Specialization
     protected byte doInternalIdenticalGeneric(RPairList x, RPairList y, boolean numEq, boolean singleNA, boolean attribAsSet, boolean ignoreBytecode, boolean ignoreEnvironment) {
+        if (x == y) {
+            return RRuntime.LOGICAL_TRUE;
+        }
         if (identicalRecursive(x.car(), y.car(), numEq, singleNA, attribAsSet, ignoreBytecode, ignoreEnvironment) == RRuntime.LOGICAL_FALSE) {
             return RRuntime.LOGICAL_FALSE;
         }
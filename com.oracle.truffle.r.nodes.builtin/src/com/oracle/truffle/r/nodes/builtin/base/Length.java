@@ -32,13 +32,24 @@ import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.control.RLengthNode;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RMappedVector;
 
 @RBuiltin(name = "length", kind = PRIMITIVE, dispatch = INTERNAL_GENERIC, parameterNames = {"x"}, behavior = PURE)
 public abstract class Length extends RBuiltinNode {
 
-    public abstract int executeInt(VirtualFrame frame, Object vector);
+    protected static boolean isLongVector(Object vector) {
+        return vector instanceof RMappedVector && ((RMappedVector) vector).isLong();
+    }
+
+    /**
+     * Like in GnuR, the length of a long vector is returned as a double.
+     */
+    @Specialization(guards = "isLongVector(vector)")
+    protected double getLongLength(RMappedVector vector) {
+        return vector.getLongLength();
+    }
 
-    @Specialization
+    @Specialization(guards = "!isLongVector(vector)")
     protected int getLength(VirtualFrame frame, Object vector,
                     @Cached("create()") RLengthNode lengthNode) {
         return lengthNode.executeInteger(frame, vector);
@@ -79,7 +79,7 @@ public abstract class Mapply extends RBuiltinNode {
     }
 
     protected static final class ElementNode extends Node {
-        @Child private Length lengthNode;
+        @Child private RLengthNode lengthNode;
         @Child private Subscript indexedLoadNode;
         @Child private WriteVariableNode writeVectorElementNode;
         private final String vectorElementName;
@@ -88,7 +88,7 @@ public abstract class Mapply extends RBuiltinNode {
         private ElementNode(String vectorElementName, String argName) {
             // the name is a hack to treat ReadVariableNode-s as syntax nodes
             this.vectorElementName = "*" + AnonymousFrameVariable.create(vectorElementName);
-            this.lengthNode = insert(LengthNodeGen.create());
+            this.lengthNode = insert(RLengthNode.create());
             this.indexedLoadNode = insert(SubscriptNodeGen.create());
             this.writeVectorElementNode = insert(WriteVariableNode.createAnonymous(this.vectorElementName, null, Mode.REGULAR));
             this.argName = argName;
@@ -171,7 +171,7 @@ public abstract class Mapply extends RBuiltinNode {
             int[] lengths = new int[dotsLength];
             int maxLength = -1;
             for (int i = 0; i < dotsLength; i++) {
-                int length = cachedElementNodeArray[i].lengthNode.executeInt(frame, dots.getDataAt(i));
+                int length = cachedElementNodeArray[i].lengthNode.executeInteger(frame, dots.getDataAt(i));
                 if (length > maxLength) {
                     maxLength = length;
                 }
@@ -47,6 +47,7 @@ import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RFunction;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RSortedness;
 import com.oracle.truffle.r.runtime.data.closures.RClosures;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
@@ -72,6 +73,7 @@ public abstract class Match extends RBuiltinNode {
 
     private final NACheck naCheck = NACheck.create();
     private final ConditionProfile bigTableProfile = ConditionProfile.createBinaryProfile();
+    private final ConditionProfile sortedTableProfile = ConditionProfile.createBinaryProfile();
     private final RAttributeProfiles attrProfiles = RAttributeProfiles.create();
 
     @Override
@@ -153,6 +155,9 @@ public abstract class Match extends RBuiltinNode {
 
     @Specialization
     protected RIntVector match(RAbstractIntVector x, RAbstractIntVector table, int nomatch, @SuppressWarnings("unused") Object incomparables) {
+        if (sortedTableProfile.profile(table.getSortedness() != RSortedness.UNKNOWN)) {
+            return matchSorted(RClosures.createIntToDoubleVector(x), RClosures.createIntToDoubleVector(table), table.getSortedness().isIncreasing(), nomatch);
+        }
         int[] result = initResult(x.getLength(), nomatch);
         boolean matchAll = true;
         NonRecursiveHashMapInt hashTable;
@@ -188,6 +193,9 @@ public abstract class Match extends RBuiltinNode {
 
     @Specialization
     protected RIntVector match(RAbstractDoubleVector x, RAbstractIntVector table, int nomatch, @SuppressWarnings("unused") Object incomparables) {
+        if (sortedTableProfile.profile(table.getSortedness() != RSortedness.UNKNOWN)) {
+            return matchSorted(x, RClosures.createIntToDoubleVector(table), table.getSortedness().isIncreasing(), nomatch);
+        }
         int[] result = initResult(x.getLength(), nomatch);
         boolean matchAll = true;
         NonRecursiveHashMapDouble hashTable;
@@ -223,6 +231,9 @@ public abstract class Match extends RBuiltinNode {
 
     @Specialization
     protected RIntVector match(RAbstractIntVector x, RAbstractDoubleVector table, int nomatch, @SuppressWarnings("unused") Object incomparables) {
+        if (sortedTableProfile.profile(table.getSortedness() != RSortedness.UNKNOWN)) {
+            return matchSorted(RClosures.createIntToDoubleVector(x), table, table.getSortedness().isIncreasing(), nomatch);
+        }
         int[] result = initResult(x.getLength(), nomatch);
         boolean matchAll = true;
         NonRecursiveHashMapInt hashTable;
@@ -265,6 +276,9 @@ public abstract class Match extends RBuiltinNode {
 
     @Specialization
     protected RIntVector match(RAbstractDoubleVector x, RAbstractDoubleVector table, int nomatch, @SuppressWarnings("unused") Object incomparables) {
+        if (sortedTableProfile.profile(table.getSortedness() != RSortedness.UNKNOWN)) {
+            return matchSorted(x, table, table.getSortedness().isIncreasing(), nomatch);
+        }
         int[] result = initResult(x.getLength(), nomatch);
         boolean matchAll = true;
         NonRecursiveHashMapDouble hashTable;
@@ -525,6 +539,44 @@ public abstract class Match extends RBuiltinNode {
         return factorInheritsCheck.execute(o);
     }
 
+    /**
+     * Looks up the elements of {@code x} by binary search in a table that is known to be sorted
+     * (and therefore free of NAs), instead of building a hash table of the table. Returns the
+     * first of several equal table elements, like the hashed lookup.
+     */
+    private static RIntVector matchSorted(RAbstractDoubleVector x, RAbstractDoubleVector table, boolean increasing, int nomatch) {
+        int[] result = initResult(x.getLength(), nomatch);
+        boolean matchAll = true;
+        int tableLength = table.getLength();
+        for (int i = 0; i < result.length; i++) {
+            double xx = x.getDataAt(i);
+            int index = -1;
+            if (!Double.isNaN(xx)) {
+                // find the first element that is not before xx
+                int low = 0;
+                int high = tableLength;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    double val = table.getDataAt(mid);
+                    if (increasing ? val < xx : val > xx) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                if (low < tableLength && table.getDataAt(low) == xx) {
+                    index = low;
+                }
+            }
+            if (index != -1) {
+                result[i] = index + 1;
+            } else {
+                matchAll = false;
+            }
+        }
+        return RDataFactory.createIntVector(result, setCompleteState(matchAll, nomatch));
+    }
+
     private static int[] initResult(int length, int nomatch) {
         int[] result = new int[length];
         Arrays.fill(result, nomatch);
@@ -29,6 +29,8 @@ import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
 
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.api.profiles.ValueProfile;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.unary.UnaryArithmeticReduceNode;
@@ -38,6 +40,7 @@ import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 
 @RBuiltin(name = "min", kind = PRIMITIVE, parameterNames = {"...", "na.rm"}, dispatch = SUMMARY_GROUP_GENERIC, behavior = PURE)
@@ -48,6 +51,9 @@ public abstract class Min extends RBuiltinNode {
 
     @Child private UnaryArithmeticReduceNode reduce = UnaryArithmeticReduceNodeGen.create(semantics, BinaryArithmetic.MIN);
 
+    private final ValueProfile argProfile = ValueProfile.createClassProfile();
+    private final ConditionProfile knownMinProfile = ConditionProfile.createBinaryProfile();
+
     @Override
     protected void createCasts(CastBuilder casts) {
         casts.arg("na.rm").asLogicalVector().findFirst(RRuntime.LOGICAL_FALSE).map(toBoolean());
@@ -60,7 +66,15 @@ public abstract class Min extends RBuiltinNode {
 
     @Specialization(guards = "args.getLength() == 1")
     protected Object minLengthOne(RArgsValuesAndNames args, boolean naRm) {
-        return reduce.executeReduce(args.getArgument(0), naRm, false);
+        Object arg = argProfile.profile(args.getArgument(0));
+        if (arg instanceof RAbstractVector) {
+            // sorted vectors know their extremes, which also means that there are no NAs
+            Object known = ((RAbstractVector) arg).getKnownMin();
+            if (knownMinProfile.profile(known != null)) {
+                return known;
+            }
+        }
+        return reduce.executeReduce(arg, naRm, false);
     }
 
     @Specialization(contains = "minLengthOne")
@@ -48,6 +48,7 @@ import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RSortedness;
 import com.oracle.truffle.r.runtime.data.closures.RClosures;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
@@ -68,6 +69,7 @@ public abstract class Order extends RPrecedenceBuiltinNode {
 
     private final BranchProfile error = BranchProfile.create();
     private final ConditionProfile notRemoveNAs = ConditionProfile.createBinaryProfile();
+    private final ConditionProfile knownOrderProfile = ConditionProfile.createBinaryProfile();
 
     /**
      * For use by {@link RadixSort}.
@@ -94,6 +96,25 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         return RDataFactory.createIntVector(indx, RDataFactory.COMPLETE_VECTOR);
     }
 
+    /**
+     * Vectors that know that they are sorted (e.g. sequences or results of {@code sort}) are
+     * ordered without comparing any elements. Since ties keep their original order, only strictly
+     * sorted vectors can be reversed. Returns {@code null} if the order is not known.
+     */
+    private static RAbstractIntVector knownOrder(RAbstractVector v, boolean decreasing) {
+        int n = v.getLength();
+        RSortedness sortedness = v.getSortedness();
+        if (n == 0 || sortedness == RSortedness.UNKNOWN) {
+            return null;
+        }
+        if (decreasing ? sortedness.isDecreasing() : sortedness.isIncreasing()) {
+            return RDataFactory.createIntSequence(1, 1, n);
+        } else if (sortedness.isStrict()) {
+            return RDataFactory.createIntSequence(n, -1, n);
+        }
+        return null;
+    }
+
     private int[] createIndexes(RAbstractVector v, int len, byte naLast) {
         if (notRemoveNAs.profile(!RRuntime.isNA(naLast) || v.isComplete())) {
             int[] result = new int[v.getLength()];
@@ -173,6 +194,10 @@ public abstract class Order extends RPrecedenceBuiltinNode {
     Object orderInt(byte naLast, boolean decreasing, RArgsValuesAndNames args) {
         Object[] vectors = args.getArguments();
         RAbstractIntVector v = (RAbstractIntVector) castVector(vectors[0]);
+        RAbstractIntVector known = knownOrder(v, decreasing);
+        if (knownOrderProfile.profile(known != null)) {
+            return known;
+        }
         return executeOrderVector1(v, naLast, decreasing);
     }
 
@@ -180,6 +205,10 @@ public abstract class Order extends RPrecedenceBuiltinNode {
     Object orderDouble(byte naLast, boolean decreasing, RArgsValuesAndNames args) {
         Object[] vectors = args.getArguments();
         RAbstractDoubleVector v = (RAbstractDoubleVector) castVector(vectors[0]);
+        RAbstractIntVector known = knownOrder(v, decreasing);
+        if (knownOrderProfile.profile(known != null)) {
+            return known;
+        }
         return executeOrderVector1(v, naLast, decreasing);
     }
 
@@ -77,12 +77,19 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 @RBuiltin(name = "rep", kind = PRIMITIVE, parameterNames = {"x", "times", "length.out", "each"}, dispatch = INTERNAL_GENERIC, behavior = PURE)
 public abstract class Repeat extends RBuiltinNode {
 
+    /**
+     * Replicated scalars of at least this length are represented as sequences with stride
+     * {@code 0}, which take constant space and know that all their elements are equal.
+     */
+    private static final int CONSTANT_MIN_LENGTH = 64;
+
     protected abstract Object execute(RAbstractVector x, RAbstractIntVector times, int lengthOut, int each);
 
     private final ConditionProfile lengthOutOrTimes = ConditionProfile.createBinaryProfile();
     private final BranchProfile errorBranch = BranchProfile.create();
     private final ConditionProfile oneTimeGiven = ConditionProfile.createBinaryProfile();
     private final ConditionProfile replicateOnce = ConditionProfile.createBinaryProfile();
+    private final ConditionProfile constantProfile = ConditionProfile.createBinaryProfile();
     private final RAttributeProfiles attrProfiles = RAttributeProfiles.create();
 
     @Override
@@ -121,9 +128,30 @@ public abstract class Repeat extends RBuiltinNode {
             throw invalidTimes();
         }
         int length = lengthOutOrTimes.profile(!RRuntime.isNA(lengthOut)) ? lengthOut : t;
+        double value = x.getDataAt(0);
+        if (constantProfile.profile(length >= CONSTANT_MIN_LENGTH && !Double.isNaN(value))) {
+            return RDataFactory.createDoubleSequence(value, 0, length);
+        }
         double[] data = new double[length];
-        Arrays.fill(data, x.getDataAt(0));
-        return RDataFactory.createDoubleVector(data, !RRuntime.isNA(x.getDataAt(0)));
+        Arrays.fill(data, value);
+        return RDataFactory.createDoubleVector(data, !RRuntime.isNA(value));
+    }
+
+    @Specialization(guards = {"x.getLength() == 1", "times.getLength() == 1", "each <= 1", "!hasNames(x)"})
+    protected RAbstractVector repNoEachNoNamesSimple(RAbstractIntVector x, RAbstractIntVector times, int lengthOut, @SuppressWarnings("unused") int each) {
+        int t = times.getDataAt(0);
+        if (t < 0) {
+            errorBranch.enter();
+            throw invalidTimes();
+        }
+        int length = lengthOutOrTimes.profile(!RRuntime.isNA(lengthOut)) ? lengthOut : t;
+        int value = x.getDataAt(0);
+        if (constantProfile.profile(length >= CONSTANT_MIN_LENGTH && !RRuntime.isNA(value))) {
+            return RDataFactory.createIntSequence(value, 0, length);
+        }
+        int[] data = new int[length];
+        Arrays.fill(data, value);
+        return RDataFactory.createIntVector(data, !RRuntime.isNA(value));
     }
 
     @Specialization(guards = {"each > 1", "!hasNames(x)"})
@@ -16,6 +16,8 @@ import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
@@ -23,6 +25,27 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
 // Implements .rowMeans
 @RBuiltin(name = "rowMeans", kind = INTERNAL, parameterNames = {"X", "m", "n", "na.rm"}, behavior = PURE)
 public abstract class RowMeans extends RowSumsBase {
+    @Specialization
+    protected RDoubleVector rowMeans(RDoubleVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.rowSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, true));
+    }
+
+    @Specialization
+    protected RDoubleVector rowMeans(RIntVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.rowSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, true));
+    }
+
+    @Specialization
+    protected RDoubleVector rowMeans(RLogicalVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.rowSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, true));
+    }
+
     @Specialization
     protected RDoubleVector rowMeans(RAbstractDoubleVector x, int rowNum, int colNum, boolean naRm) {
         return accumulateRows(x, rowNum, colNum, naRm, RowMeans::getMean, (v, nacheck, i) -> v.getDataAt(i));
@@ -16,12 +16,35 @@ import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
 
 @RBuiltin(name = "rowSums", kind = INTERNAL, parameterNames = {"X", "m", "n", "na.rm"}, behavior = PURE)
 public abstract class RowSums extends RowSumsBase {
+    @Specialization
+    protected RDoubleVector rowSums(RDoubleVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.rowSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, false));
+    }
+
+    @Specialization
+    protected RDoubleVector rowSums(RIntVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.rowSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, false));
+    }
+
+    @Specialization
+    protected RDoubleVector rowSums(RLogicalVector x, int rowNum, int colNum, boolean naRm) {
+        checkVectorLength(x, rowNum, colNum);
+        reportWork(x.getLength());
+        return createResult(ColSumsKernels.rowSums(x.getDataWithoutCopying(), rowNum, colNum, naRm, false));
+    }
+
     @Specialization
     protected RDoubleVector rowSums(RAbstractDoubleVector x, int rowNum, int colNum, boolean naRm) {
         return accumulateRows(x, rowNum, colNum, naRm, (sum, cnt) -> sum, (v, nacheck, i) -> v.getDataAt(i));
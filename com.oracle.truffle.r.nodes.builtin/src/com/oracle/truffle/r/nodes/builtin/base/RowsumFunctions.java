@@ -38,7 +38,6 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
-import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
 // Translated from main/unique.c
 
@@ -49,7 +48,6 @@ public class RowsumFunctions {
     public abstract static class Rowsum extends RBuiltinNode {
 
         private final ConditionProfile typeProfile = ConditionProfile.createBinaryProfile();
-        private final NACheck na = NACheck.create();
 
         @Override
         protected void createCasts(CastBuilder casts) {
@@ -80,58 +78,29 @@ public class RowsumFunctions {
                 Integer hi = table.get(g.getDataAtAsObject(i));
                 matches[i] = xv == null ? 0 : hi + 1;
             }
-            int offset = 0;
-            int offsetg = 0;
-
             boolean isInt = xv instanceof RIntVector;
             RVector<?> result;
-            na.enable(xv);
-            boolean complete = xv.isComplete();
+            boolean complete = true;
 
             if (typeProfile.profile(isInt)) {
-                RAbstractIntVector xi = (RAbstractIntVector) xv;
+                int[] xi = ((RAbstractIntVector) xv).materialize().getDataWithoutCopying();
                 int[] ansi = new int[ng * p];
                 for (int i = 0; i < p; i++) {
-                    for (int j = 0; j < n; j++) {
-                        int midx = matches[j] - 1 + offsetg;
-                        int itmp = ansi[midx];
-                        if (na.check(xi.getDataAt(j + offset))) {
-                            if (!narm) {
-                                ansi[midx] = RRuntime.INT_NA;
-                                complete = RDataFactory.INCOMPLETE_VECTOR;
-                            }
-                        } else if (!na.check(itmp)) {
-                            long dtmp = itmp;
-                            int jtmp = xi.getDataAt(j + offset);
-                            dtmp += jtmp;
-                            if (dtmp < Integer.MIN_VALUE || dtmp > Integer.MAX_VALUE) {
-                                itmp = RRuntime.INT_NA;
-                                complete = RDataFactory.INCOMPLETE_VECTOR;
-                            } else {
-                                itmp += jtmp;
-                            }
-                            ansi[midx] = itmp;
-                        }
+                    int[] sums = GroupedAggregation.sumInt(xi, i * n, matches, ng, narm);
+                    System.arraycopy(sums, 0, ansi, i * ng, ng);
+                    for (int s : sums) {
+                        complete &= !RRuntime.isNA(s);
                     }
-                    offset += n;
-                    offsetg += ng;
                 }
                 result = RDataFactory.createIntVector(ansi, complete, new int[]{ng, p});
             } else {
-                RAbstractDoubleVector xd = (RAbstractDoubleVector) xv;
+                double[] xd = ((RAbstractDoubleVector) xv).materialize().getDataWithoutCopying();
                 double[] ansd = new double[ng * p];
                 for (int i = 0; i < p; i++) {
-                    for (int j = 0; j < n; j++) {
-                        int midx = matches[j] - 1 + offsetg;
-                        double dtmp = xd.getDataAt(j + offset);
-                        if (!narm || !Double.isNaN(dtmp)) {
-                            ansd[midx] += dtmp;
-                        }
-                    }
-                    offset += n;
-                    offsetg += ng;
+                    double[] sums = GroupedAggregation.aggregate(xd, i * n, matches, ng, GroupedAggregation.Op.SUM, narm);
+                    System.arraycopy(sums, 0, ansd, i * ng, ng);
                 }
-                result = RDataFactory.createDoubleVector(ansd, complete, new int[]{ng, p});
+                result = RDataFactory.createDoubleVector(ansd, xv.isComplete(), new int[]{ng, p});
             }
             Object[] dimNamesData = new Object[2];
             dimNamesData[0] = rn;
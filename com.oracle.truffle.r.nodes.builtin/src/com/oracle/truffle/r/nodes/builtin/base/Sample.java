@@ -35,6 +35,8 @@ import static com.oracle.truffle.r.runtime.RError.Message.VECTOR_SIZE_TOO_LARGE;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.MODIFIES_STATE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
+import java.util.Arrays;
+
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -43,6 +45,7 @@ import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.Utils.NonRecursiveHashMapInt;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
@@ -52,8 +55,18 @@ import com.oracle.truffle.r.runtime.rng.RRNG;
 
 @RBuiltin(name = "sample", kind = INTERNAL, parameterNames = {"x", "size", "replace", "prob"}, behavior = MODIFIES_STATE)
 public abstract class Sample extends RBuiltinNode {
+    /**
+     * Unweighted sampling without replacement uses a hash map instead of a permutation of the
+     * whole population if the population has at least {@value #SPARSE_MIN_POPULATION} elements and
+     * at most every {@value #SPARSE_SIZE_RATIO}th element is drawn.
+     */
+    private static final int SPARSE_MIN_POPULATION = 4096;
+    private static final int SPARSE_SIZE_RATIO = 16;
+
     private final ConditionProfile sampleSizeProfile = ConditionProfile.createBinaryProfile();
 
+    private ProbTable probTable;
+
     @Override
     protected void createCasts(CastBuilder casts) {
         // @formatter:off
@@ -111,22 +124,16 @@ public abstract class Sample extends RBuiltinNode {
     @Specialization(guards = {"!invalidProb(x, prob)", "!largerPopulation(x, size, isRepeatable)", "isRepeatable"})
     @TruffleBoundary
     protected RIntVector doSampleWithReplacement(final int x, final int size, final boolean isRepeatable, final RDoubleVector prob) {
-        // The following code is transcribed from GNU R src/main/random.c lines 493-501 in
-        // function do_sample.
-        double[] probArray = prob.getDataCopy();
-        fixupProbability(probArray, x, size, isRepeatable);
-        int nc = 0;
-        for (double aProb : probArray) {
-            if (x * aProb > 0.1) {
-                nc++;
-            }
-        }
-        if (nc > 200) {
-            // TODO implement walker
-            throw new UnsupportedOperationException("walker_ProbSampleReplace is not yet implemented");
-        } else {
-            return RDataFactory.createIntVector(probSampleReplace(x, probArray, size), RDataFactory.COMPLETE_VECTOR);
+        double[] probArray = prob.getDataWithoutCopying();
+        ProbTable table = probTable;
+        if (table == null || !table.matches(probArray)) {
+            table = createProbTable(x, probArray, size);
+            probTable = table;
         }
+        RRNG.getRNGState();
+        int[] result = table.sample(size);
+        RRNG.putRNGState();
+        return RDataFactory.createIntVector(result, RDataFactory.COMPLETE_VECTOR);
     }
 
     @Specialization(guards = {"!invalidProb(x, prob)", "!largerPopulation(x, size, isRepeatable)", "!isRepeatable"})
@@ -134,7 +141,10 @@ public abstract class Sample extends RBuiltinNode {
     protected RIntVector doSampleNoReplacement(final int x, final int size, final boolean isRepeatable, final RDoubleVector prob) {
         double[] probArray = prob.getDataCopy();
         fixupProbability(probArray, x, size, isRepeatable);
-        return RDataFactory.createIntVector(probSampleWithoutReplace(x, probArray, size), RDataFactory.COMPLETE_VECTOR);
+        RRNG.getRNGState();
+        int[] result = probSampleWithoutReplace(x, probArray, size);
+        RRNG.putRNGState();
+        return RDataFactory.createIntVector(result, RDataFactory.COMPLETE_VECTOR);
     }
 
     @Specialization(guards = {"!largerPopulation(x, size, isRepeatable)"})
@@ -143,12 +153,15 @@ public abstract class Sample extends RBuiltinNode {
         // TODO:Add support of long integers.
         // The following code is transcribed from GNU R src/main/random.c lines 533-545 in
         // function do_sample.
+        RRNG.getRNGState();
         int[] result = new int[size];
         /* avoid allocation for a single sample */
         if (sampleSizeProfile.profile(isRepeatable || size < 2)) {
             for (int i = 0; i < size; i++) {
                 result[i] = (int) (x * RRNG.unifRand() + 1);
             }
+        } else if (x >= SPARSE_MIN_POPULATION && size <= x / SPARSE_SIZE_RATIO) {
+            sampleSparse(x, size, result);
         } else {
             int n = x;
             int[] ix = new int[n];
@@ -161,9 +174,166 @@ public abstract class Sample extends RBuiltinNode {
                 ix[j] = ix[--n];
             }
         }
+        RRNG.putRNGState();
         return RDataFactory.createIntVector(result, true);
     }
 
+    /**
+     * Same algorithm as the permutation in {@link #doSample}, but the permuted index array is
+     * represented by a hash map holding only the entries that differ from the identity, so the
+     * cost is proportional to {@code size} and not to the size of the population. Produces the
+     * same values as the dense version.
+     */
+    private static void sampleSparse(int x, int size, int[] result) {
+        NonRecursiveHashMapInt ix = new NonRecursiveHashMapInt(2 * size + 1);
+        int n = x;
+        for (int i = 0; i < size; i++) {
+            int j = (int) (n * RRNG.unifRand());
+            result[i] = sparseGet(ix, j) + 1;
+            ix.put(j, sparseGet(ix, --n));
+        }
+    }
+
+    private static int sparseGet(NonRecursiveHashMapInt ix, int index) {
+        int value = ix.get(index);
+        return value == -1 ? index : value;
+    }
+
+    /**
+     * Creates the table used for weighted sampling with replacement. The following code is
+     * transcribed from GNU R src/main/random.c, function do_sample: if there are more than 200
+     * "reasonably probable" values, Walker's alias method is used, otherwise the values are sampled
+     * by inversion of the sorted cumulative distribution.
+     */
+    private ProbTable createProbTable(int x, double[] originalProb, int size) {
+        double[] probArray = originalProb.clone();
+        fixupProbability(probArray, x, size, true);
+        int nc = 0;
+        for (double aProb : probArray) {
+            if (x * aProb > 0.1) {
+                nc++;
+            }
+        }
+        if (nc > 200) {
+            return walkerTable(x, originalProb.clone(), probArray);
+        } else {
+            return cumulativeTable(x, originalProb.clone(), probArray);
+        }
+    }
+
+    private ProbTable cumulativeTable(int n, double[] key, double[] probArray) {
+        // The following code is transcribed from GNU R src/main/random.c lines 309-335
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i + 1;
+        }
+        heapSort(perm, probArray);
+        for (int i = 1; i < n; i++) {
+            probArray[i] += probArray[i - 1];
+        }
+        return new ProbTable(key, perm, probArray, null);
+    }
+
+    private static ProbTable walkerTable(int n, double[] key, double[] probArray) {
+        // The following code is transcribed from GNU R src/main/random.c, function
+        // walker_ProbSampleReplace. Entries HL[0..h] have q < 1, entries HL[l..n-1] have q >= 1.
+        int[] hl = new int[n];
+        int[] alias = new int[n];
+        double[] q = new double[n];
+        int h = -1;
+        int l = n;
+        for (int i = 0; i < n; i++) {
+            q[i] = probArray[i] * n;
+            if (q[i] < 1.) {
+                hl[++h] = i;
+            } else {
+                hl[--l] = i;
+            }
+        }
+        if (h >= 0 && l < n) {
+            /* So some q[i] are >= 1 and some < 1 */
+            for (int k = 0; k < n - 1; k++) {
+                int i = hl[k];
+                int j = hl[l];
+                alias[i] = j;
+                q[j] += q[i] - 1;
+                if (q[j] < 1.) {
+                    l++;
+                }
+                if (l >= n) {
+                    /* now all are >= 1 */
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            q[i] += i;
+        }
+        return new ProbTable(key, null, q, alias);
+    }
+
+    /**
+     * Pre-processed {@code prob} vector for sampling with replacement. It is cached in the node, so
+     * that repeated calls with the same probabilities (e.g. bootstrap loops calling
+     * {@code sample(n, n, replace = TRUE, prob = w)}) skip the normalization and the construction
+     * of the table. The cache is keyed by the contents of {@code prob}, not by its identity, as the
+     * vector may have been updated in place.
+     */
+    private static final class ProbTable {
+        private final double[] key;
+        /** Sorted values for the inversion method, {@code null} for the alias method. */
+        private final int[] perm;
+        /** Cumulative probabilities (inversion) or the cut-offs (alias method). */
+        private final double[] q;
+        private final int[] alias;
+
+        ProbTable(double[] key, int[] perm, double[] q, int[] alias) {
+            this.key = key;
+            this.perm = perm;
+            this.q = q;
+            this.alias = alias;
+        }
+
+        boolean matches(double[] prob) {
+            return Arrays.equals(key, prob);
+        }
+
+        int[] sample(int size) {
+            int[] result = new int[size];
+            int n = q.length;
+            if (alias != null) {
+                for (int i = 0; i < size; i++) {
+                    double rU = RRNG.unifRand() * n;
+                    int k = (int) rU;
+                    result[i] = (rU < q[k]) ? k + 1 : alias[k] + 1;
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    result[i] = perm[search(RRNG.unifRand(), n - 1)];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the first {@code j < last} with {@code rU <= q[j]}, or {@code last}, i.e. the
+         * same index as the linear scan in GnuR's {@code ProbSampleReplace}.
+         */
+        private int search(double rU, int last) {
+            int lo = 0;
+            int hi = last;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (rU <= q[mid]) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+    }
+
     @TruffleBoundary
     private void fixupProbability(double[] probArray, int x, int size, boolean isRepeatable) {
         // The following code is transcribed from GNU R src/main/random.c lines 429-449
@@ -189,32 +359,6 @@ public abstract class Sample extends RBuiltinNode {
         }
     }
 
-    @TruffleBoundary
-    private int[] probSampleReplace(int n, double[] probArray, int resultSize) {
-        // The following code is transcribed from GNU R src/main/random.c lines 309-335
-        int[] result = new int[resultSize];
-        int[] perm = new int[n];
-
-        for (int i = 0; i < n; i++) {
-            perm[i] = i + 1;
-        }
-        heapSort(perm, probArray);
-        for (int i = 1; i < n; i++) {
-            probArray[i] += probArray[i - 1];
-        }
-        for (int i = 0; i < resultSize; i++) {
-            int j = 0;
-            double rU = RRNG.unifRand();
-            for (j = 0; j < n - 1; j++) {
-                if (rU <= probArray[j]) {
-                    break;
-                }
-            }
-            result[i] = perm[j];
-        }
-        return result;
-    }
-
     @TruffleBoundary
     private int[] probSampleWithoutReplace(int n, double[] probArray, int resultSize) {
         // The following code is transcribed from GNU R src/main/random.c lines 396-428
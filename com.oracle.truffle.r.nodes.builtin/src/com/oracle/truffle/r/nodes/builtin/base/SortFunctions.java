@@ -47,6 +47,7 @@ import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RSortedness;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
@@ -123,12 +124,21 @@ public class SortFunctions {
 
         protected RDoubleVector jdkSort(RAbstractDoubleVector vec, boolean decreasing) {
             double[] data = vec.materialize().getDataCopy();
-            return RDataFactory.createDoubleVector(sort(data, decreasing), vec.isComplete());
+            RDoubleVector result = RDataFactory.createDoubleVector(sort(data, decreasing), vec.isComplete());
+            // NaN values (including NA) are sorted to the end (to the start if decreasing)
+            if (data.length > 0 && !Double.isNaN(data[decreasing ? 0 : data.length - 1])) {
+                result.setSortedness(decreasing ? RSortedness.DECREASING : RSortedness.INCREASING);
+            }
+            return result;
         }
 
         protected RIntVector jdkSort(RAbstractIntVector vec, boolean decreasing) {
             int[] data = vec.materialize().getDataCopy();
-            return RDataFactory.createIntVector(sort(data, decreasing), vec.isComplete());
+            RIntVector result = RDataFactory.createIntVector(sort(data, decreasing), vec.isComplete());
+            if (vec.isComplete()) {
+                result.setSortedness(decreasing ? RSortedness.DECREASING : RSortedness.INCREASING);
+            }
+            return result;
         }
 
         protected RStringVector jdkSort(RAbstractStringVector vec, boolean decreasing) {
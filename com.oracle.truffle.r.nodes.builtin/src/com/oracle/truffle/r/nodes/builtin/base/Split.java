@@ -25,13 +25,10 @@ package com.oracle.truffle.r.nodes.builtin.base;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
-import java.util.Arrays;
-
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.helpers.RFactorNodes;
-import com.oracle.truffle.r.runtime.Utils;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.*;
 import com.oracle.truffle.r.runtime.data.model.*;
@@ -50,9 +47,6 @@ public abstract class Split extends RBuiltinNode {
 
     @SuppressWarnings("unused") private final ConditionProfile noStringLevels = ConditionProfile.createBinaryProfile();
 
-    private static final int INITIAL_SIZE = 5;
-    private static final int SCALE_FACTOR = 2;
-
     public static class SplitTemplate {
         @SuppressWarnings("unused") private int[] collectResultsSize;
         @SuppressWarnings("unused") private int nLevels;
@@ -60,32 +54,30 @@ public abstract class Split extends RBuiltinNode {
 
     @Specialization
     protected RList split(RAbstractIntVector x, RAbstractIntVector f) {
-        int[] factor = f.materialize().getDataWithoutCopying();
+        int[] factor = GroupedAggregation.recycle(f.materialize().getDataWithoutCopying(), x.getLength());
         RStringVector names = getLevelNode.execute(f);
         final int nLevels = getNLevels(names);
 
-        // initialise result arrays
+        // the group sizes are known upfront, so that the result vectors can be filled directly
+        int[] sizes = GroupedAggregation.count(factor, nLevels);
         int[][] collectResults = new int[nLevels][];
-        int[] collectResultSize = new int[nLevels];
-        for (int i = 0; i < collectResults.length; i++) {
-            collectResults[i] = new int[INITIAL_SIZE];
+        for (int i = 0; i < nLevels; i++) {
+            collectResults[i] = new int[sizes[i]];
         }
+        int[] collectResultSize = new int[nLevels];
 
-        // perform split
-        for (int i = 0, fi = 0; i < x.getLength(); ++i, fi = Utils.incMod(fi, factor.length)) {
-            int resultIndex = factor[fi] - 1; // a factor is a 1-based int vector
-            int[] collect = collectResults[resultIndex];
-            if (collect.length == collectResultSize[resultIndex]) {
-                collectResults[resultIndex] = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                collect = collectResults[resultIndex];
+        // perform split, elements with a NA factor value are dropped
+        for (int i = 0; i < factor.length; i++) {
+            int resultIndex = factor[i] - 1; // a factor is a 1-based int vector
+            if (resultIndex >= 0 && resultIndex < nLevels) {
+                collectResults[resultIndex][collectResultSize[resultIndex]++] = x.getDataAt(i);
             }
-            collect[collectResultSize[resultIndex]++] = x.getDataAt(i);
         }
 
         // assemble result vectors and level names
         Object[] results = new Object[nLevels];
         for (int i = 0; i < nLevels; i++) {
-            results[i] = RDataFactory.createIntVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete());
+            results[i] = RDataFactory.createIntVector(collectResults[i], x.isComplete());
         }
 
         return RDataFactory.createList(results, names);
@@ -93,32 +85,30 @@ public abstract class Split extends RBuiltinNode {
 
     @Specialization
     protected RList split(RAbstractDoubleVector x, RAbstractIntVector f) {
-        int[] factor = f.materialize().getDataWithoutCopying();
+        int[] factor = GroupedAggregation.recycle(f.materialize().getDataWithoutCopying(), x.getLength());
         RStringVector names = getLevelNode.execute(f);
         final int nLevels = getNLevels(names);
 
-        // initialise result arrays
+        // the group sizes are known upfront, so that the result vectors can be filled directly
+        int[] sizes = GroupedAggregation.count(factor, nLevels);
         double[][] collectResults = new double[nLevels][];
-        int[] collectResultSize = new int[nLevels];
-        for (int i = 0; i < collectResults.length; i++) {
-            collectResults[i] = new double[INITIAL_SIZE];
+        for (int i = 0; i < nLevels; i++) {
+            collectResults[i] = new double[sizes[i]];
         }
+        int[] collectResultSize = new int[nLevels];
 
-        // perform split
-        for (int i = 0, fi = 0; i < x.getLength(); ++i, fi = Utils.incMod(fi, factor.length)) {
-            int resultIndex = factor[fi] - 1; // a factor is a 1-based int vector
-            double[] collect = collectResults[resultIndex];
-            if (collect.length == collectResultSize[resultIndex]) {
-                collectResults[resultIndex] = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                collect = collectResults[resultIndex];
+        // perform split, elements with a NA factor value are dropped
+        for (int i = 0; i < factor.length; i++) {
+            int resultIndex = factor[i] - 1; // a factor is a 1-based int vector
+            if (resultIndex >= 0 && resultIndex < nLevels) {
+                collectResults[resultIndex][collectResultSize[resultIndex]++] = x.getDataAt(i);
             }
-            collect[collectResultSize[resultIndex]++] = x.getDataAt(i);
         }
 
         // assemble result vectors and level names
         Object[] results = new Object[nLevels];
         for (int i = 0; i < nLevels; i++) {
-            results[i] = RDataFactory.createDoubleVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), RDataFactory.COMPLETE_VECTOR);
+            results[i] = RDataFactory.createDoubleVector(collectResults[i], x.isComplete());
         }
 
         return RDataFactory.createList(results, names);
@@ -126,32 +116,30 @@ public abstract class Split extends RBuiltinNode {
 
     @Specialization
     protected RList split(RAbstractStringVector x, RAbstractIntVector f) {
-        int[] factor = f.materialize().getDataWithoutCopying();
+        int[] factor = GroupedAggregation.recycle(f.materialize().getDataWithoutCopying(), x.getLength());
         RStringVector names = getLevelNode.execute(f);
         final int nLevels = getNLevels(names);
 
-        // initialise result arrays
+        // the group sizes are known upfront, so that the result vectors can be filled directly
+        int[] sizes = GroupedAggregation.count(factor, nLevels);
         String[][] collectResults = new String[nLevels][];
-        int[] collectResultSize = new int[nLevels];
-        for (int i = 0; i < collectResults.length; i++) {
-            collectResults[i] = new String[INITIAL_SIZE];
+        for (int i = 0; i < nLevels; i++) {
+            collectResults[i] = new String[sizes[i]];
         }
+        int[] collectResultSize = new int[nLevels];
 
-        // perform split
-        for (int i = 0, fi = 0; i < x.getLength(); ++i, fi = Utils.incMod(fi, factor.length)) {
-            int resultIndex = factor[fi] - 1; // a factor is a 1-based int vector
-            String[] collect = collectResults[resultIndex];
-            if (collect.length == collectResultSize[resultIndex]) {
-                collectResults[resultIndex] = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                collect = collectResults[resultIndex];
+        // perform split, elements with a NA factor value are dropped
+        for (int i = 0; i < factor.length; i++) {
+            int resultIndex = factor[i] - 1; // a factor is a 1-based int vector
+            if (resultIndex >= 0 && resultIndex < nLevels) {
+                collectResults[resultIndex][collectResultSize[resultIndex]++] = x.getDataAt(i);
             }
-            collect[collectResultSize[resultIndex]++] = x.getDataAt(i);
         }
 
         // assemble result vectors and level names
         Object[] results = new Object[nLevels];
         for (int i = 0; i < nLevels; i++) {
-            results[i] = RDataFactory.createStringVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), RDataFactory.COMPLETE_VECTOR);
+            results[i] = RDataFactory.createStringVector(collectResults[i], x.isComplete());
         }
 
         return RDataFactory.createList(results, names);
@@ -159,32 +147,30 @@ public abstract class Split extends RBuiltinNode {
 
     @Specialization
     protected RList split(RAbstractLogicalVector x, RAbstractIntVector f) {
-        int[] factor = f.materialize().getDataWithoutCopying();
+        int[] factor = GroupedAggregation.recycle(f.materialize().getDataWithoutCopying(), x.getLength());
         RStringVector names = getLevelNode.execute(f);
         final int nLevels = getNLevels(names);
 
-        // initialise result arrays
+        // the group sizes are known upfront, so that the result vectors can be filled directly
+        int[] sizes = GroupedAggregation.count(factor, nLevels);
         byte[][] collectResults = new byte[nLevels][];
-        int[] collectResultSize = new int[nLevels];
-        for (int i = 0; i < collectResults.length; i++) {
-            collectResults[i] = new byte[INITIAL_SIZE];
+        for (int i = 0; i < nLevels; i++) {
+            collectResults[i] = new byte[sizes[i]];
         }
+        int[] collectResultSize = new int[nLevels];
 
-        // perform split
-        for (int i = 0, fi = 0; i < x.getLength(); ++i, fi = Utils.incMod(fi, factor.length)) {
-            int resultIndex = factor[fi] - 1; // a factor is a 1-based int vector
-            byte[] collect = collectResults[resultIndex];
-            if (collect.length == collectResultSize[resultIndex]) {
-                collectResults[resultIndex] = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                collect = collectResults[resultIndex];
+        // perform split, elements with a NA factor value are dropped
+        for (int i = 0; i < factor.length; i++) {
+            int resultIndex = factor[i] - 1; // a factor is a 1-based int vector
+            if (resultIndex >= 0 && resultIndex < nLevels) {
+                collectResults[resultIndex][collectResultSize[resultIndex]++] = x.getDataAt(i);
             }
-            collect[collectResultSize[resultIndex]++] = x.getDataAt(i);
         }
 
         // assemble result vectors and level names
         Object[] results = new Object[nLevels];
         for (int i = 0; i < nLevels; i++) {
-            results[i] = RDataFactory.createLogicalVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete());
+            results[i] = RDataFactory.createLogicalVector(collectResults[i], x.isComplete());
         }
 
         return RDataFactory.createList(results, names);
@@ -15,11 +15,9 @@ import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.api.profiles.LoopConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.RError;
-import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RIntVector;
@@ -28,8 +26,6 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 @RBuiltin(name = "tabulate", kind = INTERNAL, parameterNames = {"bin", "nbins"}, behavior = PURE)
 public abstract class Tabulate extends RBuiltinNode {
 
-    private final LoopConditionProfile loopProfile = LoopConditionProfile.createCountingProfile();
-
     @Override
     protected void createCasts(CastBuilder casts) {
         casts.arg("bin").defaultError(RError.NO_CALLER, RError.Message.INVALID_INPUT).mustBe(integerValue()).asIntegerVector();
@@ -38,15 +34,7 @@ public abstract class Tabulate extends RBuiltinNode {
 
     @Specialization
     protected RIntVector tabulate(RAbstractIntVector bin, int nBins) {
-        int[] ans = new int[nBins];
-        loopProfile.profileCounted(bin.getLength());
-        for (int i = 0; loopProfile.inject(i < bin.getLength()); i++) {
-            int currentEl = bin.getDataAt(i);
-            if (!RRuntime.isNA(currentEl) && currentEl > 0 && currentEl <= nBins) {
-                ans[currentEl - 1]++;
-            }
-        }
-        return RDataFactory.createIntVector(ans, RDataFactory.COMPLETE_VECTOR);
+        return RDataFactory.createIntVector(GroupedAggregation.count(bin.materialize().getDataWithoutCopying(), nBins), RDataFactory.COMPLETE_VECTOR);
     }
 
 }
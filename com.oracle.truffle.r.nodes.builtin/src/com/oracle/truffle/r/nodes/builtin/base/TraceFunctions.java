@@ -135,7 +135,7 @@ public class TraceFunctions {
             boolean newState = RRuntime.fromLogical(state);
             if (newState != prevState) {
                 RContext.getInstance().stateInstrumentation.setTracingState(newState);
-                MemoryCopyTracer.setTracingState(newState);
+                TracememBase.setMemoryTracing(newState);
             }
             return RRuntime.asLogical(prevState);
         }
@@ -152,6 +152,23 @@ public class TraceFunctions {
             MemoryCopyTracer.addListener(new TracememBase.TracememListener());
         }
 
+        /**
+         * Whether tracemem holds a reference on the {@link MemoryCopyTracer}, which other users may
+         * hold as well.
+         */
+        private static boolean memoryTracing;
+
+        static synchronized void setMemoryTracing(boolean state) {
+            if (state != memoryTracing) {
+                if (state) {
+                    MemoryCopyTracer.enable();
+                } else {
+                    MemoryCopyTracer.disable();
+                }
+                memoryTracing = state;
+            }
+        }
+
         @TruffleBoundary
         protected static HashSet<Object> getTracedObjects() {
             return RContext.getInstance().getInstrumentationState().getTracemem().getTracedObjects();
@@ -172,7 +189,7 @@ public class TraceFunctions {
             getTracedObjects().add(x);
             boolean tracingState = RContext.getInstance().stateInstrumentation.getTracingState();
             if (tracingState) {
-                MemoryCopyTracer.setTracingState(true);
+                setMemoryTracing(true);
             }
         }
 
@@ -206,7 +223,8 @@ public class TraceFunctions {
             @TruffleBoundary
             @Override
             public void reportCopying(RAbstractVector src, RAbstractVector dest) {
-                if (getTracedObjects().contains(src)) {
+                // the copies are also reported while other users trace them
+                if (RContext.getInstance().stateInstrumentation.getTracingState() && getTracedObjects().contains(src)) {
                     printToStdout(String.format("tracemem[0x%x -> 0x%x]: %s", src.hashCode(), dest.hashCode(), getStackTrace()));
                 }
             }
@@ -49,6 +49,7 @@ import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RRaw;
 import com.oracle.truffle.r.runtime.data.RRawVector;
+import com.oracle.truffle.r.runtime.data.RSortedness;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
@@ -67,6 +68,7 @@ public abstract class Unique extends RBuiltinNode {
     private static final long BIG_THRESHOLD = 100;
 
     private final ConditionProfile bigProfile = ConditionProfile.createBinaryProfile();
+    private final ConditionProfile sortedProfile = ConditionProfile.createBinaryProfile();
 
     @Override
     protected void createCasts(CastBuilder casts) {
@@ -248,7 +250,9 @@ public abstract class Unique extends RBuiltinNode {
     @SuppressWarnings("unused")
     @Specialization
     protected RIntVector doUnique(RAbstractIntVector vec, RAbstractVector incomparables, byte fromLast, int nmax) {
-        if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
+        if (sortedProfile.profile(vec.getSortedness() != RSortedness.UNKNOWN)) {
+            return uniqueSorted(vec);
+        } else if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
             NonRecursiveHashSetInt set = new NonRecursiveHashSetInt();
             int[] data = new int[16];
             int ind = 0;
@@ -274,6 +278,44 @@ public abstract class Unique extends RBuiltinNode {
         }
     }
 
+    /**
+     * Equal elements of a sorted vector are adjacent, so no hashing is needed and the order of the
+     * unique values does not depend on {@code fromLast}.
+     */
+    private static RIntVector uniqueSorted(RAbstractIntVector vec) {
+        int length = vec.getLength();
+        int[] data = new int[length];
+        int ind = 0;
+        for (int i = 0; i < length; i++) {
+            int val = vec.getDataAt(i);
+            if (ind == 0 || data[ind - 1] != val) {
+                data[ind++] = val;
+            }
+        }
+        RIntVector result = RDataFactory.createIntVector(ind == length ? data : Arrays.copyOf(data, ind), RDataFactory.COMPLETE_VECTOR);
+        result.setSortedness(strict(vec.getSortedness()));
+        return result;
+    }
+
+    private static RDoubleVector uniqueSorted(RAbstractDoubleVector vec) {
+        int length = vec.getLength();
+        double[] data = new double[length];
+        int ind = 0;
+        for (int i = 0; i < length; i++) {
+            double val = vec.getDataAt(i);
+            if (ind == 0 || data[ind - 1] != val) {
+                data[ind++] = val;
+            }
+        }
+        RDoubleVector result = RDataFactory.createDoubleVector(ind == length ? data : Arrays.copyOf(data, ind), RDataFactory.COMPLETE_VECTOR);
+        result.setSortedness(strict(vec.getSortedness()));
+        return result;
+    }
+
+    private static RSortedness strict(RSortedness sortedness) {
+        return sortedness.isIncreasing() ? RSortedness.STRICTLY_INCREASING : RSortedness.STRICTLY_DECREASING;
+    }
+
     @SuppressWarnings("unused")
     @Specialization(guards = "lengthOne(list)")
     protected RList doUniqueL1(RList list, RAbstractVector incomparables, byte fromLast, int nmax) {
@@ -373,7 +415,9 @@ public abstract class Unique extends RBuiltinNode {
     @SuppressWarnings("unused")
     @Specialization
     protected RDoubleVector doUnique(RAbstractDoubleVector vec, RAbstractVector incomparables, byte fromLast, int nmax) {
-        if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
+        if (sortedProfile.profile(vec.getSortedness() != RSortedness.UNKNOWN)) {
+            return uniqueSorted(vec);
+        } else if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
             Utils.NonRecursiveHashSetDouble set = new Utils.NonRecursiveHashSetDouble(vec.getLength());
             double[] data = new double[vec.getLength()];
             int ind = 0;
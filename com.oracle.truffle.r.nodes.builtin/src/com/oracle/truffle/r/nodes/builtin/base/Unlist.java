@@ -25,6 +25,7 @@ import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.builtin.base.UnlistNodeGen.RecursiveLengthNodeGen;
+import com.oracle.truffle.r.nodes.control.RLengthNode;
 import com.oracle.truffle.r.nodes.unary.PrecedenceNode;
 import com.oracle.truffle.r.nodes.unary.PrecedenceNodeGen;
 import com.oracle.truffle.r.runtime.RInternalError;
@@ -55,7 +56,7 @@ public abstract class Unlist extends RBuiltinNode {
     }
 
     @Child private PrecedenceNode precedenceNode = PrecedenceNodeGen.create();
-    @Child private Length lengthNode;
+    @Child private RLengthNode lengthNode;
     @Child private RecursiveLength recursiveLengthNode;
 
     private final RAttributeProfiles attrProfiles = RAttributeProfiles.create();
@@ -118,13 +119,13 @@ public abstract class Unlist extends RBuiltinNode {
 
     private int getLength(VirtualFrame frame, Object operand) {
         initLengthNode();
-        return lengthNode.executeInt(frame, operand);
+        return lengthNode.executeInteger(frame, operand);
     }
 
     private void initLengthNode() {
         if (lengthNode == null) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
-            lengthNode = insert(LengthNodeGen.create());
+            lengthNode = insert(RLengthNode.create());
         }
     }
 
@@ -38,6 +38,7 @@ import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
 
 @RBuiltin(name = "length<-", kind = PRIMITIVE, parameterNames = {"x", "value"}, dispatch = INTERNAL_GENERIC, behavior = PURE)
@@ -60,8 +61,21 @@ public abstract class UpdateLength extends RBuiltinNode {
         return RNull.instance;
     }
 
+    /*
+     * The argument of a replacement function that is not shared can be updated, so a vector that
+     * supports it is grown in place, which makes "length(x) <- n" loops linear.
+     */
     @Specialization
+    protected RAbstractContainer updateLength(RVector<?> vector, int length) {
+        return vector.resizeNonShared(length);
+    }
+
+    @Specialization(guards = "!isRVector(container)")
     protected RAbstractContainer updateLength(RAbstractContainer container, int length) {
         return container.resize(length);
     }
+
+    protected static boolean isRVector(RAbstractContainer container) {
+        return container instanceof RVector;
+    }
 }
@@ -14,6 +14,8 @@ package com.oracle.truffle.r.nodes.builtin.base.foreign;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.COMPLEX;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
 
+import java.util.Arrays;
+
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
@@ -21,15 +23,20 @@ import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.profiles.BranchProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.nodes.function.opt.ShareObjectNode;
 import com.oracle.truffle.r.runtime.ArgumentsSignature;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.RVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
@@ -41,8 +48,13 @@ import com.oracle.truffle.r.runtime.ffi.NativeCallInfo;
 /**
  * {@code .C} functions.
  *
- * TODO Completeness (more types, more error checks), Performance (copying). Especially all the
- * subtleties around copying.
+ * TODO Completeness (more types, more error checks).
+ *
+ * The native code works on the arrays in place (they are pinned on the JNI side). A vector argument
+ * that nothing else can observe, i.e. a temporary such as {@code double(n)} or one materialized
+ * just for the call, is passed without copying and becomes the result. Any other vector is copied,
+ * and the result is the argument itself if the native code left the copy unchanged, so that only
+ * the actual outputs of a call cost a new vector.
  *
  * See <a href="https://stat.ethz.ch/R-manual/R-devel/library/base/html/Foreign.html">here</a>.
  */
@@ -117,6 +129,48 @@ public abstract class DotC extends RBuiltinNode {
         return data;
     }
 
+    /**
+     * Whether the native code can work on the data of {@code vector} in place, i.e. nothing else
+     * can observe it: it was materialized from {@code arg} just for this call, or it is temporary.
+     */
+    private static boolean isPrivate(Object arg, RVector<?> vector) {
+        return vector != arg || vector.isTemporary();
+    }
+
+    /**
+     * Unlike {@link Arrays#equals(double[], double[])} this tells NA from NaN. A store with spare
+     * capacity never compares equal, which just costs a copy.
+     */
+    private static boolean sameBits(double[] data, double[] store) {
+        if (data.length != store.length) {
+            return false;
+        }
+        for (int i = 0; i < data.length; i++) {
+            if (Double.doubleToRawLongBits(data[i]) != Double.doubleToRawLongBits(store[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isComplete(double[] data) {
+        for (int i = 0; i < data.length; i++) {
+            if (RRuntime.isNA(data[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isComplete(int[] data) {
+        for (int i = 0; i < data.length; i++) {
+            if (RRuntime.isNA(data[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static RStringVector validateArgNames(int argsLength, ArgumentsSignature signature) {
         String[] listArgNames = new String[argsLength];
         for (int i = 0; i < argsLength; i++) {
@@ -135,22 +189,29 @@ public abstract class DotC extends RBuiltinNode {
         boolean dupArgs = RRuntime.fromLogical(dup);
         @SuppressWarnings("unused")
         boolean checkNA = RRuntime.fromLogical(naok);
-        // Analyze the args, making copies (ignoring dup for now)
+        // Analyze the args, making copies of those that can be observed (ignoring dup for now)
         Object[] array = args.getArguments();
         int[] argTypes = new int[array.length];
         Object[] nativeArgs = new Object[array.length];
+        RVector<?>[] vectors = new RVector<?>[array.length];
         for (int i = 0; i < array.length; i++) {
             Object arg = array[i];
             if (arg instanceof RAbstractDoubleVector) {
                 argTypes[i] = VECTOR_DOUBLE;
-                nativeArgs[i] = checkNAs(node, i + 1, ((RAbstractDoubleVector) arg).materialize().getDataCopy());
+                RDoubleVector vector = ((RAbstractDoubleVector) arg).materialize();
+                vectors[i] = vector;
+                nativeArgs[i] = checkNAs(node, i + 1, isPrivate(arg, vector) ? vector.getDataWithoutCopying() : vector.getDataCopy());
             } else if (arg instanceof RAbstractIntVector) {
                 argTypes[i] = VECTOR_INT;
-                nativeArgs[i] = checkNAs(node, i + 1, ((RAbstractIntVector) arg).materialize().getDataCopy());
+                RIntVector vector = ((RAbstractIntVector) arg).materialize();
+                vectors[i] = vector;
+                nativeArgs[i] = checkNAs(node, i + 1, isPrivate(arg, vector) ? vector.getDataWithoutCopying() : vector.getDataCopy());
             } else if (arg instanceof RAbstractLogicalVector) {
                 argTypes[i] = VECTOR_LOGICAL;
                 // passed as int[]
-                byte[] data = ((RAbstractLogicalVector) arg).materialize().getDataWithoutCopying();
+                RLogicalVector vector = ((RAbstractLogicalVector) arg).materialize();
+                vectors[i] = vector;
+                byte[] data = vector.getDataWithoutCopying();
                 int[] dataAsInt = new int[data.length];
                 for (int j = 0; j < data.length; j++) {
                     // An NA is an error but the error handling happens in checkNAs
@@ -192,19 +253,54 @@ public abstract class DotC extends RBuiltinNode {
                     }
                     results[i] = RDataFactory.createLogicalVector(nativeByteArgs, RDataFactory.COMPLETE_VECTOR);
                     break;
-                case VECTOR_DOUBLE:
-                    results[i] = ((RAbstractDoubleVector) array[i]).materialize().copyResetData((double[]) nativeArgs[i]);
+                case VECTOR_DOUBLE: {
+                    RDoubleVector vector = (RDoubleVector) vectors[i];
+                    double[] data = (double[]) nativeArgs[i];
+                    if (isPrivate(array[i], vector)) {
+                        // data is the vector's own store
+                        vector.resetDataHash();
+                        vector.setComplete(isComplete(data));
+                        results[i] = vector;
+                    } else if (sameBits(data, vector.getReadonlyStore())) {
+                        results[i] = ShareObjectNode.share(vector);
+                    } else {
+                        results[i] = vector.copyResetData(data);
+                    }
                     break;
-                case VECTOR_INT:
-                    results[i] = ((RAbstractIntVector) array[i]).materialize().copyResetData((int[]) nativeArgs[i]);
+                }
+                case VECTOR_INT: {
+                    RIntVector vector = (RIntVector) vectors[i];
+                    int[] data = (int[]) nativeArgs[i];
+                    if (isPrivate(array[i], vector)) {
+                        vector.resetDataHash();
+                        vector.setComplete(isComplete(data));
+                        results[i] = vector;
+                    } else if (Arrays.equals(data, vector.getReadonlyStore())) {
+                        results[i] = ShareObjectNode.share(vector);
+                    } else {
+                        results[i] = vector.copyResetData(data);
+                    }
                     break;
+                }
                 case VECTOR_LOGICAL: {
+                    RLogicalVector vector = (RLogicalVector) vectors[i];
                     int[] intData = (int[]) nativeArgs[i];
                     byte[] byteData = new byte[intData.length];
+                    boolean complete = true;
                     for (int j = 0; j < intData.length; j++) {
+                        complete &= !RRuntime.isNA(intData[j]);
                         byteData[j] = RRuntime.isNA(intData[j]) ? RRuntime.LOGICAL_NA : RRuntime.asLogical(intData[j] != 0);
                     }
-                    results[i] = ((RAbstractLogicalVector) array[i]).materialize().copyResetData(byteData);
+                    byte[] store = vector.getDataWithoutCopying();
+                    if (Arrays.equals(byteData, store)) {
+                        results[i] = isPrivate(array[i], vector) ? vector : ShareObjectNode.share(vector);
+                    } else if (isPrivate(array[i], vector)) {
+                        System.arraycopy(byteData, 0, store, 0, byteData.length);
+                        vector.setComplete(complete);
+                        results[i] = vector;
+                    } else {
+                        results[i] = vector.copyResetData(byteData);
+                    }
                     break;
                 }
             }
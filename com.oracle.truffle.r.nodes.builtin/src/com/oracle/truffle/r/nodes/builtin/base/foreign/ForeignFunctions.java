@@ -41,6 +41,8 @@ import com.oracle.truffle.r.library.methods.SlotFactory.R_getSlotNodeGen;
 import com.oracle.truffle.r.library.methods.SlotFactory.R_setSlotNodeGen;
 import com.oracle.truffle.r.library.methods.SubstituteDirectNodeGen;
 import com.oracle.truffle.r.library.parallel.ParallelFunctionsFactory.MCIsChildNodeGen;
+import com.oracle.truffle.r.library.parallel.ParallelFunctionsFactory.NextStreamNodeGen;
+import com.oracle.truffle.r.library.parallel.ParallelFunctionsFactory.NextSubStreamNodeGen;
 import com.oracle.truffle.r.library.stats.CdistNodeGen;
 import com.oracle.truffle.r.library.stats.CompleteCases;
 import com.oracle.truffle.r.library.stats.CovcorNodeGen;
@@ -539,6 +541,10 @@ public class ForeignFunctions {
                 // parallel
                 case "mc_is_child":
                     return MCIsChildNodeGen.create();
+                case "nextStream":
+                    return NextStreamNodeGen.create();
+                case "nextSubStream":
+                    return NextSubStreamNodeGen.create();
                 default:
                     return null;
             }
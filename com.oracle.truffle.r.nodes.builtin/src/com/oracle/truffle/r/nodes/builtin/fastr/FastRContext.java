@@ -42,6 +42,7 @@ import com.oracle.truffle.r.runtime.RSource;
 import com.oracle.truffle.r.runtime.RStartParams;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.context.ContextInfo;
+import com.oracle.truffle.r.runtime.context.ContextTemplate;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RIntVector;
@@ -217,6 +218,33 @@ public class FastRContext {
 
     }
 
+    /**
+     * Snapshots the current context into the {@link ContextTemplate} from which the
+     * {@code SHARE_NOTHING} contexts it creates subsequently are restored, which avoids loading
+     * the base package and evaluating the profiles again. {@code clear = TRUE} discards the
+     * template.
+     */
+    @RBuiltin(name = ".fastr.context.snapshot", visibility = OFF, kind = PRIMITIVE, parameterNames = {"clear"}, behavior = COMPLEX)
+    public abstract static class Snapshot extends RBuiltinNode {
+        @Override
+        public Object[] getDefaultParameterValues() {
+            return new Object[]{RRuntime.LOGICAL_FALSE};
+        }
+
+        @Override
+        protected void createCasts(CastBuilder casts) {
+            casts.arg("clear").asLogicalVector().findFirst().notNA().map(toBoolean());
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected RNull snapshot(boolean clear) {
+            RContext context = RContext.getInstance();
+            context.setChildTemplate(clear ? null : ContextTemplate.snapshot(context));
+            return RNull.instance;
+        }
+    }
+
     @RBuiltin(name = ".fastr.context.r", kind = PRIMITIVE, visibility = OFF, parameterNames = {"args", "env", "intern"}, behavior = COMPLEX)
     public abstract static class R extends RBuiltinNode {
         @Override
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.gte1;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.stringValue;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.library.stats.Cdist;
+import com.oracle.truffle.r.nodes.builtin.CastBuilder;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+
+/**
+ * Computes a part of {@code as.vector(dist(x, method, p = p))}: the distances between the
+ * observations {@code from:to} (rows of {@code x}) and all observations after them. Consecutive
+ * blocks concatenate to the full {@code dist} vector, which allows to stream over the distances of
+ * data sets whose full {@code dist} would not fit into memory, e.g.
+ *
+ * <pre>
+ * for (from in seq(1, nrow(x) - 1, by = 1000)) {
+ *     d <- .fastr.dist.block(x, "euclidean", from, min(from + 999, nrow(x) - 1))
+ *     ...
+ * }
+ * </pre>
+ */
+@RBuiltin(name = ".fastr.dist.block", kind = PRIMITIVE, parameterNames = {"x", "method", "from", "to", "p"}, behavior = PURE)
+public abstract class FastRDistBlock extends RBuiltinNode {
+
+    @Override
+    public Object[] getDefaultParameterValues() {
+        return new Object[]{RMissing.instance, "euclidean", RMissing.instance, RMissing.instance, 2d};
+    }
+
+    @Override
+    protected void createCasts(CastBuilder casts) {
+        casts.arg("x").asDoubleVector(false, true, false);
+        casts.arg("method").mustBe(stringValue()).asStringVector().findFirst();
+        casts.arg("from").asIntegerVector().findFirst().notNA().mustBe(gte1());
+        casts.arg("to").asIntegerVector().findFirst().notNA().mustBe(gte1());
+        casts.arg("p").asDoubleVector().findFirst();
+    }
+
+    @Specialization
+    protected RDoubleVector distBlock(RAbstractDoubleVector x, String method, int from, int to, double p) {
+        int nr = RRuntime.nrows(x);
+        int nc = RRuntime.ncols(x);
+        if (from > to + 1 || to > nr) {
+            throw RError.error(this, RError.Message.GENERIC, "invalid 'from' or 'to'");
+        }
+        double[] d = Cdist.distanceBlock(x.materialize().getDataWithoutCopying(), nr, nc, Cdist.Method.fromName(method), p, from - 1, to);
+        boolean complete = true;
+        for (int i = 0; i < d.length; i++) {
+            if (RRuntime.isNA(d[i])) {
+                complete = false;
+                break;
+            }
+        }
+        return RDataFactory.createDoubleVector(d, complete);
+    }
+}
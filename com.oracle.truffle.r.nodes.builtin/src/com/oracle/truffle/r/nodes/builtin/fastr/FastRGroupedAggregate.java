@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.gte;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.numericValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.stringValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.CastBuilder;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.nodes.builtin.base.GroupedAggregation;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Aggregates the numeric vector {@code x} by the 1-based integer codes in {@code group} (e.g. the
+ * codes of a factor) into a vector of length {@code ngroups}, see {@link GroupedAggregation}.
+ * {@code op} is one of {@code "sum"}, {@code "mean"}, {@code "min"}, {@code "max"}, {@code "var"}
+ * or {@code "count"}, the latter gives the number of (non-{@code NA} if {@code na.rm}) elements as
+ * an integer vector. Elements with a {@code NA} or out of range code are ignored, e.g.
+ *
+ * <pre>
+ * .fastr.grouped.aggregate(x, as.integer(f), nlevels(f), "mean")
+ * </pre>
+ */
+@RBuiltin(name = ".fastr.grouped.aggregate", kind = PRIMITIVE, parameterNames = {"x", "group", "ngroups", "op", "na.rm"}, behavior = PURE)
+public abstract class FastRGroupedAggregate extends RBuiltinNode {
+
+    @Override
+    public Object[] getDefaultParameterValues() {
+        return new Object[]{RMissing.instance, RMissing.instance, RMissing.instance, "sum", RRuntime.LOGICAL_FALSE};
+    }
+
+    @Override
+    protected void createCasts(CastBuilder casts) {
+        casts.arg("x").mustBe(numericValue(), RError.SHOW_CALLER, RError.Message.X_NUMERIC).asDoubleVector();
+        casts.arg("group").mustBe(numericValue(), RError.SHOW_CALLER, RError.Message.INVALID_ARGUMENT, "group").asIntegerVector();
+        casts.arg("ngroups").asIntegerVector().findFirst().notNA().mustBe(gte(0));
+        casts.arg("op").mustBe(stringValue()).asStringVector().findFirst();
+        casts.arg("na.rm").asLogicalVector().findFirst().notNA().map(toBoolean());
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RAbstractVector aggregate(RAbstractDoubleVector x, RAbstractIntVector group, int ngroups, String op, boolean naRm) {
+        if (x.getLength() != group.getLength()) {
+            throw RError.error(this, RError.Message.GENERIC, "arguments must have same length");
+        }
+        double[] data = x.materialize().getDataWithoutCopying();
+        int[] codes = group.materialize().getDataWithoutCopying();
+        if (op.equals("count")) {
+            int[] counts = naRm ? GroupedAggregation.countValid(data, 0, codes, ngroups) : GroupedAggregation.count(codes, ngroups);
+            return RDataFactory.createIntVector(counts, RDataFactory.COMPLETE_VECTOR);
+        }
+        GroupedAggregation.Op aggregateOp = GroupedAggregation.Op.fromName(op);
+        if (aggregateOp == null) {
+            throw RError.error(this, RError.Message.GENERIC, "invalid 'op', must be one of \"sum\", \"mean\", \"min\", \"max\", \"var\" or \"count\"");
+        }
+        double[] result = GroupedAggregation.aggregate(data, 0, codes, ngroups, aggregateOp, naRm);
+        boolean complete = true;
+        for (double d : result) {
+            complete &= !RRuntime.isNA(d);
+        }
+        return RDataFactory.createDoubleVector(result, complete);
+    }
+}
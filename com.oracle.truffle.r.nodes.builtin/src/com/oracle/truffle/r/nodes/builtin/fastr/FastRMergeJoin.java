@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.CastBuilder;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.nodes.builtin.base.HashJoin;
+import com.oracle.truffle.r.nodes.builtin.base.Merge;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractListVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Joins the rows of {@code x} and {@code y} on their key columns with {@link HashJoin}, without
+ * pasting multi-column keys into strings. {@code x} and {@code y} are lists (e.g. data frames) of
+ * key columns, or a single key vector. Corresponding columns must both be numeric (integer,
+ * logical or double) or both character (or factor, which is compared by its labels). The result
+ * has the same form as {@code .Internal(merge(...))}: the 1-based row indices {@code xi} and
+ * {@code yi} of the matched pairs and, if requested, the rows {@code x.alone} and {@code y.alone}
+ * without a match. The pairs are grouped by key in the order of the first occurrence of the keys in
+ * {@code x}, the rows of a key in their original order. With {@code merge.order = TRUE} they are in
+ * the order of {@code .Internal(merge(...))} instead, which is what {@code merge.data.frame} uses.
+ * E.g. for a left join:
+ *
+ * <pre>
+ * m <- .fastr.merge.join(facts[c("store", "day")], stores[c("store", "day")], all.x = TRUE)
+ * </pre>
+ */
+@RBuiltin(name = ".fastr.merge.join", kind = PRIMITIVE, parameterNames = {"x", "y", "all.x", "all.y", "merge.order"}, behavior = PURE)
+public abstract class FastRMergeJoin extends RBuiltinNode {
+
+    @Override
+    public Object[] getDefaultParameterValues() {
+        return new Object[]{RMissing.instance, RMissing.instance, RRuntime.LOGICAL_FALSE, RRuntime.LOGICAL_FALSE, RRuntime.LOGICAL_FALSE};
+    }
+
+    @Override
+    protected void createCasts(CastBuilder casts) {
+        casts.arg("all.x").asLogicalVector().findFirst().notNA().map(toBoolean());
+        casts.arg("all.y").asLogicalVector().findFirst().notNA().map(toBoolean());
+        casts.arg("merge.order").asLogicalVector().findFirst().notNA().map(toBoolean());
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RList join(Object x, Object y, boolean allX, boolean allY, boolean mergeOrder) {
+        RAbstractVector[] xColumns = columns(x, "x");
+        RAbstractVector[] yColumns = columns(y, "y");
+        if (xColumns.length != yColumns.length || xColumns.length == 0) {
+            throw RError.error(this, RError.Message.GENERIC, "'x' and 'y' must have the same, non-zero number of key columns");
+        }
+        Object[] xKeys = new Object[xColumns.length];
+        Object[] yKeys = new Object[yColumns.length];
+        for (int c = 0; c < xColumns.length; c++) {
+            boolean xString = isString(xColumns[c]);
+            if (xString != isString(yColumns[c])) {
+                throw RError.error(this, RError.Message.GENERIC, "key column " + (c + 1) + " is character in one table and numeric in the other");
+            }
+            boolean asDouble = !xString && (xColumns[c] instanceof RAbstractDoubleVector || yColumns[c] instanceof RAbstractDoubleVector);
+            xKeys[c] = keys(xColumns[c], asDouble);
+            yKeys[c] = keys(yColumns[c], asDouble);
+        }
+        int nx = rows(xColumns, "x");
+        int ny = rows(yColumns, "y");
+        HashJoin.Result result = mergeOrder ? HashJoin.joinInMergeOrder(xKeys, nx, yKeys, ny, allX, allY) : HashJoin.join(xKeys, nx, yKeys, ny, allX, allY);
+        if (result == null) {
+            throw RError.error(this, RError.Message.GENERIC, "number of rows in the result exceeds maximum vector length");
+        }
+        return Merge.createResult(result);
+    }
+
+    private RAbstractVector[] columns(Object value, String argName) {
+        if (value instanceof RAbstractListVector) {
+            RAbstractListVector list = (RAbstractListVector) value;
+            RAbstractVector[] result = new RAbstractVector[list.getLength()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = column(list.getDataAt(i), argName);
+            }
+            return result;
+        }
+        return new RAbstractVector[]{column(value, argName)};
+    }
+
+    private RAbstractVector column(Object value, String argName) {
+        // factors are integer vectors
+        if (value instanceof RAbstractIntVector || value instanceof RAbstractDoubleVector || value instanceof RAbstractLogicalVector || value instanceof RAbstractStringVector) {
+            return (RAbstractVector) value;
+        }
+        throw RError.error(this, RError.Message.GENERIC, "invalid key column in '" + argName + "', must be an integer, logical, double, character or factor vector");
+    }
+
+    private int rows(RAbstractVector[] columns, String argName) {
+        int n = columns[0].getLength();
+        for (RAbstractVector column : columns) {
+            if (column.getLength() != n) {
+                throw RError.error(this, RError.Message.GENERIC, "the key columns of '" + argName + "' must have the same length");
+            }
+        }
+        return n;
+    }
+
+    private static boolean isString(RAbstractVector column) {
+        return column instanceof RAbstractStringVector || column.hasClass(RRuntime.CLASS_FACTOR);
+    }
+
+    private static Object keys(RAbstractVector column, boolean asDouble) {
+        int n = column.getLength();
+        if (column instanceof RAbstractStringVector) {
+            return ((RAbstractStringVector) column).materialize().getDataWithoutCopying();
+        } else if (column.hasClass(RRuntime.CLASS_FACTOR)) {
+            RAbstractIntVector codes = (RAbstractIntVector) column;
+            Object levels = column.getAttr(RRuntime.LEVELS_ATTR_KEY);
+            String[] result = new String[n];
+            for (int i = 0; i < n; i++) {
+                int code = codes.getDataAt(i);
+                result[i] = RRuntime.isNA(code) || !(levels instanceof RAbstractStringVector) ? RRuntime.STRING_NA : ((RAbstractStringVector) levels).getDataAt(code - 1);
+            }
+            return result;
+        } else if (asDouble) {
+            double[] result = new double[n];
+            for (int i = 0; i < n; i++) {
+                result[i] = doubleAt(column, i);
+            }
+            return result;
+        } else {
+            int[] result = new int[n];
+            for (int i = 0; i < n; i++) {
+                result[i] = column instanceof RAbstractLogicalVector ? RRuntime.logical2int(((RAbstractLogicalVector) column).getDataAt(i)) : ((RAbstractIntVector) column).getDataAt(i);
+            }
+            return result;
+        }
+    }
+
+    private static double doubleAt(RAbstractVector column, int i) {
+        if (column instanceof RAbstractDoubleVector) {
+            return ((RAbstractDoubleVector) column).getDataAt(i);
+        }
+        int value = column instanceof RAbstractLogicalVector ? RRuntime.logical2int(((RAbstractLogicalVector) column).getDataAt(i)) : ((RAbstractIntVector) column).getDataAt(i);
+        return RRuntime.int2double(value);
+    }
+}
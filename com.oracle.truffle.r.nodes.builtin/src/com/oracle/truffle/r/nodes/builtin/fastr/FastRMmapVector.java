@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.doubleNA;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.gte;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.stringValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.IO;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import java.io.IOException;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.CastBuilder;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.Utils;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RMappedVector;
+import com.oracle.truffle.r.runtime.data.RMissing;
+
+/**
+ * Creates a vector backed by a memory-mapped file, see {@link RMappedVector}. {@code type} is one
+ * of {@code "double"}, {@code "integer"} or {@code "raw"}, a missing or {@code NA} {@code length}
+ * maps the whole file. The length may exceed {@code 2^31-1}, see {@link RMappedVector} for the
+ * operations supported on such long vectors. Assignments like {@code x[i] <- value} give
+ * {@code x} a copy in the heap like for any other shared vector, the file of a {@code writable}
+ * vector is updated with {@code .fastr.mmap.write}, see {@link FastRMmapWrite}.
+ */
+@RBuiltin(name = ".fastr.mmap.vector", kind = PRIMITIVE, parameterNames = {"path", "type", "length", "writable"}, behavior = IO)
+public abstract class FastRMmapVector extends RBuiltinNode {
+
+    @Override
+    public Object[] getDefaultParameterValues() {
+        return new Object[]{RMissing.instance, "double", RRuntime.DOUBLE_NA, RRuntime.LOGICAL_FALSE};
+    }
+
+    @Override
+    protected void createCasts(CastBuilder casts) {
+        casts.arg("path").mustBe(stringValue()).asStringVector().findFirst();
+        casts.arg("type").mustBe(stringValue()).asStringVector().findFirst();
+        casts.arg("length").asDoubleVector().findFirst(RRuntime.DOUBLE_NA).mustBe(doubleNA().or(gte(0d)));
+        casts.arg("writable").asLogicalVector().findFirst().notNA().map(toBoolean());
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RMappedVector mmap(String path, String type, double length, boolean writable) {
+        RType rType = RType.fromMode(type);
+        if (rType == null || RMappedVector.elementShift(rType) < 0) {
+            throw RError.error(this, RError.Message.GENERIC, "invalid 'type', must be \"double\", \"integer\" or \"raw\"");
+        }
+        try {
+            return RMappedVector.create(rType, Utils.tildeExpand(path), RRuntime.isNA(length) ? -1 : (long) length, writable);
+        } catch (IOException | UnsupportedOperationException ex) {
+            throw RError.error(this, RError.Message.GENERIC, "cannot map file '" + path + "': " + ex.getMessage());
+        }
+    }
+}
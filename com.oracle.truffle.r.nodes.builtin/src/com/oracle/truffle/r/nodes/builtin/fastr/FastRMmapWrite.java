@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.abstractVectorValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.instanceOf;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.numericValue;
+import static com.oracle.truffle.r.runtime.RVisibility.OFF;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.IO;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.r.nodes.builtin.CastBuilder;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RMappedVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Writes {@code value}, recycled as needed, to the elements at the one-based positions
+ * {@code index} of the writable memory-mapped vector {@code x}, i.e. to its file. Unlike
+ * {@code x[index] <- value}, which leaves the file alone and gives {@code x} a copy in the heap,
+ * the change is visible through every reference to the mapping, e.g.
+ *
+ * <pre>
+ * x <- .fastr.mmap.vector("features.bin", "double", writable = TRUE)
+ * .fastr.mmap.write(x, which(x < 0), 0)
+ * </pre>
+ *
+ * Positions may exceed {@code 2^31-1}, so this is also how long mapped vectors are updated.
+ */
+@RBuiltin(name = ".fastr.mmap.write", visibility = OFF, kind = PRIMITIVE, parameterNames = {"x", "index", "value"}, behavior = IO)
+public abstract class FastRMmapWrite extends RBuiltinNode {
+
+    @Override
+    protected void createCasts(CastBuilder casts) {
+        casts.arg("x").mustBe(instanceOf(RMappedVector.class), RError.Message.GENERIC, "'x' must be a memory-mapped vector");
+        casts.arg("index").mustBe(numericValue(), RError.Message.INVALID_ARGUMENT, "index").asDoubleVector();
+        casts.arg("value").mustBe(abstractVectorValue(), RError.Message.INVALID_ARGUMENT, "value");
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RMappedVector write(RMappedVector x, RAbstractDoubleVector index, RAbstractVector value) {
+        if (!x.isWritable()) {
+            throw RError.error(this, RError.Message.GENERIC, "memory-mapped vector is read-only");
+        }
+        RAbstractVector values = value.castSafe(x.getRType(), ConditionProfile.createBinaryProfile());
+        if (values == null) {
+            throw RError.error(this, RError.Message.INVALID_ARGUMENT, "value");
+        }
+        int indexLength = index.getLength();
+        int valueLength = values.getLength();
+        if (indexLength == 0) {
+            return x;
+        } else if (valueLength == 0) {
+            throw RError.error(this, RError.Message.REPLACEMENT_0);
+        }
+        // check all positions first, so that an error leaves the file unchanged
+        for (int i = 0; i < indexLength; i++) {
+            double position = index.getDataAt(i);
+            if (Double.isNaN(position) || position < 1 || position >= x.getLongLength() + 1) {
+                throw RError.error(this, RError.Message.SUBSCRIPT_BOUNDS);
+            }
+        }
+        if (indexLength % valueLength != 0) {
+            RError.warning(this, RError.Message.NOT_MULTIPLE_REPLACEMENT);
+        }
+        for (int i = 0; i < indexLength; i++) {
+            Object element = values.getDataAtAsObject(i % valueLength);
+            if (isNA(element)) {
+                x.setComplete(false);
+            }
+            x.setDataAtAsObject((long) index.getDataAt(i) - 1, element);
+        }
+        return x;
+    }
+
+    private static boolean isNA(Object element) {
+        if (element instanceof Double) {
+            return RRuntime.isNA((double) element);
+        } else if (element instanceof Integer) {
+            return RRuntime.isNA((int) element);
+        }
+        return false;
+    }
+}
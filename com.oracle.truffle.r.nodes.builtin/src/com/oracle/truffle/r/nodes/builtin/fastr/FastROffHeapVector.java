@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RMappedDoubleVector;
+import com.oracle.truffle.r.runtime.data.RMappedIntVector;
+import com.oracle.truffle.r.runtime.data.RMappedRawVector;
+import com.oracle.truffle.r.runtime.data.RMappedVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractRawVector;
+
+/**
+ * Copies a double, integer or raw vector into off-heap memory, see
+ * {@link RMappedVector#createOffHeap}. {@code INTEGER}, {@code REAL} and {@code RAW} give native
+ * code a pointer to that memory instead of a copy that is written back when the {@code .Call}
+ * returns, which pays off for vectors that are passed to native code repeatedly, e.g.
+ *
+ * <pre>
+ * x <- .fastr.offheap.vector(x)
+ * for (i in 1:100) fit <- .Call("step", x, fit)
+ * </pre>
+ *
+ * Attributes are not copied. Like the vectors mapped from a file, the result is updated in place by
+ * assignments like {@code x[i] <- value} that keep its type and length.
+ */
+@RBuiltin(name = ".fastr.offheap.vector", kind = PRIMITIVE, parameterNames = {"x"}, behavior = PURE)
+public abstract class FastROffHeapVector extends RBuiltinNode {
+
+    @Specialization
+    @TruffleBoundary
+    protected RMappedVector offHeap(RAbstractDoubleVector x) {
+        RMappedDoubleVector result = (RMappedDoubleVector) RMappedVector.createOffHeap(RType.Double, x.getLength());
+        for (int i = 0; i < x.getLength(); i++) {
+            result.setDataAt((long) i, x.getDataAt(i));
+        }
+        result.setComplete(x.isComplete());
+        return result;
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RMappedVector offHeap(RAbstractIntVector x) {
+        RMappedIntVector result = (RMappedIntVector) RMappedVector.createOffHeap(RType.Integer, x.getLength());
+        for (int i = 0; i < x.getLength(); i++) {
+            result.setDataAt((long) i, x.getDataAt(i));
+        }
+        result.setComplete(x.isComplete());
+        return result;
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RMappedVector offHeap(RAbstractRawVector x) {
+        RMappedRawVector result = (RMappedRawVector) RMappedVector.createOffHeap(RType.Raw, x.getLength());
+        for (int i = 0; i < x.getLength(); i++) {
+            result.setRawDataAt((long) i, x.getRawDataAt(i));
+        }
+        result.setComplete(true);
+        return result;
+    }
+
+    @Fallback
+    protected Object offHeap(@SuppressWarnings("unused") Object x) {
+        throw RError.error(this, RError.Message.GENERIC, "'x' must be a double, integer or raw vector");
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.COMPLEX;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.CastBuilder;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.PerfEventTracer;
+import com.oracle.truffle.r.runtime.PerfEventTracer.Counter;
+import com.oracle.truffle.r.runtime.PerfEventTracer.Event;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RList;
+
+/**
+ * Reports the events recorded by {@link PerfEventTracer}. {@code enable = TRUE} discards the events
+ * recorded so far and starts recording, {@code enable = FALSE} stops it. In any case the result is
+ * a data frame with one row per kind, location and detail, ordered by the number of bytes copied
+ * and then by the number of occurrences, limited to {@code top} rows if positive.
+ */
+@RBuiltin(name = ".fastr.perfreport", kind = PRIMITIVE, parameterNames = {"enable", "top"}, behavior = COMPLEX)
+public abstract class FastRPerfReport extends RBuiltinNode {
+
+    private static final String[] NAMES = new String[]{"kind", "location", "detail", "count", "bytes"};
+
+    @Override
+    public Object[] getDefaultParameterValues() {
+        return new Object[]{RRuntime.LOGICAL_NA, 0};
+    }
+
+    @Override
+    protected void createCasts(CastBuilder casts) {
+        casts.arg("enable").asLogicalVector().findFirst(RRuntime.LOGICAL_NA);
+        casts.arg("top").asIntegerVector().findFirst().notNA();
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RList perfReport(byte enable, int top) {
+        if (!RRuntime.isNA(enable)) {
+            PerfEventTracer.setTracingState(RRuntime.fromLogical(enable));
+        }
+        ArrayList<Map.Entry<Event, Counter>> events = PerfEventTracer.getEvents();
+        events.sort((a, b) -> {
+            int result = Long.compare(b.getValue().getBytes(), a.getValue().getBytes());
+            return result != 0 ? result : Long.compare(b.getValue().getCount(), a.getValue().getCount());
+        });
+        int length = top > 0 ? Math.min(top, events.size()) : events.size();
+        String[] kind = new String[length];
+        String[] location = new String[length];
+        String[] detail = new String[length];
+        double[] count = new double[length];
+        double[] bytes = new double[length];
+        for (int i = 0; i < length; i++) {
+            Event event = events.get(i).getKey();
+            kind[i] = event.getKind().name();
+            location[i] = event.getLocation();
+            detail[i] = event.getDetail() == null ? RRuntime.STRING_NA : event.getDetail();
+            count[i] = events.get(i).getValue().getCount();
+            bytes[i] = events.get(i).getValue().getBytes();
+        }
+        return createDataFrame(NAMES, length, RDataFactory.createStringVector(kind, RDataFactory.COMPLETE_VECTOR), RDataFactory.createStringVector(location, RDataFactory.COMPLETE_VECTOR),
+                        RDataFactory.createStringVector(detail, RDataFactory.INCOMPLETE_VECTOR), RDataFactory.createDoubleVector(count, RDataFactory.COMPLETE_VECTOR),
+                        RDataFactory.createDoubleVector(bytes, RDataFactory.COMPLETE_VECTOR));
+    }
+
+    /**
+     * Creates a data frame with compact row names from the given columns.
+     */
+    static RList createDataFrame(String[] names, int rows, Object... columns) {
+        RList result = RDataFactory.createList(columns, RDataFactory.createStringVector(names, RDataFactory.COMPLETE_VECTOR));
+        result.setAttr(RRuntime.ROWNAMES_ATTR_KEY, RDataFactory.createIntVector(new int[]{RRuntime.INT_NA, -rows}, RDataFactory.INCOMPLETE_VECTOR));
+        result.setClassAttr(RDataFactory.createStringVectorFromScalar(RRuntime.CLASS_DATA_FRAME));
+        return result;
+    }
+}
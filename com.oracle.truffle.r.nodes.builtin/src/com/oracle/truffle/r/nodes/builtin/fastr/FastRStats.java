@@ -30,6 +30,7 @@ import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -38,11 +39,20 @@ import java.util.TreeMap;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.instrumentation.EventBinding;
+import com.oracle.truffle.api.instrumentation.EventContext;
+import com.oracle.truffle.api.instrumentation.ExecutionEventListener;
+import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
+import com.oracle.truffle.api.instrumentation.StandardTags;
+import com.oracle.truffle.api.nodes.RootNode;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.source.Source;
 import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.r.nodes.builtin.CastBuilder;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.nodes.instrumentation.RInstrumentation;
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RSource;
@@ -50,7 +60,9 @@ import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.AttributeTracer;
 import com.oracle.truffle.r.runtime.data.AttributeTracer.Change;
+import com.oracle.truffle.r.runtime.data.MemoryCopyTracer;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RTypedValue;
 import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
@@ -100,6 +112,7 @@ public class FastRStats {
                 endProfiling();
             } else {
                 // enable after ending any previous session
+                endProfiling();
                 State state = State.get();
                 try {
                     PrintStream out = new PrintStream(new FileOutputStream(filenameVec.getDataAt(0), append));
@@ -188,12 +201,13 @@ public class FastRStats {
                 endProfiling();
             } else {
                 // enable after ending any previous session
+                endProfiling();
                 State state = State.get();
                 try {
                     PrintStream out = new PrintStream(new FileOutputStream(filenameVec.getDataAt(0), append));
                     state.setOut(out);
                     RDataFactory.addListener(this);
-                    RDataFactory.setTracingState(true);
+                    RDataFactory.enableTracing();
                 } catch (IOException ex) {
                     throw RError.error(this, RError.Message.GENERIC, String.format("Rprofmem: cannot open profile file '%s'", filenameVec.getDataAt(0)));
                 }
@@ -205,7 +219,7 @@ public class FastRStats {
         protected void endProfiling() {
             State state = State.get();
             if (state.out() != null) {
-                RDataFactory.setTracingState(false);
+                RDataFactory.disableTracing();
                 state.cleanup(0);
             }
         }
@@ -325,6 +339,7 @@ public class FastRStats {
                 endProfiling();
             } else {
                 // enable after ending any previous session
+                endProfiling();
                 State state = State.get();
                 try {
                     PrintStream out = new PrintStream(new FileOutputStream(filenameVec.getDataAt(0), append));
@@ -443,4 +458,267 @@ public class FastRStats {
         }
 
     }
+
+    /**
+     * A per-function profiler: {@code enable = TRUE} discards the data collected so far and starts
+     * collecting, {@code enable = FALSE} stops it. In any case the result is a data frame with one
+     * row per function definition, i.e. per source section, with the number of calls, the inclusive
+     * and exclusive (self) time in milliseconds, the bytes of vector data allocated and the bytes
+     * of vector data copied while the closure itself was executing. The rows are ordered by the
+     * column named by {@code sort}, in decreasing order for the numeric columns, and limited to
+     * {@code top} rows if positive.
+     *
+     * Function entry and exit are observed through an instrumentation listener on the
+     * {@link StandardTags.RootTag} nodes, which is disposed when profiling stops, so there is no
+     * overhead unless the profiler is active. The root nodes are mapped to their function
+     * definition by source section, as a split root node is a copy of the same definition and the
+     * closures created from one definition share their root node. The sizes are the shallow data
+     * sizes as estimated by {@link PerfEventTracer#getDataSize(RAbstractVector)}.
+     */
+    @RBuiltin(name = ".fastr.prof.functions", kind = PRIMITIVE, parameterNames = {"enable", "sort", "top"}, behavior = COMPLEX)
+    public abstract static class FastRProfFunctions extends RBuiltinNode {
+
+        private static final String[] NAMES = new String[]{"name", "location", "calls", "inclusive", "exclusive", "allocated", "copied"};
+
+        @Override
+        public Object[] getDefaultParameterValues() {
+            return new Object[]{RRuntime.LOGICAL_NA, "exclusive", 0};
+        }
+
+        @Override
+        protected void createCasts(CastBuilder casts) {
+            casts.arg("enable").asLogicalVector().findFirst(RRuntime.LOGICAL_NA);
+            casts.arg("sort").mustBe(stringValue()).asStringVector().findFirst().notNA();
+            casts.arg("top").asIntegerVector().findFirst().notNA();
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected RList profFunctions(byte enable, String sort, int top) {
+            int sortColumn = Arrays.asList(NAMES).indexOf(sort);
+            if (sortColumn < 0 || sortColumn == 1) {
+                throw RError.error(this, RError.Message.INVALID_ARGUMENT, "sort");
+            }
+            State state = State.get();
+            if (!RRuntime.isNA(enable)) {
+                if (RRuntime.fromLogical(enable)) {
+                    state.start();
+                } else {
+                    state.stop();
+                }
+            }
+            ArrayList<State.Profile> profiles = new ArrayList<>(state.profiles.values());
+            profiles.sort((a, b) -> sortColumn == 0 ? a.name.compareTo(b.name) : Long.compare(b.get(sortColumn), a.get(sortColumn)));
+            int length = top > 0 ? Math.min(top, profiles.size()) : profiles.size();
+            String[] name = new String[length];
+            String[] location = new String[length];
+            double[] calls = new double[length];
+            double[] inclusive = new double[length];
+            double[] exclusive = new double[length];
+            double[] allocated = new double[length];
+            double[] copied = new double[length];
+            for (int i = 0; i < length; i++) {
+                State.Profile profile = profiles.get(i);
+                name[i] = profile.name;
+                location[i] = profile.location;
+                calls[i] = profile.calls;
+                inclusive[i] = profile.inclusive / 1000000.0;
+                exclusive[i] = profile.exclusive / 1000000.0;
+                allocated[i] = profile.allocated;
+                copied[i] = profile.copied;
+            }
+            return FastRPerfReport.createDataFrame(NAMES, length, RDataFactory.createStringVector(name, RDataFactory.COMPLETE_VECTOR),
+                            RDataFactory.createStringVector(location, RDataFactory.INCOMPLETE_VECTOR), RDataFactory.createDoubleVector(calls, RDataFactory.COMPLETE_VECTOR),
+                            RDataFactory.createDoubleVector(inclusive, RDataFactory.COMPLETE_VECTOR), RDataFactory.createDoubleVector(exclusive, RDataFactory.COMPLETE_VECTOR),
+                            RDataFactory.createDoubleVector(allocated, RDataFactory.COMPLETE_VECTOR), RDataFactory.createDoubleVector(copied, RDataFactory.COMPLETE_VECTOR));
+        }
+
+        private static final class Listener implements ExecutionEventListener {
+            @Override
+            public void onEnter(EventContext context, VirtualFrame frame) {
+                enter(context.getInstrumentedNode().getRootNode());
+            }
+
+            @Override
+            public void onReturnValue(EventContext context, VirtualFrame frame, Object result) {
+                exit(context.getInstrumentedNode().getRootNode());
+            }
+
+            @Override
+            public void onReturnExceptional(EventContext context, VirtualFrame frame, Throwable exception) {
+                exit(context.getInstrumentedNode().getRootNode());
+            }
+
+            @TruffleBoundary
+            private static void enter(RootNode root) {
+                State.get().enter(root);
+            }
+
+            @TruffleBoundary
+            private static void exit(RootNode root) {
+                State.get().exit(root);
+            }
+        }
+
+        /**
+         * The allocation and copy listeners cannot be removed, so they are registered once and
+         * report to the state of the current context only while it is profiling.
+         */
+        private static boolean listening;
+
+        private static synchronized void listen() {
+            if (!listening) {
+                RDataFactory.addListener(data -> {
+                    if (data instanceof RAbstractVector) {
+                        charge((RAbstractVector) data, false);
+                    }
+                });
+                MemoryCopyTracer.addListener((source, dest) -> charge(dest, true));
+                listening = true;
+            }
+        }
+
+        private static void charge(RAbstractVector vector, boolean copy) {
+            State state = (State) RContext.getInstance().stateInstrumentation.getRprofState("functions");
+            if (state != null) {
+                state.charge(vector, copy);
+            }
+        }
+
+        private static final class State extends RprofState {
+            private static final class Profile {
+                private final String name;
+                private final String location;
+                private long calls;
+                private long inclusive;
+                private long exclusive;
+                private long allocated;
+                private long copied;
+                /*
+                 * The number of activations of the function on the stack, only the outermost one
+                 * contributes to the inclusive time of a recursive function.
+                 */
+                private int active;
+
+                private Profile(RootNode root) {
+                    SourceSection ss = root.getSourceSection();
+                    this.name = root.getName() == null ? "<anonymous>" : root.getName();
+                    this.location = ss == null || ss.getSource() == null ? RRuntime.STRING_NA : RSource.getOrigin(ss.getSource()) + "#" + ss.getStartLine();
+                }
+
+                private long get(int column) {
+                    switch (column) {
+                        case 2:
+                            return calls;
+                        case 3:
+                            return inclusive;
+                        case 4:
+                            return exclusive;
+                        case 5:
+                            return allocated;
+                        default:
+                            return copied;
+                    }
+                }
+            }
+
+            private static final class Activation {
+                private final Profile profile;
+                private final long start;
+                private long childTime;
+
+                private Activation(Profile profile, long start) {
+                    this.profile = profile;
+                    this.start = start;
+                }
+            }
+
+            /*
+             * Keyed by the source section of the function definition, or by the root node itself if
+             * it has none.
+             */
+            private final Map<Object, Profile> profiles = new HashMap<>();
+            private final ArrayList<Activation> stack = new ArrayList<>();
+            private EventBinding<?> binding;
+
+            private static State get() {
+                State state = (State) RContext.getInstance().stateInstrumentation.getRprofState("functions");
+                if (state == null) {
+                    state = new State();
+                    RContext.getInstance().stateInstrumentation.setRprofState("functions", state);
+                }
+                return state;
+            }
+
+            private void start() {
+                stop();
+                profiles.clear();
+                listen();
+                binding = RInstrumentation.getInstrumenter().attachListener(SourceSectionFilter.newBuilder().tagIs(StandardTags.RootTag.class).build(), new Listener());
+                RDataFactory.enableTracing();
+                MemoryCopyTracer.enable();
+            }
+
+            private void stop() {
+                if (binding != null) {
+                    binding.dispose();
+                    binding = null;
+                    RDataFactory.disableTracing();
+                    MemoryCopyTracer.disable();
+                    stack.clear();
+                }
+            }
+
+            private static Object key(RootNode root) {
+                SourceSection ss = root.getSourceSection();
+                return ss == null ? root : ss;
+            }
+
+            private void enter(RootNode root) {
+                Object key = key(root);
+                Profile profile = profiles.get(key);
+                if (profile == null) {
+                    profile = new Profile(root);
+                    profiles.put(key, profile);
+                }
+                profile.calls++;
+                profile.active++;
+                stack.add(new Activation(profile, System.nanoTime()));
+            }
+
+            private void exit(RootNode root) {
+                int top = stack.size() - 1;
+                // functions that were already running when profiling started are not on the stack
+                if (top < 0 || stack.get(top).profile != profiles.get(key(root))) {
+                    return;
+                }
+                Activation activation = stack.remove(top);
+                long elapsed = System.nanoTime() - activation.start;
+                Profile profile = activation.profile;
+                profile.exclusive += elapsed - activation.childTime;
+                if (--profile.active == 0) {
+                    profile.inclusive += elapsed;
+                }
+                if (top > 0) {
+                    stack.get(top - 1).childTime += elapsed;
+                }
+            }
+
+            private void charge(RAbstractVector vector, boolean copy) {
+                if (binding != null && !stack.isEmpty()) {
+                    Profile profile = stack.get(stack.size() - 1).profile;
+                    if (copy) {
+                        profile.copied += PerfEventTracer.getDataSize(vector);
+                    } else {
+                        profile.allocated += PerfEventTracer.getDataSize(vector);
+                    }
+                }
+            }
+
+            @Override
+            public void cleanup(int status) {
+                stop();
+            }
+        }
+    }
 }
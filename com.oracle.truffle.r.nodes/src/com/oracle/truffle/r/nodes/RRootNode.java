@@ -22,9 +22,12 @@
  */
 package com.oracle.truffle.r.nodes;
 
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.ReplaceObserver;
 import com.oracle.truffle.api.RootCallTarget;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.nodes.RootNode;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.api.source.SourceSection;
@@ -34,6 +37,7 @@ import com.oracle.truffle.r.nodes.function.FormalArguments;
 import com.oracle.truffle.r.nodes.function.FunctionDefinitionNode;
 import com.oracle.truffle.r.runtime.ArgumentsSignature;
 import com.oracle.truffle.r.runtime.HasSignature;
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.RArguments;
 import com.oracle.truffle.r.runtime.builtins.FastPathFactory;
 import com.oracle.truffle.r.runtime.context.RContext;
@@ -43,7 +47,7 @@ import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
  * The base class for R code that can be executed, namely {@link FunctionDefinitionNode} and
  * {@link RBuiltinNode}.
  */
-public abstract class RRootNode extends RootNode implements HasSignature {
+public abstract class RRootNode extends RootNode implements HasSignature, ReplaceObserver {
 
     private final ConditionProfile irregularFrameProfile = ConditionProfile.createBinaryProfile();
 
@@ -114,4 +118,17 @@ public abstract class RRootNode extends RootNode implements HasSignature {
     public boolean isCloningAllowed() {
         return true;
     }
+
+    /**
+     * Reports rewrites within this function to the {@link PerfEventTracer} and then passes the
+     * notification on to the call target, as if this node did not observe replacements.
+     */
+    @Override
+    public boolean nodeReplaced(Node oldNode, Node newNode, CharSequence reason) {
+        if (PerfEventTracer.isEnabled()) {
+            PerfEventTracer.report(PerfEventTracer.Kind.REWRITE, newNode, oldNode.getClass().getSimpleName() + " -> " + newNode.getClass().getSimpleName(), 0);
+        }
+        CallTarget target = getCallTarget();
+        return target instanceof ReplaceObserver && ((ReplaceObserver) target).nodeReplaced(oldNode, newNode, reason);
+    }
 }
@@ -51,6 +51,7 @@ import com.oracle.truffle.r.nodes.function.PromiseHelperNode;
 import com.oracle.truffle.r.nodes.function.visibility.SetVisibilityNode;
 import com.oracle.truffle.r.runtime.ArgumentsSignature;
 import com.oracle.truffle.r.runtime.FastROptions;
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.RArguments;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RInternalError;
@@ -448,6 +449,9 @@ public final class ReadVariableNode extends RSourceSectionNode implements RSynta
                 }
             }
             // search enclosing frames if necessary
+            if (PerfEventTracer.isEnabled()) {
+                PerfEventTracer.report(PerfEventTracer.Kind.SLOW_LOOKUP, ReadVariableNode.this, identifierAsString, 0);
+            }
             MaterializedFrame current = RArguments.getEnclosingFrame(variableFrame);
             while (current != null) {
                 Object value = getValue(current);
@@ -506,6 +510,10 @@ public final class ReadVariableNode extends RSourceSectionNode implements RSynta
             throw RError.error(RError.NO_CALLER, RError.Message.ZERO_LENGTH_VARIABLE);
         }
 
+        if (invalidationCount > 0 && PerfEventTracer.isEnabled()) {
+            PerfEventTracer.report(PerfEventTracer.Kind.REWRITE, this, "lookup of " + identifierAsString, 0);
+        }
+
         /*
          * Check whether we need to go to the polymorphic case, which will not rely on any frame
          * descriptor assumptions (apart from the first frame).
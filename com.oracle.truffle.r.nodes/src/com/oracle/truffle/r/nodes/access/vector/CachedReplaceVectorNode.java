@@ -535,9 +535,18 @@ final class CachedReplaceVectorNode extends CachedVectorNode {
     @TruffleBoundary
     private RVector<?> resizeVector(RAbstractVector vector, int size) {
         RStringVector oldNames = vector.getNames(vectorNamesProfile);
-        RVector<?> res = vector.copyResized(size, true).materialize();
-        if (vector instanceof RVector) {
-            res.copyAttributesFrom(positionNamesProfile, vector);
+        RVector<?> res;
+        /*
+         * The vector is not shared at this point (see share), so growing it in place is as safe as
+         * the in-place update that follows. This makes "x[length(x) + 1] <- v" loops linear.
+         */
+        if (vector instanceof RVector && ((RVector<?>) vector).growInPlace(size, true)) {
+            res = (RVector<?>) vector;
+        } else {
+            res = vector.copyResized(size, true).materialize();
+            if (vector instanceof RVector) {
+                res.copyAttributesFrom(positionNamesProfile, vector);
+            }
         }
         res.setDimensionsNoCheck(null);
         res.setDimNamesNoCheck(null);
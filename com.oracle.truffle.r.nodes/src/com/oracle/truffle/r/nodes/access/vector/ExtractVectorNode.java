@@ -40,6 +40,7 @@ import com.oracle.truffle.r.nodes.unary.FirstStringNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.RLogical;
+import com.oracle.truffle.r.runtime.data.RMappedVector;
 import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RTypedValue;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
@@ -134,6 +135,15 @@ public abstract class ExtractVectorNode extends Node {
         }
     }
 
+    protected static boolean isLongVector(Object vector) {
+        return LongVectorAccess.isLongVector(vector);
+    }
+
+    @Specialization(guards = "isLongVector(vector)")
+    protected Object doExtractLong(RMappedVector vector, Object[] positions, @SuppressWarnings("unused") Object exact, @SuppressWarnings("unused") Object dropDimensions) {
+        return LongVectorAccess.extract(this, mode, vector, positions);
+    }
+
     @Specialization(guards = {"cached != null", "cached.isSupported(vector, positions)"})
     protected Object doExtractSameDimensions(VirtualFrame frame, RAbstractVector vector, Object[] positions, Object exact, Object dropDimensions,  //
                     @Cached("createRecursiveCache(vector, positions)") RecursiveExtractSubscriptNode cached) {
@@ -157,7 +167,7 @@ public abstract class ExtractVectorNode extends Node {
         return !recursive && !ignoreRecursive && mode.isSubscript() && vector instanceof RAbstractListVector && positions.length == 1;
     }
 
-    @Specialization(limit = "CACHE_LIMIT", guards = {"cached != null", "cached.isSupported(vector, positions, exact, dropDimensions)"})
+    @Specialization(limit = "CACHE_LIMIT", guards = {"!isLongVector(vector)", "cached != null", "cached.isSupported(vector, positions, exact, dropDimensions)"})
     protected Object doExtractDefaultCached(Object vector, Object[] positions, Object exact, Object dropDimensions,  //
                     @Cached("createDefaultCache(getThis(), vector, positions, exact, dropDimensions)") CachedExtractVectorNode cached) {
         assert !isRecursiveSubscript(vector, positions);
@@ -168,7 +178,7 @@ public abstract class ExtractVectorNode extends Node {
         return new CachedExtractVectorNode(node.getMode(), (RTypedValue) vector, positions, (RTypedValue) exact, (RTypedValue) dropDimensions, node.recursive);
     }
 
-    @Specialization(contains = "doExtractDefaultCached")
+    @Specialization(contains = "doExtractDefaultCached", guards = "!isLongVector(vector)")
     @TruffleBoundary
     protected Object doExtractDefaultGeneric(Object vector, Object[] positions, Object exact, Object dropDimensions,  //
                     @Cached("new(createDefaultCache(getThis(), vector, positions, exact, dropDimensions))") GenericVectorExtractNode generic) {
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.access.vector;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RMappedVector;
+import com.oracle.truffle.r.runtime.data.RRaw;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+
+/**
+ * Element access for long vectors (more than {@code 2^31-1} elements), which the regular access
+ * nodes cannot handle because their positions and lengths are {@code int}s. Only a single
+ * dimension of positive numeric positions is supported, like in GnuR a position may be a double
+ * with a value beyond the {@code int} range. All other kinds of positions raise the
+ * {@code "long vectors not supported yet"} error.
+ */
+final class LongVectorAccess {
+
+    private LongVectorAccess() {
+        // only static methods
+    }
+
+    static boolean isLongVector(Object vector) {
+        return vector instanceof RMappedVector && ((RMappedVector) vector).isLong();
+    }
+
+    @TruffleBoundary
+    static Object extract(Node node, ElementAccessMode mode, RMappedVector vector, Object[] positions) {
+        long[] indices = getIndices(node, vector, positions);
+        if (mode.isSubscript()) {
+            if (indices.length != 1) {
+                throw RError.error(node, indices.length == 0 ? RError.Message.SELECT_LESS_1 : RError.Message.SELECT_MORE_1);
+            }
+            long index = indices[0];
+            if (index < 1 || index > vector.getLongLength()) {
+                throw RError.error(node, RError.Message.SUBSCRIPT_BOUNDS);
+            }
+            return vector.getDataAtAsObject(index - 1);
+        }
+        int length = 0;
+        for (long index : indices) {
+            if (index != 0) {
+                length++;
+            }
+        }
+        switch (vector.getRType()) {
+            case Double: {
+                double[] result = new double[length];
+                boolean complete = true;
+                int j = 0;
+                for (long index : indices) {
+                    if (index != 0) {
+                        double value = index < 0 || index > vector.getLongLength() ? RRuntime.DOUBLE_NA : (double) vector.getDataAtAsObject(index - 1);
+                        complete &= !RRuntime.isNA(value);
+                        result[j++] = value;
+                    }
+                }
+                return RDataFactory.createDoubleVector(result, complete);
+            }
+            case Integer: {
+                int[] result = new int[length];
+                boolean complete = true;
+                int j = 0;
+                for (long index : indices) {
+                    if (index != 0) {
+                        int value = index < 0 || index > vector.getLongLength() ? RRuntime.INT_NA : (int) vector.getDataAtAsObject(index - 1);
+                        complete &= !RRuntime.isNA(value);
+                        result[j++] = value;
+                    }
+                }
+                return RDataFactory.createIntVector(result, complete);
+            }
+            case Raw: {
+                byte[] result = new byte[length];
+                int j = 0;
+                for (long index : indices) {
+                    if (index != 0) {
+                        // NA is 00 for raw
+                        result[j++] = index < 0 || index > vector.getLongLength() ? 0 : ((RRaw) vector.getDataAtAsObject(index - 1)).getValue();
+                    }
+                }
+                return RDataFactory.createRawVector(result);
+            }
+            default:
+                throw RError.error(node, RError.Message.LONG_VECTORS_NOT_SUPPORTED);
+        }
+    }
+
+    /**
+     * Subassignment has to leave the vector alone and work on a copy, which is not possible for a
+     * long vector. The file of a writable mapped vector can be updated in place with
+     * {@code .fastr.mmap.write} instead.
+     */
+    @TruffleBoundary
+    static Object replace(Node node, @SuppressWarnings("unused") ElementAccessMode mode, @SuppressWarnings("unused") RMappedVector vector, @SuppressWarnings("unused") Object[] positions,
+                    @SuppressWarnings("unused") Object value) {
+        throw RError.error(node, RError.Message.GENERIC, "long vectors cannot be copied, use .fastr.mmap.write to update a memory-mapped vector");
+    }
+
+    /**
+     * Converts the positions to one-based indices, {@code 0} denotes a zero position and
+     * {@link RRuntime#INT_NA} an {@code NA} position.
+     */
+    private static long[] getIndices(Node node, RMappedVector vector, Object[] positions) {
+        if (positions.length != 1) {
+            throw RError.error(node, RError.Message.INCORRECT_DIMENSIONS);
+        }
+        Object position = positions[0];
+        long[] indices;
+        if (position instanceof Integer || position instanceof RAbstractIntVector) {
+            RAbstractIntVector ints = position instanceof Integer ? RDataFactory.createIntVectorFromScalar((int) position) : (RAbstractIntVector) position;
+            indices = new long[ints.getLength()];
+            for (int i = 0; i < indices.length; i++) {
+                int value = ints.getDataAt(i);
+                indices[i] = RRuntime.isNA(value) ? RRuntime.INT_NA : value;
+            }
+        } else if (position instanceof Double || position instanceof RAbstractDoubleVector) {
+            RAbstractDoubleVector doubles = position instanceof Double ? RDataFactory.createDoubleVectorFromScalar((double) position) : (RAbstractDoubleVector) position;
+            indices = new long[doubles.getLength()];
+            for (int i = 0; i < indices.length; i++) {
+                double value = doubles.getDataAt(i);
+                indices[i] = Double.isNaN(value) ? RRuntime.INT_NA : (long) value;
+            }
+        } else {
+            throw RError.error(node, RError.Message.LONG_VECTORS_NOT_SUPPORTED);
+        }
+        for (long index : indices) {
+            if (index < 0 && index != RRuntime.INT_NA) {
+                // negative positions would select almost all elements
+                throw RError.error(node, RError.Message.LONG_VECTORS_NOT_SUPPORTED);
+            }
+        }
+        return indices;
+    }
+}
@@ -40,6 +40,7 @@ import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.RDouble;
 import com.oracle.truffle.r.runtime.data.RInteger;
+import com.oracle.truffle.r.runtime.data.RMappedVector;
 import com.oracle.truffle.r.runtime.data.RTypedValue;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
@@ -148,7 +149,16 @@ public abstract class ReplaceVectorNode extends Node {
         return !recursive && !ignoreRecursive && mode.isSubscript() && vector instanceof RAbstractListVector && positions.length == 1;
     }
 
-    @Specialization(limit = "CACHE_LIMIT", guards = {"cached != null", "cached.isSupported(vector, positions, value)"})
+    protected static boolean isLongVector(Object vector) {
+        return LongVectorAccess.isLongVector(vector);
+    }
+
+    @Specialization(guards = "isLongVector(vector)")
+    protected Object doReplaceLong(RMappedVector vector, Object[] positions, Object value) {
+        return LongVectorAccess.replace(this, mode, vector, positions, value);
+    }
+
+    @Specialization(limit = "CACHE_LIMIT", guards = {"!isLongVector(vector)", "cached != null", "cached.isSupported(vector, positions, value)"})
     protected Object doReplaceCached(Object vector, Object[] positions, Object value,  //
                     @Cached("createDefaultCached(getThis(), vector, positions, value)") CachedReplaceVectorNode cached) {
         assert !isRecursiveSubscript(vector, positions);
@@ -163,7 +173,7 @@ public abstract class ReplaceVectorNode extends Node {
         return mode;
     }
 
-    @Specialization(contains = "doReplaceCached")
+    @Specialization(contains = "doReplaceCached", guards = "!isLongVector(vector)")
     @TruffleBoundary
     protected Object doReplaceDefaultGeneric(Object vector, Object[] positions, Object value,  //
                     @Cached("new(createDefaultCached(getThis(), vector, positions, value))") GenericVectorReplaceNode generic) {
@@ -46,6 +46,7 @@ import com.oracle.truffle.r.runtime.data.RIntSequence;
 import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RScalarVector;
 import com.oracle.truffle.r.runtime.data.RTypedValue;
+import com.oracle.truffle.r.runtime.data.RVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
@@ -124,17 +125,28 @@ abstract class WriteIndexedVectorNode extends Node {
         return false;
     }
 
+    /*
+     * The elements are only accessed below the lengths of the vectors, so the store of a vector
+     * that is being grown by "x[length(x) + 1] <- v" does not need to be trimmed.
+     */
+    private static Object getStore(RAbstractContainer container) {
+        if (container instanceof RVector) {
+            return ((RVector<?>) container).getInternalStoreWithCapacity();
+        }
+        return container.getInternalStore();
+    }
+
     public final void apply(RAbstractVector left, int leftLength, //
                     Object[] positions, RTypedValue right, int rightLength, int[] positionTargetDimensions) {
         assert left.getLength() == leftLength;
         assert totalDimensions == positions.length : "totalDimensions must be constant per vector write node";
 
-        Object leftStore = left.getInternalStore();
+        Object leftStore = getStore(left);
         Object rightStore = null;
         if (right instanceof RAbstractContainer) {
             RAbstractContainer rightContainer = (RAbstractContainer) right;
             assert rightContainer.getLength() == rightLength;
-            rightStore = rightContainer.getInternalStore();
+            rightStore = getStore(rightContainer);
         }
 
         int initialPositionOffset;
@@ -270,7 +282,7 @@ abstract class WriteIndexedVectorNode extends Node {
         int stride = strideProfile.profile(position.getStride());
         int end = start + positionLength * stride;
 
-        if (start < 0 || end <= 0) {
+        if (start < 0 || end <= 0 || stride == 0) {
             throw new SlowPathException("rewrite to doIntegerPosition");
         }
 
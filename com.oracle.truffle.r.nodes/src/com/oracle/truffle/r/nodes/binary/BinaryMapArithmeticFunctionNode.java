@@ -24,13 +24,17 @@ package com.oracle.truffle.r.nodes.binary;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.r.nodes.primitive.BinaryMapNAFunctionNode;
+import com.oracle.truffle.r.runtime.FastROptions;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDeferredDoubleArithmetic;
 import com.oracle.truffle.r.runtime.data.RDoubleSequence;
 import com.oracle.truffle.r.runtime.data.RIntSequence;
 import com.oracle.truffle.r.runtime.data.RSequence;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic.Add;
@@ -48,8 +52,28 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
 
     @Child private BinaryArithmetic arithmetic;
 
+    /**
+     * The operation to record in a deferred vector, or {@code null} if {@link #arithmetic} cannot
+     * be deferred.
+     */
+    private final RDeferredDoubleArithmetic.Op deferredOp;
+
     public BinaryMapArithmeticFunctionNode(BinaryArithmetic arithmetic) {
         this.arithmetic = arithmetic;
+        this.deferredOp = deferredOp(arithmetic);
+    }
+
+    private static RDeferredDoubleArithmetic.Op deferredOp(BinaryArithmetic arithmetic) {
+        if (arithmetic instanceof Add) {
+            return RDeferredDoubleArithmetic.Op.ADD;
+        } else if (arithmetic instanceof Subtract) {
+            return RDeferredDoubleArithmetic.Op.SUBTRACT;
+        } else if (arithmetic instanceof Multiply) {
+            return RDeferredDoubleArithmetic.Op.MULTIPLY;
+        } else if (arithmetic instanceof Div) {
+            return RDeferredDoubleArithmetic.Op.DIVIDE;
+        }
+        return null;
     }
 
     @Override
@@ -59,17 +83,32 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
 
     @Override
     public boolean mayFoldConstantTime(Class<? extends RAbstractVector> leftClass, Class<? extends RAbstractVector> rightClass) {
+        if (deferredOp != null && FastROptions.LazyArithmetic.getBooleanValue() && mayDefer(leftClass) && mayDefer(rightClass)) {
+            return true;
+        }
         return (isSequenceAddArithmetic() || isSequenceMulArithmetic()) && (RSequence.class.isAssignableFrom(leftClass) || RSequence.class.isAssignableFrom(rightClass));
     }
 
+    private static boolean mayDefer(Class<? extends RAbstractVector> clazz) {
+        return RAbstractDoubleVector.class.isAssignableFrom(clazz) || RAbstractIntVector.class.isAssignableFrom(clazz);
+    }
+
     @Override
     public RAbstractVector tryFoldConstantTime(RAbstractVector left, int leftLength, RAbstractVector right, int rightLength) {
+        RAbstractVector result = null;
         if (isSequenceAddArithmetic()) {
-            return sequenceAddOperation(left, leftLength, right, rightLength);
+            result = sequenceAddOperation(left, leftLength, right, rightLength);
         } else if (isSequenceMulArithmetic()) {
-            return sequenceMulOperation(left, leftLength, right, rightLength);
+            result = sequenceMulOperation(left, leftLength, right, rightLength);
         }
-        return null;
+        if (result == null && deferredOp != null) {
+            /*
+             * Large double vectors: record the operation instead of computing it, so that chains
+             * of operations are evaluated in one loop when the result is needed.
+             */
+            result = RDeferredDoubleArithmetic.tryCreate(deferredOp, left, leftLength, right, rightLength);
+        }
+        return result;
     }
 
     private boolean isSequenceMulArithmetic() {
@@ -260,6 +299,10 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
                 return null;
             }
         }
+        if (Double.isNaN(newStart) || !Double.isFinite(newStride)) {
+            // start + stride * i would not give the element-wise result, e.g. for 0 * Inf
+            return null;
+        }
         return RDataFactory.createDoubleSequence(newStart, newStride, castSequence.getLength());
     }
 
@@ -294,6 +337,10 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
                 return null;
             }
         }
+        if (Double.isNaN(newStart) || !Double.isFinite(newStride)) {
+            // start + stride * i would not give the element-wise result, e.g. for 0 * Inf
+            return null;
+        }
         return RDataFactory.createDoubleSequence(newStart, newStride, castSequence.getLength());
     }
 
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.control;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.api.profiles.ValueProfile;
+import com.oracle.truffle.r.nodes.access.ConstantNode;
+import com.oracle.truffle.r.nodes.access.variables.LocalReadVariableNode;
+import com.oracle.truffle.r.nodes.access.variables.ReadVariableNode;
+import com.oracle.truffle.r.runtime.ArgumentsSignature;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.runtime.nodes.RNode;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxCall;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxConstant;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxElement;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxLookup;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
+
+/**
+ * Fast path for the growth idiom {@code x <- c(x, a, b)}, in which the result of {@code c}
+ * replaces the vector that is being extended. If {@code x} is a local integer or double vector
+ * without attributes that is not shared, nothing can observe its old value once the assignment is
+ * done, so the new elements are appended in place (see {@link RVector#growInPlace}) and a loop
+ * built on this idiom takes amortized linear time.
+ *
+ * The other arguments are restricted to constants and variable lookups, so that they can be
+ * evaluated once more by the original call whenever the fast path does not apply, e.g., if
+ * {@code c} has been redefined or if one of the values would change the type of the result.
+ */
+public final class CombineAppendNode extends RNode {
+
+    @Child private RNode call;
+    @Child private ReadVariableNode readCombine;
+    @Child private LocalReadVariableNode readTarget;
+    @Children private final RNode[] values;
+
+    private final ConditionProfile fastPathProfile = ConditionProfile.createBinaryProfile();
+    private final ConditionProfile appendedProfile = ConditionProfile.createBinaryProfile();
+    private final ValueProfile targetClassProfile = ValueProfile.createClassProfile();
+
+    private CombineAppendNode(RNode call, String target, RNode[] values) {
+        this.call = call;
+        this.readCombine = ReadVariableNode.createForcedFunctionLookup(RSyntaxNode.INTERNAL, "c");
+        this.readTarget = LocalReadVariableNode.create(target, false);
+        this.values = values;
+    }
+
+    /**
+     * Returns {@code true} if {@code lhs <- rhs} is of the form {@code x <- c(x, ...)} with
+     * unnamed constants or variable lookups as the remaining arguments.
+     */
+    public static boolean isAppend(RSyntaxElement lhs, RSyntaxElement rhs) {
+        if (!(lhs instanceof RSyntaxLookup) || !RSyntaxCall.isCallTo(rhs, "c")) {
+            return false;
+        }
+        RSyntaxCall call = (RSyntaxCall) rhs;
+        RSyntaxElement[] arguments = call.getSyntaxArguments();
+        ArgumentsSignature signature = call.getSyntaxSignature();
+        if (arguments.length < 2 || !(arguments[0] instanceof RSyntaxLookup) || !((RSyntaxLookup) lhs).getIdentifier().equals(((RSyntaxLookup) arguments[0]).getIdentifier())) {
+            return false;
+        }
+        for (int i = 0; i < arguments.length; i++) {
+            if (signature.getName(i) != null) {
+                return false;
+            }
+            RSyntaxElement argument = arguments[i];
+            if (argument instanceof RSyntaxLookup) {
+                if (((RSyntaxLookup) argument).getIdentifier().startsWith("..")) {
+                    return false;
+                }
+            } else if (argument instanceof RSyntaxConstant) {
+                Object value = ((RSyntaxConstant) argument).getValue();
+                if (!(value instanceof Integer || value instanceof Double || value instanceof Byte)) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wraps the call {@code rhs} in a node that handles the append fast path, must only be used if
+     * {@link #isAppend} holds.
+     */
+    public static CombineAppendNode create(RSyntaxLookup lhs, RNode rhs) {
+        CompilerAsserts.neverPartOfCompilation();
+        RSyntaxElement[] arguments = ((RSyntaxCall) rhs.asRSyntaxNode()).getSyntaxArguments();
+        RNode[] values = new RNode[arguments.length - 1];
+        for (int i = 0; i < values.length; i++) {
+            RSyntaxElement argument = arguments[i + 1];
+            if (argument instanceof RSyntaxLookup) {
+                values[i] = ReadVariableNode.create(((RSyntaxLookup) argument).getIdentifier());
+            } else {
+                values[i] = ConstantNode.create(((RSyntaxConstant) argument).getValue());
+            }
+        }
+        return new CombineAppendNode(rhs, lhs.getIdentifier(), values);
+    }
+
+    @Override
+    protected RSyntaxNode getRSyntaxNode() {
+        return call.asRSyntaxNode();
+    }
+
+    @Override
+    public Object execute(VirtualFrame frame) {
+        Object function = readCombine.execute(frame);
+        Object target = targetClassProfile.profile(readTarget.execute(frame));
+        if (fastPathProfile.profile(isBuiltinCombine(function) && (target instanceof RDoubleVector || target instanceof RIntVector))) {
+            Object[] evaluatedValues = evaluateValues(frame);
+            if (appendedProfile.profile(append((RVector<?>) target, evaluatedValues))) {
+                return target;
+            }
+        }
+        return call.execute(frame);
+    }
+
+    private static boolean isBuiltinCombine(Object function) {
+        return function instanceof RFunction && ((RFunction) function).isBuiltin() && "c".equals(((RFunction) function).getRBuiltin().getName());
+    }
+
+    @ExplodeLoop
+    private Object[] evaluateValues(VirtualFrame frame) {
+        Object[] result = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i].execute(frame);
+        }
+        return result;
+    }
+
+    /**
+     * Appends {@code appended} to {@code target} if the result of {@code c} would be a vector of
+     * the same type without attributes, returns {@code false} without modifying anything
+     * otherwise. The values are checked after all of them have been evaluated, since their
+     * evaluation may have made the target shared.
+     */
+    @TruffleBoundary
+    private static boolean append(RVector<?> target, Object[] appended) {
+        boolean isDouble = target instanceof RDoubleVector;
+        if (target.isShared() || target.getAttributes() != null) {
+            return false;
+        }
+        int length = target.getLength();
+        long newLength = length;
+        for (Object value : appended) {
+            if (value == target || !isAppendable(value, isDouble)) {
+                return false;
+            }
+            newLength += value instanceof RAbstractVector ? ((RAbstractVector) value).getLength() : 1;
+        }
+        if (newLength > Integer.MAX_VALUE) {
+            return false;
+        }
+        if (!target.growInPlace((int) newLength, false)) {
+            return false;
+        }
+        boolean complete = true;
+        int index = length;
+        if (isDouble) {
+            RDoubleVector vector = (RDoubleVector) target;
+            double[] store = vector.getInternalStoreWithCapacity();
+            for (Object value : appended) {
+                int valueLength = value instanceof RAbstractVector ? ((RAbstractVector) value).getLength() : 1;
+                for (int i = 0; i < valueLength; i++) {
+                    double element = getDouble(value, i);
+                    complete &= !RRuntime.isNA(element);
+                    vector.setDataAt(store, index++, element);
+                }
+            }
+        } else {
+            RIntVector vector = (RIntVector) target;
+            int[] store = vector.getInternalStoreWithCapacity();
+            for (Object value : appended) {
+                int valueLength = value instanceof RAbstractVector ? ((RAbstractVector) value).getLength() : 1;
+                for (int i = 0; i < valueLength; i++) {
+                    int element = getInt(value, i);
+                    complete &= !RRuntime.isNA(element);
+                    vector.setDataAt(store, index++, element);
+                }
+            }
+        }
+        if (!complete) {
+            target.setComplete(false);
+        }
+        return true;
+    }
+
+    private static boolean isAppendable(Object value, boolean isDouble) {
+        if (value instanceof Integer || value instanceof Byte) {
+            return true;
+        } else if (value instanceof Double) {
+            return isDouble;
+        } else if (value instanceof RAbstractIntVector || value instanceof RAbstractLogicalVector || (isDouble && value instanceof RAbstractDoubleVector)) {
+            return ((RAbstractVector) value).getAttributes() == null;
+        }
+        return false;
+    }
+
+    private static double getDouble(Object value, int index) {
+        if (value instanceof Double) {
+            return (double) value;
+        } else if (value instanceof Integer) {
+            return RRuntime.int2double((int) value);
+        } else if (value instanceof Byte) {
+            return RRuntime.logical2double((byte) value);
+        } else if (value instanceof RAbstractDoubleVector) {
+            return ((RAbstractDoubleVector) value).getDataAt(index);
+        } else if (value instanceof RAbstractIntVector) {
+            return RRuntime.int2double(((RAbstractIntVector) value).getDataAt(index));
+        } else {
+            return RRuntime.logical2double(((RAbstractLogicalVector) value).getDataAt(index));
+        }
+    }
+
+    private static int getInt(Object value, int index) {
+        if (value instanceof Integer) {
+            return (int) value;
+        } else if (value instanceof Byte) {
+            return RRuntime.logical2int((byte) value);
+        } else if (value instanceof RAbstractIntVector) {
+            return ((RAbstractIntVector) value).getDataAt(index);
+        } else {
+            return RRuntime.logical2int(((RAbstractLogicalVector) value).getDataAt(index));
+        }
+    }
+}
@@ -87,7 +87,11 @@ public final class ReplacementDispatchNode extends OperatorNode {
         if (lhs instanceof RSyntaxCall) {
             replacement = createReplacementNode(isVoid);
         } else {
-            replacement = new WriteVariableSyntaxNode(getLazySourceSection(), operator, lhs.asRSyntaxNode(), rhs, isSuper);
+            RNode value = rhs;
+            if (!isSuper && CombineAppendNode.isAppend(lhs.asRSyntaxNode(), rhs.asRSyntaxNode())) {
+                value = CombineAppendNode.create((RSyntaxLookup) lhs.asRSyntaxNode(), rhs);
+            }
+            replacement = new WriteVariableSyntaxNode(getLazySourceSection(), operator, lhs.asRSyntaxNode(), value, isSuper);
         }
         return replace(replacement);
     }
@@ -72,6 +72,7 @@ import com.oracle.truffle.r.nodes.profile.VectorLengthProfile;
 import com.oracle.truffle.r.nodes.unary.CastNode;
 import com.oracle.truffle.r.runtime.Arguments;
 import com.oracle.truffle.r.runtime.ArgumentsSignature;
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.RArguments;
 import com.oracle.truffle.r.runtime.RArguments.S3Args;
 import com.oracle.truffle.r.runtime.RArguments.S3DefaultArguments;
@@ -747,6 +748,9 @@ public abstract class RCallNode extends RCallBaseNode implements RSyntaxNode, RS
 
             @TruffleBoundary
             public Object execute(MaterializedFrame materializedFrame, RFunction function, Object varArgs, Object s3Args, Object s3DefaultArguments) {
+                if (PerfEventTracer.isEnabled()) {
+                    PerfEventTracer.report(PerfEventTracer.Kind.GENERIC_CALL, originalCall, function.getName(), 0);
+                }
                 if (cachedTarget != function.getTarget()) {
                     cachedTarget = function.getTarget();
                     leafCall = insert(createCacheNode(cachedTarget));
@@ -269,9 +269,12 @@ public final class BinaryMapNode extends RBaseNode {
 
     private RAbstractVector createOrShareVector(int leftLength, RAbstractVector left, int rightLength, RAbstractVector right, int maxLength) {
         if (mayShareLeft && left.getRType() == resultType && shareLeft.profile(leftLength == maxLength && ((RShareable) left).isTemporary())) {
+            // the store is written below
+            ((RVector<?>) left).resetDataHash();
             return left;
         }
         if (mayShareRight && right.getRType() == resultType && shareRight.profile(rightLength == maxLength && ((RShareable) right).isTemporary())) {
+            ((RVector<?>) right).resetDataHash();
             return right;
         }
         return resultType.create(maxLength, false);
@@ -160,6 +160,8 @@ public final class UnaryMapNode extends RBaseNode {
     private RAbstractVector createOrShareVector(int operandLength, RAbstractVector operand) {
         RType resultType = getResultType();
         if (mayShareOperand && operand.getRType() == resultType && shareOperand.profile(((RShareable) operand).isTemporary())) {
+            // the store is written in place
+            ((RVector<?>) operand).resetDataHash();
             return operand;
         }
         return resultType.create(operandLength, false);
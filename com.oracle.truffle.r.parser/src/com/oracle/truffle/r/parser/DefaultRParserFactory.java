@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2016, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -26,6 +26,7 @@ import java.util.List;
 
 import com.oracle.truffle.api.RootCallTarget;
 import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.r.runtime.FastROptions;
 import com.oracle.truffle.r.runtime.RParserFactory;
 import com.oracle.truffle.r.runtime.context.Engine.IncompleteSourceException;
 import com.oracle.truffle.r.runtime.context.Engine.ParseException;
@@ -42,25 +43,22 @@ public class DefaultRParserFactory extends RParserFactory {
 
         @Override
         public List<T> script(Source source, RCodeBuilder<T> builder) throws ParseException {
-            try {
-                try {
-                    RParser<T> parser = new RParser<>(source, builder);
-                    return parser.script();
-                } catch (IllegalArgumentException e) {
-                    // the lexer will wrap exceptions in IllegalArgumentExceptions
-                    if (e.getCause() instanceof RecognitionException) {
-                        throw (RecognitionException) e.getCause();
-                    } else {
-                        throw e;
-                    }
-                }
-            } catch (RecognitionException e) {
-                throw handleRecognitionException(source, e);
+            List<T> result = ParseImage.load(source, builder);
+            if (result != null) {
+                return result;
             }
+            return ParseCache.script(source, builder);
         }
 
         @Override
         public RootCallTarget rootFunction(Source source, String name, RCodeBuilder<T> builder) throws ParseException {
+            if (FastROptions.HandWrittenParser.getBooleanValue()) {
+                try {
+                    return new RDescentParser<>(source, builder).rootFunction(name);
+                } catch (RSyntaxError e) {
+                    // the generated parser decides, see parseScript
+                }
+            }
             RParser<T> parser = new RParser<>(source, builder);
             try {
                 return parser.root_function(name);
@@ -71,33 +69,97 @@ public class DefaultRParserFactory extends RParserFactory {
 
         @Override
         public boolean isRecognitionException(Throwable t) {
-            return t instanceof RecognitionException;
+            return t instanceof RecognitionException || t instanceof RSyntaxError;
         }
 
         @Override
         public int line(Throwable t) {
             assert isRecognitionException(t);
-            return ((RecognitionException) t).line;
+            return t instanceof RSyntaxError ? ((RSyntaxError) t).line : ((RecognitionException) t).line;
         }
 
         @Override
         public int charPositionInLine(Throwable t) {
             assert isRecognitionException(t);
-            return ((RecognitionException) t).charPositionInLine;
+            return t instanceof RSyntaxError ? ((RSyntaxError) t).charPositionInLine : ((RecognitionException) t).charPositionInLine;
+        }
+
+        static ParseException handleRecognitionException(Source source, RecognitionException e) throws IncompleteSourceException, ParseException {
+            String token = e.token == null ? null : e.token.getText();
+            // the parser got stuck at the eof, request another line
+            boolean incomplete = e.token != null && e.token.getType() == Token.EOF && (e instanceof NoViableAltException || e instanceof MismatchedTokenException);
+            throw parseException(source, e, e.line, e.charPositionInLine, token, incomplete);
         }
 
-        private static ParseException handleRecognitionException(Source source, RecognitionException e) throws IncompleteSourceException, ParseException {
-            String line = e.line <= source.getLineCount() ? source.getCode(e.line) : "";
-            String substring = line.substring(0, Math.min(line.length(), e.charPositionInLine + 1));
-            String token = e.token == null ? (substring.length() == 0 ? "" : substring.substring(substring.length() - 1)) : e.token.getText();
-            if (e.token != null && e.token.getType() == Token.EOF && (e instanceof NoViableAltException || e instanceof MismatchedTokenException)) {
-                // the parser got stuck at the eof, request another line
-                throw new IncompleteSourceException(e, source, token, substring, e.line);
+        static ParseException handleSyntaxError(Source source, RSyntaxError e) throws IncompleteSourceException, ParseException {
+            throw parseException(source, e, e.line, e.charPositionInLine, e.token, e.incomplete);
+        }
+
+        /**
+         * Creates the exception for a syntax error at the given position, {@code token} is
+         * {@code null} if the lexer found an unexpected character.
+         */
+        private static ParseException parseException(Source source, Throwable cause, int lineNumber, int charPositionInLine, String token, boolean incomplete) {
+            String line = lineNumber <= source.getLineCount() ? source.getCode(lineNumber) : "";
+            String substring = line.substring(0, Math.min(line.length(), charPositionInLine + 1));
+            String tokenText = token == null ? (substring.length() == 0 ? "" : substring.substring(substring.length() - 1)) : token;
+            if (incomplete) {
+                return new IncompleteSourceException(cause, source, tokenText, substring, lineNumber);
             } else {
-                throw new ParseException(e, source, token, substring, e.line);
+                return new ParseException(cause, source, tokenText, substring, lineNumber);
             }
         }
+    }
 
+    /**
+     * A parse of a whole script, see {@link Parser#script}.
+     */
+    interface ScriptParser {
+        <T> List<T> script(Source source, RCodeBuilder<T> builder) throws ParseException;
+    }
+
+    /**
+     * Parses {@code source} with the parser selected by {@link FastROptions#HandWrittenParser},
+     * bypassing any {@link ParseImage}. The hand-written parser is checked against the generated
+     * one by {@code mx rparsercheck} in the gate. Should it still reject a source, the source is
+     * parsed again with the generated parser, so that a valid source never fails because of the
+     * hand-written parser and syntax errors are reported exactly as before.
+     */
+    static <T> List<T> parseScript(Source source, RCodeBuilder<T> builder) throws ParseException {
+        if (FastROptions.HandWrittenParser.getBooleanValue()) {
+            try {
+                return new RDescentParser<>(source, builder).script();
+            } catch (RSyntaxError e) {
+                // fall through to the generated parser
+            }
+        }
+        return parseScriptANTLR(source, builder);
+    }
+
+    static <T> List<T> parseScriptHandWritten(Source source, RCodeBuilder<T> builder) throws ParseException {
+        try {
+            return new RDescentParser<>(source, builder).script();
+        } catch (RSyntaxError e) {
+            throw DefaultParser.handleSyntaxError(source, e);
+        }
+    }
+
+    static <T> List<T> parseScriptANTLR(Source source, RCodeBuilder<T> builder) throws ParseException {
+        try {
+            try {
+                RParser<T> parser = new RParser<>(source, builder);
+                return parser.script();
+            } catch (IllegalArgumentException e) {
+                // the lexer will wrap exceptions in IllegalArgumentExceptions
+                if (e.getCause() instanceof RecognitionException) {
+                    throw (RecognitionException) e.getCause();
+                } else {
+                    throw e;
+                }
+            }
+        } catch (RecognitionException e) {
+            throw DefaultParser.handleRecognitionException(source, e);
+        }
     }
 
     @Override
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.r.runtime.FastROptions;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.context.Engine.ParseException;
+import com.oracle.truffle.r.runtime.nodes.RCodeBuilder;
+
+/**
+ * A cache of {@link ParseImage}s, so that parsing a source again, e.g. re-sourcing an unchanged
+ * file or re-parsing the same text, replays the image instead of running the parser. The source
+ * sections, and with them the {@code srcref}s, are part of the image.
+ *
+ * The in-memory cache is keyed by the hash of the source contents and holds the most recently used
+ * images, up to {@link #MAX_ENTRIES} images and {@link #MAX_BYTES} bytes. With
+ * {@link FastROptions#ParseCacheDir} set, the images of files are also stored on disk, one per file
+ * path and image format version, and used while the file has the same modification time and
+ * contents, so that they survive restarts. Errors reading or writing the disk cache just disable
+ * its use for the source at hand.
+ */
+public final class ParseCache {
+
+    /**
+     * Shorter sources, e.g. single lines in the REPL, are not worth the hashing and the space.
+     */
+    private static final int MIN_SOURCE_LENGTH = 256;
+    private static final int MAX_ENTRIES = 512;
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+    private static final String DISK_SUFFIX = ".parse";
+    /**
+     * The version of the layout of a disk entry, see {@link #readDisk}. Together with
+     * {@link ParseImage#VERSION} it is part of the name of the entry, so that FastR versions with
+     * different formats can share a cache directory.
+     */
+    private static final int DISK_VERSION = 2;
+
+    private static final LinkedHashMap<String, byte[]> images = new LinkedHashMap<>(16, 0.75f, true);
+    private static long imageBytes;
+
+    private ParseCache() {
+        // no instances
+    }
+
+    static <T> List<T> script(Source source, RCodeBuilder<T> builder) throws ParseException {
+        if (!FastROptions.ParseCache.getBooleanValue() || source.getLength() < MIN_SOURCE_LENGTH) {
+            return DefaultRParserFactory.parseScript(source, builder);
+        }
+        String dir = FastROptions.ParseCacheDir.getStringValue();
+        return script(source, builder, dir == null ? null : new File(dir));
+    }
+
+    /**
+     * Parses {@code source} using the in-memory cache and, if {@code dir} is not {@code null}, the
+     * disk cache in {@code dir}, regardless of the options.
+     */
+    public static <T> List<T> script(Source source, RCodeBuilder<T> builder, File dir) throws ParseException {
+        byte[] hash = ParseImage.sourceHash(source);
+        String key = toHex(hash);
+        File diskFile = diskFile(dir, source);
+        byte[] image = get(key);
+        if (image == null && diskFile != null) {
+            image = readDisk(diskFile, source);
+        }
+        if (image != null) {
+            List<T> result = ParseImage.replay(image, source, hash, builder);
+            if (result != null) {
+                put(key, image);
+                return result;
+            }
+        }
+        ParseImage.Recording<T> recording = ParseImage.record(source, hash, builder);
+        if (recording.image != null) {
+            put(key, recording.image);
+            if (diskFile != null) {
+                writeDisk(diskFile, source, recording.image);
+            }
+        }
+        return recording.result;
+    }
+
+    /**
+     * Empties the in-memory cache, the disk cache is not affected.
+     */
+    public static synchronized void clear() {
+        images.clear();
+        imageBytes = 0;
+    }
+
+    private static synchronized byte[] get(String key) {
+        return images.get(key);
+    }
+
+    private static synchronized void put(String key, byte[] image) {
+        if (image.length > MAX_BYTES) {
+            return;
+        }
+        byte[] old = images.put(key, image);
+        imageBytes += image.length - (old == null ? 0 : old.length);
+        Iterator<byte[]> eldest = images.values().iterator();
+        while (images.size() > MAX_ENTRIES || imageBytes > MAX_BYTES) {
+            imageBytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * The file of the on-disk cache entry for {@code source} in {@code dir}, {@code null} if there
+     * is no disk cache or {@code source} is not a file.
+     */
+    private static File diskFile(File dir, Source source) {
+        String path = source.getPath();
+        if (dir == null || path == null) {
+            return null;
+        }
+        String key = DISK_VERSION + "." + ParseImage.VERSION + ":" + path;
+        return new File(dir, toHex(sha1(key.getBytes(StandardCharsets.UTF_8))) + DISK_SUFFIX);
+    }
+
+    /*
+     * An entry on disk is the versions, the path and modification time of the file and the length
+     * of the image, followed by the image, which in turn records the hash of the contents.
+     */
+
+    private static byte[] readDisk(File diskFile, Source source) {
+        if (!diskFile.isFile()) {
+            return null;
+        }
+        long fileLength = diskFile.length();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(diskFile))) {
+            if (in.readInt() != DISK_VERSION || in.readInt() != ParseImage.VERSION) {
+                return null;
+            }
+            String path = in.readUTF();
+            long lastModified = in.readLong();
+            if (!path.equals(source.getPath()) || lastModified != new File(path).lastModified()) {
+                return null;
+            }
+            int length = in.readInt();
+            if (length < 0 || length > fileLength) {
+                return null;
+            }
+            byte[] image = new byte[length];
+            in.readFully(image);
+            return in.read() == -1 ? image : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void writeDisk(File diskFile, Source source, byte[] image) {
+        String path = source.getPath();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(image.length + 256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(DISK_VERSION);
+            out.writeInt(ParseImage.VERSION);
+            out.writeUTF(path);
+            out.writeLong(new File(path).lastModified());
+            out.writeInt(image.length);
+            out.write(image);
+            out.flush();
+            // written to a temporary file and moved, as processes may share the cache
+            Path dir = diskFile.getParentFile().toPath();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, diskFile.getName(), ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, diskFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cache is just not updated
+        }
+    }
+
+    private static byte[] sha1(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw RInternalError.shouldNotReachHere(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder str = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            str.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return str.toString();
+    }
+}
@@ -0,0 +1,586 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RSource;
+import com.oracle.truffle.r.runtime.context.Engine.ParseException;
+import com.oracle.truffle.r.runtime.data.RComplex;
+import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.nodes.RCodeBuilder;
+import com.oracle.truffle.r.runtime.nodes.RCodeBuilder.Argument;
+
+/**
+ * A compact binary image of the parse of a source, from which the parse can be replayed into any
+ * {@link RCodeBuilder} without running the parser.
+ *
+ * The image records the sequence of builder calls that the parser made. Source sections are
+ * recorded as char index and length, so the replay creates the same AST, including the source
+ * sections that {@code srcref}s are derived from. An image also records the hash of the source it
+ * was created from and is only replayed for a source with the same hash.
+ *
+ * An image stored next to a file, e.g. {@code library/base/R/base.image} for the base package, is
+ * used by {@link DefaultRParserFactory} when that file is parsed. These images are created at build
+ * time by {@link #main}. Images of other sources are kept by the {@link ParseCache}.
+ */
+public final class ParseImage {
+
+    public static final String IMAGE_SUFFIX = ".image";
+
+    private static final int MAGIC = 0x46525049; // "FRPI"
+    static final int VERSION = 1;
+    private static final int HASH_LENGTH = 20;
+
+    // operations
+    private static final byte END = 0;
+    private static final byte CONSTANT = 1;
+    private static final byte LOOKUP = 2;
+    private static final byte CALL = 3;
+    private static final byte FUNCTION = 4;
+
+    // constant types
+    private static final byte NULL_VALUE = 0;
+    private static final byte LOGICAL = 1;
+    private static final byte INTEGER = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte COMPLEX = 4;
+    private static final byte STRING = 5;
+
+    private static final int NO_VALUE = -1;
+    private static final int NEW_STRING = -1;
+    private static final int NULL_STRING = -2;
+
+    private ParseImage() {
+        // no instances
+    }
+
+    /**
+     * The result of {@link #record}.
+     */
+    public static final class Recording<T> {
+        public final List<T> result;
+        /**
+         * {@code null} if the parse could not be recorded.
+         */
+        public final byte[] image;
+
+        private Recording(List<T> result, byte[] image) {
+            this.result = result;
+            this.image = image;
+        }
+    }
+
+    /**
+     * Thrown by the {@link Recorder} if a builder call cannot be recorded, the parse itself is not
+     * affected.
+     */
+    @SuppressWarnings("serial")
+    private static final class NotRecordableException extends Exception {
+        NotRecordableException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * Parses {@code source} into {@code builder} and records the image of the parse.
+     */
+    public static <T> Recording<T> record(Source source, RCodeBuilder<T> builder) throws ParseException {
+        return record(source, sourceHash(source), builder);
+    }
+
+    static <T> Recording<T> record(Source source, byte[] hash, RCodeBuilder<T> builder) throws ParseException {
+        Recorder<T> recorder = new Recorder<>(source, hash, builder);
+        List<T> result = DefaultRParserFactory.parseScript(source, recorder);
+        return new Recording<>(result, recorder.finish(result));
+    }
+
+    /**
+     * Records the image of the parse of {@code source} by {@code parser}, without creating an AST.
+     */
+    static byte[] recordImage(Source source, DefaultRParserFactory.ScriptParser parser) throws ParseException {
+        Recorder<Object> recorder = new Recorder<>(source, sourceHash(source), new TokenBuilder());
+        return recorder.finish(parser.script(source, recorder));
+    }
+
+    /**
+     * Replays {@code image} into {@code builder}, returns {@code null} if the image is not valid or
+     * was not created from {@code source}.
+     */
+    public static <T> List<T> replay(byte[] image, Source source, RCodeBuilder<T> builder) {
+        return replay(image, source, sourceHash(source), builder);
+    }
+
+    /**
+     * As {@link #replay(byte[], Source, RCodeBuilder)}, with the already computed
+     * {@link #sourceHash} of {@code source}.
+     */
+    static <T> List<T> replay(byte[] image, Source source, byte[] hash, RCodeBuilder<T> builder) {
+        try {
+            return new Replayer<>(image, source, hash, builder).replay();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replays the image stored next to the file of {@code source}, if there is a valid one.
+     */
+    public static <T> List<T> load(Source source, RCodeBuilder<T> builder) {
+        String path = source.getPath();
+        if (path == null) {
+            return null;
+        }
+        File imageFile = new File(path + IMAGE_SUFFIX);
+        if (!imageFile.isFile()) {
+            return null;
+        }
+        try {
+            return replay(Files.readAllBytes(imageFile.toPath()), source, builder);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static byte[] sourceHash(Source source) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(source.getCode().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw RInternalError.shouldNotReachHere(e);
+        }
+    }
+
+    private static final class Recorder<T> implements RCodeBuilder<T> {
+
+        private final Source source;
+        private final RCodeBuilder<T> delegate;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final IdentityHashMap<Object, Integer> ids = new IdentityHashMap<>();
+        private final HashMap<String, Integer> strings = new HashMap<>();
+        private int nextId;
+        private NotRecordableException failure;
+
+        Recorder(Source source, byte[] hash, RCodeBuilder<T> delegate) {
+            this.source = source;
+            this.delegate = delegate;
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(hash);
+            } catch (IOException e) {
+                throw RInternalError.shouldNotReachHere(e);
+            }
+        }
+
+        byte[] finish(List<T> result) {
+            if (failure == null) {
+                try {
+                    out.writeByte(END);
+                    out.writeInt(result.size());
+                    for (T value : result) {
+                        writeId(value);
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw RInternalError.shouldNotReachHere(e);
+                } catch (NotRecordableException e) {
+                    failure = e;
+                }
+            }
+            return failure == null ? bytes.toByteArray() : null;
+        }
+
+        private T recorded(T value) {
+            ids.put(value, nextId++);
+            return value;
+        }
+
+        private void fail(NotRecordableException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        private void writeId(Object value) throws IOException, NotRecordableException {
+            if (value == null) {
+                out.writeInt(NO_VALUE);
+            } else {
+                Integer id = ids.get(value);
+                if (id == null) {
+                    throw new NotRecordableException("value not created by the builder");
+                }
+                out.writeInt(id);
+            }
+        }
+
+        private void writeSection(SourceSection section) throws IOException, NotRecordableException {
+            if (section == null) {
+                out.writeInt(NO_VALUE);
+            } else {
+                if (section.getSource() != source) {
+                    throw new NotRecordableException("section of another source");
+                }
+                out.writeInt(section.getCharIndex());
+                out.writeInt(section.getCharLength());
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                out.writeInt(NULL_STRING);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(index);
+            } else {
+                strings.put(s, strings.size());
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(NEW_STRING);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+        }
+
+        private void writeArguments(List<Argument<T>> arguments) throws IOException, NotRecordableException {
+            out.writeInt(arguments.size());
+            for (Argument<T> argument : arguments) {
+                writeSection(argument.source);
+                writeString(argument.name);
+                writeId(argument.value);
+            }
+        }
+
+        private void writeConstant(Object value) throws IOException, NotRecordableException {
+            if (value == RNull.instance) {
+                out.writeByte(NULL_VALUE);
+            } else if (value instanceof Byte) {
+                out.writeByte(LOGICAL);
+                out.writeByte((byte) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt((int) value);
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeLong(Double.doubleToRawLongBits((double) value));
+            } else if (value instanceof RComplex) {
+                out.writeByte(COMPLEX);
+                out.writeLong(Double.doubleToRawLongBits(((RComplex) value).getRealPart()));
+                out.writeLong(Double.doubleToRawLongBits(((RComplex) value).getImaginaryPart()));
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            } else {
+                throw new NotRecordableException("unexpected constant " + value);
+            }
+        }
+
+        @Override
+        public T call(SourceSection section, T lhs, List<Argument<T>> arguments) {
+            try {
+                out.writeByte(CALL);
+                writeSection(section);
+                writeId(lhs);
+                writeArguments(arguments);
+            } catch (IOException e) {
+                throw RInternalError.shouldNotReachHere(e);
+            } catch (NotRecordableException e) {
+                fail(e);
+            }
+            return recorded(delegate.call(section, lhs, arguments));
+        }
+
+        @Override
+        public T constant(SourceSection section, Object value) {
+            try {
+                out.writeByte(CONSTANT);
+                writeSection(section);
+                writeConstant(value);
+            } catch (IOException e) {
+                throw RInternalError.shouldNotReachHere(e);
+            } catch (NotRecordableException e) {
+                fail(e);
+            }
+            return recorded(delegate.constant(section, value));
+        }
+
+        @Override
+        public T lookup(SourceSection section, String symbol, boolean functionLookup) {
+            try {
+                out.writeByte(LOOKUP);
+                writeSection(section);
+                writeString(symbol);
+                out.writeBoolean(functionLookup);
+            } catch (IOException e) {
+                throw RInternalError.shouldNotReachHere(e);
+            } catch (NotRecordableException e) {
+                fail(e);
+            }
+            return recorded(delegate.lookup(section, symbol, functionLookup));
+        }
+
+        @Override
+        public T function(SourceSection section, List<Argument<T>> arguments, T body, Object assignedTo) {
+            try {
+                out.writeByte(FUNCTION);
+                writeSection(section);
+                writeArguments(arguments);
+                writeId(body);
+                writeId(assignedTo);
+            } catch (IOException e) {
+                throw RInternalError.shouldNotReachHere(e);
+            } catch (NotRecordableException e) {
+                fail(e);
+            }
+            return recorded(delegate.function(section, arguments, body, assignedTo));
+        }
+
+        @Override
+        public RootCallTarget rootFunction(SourceSection section, List<Argument<T>> arguments, T body, String name) {
+            fail(new NotRecordableException("root function"));
+            return delegate.rootFunction(section, arguments, body, name);
+        }
+
+        @Override
+        public void setContext(CodeBuilderContext context) {
+            delegate.setContext(context);
+        }
+
+        @Override
+        public CodeBuilderContext getContext() {
+            return delegate.getContext();
+        }
+    }
+
+    private static final class Replayer<T> {
+
+        private final DataInputStream in;
+        private final Source source;
+        private final byte[] hash;
+        private final RCodeBuilder<T> builder;
+        private final ArrayList<T> values = new ArrayList<>();
+        private final ArrayList<String> strings = new ArrayList<>();
+
+        Replayer(byte[] image, Source source, byte[] hash, RCodeBuilder<T> builder) {
+            this.in = new DataInputStream(new ByteArrayInputStream(image));
+            this.source = source;
+            this.hash = hash;
+            this.builder = builder;
+        }
+
+        List<T> replay() throws IOException {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            byte[] imageHash = new byte[HASH_LENGTH];
+            in.readFully(imageHash);
+            if (!Arrays.equals(imageHash, hash)) {
+                return null;
+            }
+            while (true) {
+                byte op = in.readByte();
+                switch (op) {
+                    case END:
+                        int count = in.readInt();
+                        ArrayList<T> result = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            result.add(readValue());
+                        }
+                        return result;
+                    case CONSTANT: {
+                        SourceSection section = readSection();
+                        values.add(builder.constant(section, readConstant()));
+                        break;
+                    }
+                    case LOOKUP: {
+                        SourceSection section = readSection();
+                        String symbol = readString();
+                        values.add(builder.lookup(section, symbol, in.readBoolean()));
+                        break;
+                    }
+                    case CALL: {
+                        SourceSection section = readSection();
+                        T lhs = readValue();
+                        values.add(builder.call(section, lhs, readArguments()));
+                        break;
+                    }
+                    case FUNCTION: {
+                        SourceSection section = readSection();
+                        List<Argument<T>> arguments = readArguments();
+                        T body = readValue();
+                        values.add(builder.function(section, arguments, body, readValue()));
+                        break;
+                    }
+                    default:
+                        throw new IOException("corrupt parse image");
+                }
+            }
+        }
+
+        private T readValue() throws IOException {
+            int id = in.readInt();
+            if (id == NO_VALUE) {
+                return null;
+            } else if (id < 0 || id >= values.size()) {
+                throw new IOException("corrupt parse image");
+            }
+            return values.get(id);
+        }
+
+        private SourceSection readSection() throws IOException {
+            int charIndex = in.readInt();
+            if (charIndex == NO_VALUE) {
+                return null;
+            }
+            int charLength = in.readInt();
+            if (charIndex + charLength > source.getLength()) {
+                throw new IOException("corrupt parse image");
+            }
+            return source.createSection(charIndex, charLength);
+        }
+
+        private String readString() throws IOException {
+            int index = in.readInt();
+            if (index == NULL_STRING) {
+                return null;
+            } else if (index == NEW_STRING) {
+                byte[] utf8 = new byte[in.readInt()];
+                in.readFully(utf8);
+                String s = new String(utf8, StandardCharsets.UTF_8).intern();
+                strings.add(s);
+                return s;
+            } else if (index < 0 || index >= strings.size()) {
+                throw new IOException("corrupt parse image");
+            }
+            return strings.get(index);
+        }
+
+        private List<Argument<T>> readArguments() throws IOException {
+            int count = in.readInt();
+            ArrayList<Argument<T>> arguments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                SourceSection section = readSection();
+                String name = readString();
+                arguments.add(RCodeBuilder.argument(section, name, readValue()));
+            }
+            return arguments;
+        }
+
+        private Object readConstant() throws IOException {
+            byte type = in.readByte();
+            switch (type) {
+                case NULL_VALUE:
+                    return RNull.instance;
+                case LOGICAL:
+                    return in.readByte();
+                case INTEGER:
+                    return in.readInt();
+                case DOUBLE:
+                    return Double.longBitsToDouble(in.readLong());
+                case COMPLEX:
+                    double real = Double.longBitsToDouble(in.readLong());
+                    return RComplex.valueOf(real, Double.longBitsToDouble(in.readLong()));
+                case STRING:
+                    return readString();
+                default:
+                    throw new IOException("corrupt parse image");
+            }
+        }
+    }
+
+    /**
+     * A builder that only creates distinct values, sufficient for recording an image.
+     */
+    private static final class TokenBuilder implements RCodeBuilder<Object> {
+        private CodeBuilderContext context = CodeBuilderContext.DEFAULT;
+
+        @Override
+        public Object call(SourceSection section, Object lhs, List<Argument<Object>> arguments) {
+            return new Object();
+        }
+
+        @Override
+        public Object constant(SourceSection section, Object value) {
+            return new Object();
+        }
+
+        @Override
+        public Object lookup(SourceSection section, String symbol, boolean functionLookup) {
+            return new Object();
+        }
+
+        @Override
+        public Object function(SourceSection section, List<Argument<Object>> arguments, Object body, Object assignedTo) {
+            return new Object();
+        }
+
+        @Override
+        public RootCallTarget rootFunction(SourceSection section, List<Argument<Object>> arguments, Object body, String name) {
+            throw RInternalError.shouldNotReachHere();
+        }
+
+        @Override
+        public void setContext(CodeBuilderContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public CodeBuilderContext getContext() {
+            return context;
+        }
+    }
+
+    /**
+     * Creates the image {@code file.image} for each {@code file} in {@code args}, run by the build
+     * for the base package and the system profile.
+     */
+    public static void main(String[] args) throws IOException, ParseException {
+        for (String path : args) {
+            Source source = RSource.fromFileName(path);
+            byte[] image = record(source, new TokenBuilder()).image;
+            if (image == null) {
+                throw new IOException("cannot create a parse image of " + path);
+            }
+            Files.write(new File(path + IMAGE_SUFFIX).toPath(), image);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.antlr.runtime.RecognitionException;
+
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.r.runtime.RSource;
+import com.oracle.truffle.r.runtime.context.Engine.IncompleteSourceException;
+import com.oracle.truffle.r.runtime.context.Engine.ParseException;
+
+/**
+ * Checks that the {@link RDescentParser} conforms to the parser generated from {@code R.g}: both
+ * parsers must make the same builder calls with the same source sections, as recorded in a
+ * {@link ParseImage}, or fail at the same position.
+ */
+public final class ParserConformance {
+
+    private int sources;
+    private int differences;
+
+    private ParserConformance() {
+        // only used by main
+    }
+
+    /**
+     * Returns {@code null} if both parsers agree on {@code source}, otherwise a description of the
+     * difference.
+     */
+    public static String check(Source source) {
+        Object antlr = parse(source, DefaultRParserFactory::parseScriptANTLR);
+        Object handWritten = parse(source, DefaultRParserFactory::parseScriptHandWritten);
+        if (antlr instanceof byte[] && handWritten instanceof byte[]) {
+            return Arrays.equals((byte[]) antlr, (byte[]) handWritten) ? null : "different builder calls or source sections";
+        }
+        String expected = describe(antlr);
+        String actual = describe(handWritten);
+        return expected.equals(actual) ? null : "expected " + expected + ", got " + actual;
+    }
+
+    /**
+     * Returns the image of the parse, or the exception it failed with.
+     */
+    private static Object parse(Source source, DefaultRParserFactory.ScriptParser parser) {
+        try {
+            byte[] image = ParseImage.recordImage(source, parser);
+            return image == null ? new byte[0] : image;
+        } catch (Throwable t) {
+            return t;
+        }
+    }
+
+    private static String describe(Object result) {
+        if (result instanceof byte[]) {
+            return "successful parse";
+        } else if (result instanceof ParseException) {
+            Throwable cause = ((ParseException) result).getCause();
+            String position;
+            if (cause instanceof RSyntaxError) {
+                position = ((RSyntaxError) cause).line + ":" + ((RSyntaxError) cause).charPositionInLine;
+            } else if (cause instanceof RecognitionException) {
+                position = ((RecognitionException) cause).line + ":" + ((RecognitionException) cause).charPositionInLine;
+            } else {
+                position = "unknown position";
+            }
+            return (result instanceof IncompleteSourceException ? "incomplete source at " : "syntax error at ") + position;
+        } else {
+            Throwable t = (Throwable) result;
+            return t.getClass().getSimpleName() + ": " + t.getMessage();
+        }
+    }
+
+    /**
+     * Checks all R sources in the files and directories given in {@code args}, i.e., files with
+     * the {@code .R} or {@code .r} extension and the code files of installed packages
+     * ({@code pkg/R/pkg}), and prints the sources on which the parsers differ.
+     */
+    public static void main(String[] args) throws IOException {
+        ParserConformance conformance = new ParserConformance();
+        for (String arg : args) {
+            conformance.recurse(new File(arg));
+        }
+        // Checkstyle: stop system..print check
+        System.out.println(conformance.sources + " sources checked, " + conformance.differences + " with differences");
+        if (conformance.differences > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void recurse(File file) throws IOException {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            Arrays.sort(files);
+            for (File sub : files) {
+                recurse(sub);
+            }
+        } else if (isRSource(file)) {
+            sources++;
+            String difference = check(RSource.fromFile(file));
+            if (difference != null) {
+                differences++;
+                // Checkstyle: stop system..print check
+                System.out.println(file.getPath() + ": " + difference);
+            }
+        }
+    }
+
+    private static boolean isRSource(File file) {
+        String name = file.getName();
+        if (name.endsWith(".R") || name.endsWith(".r")) {
+            return true;
+        }
+        File dir = file.getParentFile();
+        File packageDir = dir == null ? null : dir.getParentFile();
+        return packageDir != null && dir.getName().equals("R") && name.equals(packageDir.getName());
+    }
+}
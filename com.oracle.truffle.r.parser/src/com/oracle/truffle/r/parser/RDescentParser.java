@@ -0,0 +1,726 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.parser;
+
+import static com.oracle.truffle.r.parser.RScanner.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RComplex;
+import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.nodes.RCodeBuilder;
+import com.oracle.truffle.r.runtime.nodes.RCodeBuilder.Argument;
+
+/**
+ * A hand-written recursive descent parser for R, a replacement for the parser generated from
+ * {@code R.g}. It accepts the same language and makes the same {@link RCodeBuilder} calls, in the
+ * same order and with the same source sections, which {@link ParserConformance} checks. The
+ * methods correspond to the rules of the grammar, except that the binary operators are parsed by
+ * precedence climbing in {@link #binaryExpr}.
+ *
+ * Syntax errors are reported as {@link RSyntaxError}s.
+ */
+final class RDescentParser<T> {
+
+    // precedence levels of the binary operators, from the loosest to the tightest binding
+    private static final int OR_LEVEL = 0;
+    private static final int AND_LEVEL = 1;
+    private static final int COMP_LEVEL = 2;
+    private static final int ADD_LEVEL = 3;
+    private static final int MULT_LEVEL = 4;
+    private static final int SPECIAL_LEVEL = 5;
+    private static final int COLON_LEVEL = 6;
+    private static final int NO_LEVEL = -1;
+
+    private static final byte[] BINARY_LEVELS = new byte[STRING + 1];
+    private static final boolean[] EXPRESSION_START = new boolean[STRING + 1];
+
+    static {
+        Arrays.fill(BINARY_LEVELS, (byte) NO_LEVEL);
+        BINARY_LEVELS[OR] = OR_LEVEL;
+        BINARY_LEVELS[ELEMENTWISEOR] = OR_LEVEL;
+        BINARY_LEVELS[AND] = AND_LEVEL;
+        BINARY_LEVELS[ELEMENTWISEAND] = AND_LEVEL;
+        for (byte type : new byte[]{GT, GE, LT, LE, EQ, NE}) {
+            BINARY_LEVELS[type] = COMP_LEVEL;
+        }
+        BINARY_LEVELS[PLUS] = ADD_LEVEL;
+        BINARY_LEVELS[MINUS] = ADD_LEVEL;
+        BINARY_LEVELS[MULT] = MULT_LEVEL;
+        BINARY_LEVELS[DIV] = MULT_LEVEL;
+        BINARY_LEVELS[MOD] = MULT_LEVEL;
+        BINARY_LEVELS[OP] = SPECIAL_LEVEL;
+        BINARY_LEVELS[COLON] = COLON_LEVEL;
+
+        for (byte type : new byte[]{TILDE, NOT, PLUS, MINUS, QM, ID, DD, VARIADIC, STRING, TRUE, FALSE, NA, NULL, INF, NAN, NAINT, NAREAL, NACHAR, NACOMPL, INTEGER, DOUBLE, COMPLEX, LPAR,
+                        LBRACE, WHILE, IF, FOR, REPEAT, FUNCTION, NEXT, BREAK}) {
+            EXPRESSION_START[type] = true;
+        }
+    }
+
+    private final Source source;
+    private final RCodeBuilder<T> builder;
+    private final RScanner tokens;
+    /**
+     * The index of the current token.
+     */
+    private int p;
+
+    RDescentParser(Source source, RCodeBuilder<T> builder) {
+        this.source = source;
+        this.builder = builder;
+        this.tokens = new RScanner(source.getCode());
+    }
+
+    List<T> script() {
+        ArrayList<T> v = new ArrayList<>();
+        skipNewlines();
+        while (startsExpression(peek())) {
+            v.add(statement());
+        }
+        if (peek() != EOF) {
+            throw error();
+        }
+        return v;
+    }
+
+    RootCallTarget rootFunction(String name) {
+        skipNewlines();
+        int op = match(FUNCTION);
+        List<Argument<T>> params = parameters();
+        T body = exprOrAssign();
+        RootCallTarget v = builder.rootFunction(src(op, last()), params, body, name);
+        if (peek() != EOF) {
+            throw RInternalError.shouldNotReachHere("not at EOF after parsing deserialized function");
+        }
+        return v;
+    }
+
+    // token handling
+
+    private int peek() {
+        return tokens.type(p);
+    }
+
+    private int consume() {
+        return p++;
+    }
+
+    private int last() {
+        return p - 1;
+    }
+
+    private int match(int type) {
+        if (peek() != type) {
+            throw error();
+        }
+        return p++;
+    }
+
+    private static boolean isNewline(int type) {
+        return type == NEWLINE || type == COMMENT;
+    }
+
+    private static boolean isSeparator(int type) {
+        return type == NEWLINE || type == COMMENT || type == SEMICOLON;
+    }
+
+    private static boolean startsExpression(int type) {
+        return EXPRESSION_START[type];
+    }
+
+    /**
+     * The index of the first token at or after {@code index} that is not a line break or comment.
+     */
+    private int skipNewlines(int index) {
+        int i = index;
+        while (isNewline(tokens.type(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private void skipNewlines() {
+        p = skipNewlines(p);
+    }
+
+    private RSyntaxError error() {
+        boolean eof = peek() == EOF;
+        return new RSyntaxError(tokens.getCode(), eof ? tokens.stop(p) : tokens.start(p), tokens.text(p), eof);
+    }
+
+    private SourceSection src(int token) {
+        int start = tokens.start(token);
+        return source.createSection(start, tokens.stop(token) - start + 1);
+    }
+
+    private SourceSection src(int startToken, int stopToken) {
+        int start = tokens.start(startToken);
+        int stop = tokens.stop(stopToken);
+        return source.createSection(start, stop - start + (tokens.type(stopToken) == EOF ? 0 : 1));
+    }
+
+    private T operator(int token) {
+        return builder.lookup(src(token), tokens.text(token), true);
+    }
+
+    // statements
+
+    private T statement() {
+        T e = exprOrAssign();
+        int type = peek();
+        if (isNewline(type)) {
+            skipNewlines();
+        } else if (type == SEMICOLON) {
+            consume();
+            skipNewlines();
+        } else if (type != EOF) {
+            throw error();
+        }
+        return e;
+    }
+
+    private T exprOrAssign() {
+        int start = p;
+        T l = tildeExpr();
+        int type = peek();
+        if (type == ARROW || type == SUPER_ARROW || type == ASSIGN) {
+            int op = consume();
+            skipNewlines();
+            T rhs = peek() == FUNCTION ? function(l) : exprOrAssign();
+            return builder.call(src(start, last()), operator(op), l, rhs);
+        } else if (type == RIGHT_ARROW || type == SUPER_RIGHT_ARROW) {
+            int op = consume();
+            skipNewlines();
+            T r = exprOrAssign();
+            return builder.call(src(start, last()), builder.lookup(src(op), type == RIGHT_ARROW ? "<-" : "<<-", true), r, l);
+        }
+        return l;
+    }
+
+    /**
+     * As {@link #exprOrAssign()}, but {@code "="} is not an assignment, e.g., in arguments.
+     */
+    private T expr() {
+        int start = p;
+        T l = tildeExpr();
+        int type = peek();
+        if (type == ARROW || type == SUPER_ARROW) {
+            int op = consume();
+            skipNewlines();
+            T rhs = peek() == FUNCTION ? function(l) : expr();
+            return builder.call(src(start, last()), operator(op), l, rhs);
+        } else if (type == RIGHT_ARROW || type == SUPER_RIGHT_ARROW) {
+            int op = consume();
+            skipNewlines();
+            T r = expr();
+            return builder.call(src(start, last()), builder.lookup(src(op), type == RIGHT_ARROW ? "<-" : "<<-", true), r, l);
+        }
+        return l;
+    }
+
+    private T exprWoAssign() {
+        switch (peek()) {
+            case WHILE:
+                return whileExpr();
+            case IF:
+                return ifExpr();
+            case FOR:
+                return forExpr();
+            case REPEAT:
+                return repeatExpr();
+            case FUNCTION:
+                return function(null);
+            case NEXT:
+            case BREAK: {
+                int op = consume();
+                // break/next can be accompanied by arguments, but those are simply ignored
+                if (peek() == LPAR) {
+                    consume();
+                    args(null);
+                    match(RPAR);
+                }
+                return builder.call(src(op), operator(op));
+            }
+            default:
+                throw error();
+        }
+    }
+
+    private T sequence() {
+        int op = consume();
+        ArrayList<Argument<T>> stmts = new ArrayList<>();
+        skipSeparators();
+        if (startsExpression(peek())) {
+            stmts.add(RCodeBuilder.argument(exprOrAssign()));
+            while (true) {
+                int next = p;
+                while (isSeparator(tokens.type(next))) {
+                    next++;
+                }
+                if (next == p || !startsExpression(tokens.type(next))) {
+                    break;
+                }
+                p = next;
+                stmts.add(RCodeBuilder.argument(exprOrAssign()));
+            }
+            skipSeparators();
+        }
+        match(RBRACE);
+        return builder.call(src(op, last()), operator(op), stmts);
+    }
+
+    private void skipSeparators() {
+        while (isSeparator(peek())) {
+            consume();
+        }
+    }
+
+    private T ifExpr() {
+        int op = consume();
+        skipNewlines();
+        match(LPAR);
+        skipNewlines();
+        T cond = exprOrAssign();
+        skipNewlines();
+        match(RPAR);
+        skipNewlines();
+        T t = exprOrAssign();
+        int next = skipNewlines(p);
+        if (tokens.type(next) == ELSE) {
+            p = next + 1;
+            skipNewlines();
+            T f = exprOrAssign();
+            return builder.call(src(op, last()), operator(op), cond, t, f);
+        }
+        return builder.call(src(op, last()), operator(op), cond, t);
+    }
+
+    private T whileExpr() {
+        int op = consume();
+        skipNewlines();
+        match(LPAR);
+        skipNewlines();
+        T c = exprOrAssign();
+        skipNewlines();
+        match(RPAR);
+        skipNewlines();
+        T body = exprOrAssign();
+        return builder.call(src(op, last()), operator(op), c, body);
+    }
+
+    private T forExpr() {
+        int op = consume();
+        skipNewlines();
+        match(LPAR);
+        skipNewlines();
+        int i = match(ID);
+        skipNewlines();
+        match(IN);
+        skipNewlines();
+        T in = exprOrAssign();
+        skipNewlines();
+        match(RPAR);
+        skipNewlines();
+        T body = exprOrAssign();
+        return builder.call(src(op, last()), operator(op), builder.lookup(src(i), tokens.text(i), false), in, body);
+    }
+
+    private T repeatExpr() {
+        int op = consume();
+        skipNewlines();
+        T body = exprOrAssign();
+        return builder.call(src(op, last()), operator(op), body);
+    }
+
+    private T function(T assignedTo) {
+        int op = consume();
+        List<Argument<T>> params = parameters();
+        T body = exprOrAssign();
+        return builder.function(src(op, last()), params, body, assignedTo);
+    }
+
+    /**
+     * The parameter list of a function including the parentheses and the line breaks before the
+     * body.
+     */
+    private List<Argument<T>> parameters() {
+        List<Argument<T>> params = new ArrayList<>();
+        skipNewlines();
+        match(LPAR);
+        skipNewlines();
+        int type = peek();
+        if (type == ID || type == VARIADIC || type == DD) {
+            parDecl(params);
+            while (tokens.type(skipNewlines(p)) == COMMA) {
+                skipNewlines();
+                consume();
+                skipNewlines();
+                parDecl(params);
+            }
+            skipNewlines();
+        }
+        match(RPAR);
+        skipNewlines();
+        return params;
+    }
+
+    private void parDecl(List<Argument<T>> l) {
+        int type = peek();
+        if (type != ID && type != VARIADIC && type != DD) {
+            throw error();
+        }
+        int i = consume();
+        if (tokens.type(skipNewlines(p)) == ASSIGN) {
+            skipNewlines();
+            consume();
+            skipNewlines();
+            T e = expr();
+            if (type == VARIADIC) {
+                throw RInternalError.shouldNotReachHere("... = value parameter");
+            } else if (type == DD) {
+                throw RInternalError.shouldNotReachHere("..X = value parameter");
+            }
+            l.add(RCodeBuilder.argument(src(i, last()), tokens.text(i), e));
+        } else {
+            if (type == DD) {
+                throw RInternalError.shouldNotReachHere("..X parameter");
+            }
+            l.add(RCodeBuilder.argument(src(i), tokens.text(i), null));
+        }
+    }
+
+    // operators
+
+    private T tildeExpr() {
+        T v = utildeExpr();
+        while (peek() == TILDE) {
+            int op = consume();
+            skipNewlines();
+            T r = utildeExpr();
+            v = builder.call(src(op, last()), operator(op), v, r);
+        }
+        return v;
+    }
+
+    private T utildeExpr() {
+        if (peek() == TILDE) {
+            int op = consume();
+            skipNewlines();
+            T l = binaryExpr(OR_LEVEL);
+            return builder.call(src(op, last()), operator(op), l);
+        }
+        return binaryExpr(OR_LEVEL);
+    }
+
+    /**
+     * Parses a sequence of left associative binary operators of precedence {@code level}, whose
+     * operands are expressions of the next tighter level.
+     */
+    private T binaryExpr(int level) {
+        int start = p;
+        T v = operand(level);
+        while (BINARY_LEVELS[peek()] == level) {
+            int op = consume();
+            skipNewlines();
+            T r = operand(level);
+            v = builder.call(src(start, last()), operator(op), v, r);
+        }
+        return v;
+    }
+
+    private T operand(int level) {
+        if (level == AND_LEVEL) {
+            return notExpr();
+        } else if (level == COLON_LEVEL) {
+            return unaryExpression();
+        } else {
+            return binaryExpr(level + 1);
+        }
+    }
+
+    private T notExpr() {
+        if (peek() == NOT) {
+            int op = consume();
+            skipNewlines();
+            T l = notExpr();
+            return builder.call(src(op, last()), operator(op), l);
+        }
+        return binaryExpr(COMP_LEVEL);
+    }
+
+    private T unaryExpression() {
+        int type = peek();
+        if (type == PLUS || type == MINUS || type == NOT || type == QM) {
+            int op = consume();
+            skipNewlines();
+            T l = unaryExpression();
+            return builder.call(src(op, last()), operator(op), l);
+        }
+        return powerExpr();
+    }
+
+    private T powerExpr() {
+        int start = p;
+        T v = basicExpr();
+        if (peek() == CARET) {
+            int op = consume();
+            skipNewlines();
+            T r = unaryExpression();
+            v = builder.call(src(start, last()), operator(op), v, r);
+        }
+        return v;
+    }
+
+    private T basicExpr() {
+        int start = p;
+        T v;
+        int type = peek();
+        if ((type == ID || type == DD || type == VARIADIC || type == STRING) && tokens.type(p + 1) == LPAR) {
+            // special case for simple function call to generate "function" mode lookups
+            int lhs = consume();
+            consume();
+            List<Argument<T>> a = args(null);
+            int y = match(RPAR);
+            v = builder.call(src(start, y), operator(lhs), a);
+        } else {
+            v = simpleExpr();
+        }
+        while (true) {
+            switch (peek()) {
+                case FIELD:
+                case AT: {
+                    int op = consume();
+                    skipNewlines();
+                    int nameType = peek();
+                    if (nameType == ID || nameType == VARIADIC) {
+                        int name = consume();
+                        v = builder.call(src(start, last()), operator(op), v, builder.constant(src(name), tokens.text(name)));
+                    } else if (nameType == STRING) {
+                        T sname = conststring();
+                        v = builder.call(src(start, last()), operator(op), v, sname);
+                    } else {
+                        throw error();
+                    }
+                    break;
+                }
+                case LBRAKET: {
+                    int op = consume();
+                    List<Argument<T>> subset = args(v);
+                    int y = match(RBRAKET);
+                    if (subset.size() == 1) {
+                        subset.add(RCodeBuilder.argumentEmpty());
+                    }
+                    v = builder.call(src(start, y), operator(op), subset);
+                    break;
+                }
+                case LBB: {
+                    int op = consume();
+                    List<Argument<T>> subscript = args(v);
+                    // must use RBRAKET twice instead of RBB because this is possible: a[b[1]]
+                    match(RBRAKET);
+                    int y = match(RBRAKET);
+                    if (subscript.size() == 1) {
+                        subscript.add(RCodeBuilder.argumentEmpty());
+                    }
+                    v = builder.call(src(start, y), operator(op), subscript);
+                    break;
+                }
+                case LPAR: {
+                    consume();
+                    List<Argument<T>> a = args(null);
+                    int y = match(RPAR);
+                    v = builder.call(src(start, y), v, a);
+                    break;
+                }
+                default:
+                    return v;
+            }
+        }
+    }
+
+    private T simpleExpr() {
+        int start = p;
+        int t;
+        switch (peek()) {
+            case ID:
+            case VARIADIC: {
+                int next = tokens.type(p + 1);
+                if (next == NS_GET || next == NS_GET_INT) {
+                    return namespaceAccess();
+                }
+                t = consume();
+                return builder.lookup(src(t), tokens.text(t), false);
+            }
+            case TRUE:
+                consume();
+                return builder.constant(src(start, last()), RRuntime.LOGICAL_TRUE);
+            case FALSE:
+                consume();
+                return builder.constant(src(start, last()), RRuntime.LOGICAL_FALSE);
+            case NA:
+                consume();
+                return builder.constant(src(start, last()), RRuntime.LOGICAL_NA);
+            case DD:
+                t = consume();
+                return builder.lookup(src(t), tokens.text(t), false);
+            case NULL:
+                return builder.constant(src(consume()), RNull.instance);
+            case INF:
+                return builder.constant(src(consume()), Double.POSITIVE_INFINITY);
+            case NAN:
+                return builder.constant(src(consume()), Double.NaN);
+            case NAINT:
+                return builder.constant(src(consume()), RRuntime.INT_NA);
+            case NAREAL:
+                return builder.constant(src(consume()), RRuntime.DOUBLE_NA);
+            case NACHAR:
+                return builder.constant(src(consume()), RRuntime.STRING_NA);
+            case NACOMPL:
+                return builder.constant(src(consume()), RComplex.createNA());
+            case INTEGER:
+            case DOUBLE:
+            case COMPLEX:
+                return number();
+            case STRING:
+                return conststring();
+            case LPAR: {
+                int op = consume();
+                skipNewlines();
+                T ea = exprOrAssign();
+                skipNewlines();
+                int y = match(RPAR);
+                return builder.call(src(op, y), operator(op), ea);
+            }
+            case LBRACE:
+                return sequence();
+            default:
+                return exprWoAssign();
+        }
+    }
+
+    private T namespaceAccess() {
+        int pkg = consume();
+        int op = consume();
+        skipNewlines();
+        int compType = peek();
+        if (compType != ID && compType != VARIADIC) {
+            throw error();
+        }
+        int comp = consume();
+        List<Argument<T>> args = new ArrayList<>();
+        SourceSection pkgSource = src(pkg);
+        SourceSection compSource = src(comp);
+        args.add(RCodeBuilder.argument(pkgSource, "pkg", builder.lookup(pkgSource, tokens.text(pkg), false)));
+        args.add(RCodeBuilder.argument(compSource, "name", builder.lookup(compSource, tokens.text(comp), false)));
+        return builder.call(src(pkg, comp), operator(op), args);
+    }
+
+    private T number() {
+        int type = peek();
+        int i = consume();
+        String text = tokens.text(i);
+        if (type == INTEGER) {
+            double value = RRuntime.string2doubleNoCheck(text);
+            if (value == (int) value) {
+                if (text.indexOf('.') != -1) {
+                    RError.warning(RError.NO_CALLER, RError.Message.INTEGER_VALUE_UNNECESARY_DECIMAL, text + "L");
+                }
+                return builder.constant(src(i), (int) value);
+            } else {
+                if (text.indexOf('.') != -1) {
+                    RError.warning(RError.NO_CALLER, RError.Message.INTEGER_VALUE_DECIAML, text + "L");
+                } else {
+                    RError.warning(RError.NO_CALLER, RError.Message.NON_INTEGER_VALUE, text + "L");
+                }
+                return builder.constant(src(i), value);
+            }
+        } else if (type == DOUBLE) {
+            return builder.constant(src(i), RRuntime.string2doubleNoCheck(text));
+        } else {
+            return builder.constant(src(i), RComplex.valueOf(0, RRuntime.string2doubleNoCheck(text)));
+        }
+    }
+
+    private T conststring() {
+        int s = consume();
+        return builder.constant(src(s), tokens.text(s));
+    }
+
+    // arguments
+
+    private List<Argument<T>> args(T firstArg) {
+        List<Argument<T>> v = new ArrayList<>();
+        if (firstArg != null) {
+            v.add(RCodeBuilder.argument(firstArg));
+        }
+        skipNewlines();
+        if (peek() == COMMA) {
+            v.add(RCodeBuilder.argumentEmpty());
+        } else if (startsExpression(peek())) {
+            argExpr(v);
+            skipNewlines();
+        } else {
+            return v;
+        }
+        while (peek() == COMMA) {
+            consume();
+            if (startsExpression(tokens.type(skipNewlines(p)))) {
+                skipNewlines();
+                argExpr(v);
+            } else {
+                v.add(RCodeBuilder.argumentEmpty());
+            }
+            skipNewlines();
+        }
+        return v;
+    }
+
+    private void argExpr(List<Argument<T>> l) {
+        int start = p;
+        int type = peek();
+        if ((type == ID || type == VARIADIC || type == NULL || type == STRING) && tokens.type(skipNewlines(p + 1)) == ASSIGN) {
+            int name = consume();
+            skipNewlines();
+            int a = consume();
+            if (startsExpression(tokens.type(skipNewlines(p)))) {
+                skipNewlines();
+                T e = expr();
+                l.add(RCodeBuilder.argument(src(name, last()), tokens.text(name), e));
+            } else {
+                l.add(RCodeBuilder.argument(src(name, a), tokens.text(name), null));
+            }
+            return;
+        }
+        T e = expr();
+        l.add(RCodeBuilder.argument(src(start, last()), (String) null, e));
+    }
+}
@@ -0,0 +1,779 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.parser;
+
+import java.util.Arrays;
+
+/**
+ * The tokenizer of the {@link RDescentParser}, it produces the same tokens as the lexer generated
+ * from {@code R.g}.
+ *
+ * Tokens are scanned on demand and kept in parallel arrays instead of token objects, the text of a
+ * token is only materialized when it is asked for. Whitespace is skipped, as are line breaks and
+ * comments while the nesting level is larger than zero: the nesting level is maintained for
+ * {@code "("}, {@code "["} and {@code "[["}, and each {@code "{"} starts a new nesting level.
+ */
+final class RScanner {
+
+    static final byte EOF = 0;
+    static final byte NEWLINE = 1;
+    static final byte COMMENT = 2;
+    static final byte ARROW = 3;
+    static final byte SUPER_ARROW = 4;
+    static final byte RIGHT_ARROW = 5;
+    static final byte SUPER_RIGHT_ARROW = 6;
+    static final byte VARIADIC = 7;
+    static final byte EQ = 8;
+    static final byte NE = 9;
+    static final byte GE = 10;
+    static final byte LE = 11;
+    static final byte GT = 12;
+    static final byte LT = 13;
+    static final byte ASSIGN = 14;
+    static final byte NS_GET_INT = 15;
+    static final byte NS_GET = 16;
+    static final byte COLON = 17;
+    static final byte SEMICOLON = 18;
+    static final byte COMMA = 19;
+    static final byte AND = 20;
+    static final byte ELEMENTWISEAND = 21;
+    static final byte OR = 22;
+    static final byte ELEMENTWISEOR = 23;
+    static final byte LBRACE = 24;
+    static final byte RBRACE = 25;
+    static final byte LPAR = 26;
+    static final byte RPAR = 27;
+    static final byte LBB = 28;
+    static final byte LBRAKET = 29;
+    static final byte RBRAKET = 30;
+    static final byte CARET = 31;
+    static final byte TILDE = 32;
+    static final byte NOT = 33;
+    static final byte QM = 34;
+    static final byte PLUS = 35;
+    static final byte MULT = 36;
+    static final byte MOD = 37;
+    static final byte DIV = 38;
+    static final byte MINUS = 39;
+    static final byte FIELD = 40;
+    static final byte AT = 41;
+    static final byte FUNCTION = 42;
+    static final byte NULL = 43;
+    static final byte NA = 44;
+    static final byte NAINT = 45;
+    static final byte NAREAL = 46;
+    static final byte NACHAR = 47;
+    static final byte NACOMPL = 48;
+    static final byte TRUE = 49;
+    static final byte FALSE = 50;
+    static final byte INF = 51;
+    static final byte NAN = 52;
+    static final byte WHILE = 53;
+    static final byte FOR = 54;
+    static final byte REPEAT = 55;
+    static final byte IN = 56;
+    static final byte IF = 57;
+    static final byte ELSE = 58;
+    static final byte NEXT = 59;
+    static final byte BREAK = 60;
+    static final byte INTEGER = 61;
+    static final byte COMPLEX = 62;
+    static final byte DOUBLE = 63;
+    static final byte DD = 64;
+    static final byte ID = 65;
+    static final byte OP = 66;
+    static final byte STRING = 67;
+
+    private static final int INITIAL_TOKENS = 256;
+
+    private final String code;
+    private final int length;
+    private int pos;
+
+    private int incompleteNesting;
+    private int[] nestingStack = new int[8];
+    private int nestingStackSize;
+
+    private int count;
+    private byte[] types = new byte[INITIAL_TOKENS];
+    private int[] starts = new int[INITIAL_TOKENS];
+    private int[] stops = new int[INITIAL_TOKENS];
+    /**
+     * The text of tokens whose text is not the source code they span, e.g., strings.
+     */
+    private String[] texts = new String[INITIAL_TOKENS];
+
+    RScanner(String code) {
+        this.code = code;
+        this.length = code.length();
+    }
+
+    String getCode() {
+        return code;
+    }
+
+    int type(int index) {
+        return types[fill(index)];
+    }
+
+    int start(int index) {
+        return starts[fill(index)];
+    }
+
+    /**
+     * The index of the last character of the token, or the length of the code for {@link #EOF}.
+     */
+    int stop(int index) {
+        return stops[fill(index)];
+    }
+
+    String text(int index) {
+        int i = fill(index);
+        if (texts[i] != null) {
+            return texts[i];
+        } else if (types[i] == EOF) {
+            return "<EOF>";
+        } else {
+            return code.substring(starts[i], stops[i] + 1);
+        }
+    }
+
+    /**
+     * Scans up to token {@code index}, returns the index of the {@link #EOF} token if the code ends
+     * before that.
+     */
+    private int fill(int index) {
+        while (index >= count) {
+            if (count > 0 && types[count - 1] == EOF) {
+                return count - 1;
+            }
+            scan();
+        }
+        return index;
+    }
+
+    private void add(byte type, int start, String text) {
+        if (count == types.length) {
+            int newLength = count * 2;
+            types = Arrays.copyOf(types, newLength);
+            starts = Arrays.copyOf(starts, newLength);
+            stops = Arrays.copyOf(stops, newLength);
+            texts = Arrays.copyOf(texts, newLength);
+        }
+        types[count] = type;
+        starts[count] = start;
+        stops[count] = type == EOF ? length : pos - 1;
+        texts[count] = text;
+        count++;
+    }
+
+    private char peek(int offset) {
+        int i = pos + offset;
+        return i < length ? code.charAt(i) : '\0';
+    }
+
+    private RSyntaxError error(int index) {
+        return new RSyntaxError(code, index, null, false);
+    }
+
+    /**
+     * Scans the next token that is not hidden.
+     */
+    private void scan() {
+        while (true) {
+            if (pos >= length) {
+                add(EOF, length, null);
+                return;
+            }
+            int start = pos;
+            char c = code.charAt(pos);
+            switch (c) {
+                case '\t':
+                case ' ':
+                case '\u00A0':
+                    pos++;
+                    continue;
+                case '\n':
+                case '\r':
+                case '\f':
+                    lineBreak();
+                    if (incompleteNesting > 0) {
+                        continue;
+                    }
+                    add(NEWLINE, start, null);
+                    return;
+                case '#':
+                    while (pos < length && !isLineBreak(code.charAt(pos))) {
+                        pos++;
+                    }
+                    if (pos < length) {
+                        lineBreak();
+                    }
+                    if (incompleteNesting > 0) {
+                        continue;
+                    }
+                    add(COMMENT, start, null);
+                    return;
+                case '"':
+                case '\'':
+                    scanString(c);
+                    return;
+                case '`':
+                    scanBacktick();
+                    return;
+                case '.':
+                    scanDots();
+                    return;
+                case '%':
+                    scanPercent();
+                    return;
+                default:
+                    if (isDigit(c)) {
+                        scanNumber();
+                    } else if (isNameStart(c)) {
+                        scanName();
+                    } else {
+                        scanOperator(c);
+                    }
+                    return;
+            }
+        }
+    }
+
+    /**
+     * A line break is {@code \n}, {@code \r} or {@code \f}, optionally combined with a preceding
+     * {@code \r} or {@code \f} or a following {@code \n} respectively.
+     */
+    private void lineBreak() {
+        char c = code.charAt(pos++);
+        if (c == '\n') {
+            if (peek(0) == '\r' || peek(0) == '\f') {
+                pos++;
+            }
+        } else if (peek(0) == '\n') {
+            pos++;
+        }
+    }
+
+    private void scanOperator(char c) {
+        int start = pos;
+        byte type;
+        int tokenLength = 1;
+        char next = peek(1);
+        switch (c) {
+            case '<':
+                if (next == '<') {
+                    if (peek(2) != '-') {
+                        throw error(pos + 2);
+                    }
+                    type = SUPER_ARROW;
+                    tokenLength = 3;
+                } else if (next == '-') {
+                    type = ARROW;
+                    tokenLength = 2;
+                } else if (next == '=') {
+                    type = LE;
+                    tokenLength = 2;
+                } else {
+                    type = LT;
+                }
+                break;
+            case '-':
+                if (next == '>') {
+                    if (peek(2) == '>') {
+                        type = SUPER_RIGHT_ARROW;
+                        tokenLength = 3;
+                    } else {
+                        type = RIGHT_ARROW;
+                        tokenLength = 2;
+                    }
+                } else {
+                    type = MINUS;
+                }
+                break;
+            case ':':
+                if (next == ':') {
+                    if (peek(2) == ':') {
+                        type = NS_GET_INT;
+                        tokenLength = 3;
+                    } else {
+                        type = NS_GET;
+                        tokenLength = 2;
+                    }
+                } else if (next == '=') {
+                    type = ARROW;
+                    tokenLength = 2;
+                } else {
+                    type = COLON;
+                }
+                break;
+            case '=':
+                type = next == '=' ? EQ : ASSIGN;
+                tokenLength = next == '=' ? 2 : 1;
+                break;
+            case '!':
+                type = next == '=' ? NE : NOT;
+                tokenLength = next == '=' ? 2 : 1;
+                break;
+            case '>':
+                type = next == '=' ? GE : GT;
+                tokenLength = next == '=' ? 2 : 1;
+                break;
+            case '&':
+                type = next == '&' ? AND : ELEMENTWISEAND;
+                tokenLength = next == '&' ? 2 : 1;
+                break;
+            case '|':
+                type = next == '|' ? OR : ELEMENTWISEOR;
+                tokenLength = next == '|' ? 2 : 1;
+                break;
+            case '*':
+                type = next == '*' ? CARET : MULT;
+                tokenLength = next == '*' ? 2 : 1;
+                break;
+            case '[':
+                if (next == '[') {
+                    type = LBB;
+                    tokenLength = 2;
+                    incompleteNesting += 2;
+                } else {
+                    type = LBRAKET;
+                    incompleteNesting++;
+                }
+                break;
+            case ']':
+                type = RBRAKET;
+                incompleteNesting--;
+                break;
+            case '(':
+                type = LPAR;
+                incompleteNesting++;
+                break;
+            case ')':
+                type = RPAR;
+                incompleteNesting--;
+                break;
+            case '{':
+                if (nestingStackSize == nestingStack.length) {
+                    nestingStack = Arrays.copyOf(nestingStack, nestingStackSize * 2);
+                }
+                nestingStack[nestingStackSize++] = incompleteNesting;
+                incompleteNesting = 0;
+                type = LBRACE;
+                break;
+            case '}':
+                if (nestingStackSize > 0) {
+                    incompleteNesting = nestingStack[--nestingStackSize];
+                }
+                type = RBRACE;
+                break;
+            case ';':
+                type = SEMICOLON;
+                break;
+            case ',':
+                type = COMMA;
+                break;
+            case '^':
+                type = CARET;
+                break;
+            case '~':
+                type = TILDE;
+                break;
+            case '?':
+                type = QM;
+                break;
+            case '+':
+                type = PLUS;
+                break;
+            case '/':
+                type = DIV;
+                break;
+            case '$':
+                type = FIELD;
+                break;
+            case '@':
+                type = AT;
+                break;
+            default:
+                throw error(pos);
+        }
+        pos += tokenLength;
+        add(type, start, null);
+    }
+
+    /**
+     * {@code "%%"} or a {@code %op%} operator, whose name consists of names and operator
+     * characters.
+     */
+    private void scanPercent() {
+        int start = pos;
+        if (peek(1) == '%') {
+            pos += 2;
+            add(MOD, start, null);
+            return;
+        }
+        int i = pos + 1;
+        boolean inName = false;
+        while (i < length) {
+            char c = code.charAt(i);
+            if (isNameStart(c)) {
+                inName = true;
+            } else if (isDigit(c)) {
+                if (!inName) {
+                    break;
+                }
+            } else if ("*/+-><=|&:^~,?".indexOf(c) != -1) {
+                inName = false;
+            } else if (c != '.') {
+                break;
+            }
+            i++;
+        }
+        if (i == pos + 1 || i >= length || code.charAt(i) != '%') {
+            throw error(Math.min(i, length));
+        }
+        pos = i + 1;
+        add(OP, start, null);
+    }
+
+    /**
+     * Tokens starting with a {@code '.'}: names, {@code ...}, {@code ..1} and numbers.
+     */
+    private void scanDots() {
+        int start = pos;
+        int dots = 0;
+        while (peek(dots) == '.') {
+            dots++;
+        }
+        char next = peek(dots);
+        if (isNameStart(next)) {
+            pos += dots;
+            scanNameRest(start);
+        } else if (isDigit(next)) {
+            if (dots == 1) {
+                scanNumber();
+                return;
+            }
+            int digits = 0;
+            while (isDigit(peek(dots + digits))) {
+                digits++;
+            }
+            if (isNameStart(peek(dots + digits))) {
+                pos += dots + digits;
+                scanNameRest(start);
+            } else if (dots == 2) {
+                pos += dots + digits;
+                add(DD, start, null);
+            } else {
+                pos += 3;
+                add(VARIADIC, start, null);
+            }
+        } else if (dots < 3) {
+            pos += dots;
+            add(ID, start, null);
+        } else {
+            pos += 3;
+            add(VARIADIC, start, null);
+        }
+    }
+
+    private void scanName() {
+        int start = pos;
+        scanNameRest(start);
+        if (pos - start <= 13) {
+            byte keyword = keyword(code.substring(start, pos));
+            if (keyword != ID) {
+                types[count - 1] = keyword;
+            }
+        }
+    }
+
+    private void scanNameRest(int start) {
+        pos++;
+        char c;
+        while (isNameStart(c = peek(0)) || isDigit(c) || c == '.') {
+            pos++;
+        }
+        add(ID, start, null);
+    }
+
+    private static byte keyword(String name) {
+        switch (name) {
+            case "function":
+                return FUNCTION;
+            case "NULL":
+                return NULL;
+            case "NA":
+                return NA;
+            case "NA_integer_":
+                return NAINT;
+            case "NA_real_":
+                return NAREAL;
+            case "NA_character_":
+                return NACHAR;
+            case "NA_complex_":
+                return NACOMPL;
+            case "TRUE":
+                return TRUE;
+            case "FALSE":
+                return FALSE;
+            case "Inf":
+                return INF;
+            case "NaN":
+                return NAN;
+            case "while":
+                return WHILE;
+            case "for":
+                return FOR;
+            case "repeat":
+                return REPEAT;
+            case "in":
+                return IN;
+            case "if":
+                return IF;
+            case "else":
+                return ELSE;
+            case "next":
+                return NEXT;
+            case "break":
+                return BREAK;
+            default:
+                return ID;
+        }
+    }
+
+    /**
+     * Decimal and hexadecimal numbers, with an {@code L} suffix for {@link #INTEGER} and an
+     * {@code i} suffix for {@link #COMPLEX}, which is not part of the token text.
+     */
+    private void scanNumber() {
+        int start = pos;
+        boolean integerAllowed;
+        if (peek(0) == '0' && peek(1) == 'x' && isHexDigit(peek(2))) {
+            pos += 2;
+            while (isHexDigit(peek(0))) {
+                pos++;
+            }
+            // the fraction is only valid with a binary exponent
+            int exponent = 0;
+            if (peek(exponent) == '.') {
+                exponent++;
+            }
+            while (isHexDigit(peek(exponent))) {
+                exponent++;
+            }
+            int exponentLength = exponentLength(exponent, 'p', 'P');
+            integerAllowed = exponentLength == 0;
+            if (exponentLength > 0) {
+                pos += exponent + exponentLength;
+            }
+        } else {
+            boolean fraction = false;
+            if (peek(0) == '.') {
+                pos++;
+            } else {
+                while (isDigit(peek(0))) {
+                    pos++;
+                }
+                fraction = peek(0) == '.';
+            }
+            if (fraction) {
+                pos++;
+            }
+            while (isDigit(peek(0))) {
+                pos++;
+            }
+            int exponentLength = exponentLength(0, 'e', 'E');
+            pos += exponentLength;
+            integerAllowed = !fraction || exponentLength == 0;
+        }
+        char suffix = peek(0);
+        if (suffix == 'L' && integerAllowed) {
+            String text = code.substring(start, pos);
+            pos++;
+            add(INTEGER, start, text);
+        } else if (suffix == 'i') {
+            String text = code.substring(start, pos);
+            pos++;
+            add(COMPLEX, start, text);
+        } else {
+            add(DOUBLE, start, null);
+        }
+    }
+
+    /**
+     * The length of the exponent at {@code offset}, or zero if there is none.
+     */
+    private int exponentLength(int offset, char marker, char upperMarker) {
+        char c = peek(offset);
+        if (c != marker && c != upperMarker) {
+            return 0;
+        }
+        int i = offset + 1;
+        if (peek(i) == '+' || peek(i) == '-') {
+            i++;
+        }
+        if (!isDigit(peek(i))) {
+            return 0;
+        }
+        while (isDigit(peek(i))) {
+            i++;
+        }
+        return i - offset;
+    }
+
+    private void scanString(char quote) {
+        int start = pos++;
+        String text = scanQuoted(quote);
+        add(STRING, start, text);
+    }
+
+    private void scanBacktick() {
+        int start = pos++;
+        String text = scanQuoted('`');
+        add(ID, start, text);
+    }
+
+    /**
+     * Scans the contents and the closing quote of a string or backtick name, returns the contents
+     * with escape sequences resolved.
+     */
+    private String scanQuoted(char quote) {
+        int contentStart = pos;
+        StringBuilder buf = null;
+        while (true) {
+            if (pos >= length) {
+                throw error(length);
+            }
+            char c = code.charAt(pos);
+            if (c == quote) {
+                String text = buf == null ? code.substring(contentStart, pos) : buf.toString();
+                pos++;
+                return text;
+            } else if (c == '\\') {
+                if (buf == null) {
+                    buf = new StringBuilder(pos - contentStart + 16).append(code, contentStart, pos);
+                }
+                pos++;
+                escape(buf);
+            } else {
+                if (buf != null) {
+                    buf.append(c);
+                }
+                pos++;
+            }
+        }
+    }
+
+    private void escape(StringBuilder buf) {
+        if (pos >= length) {
+            throw error(length);
+        }
+        char c = code.charAt(pos++);
+        switch (c) {
+            case 't':
+                buf.append('\t');
+                break;
+            case 'n':
+            case '\n':
+                buf.append('\n');
+                break;
+            case 'a':
+                buf.append((char) 7);
+                break;
+            case 'v':
+                buf.append((char) 11);
+                break;
+            case 'r':
+                buf.append('\r');
+                break;
+            case 'b':
+                buf.append('\b');
+                break;
+            case 'f':
+                buf.append('\f');
+                break;
+            case '"':
+            case '`':
+            case '\'':
+            case ' ':
+            case '\\':
+                buf.append(c);
+                break;
+            case 'x':
+                if (!isHexDigit(peek(0)) || !isHexDigit(peek(1))) {
+                    throw error(isHexDigit(peek(0)) ? pos + 1 : pos);
+                }
+                buf.appendCodePoint(Integer.parseInt(code.substring(pos, pos + 2), 16));
+                pos += 2;
+                break;
+            case 'u':
+                buf.appendCodePoint(hexEscape(4));
+                break;
+            case 'U':
+                buf.appendCodePoint(hexEscape(8));
+                break;
+            default:
+                if (c >= '0' && c <= '7') {
+                    int value = c - '0';
+                    for (int i = 0; i < 2 && peek(0) >= '0' && peek(0) <= '7'; i++) {
+                        value = value * 8 + (code.charAt(pos++) - '0');
+                    }
+                    // octal escape sequences are clamped to the 0-255 range
+                    buf.append((char) (value & 0xff));
+                } else {
+                    throw error(pos - 1);
+                }
+        }
+    }
+
+    /**
+     * One to {@code maxDigits} hexadecimal digits.
+     */
+    private int hexEscape(int maxDigits) {
+        if (!isHexDigit(peek(0))) {
+            throw error(pos);
+        }
+        int value = 0;
+        for (int i = 0; i < maxDigits && isHexDigit(peek(0)); i++) {
+            value = value * 16 + Character.digit(code.charAt(pos++), 16);
+        }
+        return value;
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isNameStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.parser;
+
+/**
+ * A syntax error found by the {@link RScanner} or the {@link RDescentParser}. The position is
+ * reported like the ANTLR generated parser reports it, i.e., with 1-based lines and 0-based
+ * positions in the line.
+ */
+@SuppressWarnings("serial")
+final class RSyntaxError extends RuntimeException {
+
+    final int line;
+    final int charPositionInLine;
+    /**
+     * The text of the unexpected token, {@code null} if the scanner found an unexpected character.
+     */
+    final String token;
+    /**
+     * {@code true} if the parser needs more input, i.e., the unexpected token is the end of the
+     * source.
+     */
+    final boolean incomplete;
+
+    RSyntaxError(String code, int index, String token, boolean incomplete) {
+        super("syntax error", null, false, false);
+        int lineStart = code.lastIndexOf('\n', index - 1) + 1;
+        int lines = 1;
+        for (int i = code.indexOf('\n'); i != -1 && i < lineStart; i = code.indexOf('\n', i + 1)) {
+            lines++;
+        }
+        this.line = lines;
+        this.charPositionInLine = index - lineStart;
+        this.token = token;
+        this.incomplete = incomplete;
+    }
+}
@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.r.runtime.ffi.jni;
 
+import java.nio.Buffer;
 import java.nio.charset.StandardCharsets;
 import java.util.function.Function;
 
@@ -61,6 +62,10 @@ import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLanguage;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.data.RMappedDoubleVector;
+import com.oracle.truffle.r.runtime.data.RMappedIntVector;
+import com.oracle.truffle.r.runtime.data.RMappedRawVector;
+import com.oracle.truffle.r.runtime.data.RMappedVector;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RPairList;
 import com.oracle.truffle.r.runtime.data.RPromise;
@@ -109,7 +114,11 @@ public class CallRFFIHelper {
      *
      */
     public static final class CharSXPWrapper {
-        private final String contents;
+        /**
+         * Not final as the native side creates wrappers of ASCII strings without an upcall, setting
+         * the field directly.
+         */
+        private String contents;
 
         CharSXPWrapper(String contents) {
             this.contents = contents;
@@ -602,6 +611,7 @@ public class CallRFFIHelper {
         }
         RStringVector vector = guaranteeInstanceOf(x, RStringVector.class);
         CharSXPWrapper element = guaranteeInstanceOf(v, CharSXPWrapper.class);
+        vector.resetDataHash();
         vector.setElement(i, element.getContents());
     }
 
@@ -610,17 +620,29 @@ public class CallRFFIHelper {
             RFFIUtils.traceUpCall("SET_VECTOR_ELT", i, v);
         }
         RList list = guaranteeInstanceOf(x, RList.class);
+        list.resetDataHash();
         list.setElement(i, v);
     }
 
-    public static byte[] RAW(Object x) {
+    /**
+     * Returns the elements of {@code x} for native code, either as a Java array that the native
+     * side copies and writes back, or as a direct {@link java.nio.Buffer} for vectors held in
+     * off-heap memory, whose address is handed out as is. The same applies to {@link #INTEGER} and
+     * {@link #REAL}.
+     */
+    public static Object RAW(Object x) {
         if (RFFIUtils.traceEnabled()) {
             RFFIUtils.traceUpCall("RAW", x);
         }
         if (x instanceof RRawVector) {
-            return ((RRawVector) x).getDataWithoutCopying();
+            RRawVector vector = (RRawVector) x;
+            // native code may write the store regardless of the sharing state
+            vector.resetDataHash();
+            return vector.getDataWithoutCopying();
         } else if (x instanceof RRaw) {
             return new byte[]{((RRaw) x).getValue()};
+        } else if (x instanceof RMappedRawVector) {
+            return nativeData((RMappedRawVector) x);
         } else {
             throw unimplemented();
         }
@@ -631,7 +653,9 @@ public class CallRFFIHelper {
             RFFIUtils.traceUpCall("LOGICAL", x);
         }
         if (x instanceof RLogicalVector) {
-            return ((RLogicalVector) x).getDataWithoutCopying();
+            RLogicalVector vector = (RLogicalVector) x;
+            vector.resetDataHash();
+            return vector.getDataWithoutCopying();
         } else if (x instanceof Byte) {
             return new byte[]{(Byte) x};
         } else {
@@ -639,14 +663,18 @@ public class CallRFFIHelper {
         }
     }
 
-    public static int[] INTEGER(Object x) {
+    public static Object INTEGER(Object x) {
         if (RFFIUtils.traceEnabled()) {
             RFFIUtils.traceUpCall("INTEGER", x);
         }
         if (x instanceof RIntVector) {
-            return ((RIntVector) x).getDataWithoutCopying();
+            RIntVector vector = (RIntVector) x;
+            vector.resetDataHash();
+            return vector.getDataWithoutCopying();
         } else if (x instanceof RIntSequence) {
             return ((RIntSequence) x).materialize().getDataWithoutCopying();
+        } else if (x instanceof RMappedIntVector) {
+            return nativeData((RMappedIntVector) x);
         } else if (x instanceof Integer) {
             return new int[]{(Integer) x};
         } else if (x instanceof RLogicalVector) {
@@ -662,14 +690,18 @@ public class CallRFFIHelper {
         }
     }
 
-    public static double[] REAL(Object x) {
+    public static Object REAL(Object x) {
         if (RFFIUtils.traceEnabled()) {
             RFFIUtils.traceUpCall("REAL", x);
         }
         if (x instanceof RDoubleVector) {
-            return ((RDoubleVector) x).getDataWithoutCopying();
+            RDoubleVector vector = (RDoubleVector) x;
+            vector.resetDataHash();
+            return vector.getDataWithoutCopying();
         } else if (x instanceof RDoubleSequence) {
             return ((RDoubleSequence) x).materialize().getDataWithoutCopying();
+        } else if (x instanceof RMappedDoubleVector) {
+            return nativeData((RMappedDoubleVector) x);
         } else {
             guaranteeInstanceOf(x, Double.class);
             return new double[]{(Double) x};
@@ -677,13 +709,82 @@ public class CallRFFIHelper {
     }
 
     /**
-     * Called to possibly update the "complete" status on {@code x}. N.B. {@code x} may not be an
-     * object with a concrete {@code setComplete} method, e.g. see {@link #INTEGER(Object)}.
+     * Off-heap vectors that fit into one block are handed out without copying, all others as a copy
+     * in the heap. {@link #releaseNativeData} writes the changes native code made to the copy back
+     * into a writable mapping and drops them for a read-only one, which only native code that
+     * reads the elements can use meaningfully anyway.
+     */
+    private static Object nativeData(RMappedVector x) {
+        Buffer buffer = x.getDirectBuffer();
+        if (buffer != null) {
+            return buffer;
+        }
+        return x.materialize().getDataWithoutCopying();
+    }
+
+    /**
+     * Called when native code is done with the elements of {@code x} handed out as {@code data},
+     * which is {@code null} if they were handed out as a direct buffer. Writes back the changes
+     * made to heap copies of writable memory-mapped vectors and updates the "complete" status.
+     * N.B. {@code x} may not be an object with a concrete {@code setComplete} method, e.g. see
+     * {@link #INTEGER(Object)}.
      */
-    public static void setComplete(Object x, boolean complete) {
-        // only care about concrete vectors
+    public static void releaseNativeData(Object x, Object data, boolean complete) {
         if (x instanceof RVector) {
             ((RVector<?>) x).setComplete(complete);
+        } else if (x instanceof RMappedVector) {
+            RMappedVector vector = (RMappedVector) x;
+            if (data != null && vector.isWritable()) {
+                writeBack(vector, data);
+            }
+            vector.setComplete(complete);
+        }
+    }
+
+    /**
+     * Writes only the elements that differ from the mapping, so that the pages native code merely
+     * read are not dirtied and need not be written to the file again.
+     */
+    @TruffleBoundary
+    private static void writeBack(RMappedVector x, Object data) {
+        if (x instanceof RMappedDoubleVector) {
+            RMappedDoubleVector vector = (RMappedDoubleVector) x;
+            double[] array = (double[]) data;
+            for (int i = 0; i < array.length; i++) {
+                if (Double.doubleToRawLongBits(vector.getDataAt(i)) != Double.doubleToRawLongBits(array[i])) {
+                    vector.setDataAt(i, array[i]);
+                }
+            }
+        } else if (x instanceof RMappedIntVector) {
+            RMappedIntVector vector = (RMappedIntVector) x;
+            int[] array = (int[]) data;
+            for (int i = 0; i < array.length; i++) {
+                if (vector.getDataAt(i) != array[i]) {
+                    vector.setDataAt(i, array[i]);
+                }
+            }
+        } else {
+            RMappedRawVector vector = (RMappedRawVector) x;
+            byte[] array = (byte[]) data;
+            for (int i = 0; i < array.length; i++) {
+                if (vector.getRawDataAt(i) != array[i]) {
+                    vector.setRawDataAt(i, array[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the {@link #SET_STRING_ELT} and {@link #SET_VECTOR_ELT} writes staged by the native
+     * side, in order. {@code xs[k][is[k]] = vs[k]} for {@code k < n}.
+     */
+    public static void setElements(Object[] xs, int[] is, Object[] vs, int n) {
+        for (int k = 0; k < n; k++) {
+            if (xs[k] instanceof RStringVector) {
+                SET_STRING_ELT(xs[k], is[k], vs[k]);
+            } else {
+                SET_VECTOR_ELT(xs[k], is[k], vs[k]);
+            }
         }
     }
 
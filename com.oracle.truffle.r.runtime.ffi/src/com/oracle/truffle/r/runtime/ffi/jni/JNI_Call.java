@@ -27,6 +27,7 @@ import static com.oracle.truffle.r.runtime.ffi.RFFIUtils.traceDownCallReturn;
 import static com.oracle.truffle.r.runtime.ffi.RFFIUtils.traceEnabled;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.FastROptions;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.ffi.CallRFFI;
 import com.oracle.truffle.r.runtime.ffi.DLL;
@@ -43,7 +44,12 @@ import com.oracle.truffle.r.runtime.ffi.RFFIVariables;
  * they are passed as an array and the JNI code has to call back to get the args (not very
  * efficient).
  *
- * The JNI layer is not (currently) MT safe, so all calls are single threaded.
+ * The JNI layer keeps the state of the calls in progress per thread, so {@link #invokeCall} and
+ * {@link #invokeVoidCall} could be entered concurrently from different threads. However, most
+ * package code is not thread-safe, so native calls are serialized unless
+ * {@link FastROptions#ConcurrentNativeCalls} is set. The lock is reentrant, so upcalls can still
+ * make native calls. {@link #setTempDir} and {@link #setInteractive} update process-wide native
+ * variables and are always synchronized.
  */
 public class JNI_Call implements CallRFFI {
 
@@ -91,7 +97,16 @@ public class JNI_Call implements CallRFFI {
 
     @Override
     @TruffleBoundary
-    public synchronized Object invokeCall(NativeCallInfo nativeCallInfo, Object[] args) {
+    public Object invokeCall(NativeCallInfo nativeCallInfo, Object[] args) {
+        if (FastROptions.ConcurrentNativeCalls.getBooleanValue()) {
+            return doInvokeCall(nativeCallInfo, args);
+        }
+        synchronized (this) {
+            return doInvokeCall(nativeCallInfo, args);
+        }
+    }
+
+    private static Object doInvokeCall(NativeCallInfo nativeCallInfo, Object[] args) {
         long address = nativeCallInfo.address.asAddress();
         Object result = null;
         if (traceEnabled()) {
@@ -152,7 +167,17 @@ public class JNI_Call implements CallRFFI {
 
     @Override
     @TruffleBoundary
-    public synchronized void invokeVoidCall(NativeCallInfo nativeCallInfo, Object[] args) {
+    public void invokeVoidCall(NativeCallInfo nativeCallInfo, Object[] args) {
+        if (FastROptions.ConcurrentNativeCalls.getBooleanValue()) {
+            doInvokeVoidCall(nativeCallInfo, args);
+        } else {
+            synchronized (this) {
+                doInvokeVoidCall(nativeCallInfo, args);
+            }
+        }
+    }
+
+    private static void doInvokeVoidCall(NativeCallInfo nativeCallInfo, Object[] args) {
         if (traceEnabled()) {
             traceDownCall(nativeCallInfo.name, args);
         }
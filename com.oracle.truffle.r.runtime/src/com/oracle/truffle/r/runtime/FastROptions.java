@@ -53,6 +53,14 @@ public enum FastROptions {
     RefCountIncrementOnly("Disable reference count decrements for experimental state transition implementation", false),
     UseInternalGraphics("Whether the internal (Java) graphics subsystem should be used", false),
     UseSpecials("Whether the fast-path special call nodes should be created for simple enough arguments.", true),
+    ConcurrentNativeCalls("Let native code called via .Call/.External from different threads (e.g. contexts) run at the same time, which requires thread-safe packages", false),
+    ParallelKernels("Use multi-threaded kernels in builtins that support them (e.g. cor, dist)", true),
+    ParallelKernelsThreshold("Minimal amount of work (in element operations) for which a multi-threaded kernel is used", "1000000", true),
+    LazyArithmetic("Defer element-wise arithmetic on large double vectors and evaluate chains of operations in a single loop", true),
+    LazyArithmeticThreshold("Minimal vector length for which arithmetic is deferred", "100000", true),
+    ParseCache("Cache the parses of sources in memory (and on disk, see ParseCacheDir) and replay them when a source is parsed again", true),
+    ParseCacheDir("Directory of the on-disk parse cache of files, not used if unset", null, true),
+    HandWrittenParser("Parse with the hand-written recursive descent parser instead of the one generated from R.g", true),
 
     // Promises optimizations
     EagerEval("If enabled, overrides all other EagerEval switches (see EagerEvalHelper)", false),
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Support for the multi-threaded kernels used by some of the numeric builtins (e.g.
+ * {@code cor}, {@code dist}). A kernel splits its iteration space into blocks and hands them to
+ * {@link #forEachBlock}, which runs them either in the calling thread or in the common fork-join
+ * pool, depending on the amount of work and on the {@link FastROptions#ParallelKernels} and
+ * {@link FastROptions#ParallelKernelsThreshold} options.
+ *
+ * N.B. the blocks are executed outside of any R context, so a {@link BlockBody} must only work on
+ * primitive arrays it was given and must not call into the interpreter or raise R errors.
+ */
+public final class ParallelKernels {
+
+    private ParallelKernels() {
+        // only static methods
+    }
+
+    /**
+     * Body of a blocked loop, processes the half-open range {@code [from, to)}.
+     */
+    @FunctionalInterface
+    public interface BlockBody {
+        void run(int from, int to);
+    }
+
+    /**
+     * Returns {@code true} if a kernel performing roughly {@code work} element operations should
+     * be executed in parallel.
+     */
+    public static boolean useParallel(long work) {
+        return FastROptions.ParallelKernels.getBooleanValue() && ForkJoinPool.getCommonPoolParallelism() > 1 && work >= FastROptions.ParallelKernelsThreshold.getNonNegativeIntValue();
+    }
+
+    /**
+     * Number of workers that can run blocks concurrently.
+     */
+    public static int parallelism() {
+        return Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Iterates over {@code [0, length)} in blocks of (at most) {@code blockSize} elements. If
+     * {@code parallel} is {@code true} the blocks are distributed over the fork-join pool and this
+     * method returns once all of them have been processed.
+     */
+    @TruffleBoundary
+    public static void forEachBlock(int length, int blockSize, boolean parallel, BlockBody body) {
+        assert blockSize > 0;
+        if (!parallel || length <= blockSize) {
+            for (int from = 0; from < length; from += blockSize) {
+                body.run(from, Math.min(length, from + blockSize));
+            }
+        } else {
+            int blocks = (length + blockSize - 1) / blockSize;
+            ForkJoinPool.commonPool().invoke(new BlockTask(body, 0, blocks, blockSize, length));
+        }
+    }
+
+    /**
+     * Convenience variant of {@link #forEachBlock(int, int, boolean, BlockBody)} that chooses the
+     * execution mode according to {@link #useParallel(long)}.
+     */
+    public static void forEachBlock(int length, int blockSize, long work, BlockBody body) {
+        forEachBlock(length, blockSize, useParallel(work), body);
+    }
+
+    /**
+     * Returns a block size that splits {@code length} elements into a few blocks per worker, but
+     * never less than {@code minBlockSize} elements per block.
+     */
+    public static int blockSize(int length, int minBlockSize) {
+        int perWorker = length / (parallelism() * 4);
+        return Math.max(minBlockSize, perWorker);
+    }
+
+    @SuppressWarnings("serial")
+    private static final class BlockTask extends RecursiveAction {
+        private final BlockBody body;
+        private final int firstBlock;
+        private final int lastBlock;
+        private final int blockSize;
+        private final int length;
+
+        BlockTask(BlockBody body, int firstBlock, int lastBlock, int blockSize, int length) {
+            this.body = body;
+            this.firstBlock = firstBlock;
+            this.lastBlock = lastBlock;
+            this.blockSize = blockSize;
+            this.length = length;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastBlock - firstBlock == 1) {
+                int from = firstBlock * blockSize;
+                body.run(from, Math.min(length, from + blockSize));
+            } else {
+                int mid = (firstBlock + lastBlock) >>> 1;
+                invokeAll(new BlockTask(body, firstBlock, mid, blockSize, length), new BlockTask(body, mid, lastBlock, blockSize, length));
+            }
+        }
+    }
+}
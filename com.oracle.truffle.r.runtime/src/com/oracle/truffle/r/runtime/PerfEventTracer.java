@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameInstance;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.r.runtime.data.MemoryCopyTracer;
+import com.oracle.truffle.r.runtime.data.RSequence;
+import com.oracle.truffle.r.runtime.data.closures.RToVectorClosure;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
+
+/**
+ * A single stream of the performance relevant events on the hot paths, i.e., vector copies,
+ * materialization of sequences and closures, slow path variable lookups, generic call fallbacks,
+ * node rewrites and performance warnings. The events are aggregated by kind, R source location and
+ * detail, as reported by the {@code .fastr.perfreport} builtin.
+ *
+ * As with {@link MemoryCopyTracer}, reporting sites check {@link #isEnabled()} first, which folds
+ * to {@code false} in compiled code until tracing is enabled for the first time.
+ */
+public final class PerfEventTracer {
+
+    public enum Kind {
+        COPY,
+        MATERIALIZE,
+        SLOW_LOOKUP,
+        GENERIC_CALL,
+        REWRITE,
+        WARNING
+    }
+
+    private static final Assumption noPerfEventTracingAssumption = Truffle.getRuntime().createAssumption("perf event tracing");
+    private static volatile boolean enabled;
+    private static boolean listening;
+
+    private static final ConcurrentHashMap<Event, Counter> events = new ConcurrentHashMap<>();
+
+    private PerfEventTracer() {
+        // only static methods
+    }
+
+    public static boolean isEnabled() {
+        return !noPerfEventTracingAssumption.isValid() && enabled;
+    }
+
+    /**
+     * Enables or disables the recording of events, enabling discards all previously recorded
+     * events. This invalidates global assumptions and should be used with caution.
+     */
+    @TruffleBoundary
+    public static synchronized void setTracingState(boolean newState) {
+        if (newState) {
+            events.clear();
+            noPerfEventTracingAssumption.invalidate();
+            if (!listening) {
+                MemoryCopyTracer.addListener(PerfEventTracer::reportCopying);
+                listening = true;
+            }
+        }
+        if (newState != enabled) {
+            if (newState) {
+                MemoryCopyTracer.enable();
+            } else {
+                MemoryCopyTracer.disable();
+            }
+            enabled = newState;
+        }
+    }
+
+    /**
+     * Records an event at the source location of {@code node}, or at the current R function if
+     * {@code node} is {@code null} or has no source.
+     */
+    @TruffleBoundary
+    public static void report(Kind kind, Node node, String detail, long bytes) {
+        if (!enabled) {
+            return;
+        }
+        SourceSection ss = node == null ? null : node.getEncapsulatingSourceSection();
+        String location = hasLocation(ss) ? formatLocation(ss) : currentLocation();
+        Counter counter = events.computeIfAbsent(new Event(kind, location, detail), e -> new Counter());
+        counter.count.increment();
+        counter.bytes.add(bytes);
+    }
+
+    public static void reportMaterialize(RAbstractVector source, RAbstractVector result) {
+        if (isEnabled()) {
+            reportVector(Kind.MATERIALIZE, source, result);
+        }
+    }
+
+    private static void reportCopying(RAbstractVector source, RAbstractVector dest) {
+        if (enabled) {
+            reportVector(source instanceof RSequence || source instanceof RToVectorClosure ? Kind.MATERIALIZE : Kind.COPY, source, dest);
+        }
+    }
+
+    @TruffleBoundary
+    private static void reportVector(Kind kind, RAbstractVector source, RAbstractVector result) {
+        report(kind, null, source.getClass().getSimpleName(), getDataSize(result));
+    }
+
+    /**
+     * A cheap, shallow estimate of the size of the data of {@code vector} in bytes.
+     */
+    public static long getDataSize(RAbstractVector vector) {
+        long length = vector.getLength();
+        switch (vector.getRType()) {
+            case Logical:
+            case Raw:
+                return length;
+            case Integer:
+                return length * Integer.BYTES;
+            case Complex:
+                return length * 2 * Double.BYTES;
+            default:
+                // doubles and references
+                return length * Long.BYTES;
+        }
+    }
+
+    private static String currentLocation() {
+        FrameInstance frameInstance = Truffle.getRuntime().getCurrentFrame();
+        if (frameInstance == null) {
+            return "<unknown>";
+        }
+        RootNode root = ((RootCallTarget) frameInstance.getCallTarget()).getRootNode();
+        SourceSection ss = root.getSourceSection();
+        return hasLocation(ss) ? root.getName() + " " + formatLocation(ss) : root.getName();
+    }
+
+    private static boolean hasLocation(SourceSection ss) {
+        return ss != null && ss != RSyntaxNode.SOURCE_UNAVAILABLE && ss != RSyntaxNode.INTERNAL && ss != RSyntaxNode.LAZY_DEPARSE;
+    }
+
+    private static String formatLocation(SourceSection ss) {
+        return RSource.getOrigin(ss.getSource()) + "#" + ss.getStartLine();
+    }
+
+    public static final class Event {
+        private final Kind kind;
+        private final String location;
+        private final String detail;
+
+        private Event(Kind kind, String location, String detail) {
+            this.kind = kind;
+            this.location = location;
+            this.detail = detail;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        @Override
+        public int hashCode() {
+            return (kind.hashCode() * 31 + location.hashCode()) * 31 + (detail == null ? 0 : detail.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Event)) {
+                return false;
+            }
+            Event other = (Event) obj;
+            return kind == other.kind && location.equals(other.location) && (detail == null ? other.detail == null : detail.equals(other.detail));
+        }
+    }
+
+    public static final class Counter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the aggregated events recorded so far.
+     */
+    @TruffleBoundary
+    public static ArrayList<Map.Entry<Event, Counter>> getEvents() {
+        return new ArrayList<>(events.entrySet());
+    }
+}
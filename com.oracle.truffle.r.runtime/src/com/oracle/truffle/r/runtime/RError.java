@@ -220,6 +220,9 @@ public final class RError extends RuntimeException {
 
     @TruffleBoundary
     public static void performanceWarning(String string) {
+        if (PerfEventTracer.isEnabled()) {
+            PerfEventTracer.report(PerfEventTracer.Kind.WARNING, null, string, 0);
+        }
         if (FastROptions.PerformanceWarnings.getBooleanValue()) {
             warning(RError.SHOW_CALLER2, Message.PERFORMANCE, string);
         }
@@ -237,12 +240,14 @@ public final class RError extends RuntimeException {
         GENERIC("%s"),
         TOO_SHORT("'%s' is too short"),
         VECTOR_SIZE_TOO_LARGE("vector size specified is too large"),
+        LONG_VECTORS_NOT_SUPPORTED("long vectors not supported yet"),
         ARG_RECYCYLED("an argument will be fractionally recycled"),
         LENGTH_GT_1("the condition has length > 1 and only the first element will be used"),
         LENGTH_ZERO("argument is of length zero"),
         NA_UNEXP("missing value where TRUE/FALSE needed"),
         LENGTH_NOT_MULTI("longer object length is not a multiple of shorter object length"),
         INTEGER_OVERFLOW("NAs produced by integer overflow"),
+        INTEGER_OVERFLOW_CUMSUM("integer overflow in 'cumsum'; use 'cumsum(as.numeric(.))'"),
         NA_OR_NAN("NA/NaN argument"),
         SUBSCRIPT_BOUNDS("subscript out of bounds"),
         SUBSCRIPT_BOUNDS_SUB("[[ ]] subscript out of bounds"),
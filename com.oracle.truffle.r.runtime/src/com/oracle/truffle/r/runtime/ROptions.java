@@ -112,6 +112,17 @@ public class ROptions {
             return this;
         }
 
+        /**
+         * Replaces all values, used when a context is restored from a
+         * {@link com.oracle.truffle.r.runtime.context.ContextTemplate}. The
+         * {@code .Options} variable is restored together with {@code baseenv}.
+         */
+        @TruffleBoundary
+        public void restore(Map<String, Object> values) {
+            map.clear();
+            map.putAll(values);
+        }
+
         /**
          * Creates/updates the {@code .Options} variable in {@code baseenv}.
          */
@@ -13,6 +13,7 @@ package com.oracle.truffle.r.runtime;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -53,6 +54,10 @@ import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLanguage;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.data.RMappedDoubleVector;
+import com.oracle.truffle.r.runtime.data.RMappedIntVector;
+import com.oracle.truffle.r.runtime.data.RMappedRawVector;
+import com.oracle.truffle.r.runtime.data.RMappedVector;
 import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RPairList;
@@ -222,6 +227,11 @@ public class RSerialize {
 
     private static final int MAX_PACKED_INDEX = Integer.MAX_VALUE >> 8;
 
+    /**
+     * Size of the blocks in which long raw vectors are transferred.
+     */
+    private static final int LONG_VECTOR_BUFFER_SIZE = 1 << 16;
+
     private static int packRefIndex(int i) {
         return (i << 8) | SEXPTYPE.REFSXP.code;
     }
@@ -654,9 +664,7 @@ public class RSerialize {
 
                 case EXPRSXP:
                 case VECSXP: {
-                    int len = stream.readInt();
-                    // TODO long vector support?
-                    assert len >= 0;
+                    int len = readShortLength();
                     Object[] data = new Object[len];
                     for (int i = 0; i < len; i++) {
                         Object elem = readItem();
@@ -677,7 +685,12 @@ public class RSerialize {
                 }
 
                 case INTSXP: {
-                    int len = stream.readInt();
+                    long longLength = readLength();
+                    if (longLength > Integer.MAX_VALUE) {
+                        result = readLongVector(RType.Integer, longLength);
+                        break;
+                    }
+                    int len = (int) longLength;
                     int[] data = new int[len];
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
                     for (int i = 0; i < len; i++) {
@@ -692,7 +705,7 @@ public class RSerialize {
                 }
 
                 case LGLSXP: {
-                    int len = stream.readInt();
+                    int len = readShortLength();
                     byte[] data = new byte[len];
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
                     for (int i = 0; i < len; i++) {
@@ -709,7 +722,12 @@ public class RSerialize {
                 }
 
                 case REALSXP: {
-                    int len = stream.readInt();
+                    long longLength = readLength();
+                    if (longLength > Integer.MAX_VALUE) {
+                        result = readLongVector(RType.Double, longLength);
+                        break;
+                    }
+                    int len = (int) longLength;
                     double[] data = new double[len];
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
                     for (int i = 0; i < len; i++) {
@@ -724,7 +742,7 @@ public class RSerialize {
                 }
 
                 case CPLXSXP: {
-                    int len = stream.readInt();
+                    int len = readShortLength();
                     double[] data = new double[2 * len];
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
                     for (int i = 0; i < len; i++) {
@@ -795,7 +813,12 @@ public class RSerialize {
                 }
 
                 case RAWSXP: {
-                    int len = stream.readInt();
+                    long longLength = readLength();
+                    if (longLength > Integer.MAX_VALUE) {
+                        result = readLongVector(RType.Raw, longLength);
+                        break;
+                    }
+                    int len = (int) longLength;
                     byte[] data = new byte[len];
                     stream.readRaw(data);
                     result = RDataFactory.createRawVector(data);
@@ -877,7 +900,7 @@ public class RSerialize {
                     throw RError.nyi(null, "names in persistent strings");
                 }
             }
-            int len = stream.readInt();
+            int len = readShortLength();
             String[] data = new String[len];
             boolean complete = RDataFactory.COMPLETE_VECTOR; // optimistic
             for (int i = 0; i < len; i++) {
@@ -890,6 +913,82 @@ public class RSerialize {
             return RDataFactory.createStringVector(data, complete);
         }
 
+        /**
+         * Reads the length of a vector. As in GnuR, lengths beyond the {@code int} range are
+         * written as {@code -1} followed by the upper and the lower 32 bits.
+         */
+        private long readLength() throws IOException {
+            int len = stream.readInt();
+            if (len < -1) {
+                throw new IOException("negative serialized length for vector");
+            } else if (len == -1) {
+                long upper = stream.readInt();
+                long lower = stream.readInt() & 0xFFFFFFFFL;
+                return (upper << 32) + lower;
+            }
+            return len;
+        }
+
+        private int readShortLength() throws IOException {
+            long len = readLength();
+            if (len > Integer.MAX_VALUE) {
+                throw RError.error(RError.SHOW_CALLER2, RError.Message.LONG_VECTORS_NOT_SUPPORTED);
+            }
+            return (int) len;
+        }
+
+        /**
+         * Long vectors do not fit into an array, they are read into a temporary file-backed vector.
+         */
+        private RMappedVector readLongVector(RType type, long length) throws IOException {
+            File file = File.createTempFile("fastr-long-vector", ".bin");
+            file.deleteOnExit();
+            RMappedVector vector = RMappedVector.create(type, file.getPath(), length, true);
+            boolean complete = RDataFactory.COMPLETE_VECTOR;
+            switch (type) {
+                case Integer: {
+                    RMappedIntVector ints = (RMappedIntVector) vector;
+                    for (long i = 0; i < length; i++) {
+                        int intVal = stream.readInt();
+                        if (intVal == RRuntime.INT_NA) {
+                            complete = false;
+                        }
+                        ints.setDataAt(i, intVal);
+                    }
+                    break;
+                }
+                case Double: {
+                    RMappedDoubleVector doubles = (RMappedDoubleVector) vector;
+                    for (long i = 0; i < length; i++) {
+                        double doubleVal = stream.readDouble();
+                        if (RRuntime.isNA(doubleVal)) {
+                            complete = false;
+                        }
+                        doubles.setDataAt(i, doubleVal);
+                    }
+                    break;
+                }
+                case Raw: {
+                    RMappedRawVector raws = (RMappedRawVector) vector;
+                    byte[] buffer = new byte[LONG_VECTOR_BUFFER_SIZE];
+                    for (long i = 0; i < length; i += buffer.length) {
+                        if (length - i < buffer.length) {
+                            buffer = new byte[(int) (length - i)];
+                        }
+                        stream.readRaw(buffer);
+                        for (int j = 0; j < buffer.length; j++) {
+                            raws.setRawDataAt(i + j, buffer[j]);
+                        }
+                    }
+                    break;
+                }
+                default:
+                    throw RInternalError.shouldNotReachHere();
+            }
+            vector.setComplete(complete);
+            return vector;
+        }
+
         private Object persistentRestore(RStringVector sv) throws IOException {
             if (hook == null) {
                 throw new IOException("no restore method available");
@@ -1458,6 +1557,14 @@ public class RSerialize {
 
                         case INTSXP: {
                             RAbstractIntVector vec = (RAbstractIntVector) obj;
+                            if (vec instanceof RMappedIntVector) {
+                                RMappedIntVector mapped = (RMappedIntVector) vec;
+                                writeLength(mapped.getLongLength());
+                                for (long i = 0; i < mapped.getLongLength(); i++) {
+                                    stream.writeInt(mapped.getDataAt(i));
+                                }
+                                break;
+                            }
                             stream.writeInt(vec.getLength());
                             for (int i = 0; i < vec.getLength(); i++) {
                                 stream.writeInt(vec.getDataAt(i));
@@ -1467,6 +1574,14 @@ public class RSerialize {
 
                         case REALSXP: {
                             RAbstractDoubleVector vec = (RAbstractDoubleVector) obj;
+                            if (vec instanceof RMappedDoubleVector) {
+                                RMappedDoubleVector mapped = (RMappedDoubleVector) vec;
+                                writeLength(mapped.getLongLength());
+                                for (long i = 0; i < mapped.getLongLength(); i++) {
+                                    stream.writeDouble(mapped.getDataAt(i));
+                                }
+                                break;
+                            }
                             stream.writeInt(vec.getLength());
                             for (int i = 0; i < vec.getLength(); i++) {
                                 stream.writeDouble(vec.getDataAt(i));
@@ -1522,6 +1637,20 @@ public class RSerialize {
                         }
 
                         case RAWSXP: {
+                            if (obj instanceof RMappedRawVector) {
+                                RMappedRawVector mapped = (RMappedRawVector) obj;
+                                long length = mapped.getLongLength();
+                                writeLength(length);
+                                byte[] buffer = new byte[(int) Math.min(length, LONG_VECTOR_BUFFER_SIZE)];
+                                for (long i = 0; i < length; i += buffer.length) {
+                                    if (length - i < buffer.length) {
+                                        buffer = new byte[(int) (length - i)];
+                                    }
+                                    mapped.copyTo(i, buffer, 0, buffer.length);
+                                    stream.writeRaw(buffer);
+                                }
+                                break;
+                            }
                             RRawVector raw = (RRawVector) obj;
                             byte[] data = raw.getDataWithoutCopying();
                             stream.writeInt(data.length);
@@ -1715,6 +1844,16 @@ public class RSerialize {
             return result;
         }
 
+        private void writeLength(long length) throws IOException {
+            if (length > Integer.MAX_VALUE) {
+                stream.writeInt(-1);
+                stream.writeInt((int) (length >>> 32));
+                stream.writeInt((int) length);
+            } else {
+                stream.writeInt((int) length);
+            }
+        }
+
         private void outStringVec(RStringVector vec, boolean strsxp) throws IOException {
             if (!strsxp) {
                 stream.writeInt(0);
@@ -30,6 +30,7 @@ import com.oracle.truffle.api.interop.TruffleObject;
 import com.oracle.truffle.api.vm.PolyglotEngine;
 import com.oracle.truffle.r.runtime.RStartParams;
 import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
+import com.oracle.truffle.r.runtime.rng.RRNG;
 
 /**
  * Represents custom initialization state for an R instance.
@@ -54,9 +55,22 @@ public final class ContextInfo implements TruffleObject {
     private final RContext parent;
     private final ConsoleHandler consoleHandler;
     private final int id;
+
+    /**
+     * The seed of the L'Ecuyer-CMRG stream assigned to this context by its parent, {@code null} if
+     * the context should seed its generator as usual.
+     */
+    private final int[] rngStream;
+
+    /**
+     * The template of the parent from which a {@link ContextKind#SHARE_NOTHING} context is
+     * restored, {@code null} if it is initialized from scratch.
+     */
+    private final ContextTemplate template;
     private PolyglotEngine vm;
 
-    private ContextInfo(RStartParams startParams, String[] env, ContextKind kind, RContext parent, ConsoleHandler consoleHandler, TimeZone systemTimeZone, int id) {
+    private ContextInfo(RStartParams startParams, String[] env, ContextKind kind, RContext parent, ConsoleHandler consoleHandler, TimeZone systemTimeZone, int id, int[] rngStream,
+                    ContextTemplate template) {
         this.startParams = startParams;
         this.env = env;
         this.kind = kind;
@@ -64,6 +78,8 @@ public final class ContextInfo implements TruffleObject {
         this.consoleHandler = consoleHandler;
         this.systemTimeZone = systemTimeZone;
         this.id = id;
+        this.rngStream = rngStream;
+        this.template = template;
     }
 
     public PolyglotEngine createVM() {
@@ -91,7 +107,10 @@ public final class ContextInfo implements TruffleObject {
      */
     public static ContextInfo create(RStartParams startParams, String[] env, ContextKind kind, RContext parent, ConsoleHandler consoleHandler, TimeZone systemTimeZone) {
         int id = contextInfoIds.incrementAndGet();
-        return new ContextInfo(startParams, env, kind, parent, consoleHandler, systemTimeZone, id);
+        // contexts sharing the global environment with their parent also share its generator
+        int[] rngStream = parent == null || kind == ContextKind.SHARE_PARENT_RW ? null : RRNG.nextChildStream();
+        ContextTemplate template = parent == null || kind != ContextKind.SHARE_NOTHING ? null : parent.getChildTemplate();
+        return new ContextInfo(startParams, env, kind, parent, consoleHandler, systemTimeZone, id, rngStream, template);
     }
 
     public static ContextInfo create(RStartParams startParams, String[] env, ContextKind kind, RContext parent, ConsoleHandler consoleHandler) {
@@ -130,6 +149,14 @@ public final class ContextInfo implements TruffleObject {
         return id;
     }
 
+    public int[] getRNGStream() {
+        return rngStream;
+    }
+
+    public ContextTemplate getTemplate() {
+        return template;
+    }
+
     public PolyglotEngine getVM() {
         return vm;
     }
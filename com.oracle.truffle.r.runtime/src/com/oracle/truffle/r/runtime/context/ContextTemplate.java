@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.context;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.PrimitiveMethodsInfo;
+import com.oracle.truffle.r.runtime.env.REnvironment;
+
+/**
+ * A snapshot of a fully initialized {@link RContext}, i.e., its global environment, search path,
+ * loaded namespaces and options, from which the {@link RContext.ContextKind#SHARE_NOTHING}
+ * contexts created by that context are restored (see {@link RContext#getChildTemplate()}) instead
+ * of loading the base package and evaluating the profiles again.
+ *
+ * The snapshot is a private copy of the environment graph and values of the source context, so
+ * later changes in the source context are not visible in the template. Each context restored from
+ * the template gets its own copy of the environments, while the vectors are shared between the
+ * template and all its contexts and copied on write. Closures duplicate their code only when first
+ * called, see {@link REnvironment.Copier}.
+ *
+ * State that is not part of the environments is not captured: connections, the random number
+ * generator and error handlers start fresh, native libraries are VM-wide anyway.
+ */
+public final class ContextTemplate {
+
+    private final REnvironment.ContextStateImpl environments;
+    private final Map<String, Object> options;
+    private final PrimitiveMethodsInfo primitiveMethodsInfo;
+    private final boolean methodTableDispatchOn;
+    private final boolean allowPrimitiveMethods;
+
+    private ContextTemplate(REnvironment.ContextStateImpl environments, Map<String, Object> options, PrimitiveMethodsInfo primitiveMethodsInfo, boolean methodTableDispatchOn,
+                    boolean allowPrimitiveMethods) {
+        this.environments = environments;
+        this.options = options;
+        this.primitiveMethodsInfo = primitiveMethodsInfo;
+        this.methodTableDispatchOn = methodTableDispatchOn;
+        this.allowPrimitiveMethods = allowPrimitiveMethods;
+    }
+
+    /**
+     * Creates a template from {@code context}, which must be the context of the current thread and
+     * must not be modified concurrently while the snapshot is taken.
+     */
+    @TruffleBoundary
+    public static ContextTemplate snapshot(RContext context) {
+        REnvironment.ContextStateImpl environments = REnvironment.ContextStateImpl.newContextState();
+        REnvironment.Copier copier = context.stateREnvironment.copyTo(environments, true);
+        HashMap<String, Object> options = new HashMap<>();
+        for (Map.Entry<String, Object> entry : context.stateROptions.getValues()) {
+            options.put(entry.getKey(), copier.copyValue(entry.getValue()));
+        }
+        return new ContextTemplate(environments, options, context.getPrimitiveMethodsInfo().duplicate(), context.isMethodTableDispatchOn(), context.allowPrimitiveMethods());
+    }
+
+    PrimitiveMethodsInfo getPrimitiveMethodsInfo() {
+        return primitiveMethodsInfo;
+    }
+
+    /**
+     * Replaces the (minimal) state of the freshly initialized {@code context} with a copy of this
+     * template. Invoked before the engine is activated.
+     */
+    @TruffleBoundary
+    void restore(RContext context) {
+        REnvironment.Copier copier = environments.copyTo(context.stateREnvironment, false);
+        HashMap<String, Object> contextOptions = new HashMap<>();
+        for (Map.Entry<String, Object> entry : options.entrySet()) {
+            contextOptions.put(entry.getKey(), copier.copyValue(entry.getValue()));
+        }
+        context.stateROptions.restore(contextOptions);
+        context.setMethodTableDispatchOn(methodTableDispatchOn);
+        context.setAllowPrimitiveMethods(allowPrimitiveMethods);
+    }
+}
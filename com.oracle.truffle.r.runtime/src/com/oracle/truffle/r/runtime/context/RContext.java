@@ -341,6 +341,17 @@ public final class RContext extends ExecutionContext implements TruffleObject {
 
     private PrimitiveMethodsInfo primitiveMethodsInfo;
 
+    /**
+     * The template this context is restored from, see {@link ContextTemplate}.
+     */
+    private final ContextTemplate template;
+
+    /**
+     * The template from which the {@link ContextKind#SHARE_NOTHING} contexts created by this
+     * context are restored, see {@code .fastr.context.snapshot}.
+     */
+    private ContextTemplate childTemplate;
+
     /**
      * Set to {@code true} when in embedded mode to allow other parts of the system to determine
      * whether embedded mode is in effect, <b>before</b> the initial context is created.
@@ -452,6 +463,7 @@ public final class RContext extends ExecutionContext implements TruffleObject {
         }
         this.initial = isInitial;
         this.env = env;
+        this.template = info.getTemplate();
         this.stateREnvVars = REnvVars.newContextState();
         this.stateROptions = ROptions.ContextStateImpl.newContextState(stateREnvVars);
         this.stateRProfile = RProfile.newContextState(stateREnvVars);
@@ -478,6 +490,8 @@ public final class RContext extends ExecutionContext implements TruffleObject {
         if (info.getKind() == ContextKind.SHARE_NOTHING) {
             if (info.getParent() == null) {
                 this.primitiveMethodsInfo = new PrimitiveMethodsInfo();
+            } else if (template != null) {
+                this.primitiveMethodsInfo = template.getPrimitiveMethodsInfo().duplicate();
             } else {
                 // share nothing contexts need their own copy of the primitive methods meta-data as
                 // they can run (and update this meta data) concurrently with the parent;
@@ -529,6 +543,9 @@ public final class RContext extends ExecutionContext implements TruffleObject {
         stateLazyDBCache.initialize(this);
         stateInstrumentation.initialize(this);
         stateInternalCode.initialize(this);
+        if (template != null) {
+            template.restore(this);
+        }
         state.add(State.INITIALIZED);
 
         if (!embedded) {
@@ -613,6 +630,22 @@ public final class RContext extends ExecutionContext implements TruffleObject {
         return info.getParent();
     }
 
+    /**
+     * Returns the {@link ContextTemplate} this context was restored from or {@code null} if it was
+     * initialized from scratch.
+     */
+    public ContextTemplate getTemplate() {
+        return template;
+    }
+
+    public ContextTemplate getChildTemplate() {
+        return childTemplate;
+    }
+
+    public void setChildTemplate(ContextTemplate template) {
+        this.childTemplate = template;
+    }
+
     public Env getEnv() {
         return env;
     }
@@ -625,6 +658,13 @@ public final class RContext extends ExecutionContext implements TruffleObject {
         return info.getKind();
     }
 
+    /**
+     * See {@link ContextInfo#getRNGStream()}.
+     */
+    public int[] getRNGStream() {
+        return info.getRNGStream();
+    }
+
     @TruffleBoundary
     public static RContext getThreadLocalInstance() {
         return threadLocalContext.get();
@@ -33,12 +33,15 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 /**
  * Helper for tracing memory copying events, as used by the {@code tracemem} bultin. All
  * implementors of {@link RAbstractVector} are expected to report to {@link MemoryCopyTracer} and
- * others can listen to them through {@link Listener} interface. Use method
- * {@link #setTracingState(boolean)} to enable/disable the tracing.
+ * others can listen to them through {@link Listener} interface. The tracing is enabled while any
+ * of its users, e.g. {@code tracemem}, {@code Rprof} or the {@code PerfEventTracer}, has called
+ * {@link #enable()} and not yet the matching {@link #disable()}, so that one user turning it off
+ * does not stop the reports for the others.
  */
 public final class MemoryCopyTracer {
     private static Deque<Listener> listeners = new ConcurrentLinkedDeque<>();
     private static boolean enabled;
+    private static int users;
 
     private static final Assumption noMemoryCopyTracingAssumption = Truffle.getRuntime().createAssumption("data copy tracing");
 
@@ -54,15 +57,24 @@ public final class MemoryCopyTracer {
     }
 
     /**
-     * After calling this method memory related events will be reported to the listener. This
-     * invalidates global assumption and should be used with caution.
+     * After calling this method memory related events will be reported to the listeners, until
+     * every call has been matched by a call to {@link #disable()}. This invalidates global
+     * assumption and should be used with caution.
      */
-    public static void setTracingState(boolean newState) {
-        if (enabled != newState) {
-            if (newState) {
-                noMemoryCopyTracingAssumption.invalidate();
-            }
-            enabled = newState;
+    public static synchronized void enable() {
+        if (users++ == 0) {
+            noMemoryCopyTracingAssumption.invalidate();
+            enabled = true;
+        }
+    }
+
+    /**
+     * Undoes one call to {@link #enable()}.
+     */
+    public static synchronized void disable() {
+        assert users > 0;
+        if (--users == 0) {
+            enabled = false;
         }
     }
 
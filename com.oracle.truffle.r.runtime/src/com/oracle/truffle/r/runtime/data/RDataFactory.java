@@ -42,6 +42,7 @@ import com.oracle.truffle.r.runtime.builtins.RBuiltinDescriptor;
 import com.oracle.truffle.r.runtime.data.RPromise.Closure;
 import com.oracle.truffle.r.runtime.data.RPromise.EagerFeedback;
 import com.oracle.truffle.r.runtime.data.RPromise.PromiseState;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.env.REnvironment;
 import com.oracle.truffle.r.runtime.ffi.DLL.SymbolHandle;
 import com.oracle.truffle.r.runtime.gnur.SEXPTYPE;
@@ -193,6 +194,14 @@ public final class RDataFactory {
         return traceDataCreated(new RStringVector(data, complete, dims, names));
     }
 
+    /**
+     * Creates the result of converting the integer or double vector {@code source} to character,
+     * the elements are converted lazily.
+     */
+    public static RStringVector createDeferredStringVector(RAbstractVector source) {
+        return traceDataCreated(new RStringVector(source));
+    }
+
     public static RLogicalVector createLogicalVector(int length) {
         return createLogicalVector(length, false);
     }
@@ -253,6 +262,10 @@ public final class RDataFactory {
         return traceDataCreated(new RDoubleSequence(start, stride, length));
     }
 
+    public static RDoubleVector createDeferredDoubleVector(RDeferredDoubleArithmetic deferred) {
+        return traceDataCreated(new RDoubleVector(deferred));
+    }
+
     public static RIntVector createEmptyIntVector() {
         return createIntVector(new int[0], true);
     }
@@ -472,6 +485,14 @@ public final class RDataFactory {
         return traceDataCreated(new RFunction(name, packageName, target, builtin, enclosingFrame));
     }
 
+    /**
+     * Creates a copy of the closure {@code function} enclosed by {@code enclosingFrame} that
+     * duplicates the code lazily, see {@link RFunction#RFunction(RFunction, MaterializedFrame)}.
+     */
+    public static RFunction createFunctionCopy(RFunction function, MaterializedFrame enclosingFrame) {
+        return traceDataCreated(new RFunction(function, enclosingFrame));
+    }
+
     private static final AtomicInteger environmentCount = new AtomicInteger();
 
     @TruffleBoundary
@@ -516,17 +537,28 @@ public final class RDataFactory {
     /*
      * Support for collecting information on allocations in this class. Rprofmem/Rprof register a
      * listener when active which, when memory profiling is enabled, is called with the object being
-     * allocated. Owing to the use of the Assumption, there should be no overhead when disabled.
+     * allocated. Owing to the use of the Assumption, there should be no overhead when disabled. The
+     * tracing is enabled while any of the profilers that called enableTracing has not yet called
+     * disableTracing, so that they can be active at the same time.
      */
 
     private static Deque<Listener> listeners = new ConcurrentLinkedDeque<>();
     @CompilationFinal private static boolean enabled;
+    private static int tracingUsers;
     private static final CyclicAssumption noAllocationTracingAssumption = new CyclicAssumption("data allocation");
 
-    public static void setTracingState(boolean newState) {
-        if (enabled != newState) {
+    public static synchronized void enableTracing() {
+        if (tracingUsers++ == 0) {
+            noAllocationTracingAssumption.invalidate();
+            enabled = true;
+        }
+    }
+
+    public static synchronized void disableTracing() {
+        assert tracingUsers > 0;
+        if (--tracingUsers == 0) {
             noAllocationTracingAssumption.invalidate();
-            enabled = newState;
+            enabled = false;
         }
     }
 
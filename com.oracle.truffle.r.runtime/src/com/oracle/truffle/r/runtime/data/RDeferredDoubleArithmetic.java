@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.HashSet;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.FastROptions;
+import com.oracle.truffle.r.runtime.ParallelKernels;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Deferred element-wise arithmetic on double vectors. An {@link RDoubleVector} created by
+ * {@link RDataFactory#createDeferredDoubleVector} has no store until one is requested, it only
+ * records the operation and its operands. Operands that are deferred vectors themselves are
+ * referenced by their expression, so a chain like {@code a * b + c * d - e} is evaluated in a
+ * single blocked loop once the result is materialized, without allocating the intermediate vectors.
+ *
+ * Operands are either scalars (stored as {@link Double}), {@link RDoubleVector}s or
+ * {@link RDoubleSequence}s of the full length. The reference counts of the operand vectors are
+ * incremented while the expression is pending, so that they are not updated in place before the
+ * result has been computed. They are decremented again when the result is computed or, if that
+ * never happens, once the result has been garbage collected, see {@link Release}.
+ *
+ * The stores of the operands are collected on the thread that requests the result, the workers of
+ * the parallel evaluation only read those arrays and never touch the operand vectors.
+ */
+public final class RDeferredDoubleArithmetic {
+
+    public enum Op {
+        ADD,
+        SUBTRACT,
+        MULTIPLY,
+        DIVIDE
+    }
+
+    /**
+     * Number of elements evaluated at once, the intermediate results of one block stay in cache.
+     */
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Upper bound for the number of operations in one expression, operands with larger
+     * expressions are materialized first.
+     */
+    private static final int MAX_OPERATIONS = 32;
+
+    private final Op op;
+    private final Object left;
+    private final Object right;
+    private final int length;
+    private final boolean complete;
+    private final int operations;
+    private final int height;
+
+    /**
+     * Releases the operands of a result that is dropped without being computed. The referent is the
+     * deferred vector, so the reference gets enqueued once nobody can request the result anymore.
+     * Since reference counts are not thread safe, each thread drains only the queue of the results
+     * it has created.
+     */
+    private static final class Release extends PhantomReference<RDoubleVector> {
+        private final Object left;
+        private final Object right;
+
+        private Release(RDoubleVector result, Object left, Object right, Pending owner) {
+            super(result, owner.queue);
+            this.left = left;
+            this.right = right;
+        }
+
+        private void run() {
+            release(left);
+            release(right);
+        }
+    }
+
+    private static final class Pending {
+        private final ReferenceQueue<RDoubleVector> queue = new ReferenceQueue<>();
+        private final HashSet<Release> releases = new HashSet<>();
+
+        private void drain() {
+            Release release;
+            while ((release = (Release) queue.poll()) != null) {
+                if (releases.remove(release)) {
+                    release.run();
+                }
+            }
+        }
+    }
+
+    private static final ThreadLocal<Pending> pending = ThreadLocal.withInitial(Pending::new);
+
+    /**
+     * Set while the result has not been computed, {@code null} for the resolved copies of the
+     * expression used by {@link #evaluate()}.
+     */
+    private Release release;
+
+    private RDeferredDoubleArithmetic(Op op, Object left, Object right, int length, boolean complete) {
+        this.op = op;
+        this.left = left;
+        this.right = right;
+        this.length = length;
+        this.complete = complete;
+        this.operations = 1 + operations(left) + operations(right);
+        this.height = 1 + Math.max(height(left), height(right));
+    }
+
+    /**
+     * Creates a deferred vector for {@code left op right} if it is worth it and the operands are
+     * supported, returns {@code null} otherwise. The operands must already be cast to double and
+     * the result must not get any attributes.
+     */
+    public static RDoubleVector tryCreate(Op op, RAbstractVector left, int leftLength, RAbstractVector right, int rightLength) {
+        int length = Math.max(leftLength, rightLength);
+        if (length < FastROptions.LazyArithmeticThreshold.getNonNegativeIntValue() || !FastROptions.LazyArithmetic.getBooleanValue()) {
+            return null;
+        }
+        if ((leftLength != length && leftLength != 1) || (rightLength != length && rightLength != 1)) {
+            return null;
+        }
+        Object leftOperand = operand(left, leftLength);
+        Object rightOperand = operand(right, rightLength);
+        if (leftOperand == null || rightOperand == null || operations(leftOperand) + operations(rightOperand) >= MAX_OPERATIONS) {
+            return null;
+        }
+        boolean complete = isComplete(leftOperand) && isComplete(rightOperand);
+        Pending threadPending = pending.get();
+        threadPending.drain();
+        retain(leftOperand);
+        retain(rightOperand);
+        RDeferredDoubleArithmetic deferred = new RDeferredDoubleArithmetic(op, leftOperand, rightOperand, length, complete);
+        RDoubleVector result = RDataFactory.createDeferredDoubleVector(deferred);
+        deferred.release = new Release(result, leftOperand, rightOperand, threadPending);
+        threadPending.releases.add(deferred.release);
+        return result;
+    }
+
+    private static Object operand(RAbstractVector vector, int vectorLength) {
+        if (!(vector instanceof RAbstractDoubleVector) || vector.getAttributes() != null) {
+            return null;
+        }
+        if (vectorLength == 1) {
+            return ((RAbstractDoubleVector) vector).getDataAt(0);
+        } else if (vector instanceof RDoubleVector || vector instanceof RDoubleSequence) {
+            return vector;
+        }
+        return null;
+    }
+
+    private static boolean isComplete(Object operand) {
+        if (operand instanceof Double) {
+            return !RRuntime.isNA((double) operand);
+        }
+        return ((RAbstractVector) operand).isComplete();
+    }
+
+    private static RDeferredDoubleArithmetic expression(Object operand) {
+        if (operand instanceof RDeferredDoubleArithmetic) {
+            return (RDeferredDoubleArithmetic) operand;
+        }
+        return operand instanceof RDoubleVector ? ((RDoubleVector) operand).getDeferred() : null;
+    }
+
+    private static int operations(Object operand) {
+        RDeferredDoubleArithmetic deferred = expression(operand);
+        return deferred == null ? 0 : deferred.operations;
+    }
+
+    private static int height(Object operand) {
+        RDeferredDoubleArithmetic deferred = expression(operand);
+        return deferred == null ? 0 : deferred.height;
+    }
+
+    private static void retain(Object operand) {
+        if (operand instanceof RDoubleVector && !((RDoubleVector) operand).isSharedPermanent()) {
+            ((RDoubleVector) operand).incRefCount();
+        }
+    }
+
+    private static void release(Object operand) {
+        if (operand instanceof RDoubleVector && !((RDoubleVector) operand).isSharedPermanent()) {
+            ((RDoubleVector) operand).decRefCount();
+        }
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Computes all elements of the expression and releases the operands. Must be called on the
+     * thread that owns the result.
+     */
+    @TruffleBoundary
+    double[] evaluate() {
+        double[] result = new double[length];
+        RDeferredDoubleArithmetic resolved = resolve();
+        ParallelKernels.forEachBlock(length, BLOCK_SIZE, (long) length * operations, (from, to) -> {
+            double[][] scratch = new double[height][to - from];
+            resolved.evaluate(from, to - from, result, from, scratch, 0);
+        });
+        Pending threadPending = pending.get();
+        if (release != null && threadPending.releases.remove(release)) {
+            release.clear();
+            release.run();
+        }
+        release = null;
+        threadPending.drain();
+        return result;
+    }
+
+    /**
+     * Returns a copy of this expression in which the operand vectors are replaced by their stores,
+     * or by the resolved expressions of the operands that are still pending.
+     */
+    private RDeferredDoubleArithmetic resolve() {
+        return new RDeferredDoubleArithmetic(op, resolve(left), resolve(right), length, complete);
+    }
+
+    private static Object resolve(Object operand) {
+        if (operand instanceof RDoubleVector) {
+            RDoubleVector vector = (RDoubleVector) operand;
+            RDeferredDoubleArithmetic deferred = vector.getDeferred();
+            return deferred != null ? deferred.resolve() : vector.getReadonlyStore();
+        }
+        return operand;
+    }
+
+    /**
+     * Evaluates elements {@code [from, from + n)} into {@code out[offset, offset + n)}.
+     * {@code scratch[level..]} are the buffers available to this expression and its operands.
+     */
+    private void evaluate(int from, int n, double[] out, int offset, double[][] scratch, int level) {
+        if (left instanceof Double) {
+            load(right, from, n, out, offset, scratch, level + 1);
+            applyScalarLeft((double) left, out, offset, n);
+        } else {
+            load(left, from, n, out, offset, scratch, level + 1);
+            if (right instanceof Double) {
+                applyScalarRight(out, offset, (double) right, n);
+            } else {
+                double[] tmp = scratch[level];
+                load(right, from, n, tmp, 0, scratch, level + 1);
+                apply(out, offset, tmp, n);
+            }
+        }
+    }
+
+    private static void load(Object operand, int from, int n, double[] out, int offset, double[][] scratch, int level) {
+        if (operand instanceof RDeferredDoubleArithmetic) {
+            ((RDeferredDoubleArithmetic) operand).evaluate(from, n, out, offset, scratch, level);
+        } else if (operand instanceof double[]) {
+            System.arraycopy(operand, from, out, offset, n);
+        } else {
+            RDoubleSequence sequence = (RDoubleSequence) operand;
+            double start = sequence.getStart();
+            double stride = sequence.getStride();
+            for (int i = 0; i < n; i++) {
+                out[offset + i] = start + stride * (from + i);
+            }
+        }
+    }
+
+    private void apply(double[] out, int offset, double[] r, int n) {
+        if (complete) {
+            switch (op) {
+                case ADD:
+                    for (int i = 0; i < n; i++) {
+                        out[offset + i] += r[i];
+                    }
+                    break;
+                case SUBTRACT:
+                    for (int i = 0; i < n; i++) {
+                        out[offset + i] -= r[i];
+                    }
+                    break;
+                case MULTIPLY:
+                    for (int i = 0; i < n; i++) {
+                        out[offset + i] *= r[i];
+                    }
+                    break;
+                case DIVIDE:
+                    for (int i = 0; i < n; i++) {
+                        out[offset + i] /= r[i];
+                    }
+                    break;
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                out[offset + i] = applyNA(out[offset + i], r[i]);
+            }
+        }
+    }
+
+    private void applyScalarRight(double[] out, int offset, double r, int n) {
+        if (complete) {
+            switch (op) {
+                case ADD:
+                    for (int i = 0; i < n; i++) {
+                        out[offset + i] += r;
+                    }
+                    break;
+                case SUBTRACT:
+                    for (int i = 0; i < n; i++) {
+                        out[offset + i] -= r;
+                    }
+                    break;
+                case MULTIPLY:
+                    for (int i = 0; i < n; i++) {
+                        out[offset + i] *= r;
+                    }
+                    break;
+                case DIVIDE:
+                    for (int i = 0; i < n; i++) {
+                        out[offset + i] /= r;
+                    }
+                    break;
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                out[offset + i] = applyNA(out[offset + i], r);
+            }
+        }
+    }
+
+    private void applyScalarLeft(double l, double[] out, int offset, int n) {
+        for (int i = 0; i < n; i++) {
+            out[offset + i] = complete ? apply(l, out[offset + i]) : applyNA(l, out[offset + i]);
+        }
+    }
+
+    /**
+     * Same semantics as the arithmetic nodes: NA on either side gives NA, except for
+     * {@code NaN op NA}, which gives {@code NaN}.
+     */
+    private double applyNA(double l, double r) {
+        if (RRuntime.isNA(l)) {
+            return RRuntime.DOUBLE_NA;
+        } else if (RRuntime.isNA(r)) {
+            return Double.isNaN(l) ? l : RRuntime.DOUBLE_NA;
+        }
+        return apply(l, r);
+    }
+
+    private double apply(double l, double r) {
+        switch (op) {
+            case ADD:
+                return l + r;
+            case SUBTRACT:
+                return l - r;
+            case MULTIPLY:
+                return l * r;
+            case DIVIDE:
+                return l / r;
+            default:
+                throw RInternalError.shouldNotReachHere();
+        }
+    }
+
+    @Override
+    public String toString() {
+        CompilerAsserts.neverPartOfCompilation();
+        return "(" + operandToString(left) + " " + op + " " + operandToString(right) + ")";
+    }
+
+    private static String operandToString(Object operand) {
+        if (operand instanceof RDoubleVector && ((RDoubleVector) operand).getDeferred() != null) {
+            return ((RDoubleVector) operand).getDeferred().toString();
+        }
+        return operand instanceof Double ? operand.toString() : "vector[" + ((RAbstractVector) operand).getLength() + "]";
+    }
+}
@@ -24,6 +24,7 @@ package com.oracle.truffle.r.runtime.data;
 
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.data.closures.RClosures;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
@@ -69,6 +70,27 @@ public final class RDoubleSequence extends RSequence implements RAbstractDoubleV
         return start + (getLength() - 1) * stride;
     }
 
+    @Override
+    public boolean isKnownNoNA() {
+        return Double.isFinite(start) && Double.isFinite(stride) && Double.isFinite(getEnd());
+    }
+
+    @Override
+    public RSortedness getSortedness() {
+        if (!isKnownNoNA()) {
+            return RSortedness.UNKNOWN;
+        } else if (stride == 0) {
+            return RSortedness.CONSTANT;
+        }
+        // consecutive elements may round to the same value if the stride is tiny
+        boolean strict = Math.abs(stride) > 8 * Math.ulp(Math.max(Math.abs(start), Math.abs(getEnd())));
+        if (stride > 0) {
+            return strict ? RSortedness.STRICTLY_INCREASING : RSortedness.INCREASING;
+        } else {
+            return strict ? RSortedness.STRICTLY_DECREASING : RSortedness.DECREASING;
+        }
+    }
+
     @Override
     public RAbstractVector castSafe(RType type, ConditionProfile isNAProfile) {
         // TODO might be possible to implement some of these without closures
@@ -104,7 +126,9 @@ public final class RDoubleSequence extends RSequence implements RAbstractDoubleV
 
     @Override
     public RDoubleVector materialize() {
-        return this.internalCreateVector();
+        RDoubleVector result = this.internalCreateVector();
+        PerfEventTracer.reportMaterialize(this, result);
+        return result;
     }
 
     @Override
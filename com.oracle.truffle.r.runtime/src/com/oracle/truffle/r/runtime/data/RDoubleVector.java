@@ -24,6 +24,7 @@ package com.oracle.truffle.r.runtime.data;
 
 import java.util.Arrays;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
@@ -37,14 +38,80 @@ public final class RDoubleVector extends RVector<double[]> implements RAbstractD
 
     public static final RStringVector implicitClassHeader = RDataFactory.createStringVectorFromScalar(RType.Double.getClazz());
 
-    private final double[] data;
+    private double[] data;
+
+    /**
+     * Known order of the elements, e.g. for the result of {@code sort}. This is reset on writes:
+     * by {@link #setDataAt}, {@link #getInternalStoreWithCapacity()}, {@link #getDataNonShared()},
+     * {@link #getDataTemp()} and {@link #resetDataHash()}. It is kept when the store is handed out
+     * for reading, e.g. by {@link #getInternalStore()}, so code that writes such a store must call
+     * {@link #resetDataHash()}.
+     */
+    private RSortedness sortedness = RSortedness.UNKNOWN;
+
+    /**
+     * Non-null if the contents of this vector have not been computed yet, see
+     * {@link RDeferredDoubleArithmetic}. While it is pending, {@link #data} is {@code null}, so the
+     * element accesses only need a plain read of {@link #data} and take the synchronized slow path
+     * in {@link #evaluateDeferred()} only for a vector that was not computed yet. Like any other
+     * vector, a deferred one is handed to other threads only through a synchronization point, e.g.
+     * a channel or the start of a context.
+     */
+    private RDeferredDoubleArithmetic deferred;
+
+    /**
+     * Number of elements, can be less than the length of {@link #data} if the vector was extended
+     * by {@link #growInPlace}, the remaining elements are spare capacity for further appends.
+     */
+    private int length;
 
     RDoubleVector(double[] data, boolean complete, int[] dims, RStringVector names) {
         super(complete, data.length, dims, names);
         this.data = data;
+        this.length = data.length;
         assert verify();
     }
 
+    RDoubleVector(RDeferredDoubleArithmetic deferred) {
+        super(deferred.isComplete(), deferred.getLength(), null, null);
+        this.deferred = deferred;
+        this.length = deferred.getLength();
+    }
+
+    /**
+     * Returns the pending expression if this vector has not been materialized yet.
+     */
+    public RDeferredDoubleArithmetic getDeferred() {
+        return data == null ? deferred : null;
+    }
+
+    private double[] data() {
+        double[] values = data;
+        return values != null ? values : evaluateDeferred();
+    }
+
+    @TruffleBoundary
+    private synchronized double[] evaluateDeferred() {
+        if (data == null) {
+            data = deferred.evaluate();
+            deferred = null;
+        }
+        return data;
+    }
+
+    /**
+     * Returns the store without spare capacity, for the callers that expect the length of the
+     * array to be the length of the vector.
+     */
+    private double[] trimmedData() {
+        double[] values = data();
+        if (values.length != length) {
+            values = Arrays.copyOf(values, length);
+            data = values;
+        }
+        return values;
+    }
+
     private RDoubleVector(double[] data, boolean complete, int[] dims) {
         this(data, complete, dims, null);
     }
@@ -69,23 +136,62 @@ public final class RDoubleVector extends RVector<double[]> implements RAbstractD
 
     @Override
     protected RDoubleVector internalCopy() {
-        return new RDoubleVector(Arrays.copyOf(data, data.length), this.isComplete(), null);
+        return new RDoubleVector(getDataCopy(), this.isComplete(), null);
     }
 
+    /**
+     * Returns the store trimmed to the length of the vector, so that consumers can rely on its
+     * length. A vector that is still being grown should be accessed through
+     * {@link #getInternalStoreWithCapacity()} instead. The sortedness is kept, so code writing the
+     * store other than through {@link #setDataAt} must call {@link #resetDataHash()}.
+     */
     @Override
     public double[] getInternalStore() {
-        return data;
+        return trimmedData();
+    }
+
+    @Override
+    public double[] getInternalStoreWithCapacity() {
+        sortedness = RSortedness.UNKNOWN;
+        return data();
+    }
+
+    /**
+     * Returns the store for reading only, without trimming it, so it can be longer than the vector,
+     * see {@link #growInPlace}.
+     */
+    public double[] getReadonlyStore() {
+        return data();
+    }
+
+    @Override
+    public RSortedness getSortedness() {
+        return sortedness;
+    }
+
+    @Override
+    public boolean isKnownNoNA() {
+        return sortedness != RSortedness.UNKNOWN;
+    }
+
+    /**
+     * Records that the elements are sorted in the given order and contain neither {@code NA} nor
+     * {@code NaN} values.
+     */
+    public void setSortedness(RSortedness sortedness) {
+        this.sortedness = sortedness;
     }
 
     @Override
     public void setDataAt(Object store, int index, double value) {
-        assert data == store;
+        assert data() == store;
+        sortedness = RSortedness.UNKNOWN;
         ((double[]) store)[index] = value;
     }
 
     @Override
     public double getDataAt(Object store, int index) {
-        assert data == store;
+        assert data() == store;
         return ((double[]) store)[index];
     }
 
@@ -104,7 +210,7 @@ public final class RDoubleVector extends RVector<double[]> implements RAbstractD
 
     @Override
     public int getLength() {
-        return data.length;
+        return length;
     }
 
     @Override
@@ -115,8 +221,9 @@ public final class RDoubleVector extends RVector<double[]> implements RAbstractD
     @Override
     protected boolean internalVerify() {
         if (isComplete()) {
-            for (double d : data) {
-                if (d == RRuntime.DOUBLE_NA) {
+            double[] values = data();
+            for (int i = 0; i < length; i++) {
+                if (values[i] == RRuntime.DOUBLE_NA) {
                     return false;
                 }
             }
@@ -126,12 +233,12 @@ public final class RDoubleVector extends RVector<double[]> implements RAbstractD
 
     @Override
     public double getDataAt(int i) {
-        return data[i];
+        return data()[i];
     }
 
     @Override
     public double[] getDataCopy() {
-        return Arrays.copyOf(data, data.length);
+        return Arrays.copyOf(data(), length);
     }
 
     /**
@@ -140,17 +247,24 @@ public final class RDoubleVector extends RVector<double[]> implements RAbstractD
      */
     @Override
     public double[] getDataWithoutCopying() {
-        return data;
+        return trimmedData();
+    }
+
+    @Override
+    protected void elementsChanged() {
+        sortedness = RSortedness.UNKNOWN;
     }
 
     @Override
     public RDoubleVector copyWithNewDimensions(int[] newDimensions) {
-        return RDataFactory.createDoubleVector(data, isComplete(), newDimensions);
+        sortedness = RSortedness.UNKNOWN;
+        return RDataFactory.createDoubleVector(trimmedData(), isComplete(), newDimensions);
     }
 
     public RDoubleVector updateDataAt(int i, double right, NACheck valueNACheck) {
         assert !this.isShared();
-        data[i] = right;
+        sortedness = RSortedness.UNKNOWN;
+        data()[i] = right;
         if (valueNACheck.check(right)) {
             complete = false;
         }
@@ -180,16 +294,34 @@ public final class RDoubleVector extends RVector<double[]> implements RAbstractD
     }
 
     private double[] copyResizedData(int size, boolean fillNA) {
-        double[] newData = Arrays.copyOf(data, size);
-        return resizeData(newData, this.data, this.getLength(), fillNA);
+        double[] values = data();
+        double[] newData = Arrays.copyOf(values, size);
+        return resizeData(newData, values, length, fillNA);
     }
 
     @Override
     protected RDoubleVector internalCopyResized(int size, boolean fillNA) {
-        boolean isComplete = isComplete() && ((data.length >= size) || !fillNA);
+        boolean isComplete = isComplete() && ((getLength() >= size) || !fillNA);
         return RDataFactory.createDoubleVector(copyResizedData(size, fillNA), isComplete);
     }
 
+    @Override
+    public boolean growInPlace(int newLength, boolean fillNA) {
+        assert !isShared() && newLength >= length;
+        double[] values = data();
+        if (newLength > values.length) {
+            values = Arrays.copyOf(values, growCapacity(values.length, newLength));
+            data = values;
+        }
+        if (fillNA && newLength > length) {
+            Arrays.fill(values, length, newLength, RRuntime.DOUBLE_NA);
+            complete = false;
+        }
+        sortedness = RSortedness.UNKNOWN;
+        length = newLength;
+        return true;
+    }
+
     @Override
     public RDoubleVector materialize() {
         return this;
@@ -203,7 +335,8 @@ public final class RDoubleVector extends RVector<double[]> implements RAbstractD
     @Override
     public void transferElementSameType(int toIndex, RAbstractVector fromVector, int fromIndex) {
         RAbstractDoubleVector other = (RAbstractDoubleVector) fromVector;
-        data[toIndex] = other.getDataAt(fromIndex);
+        sortedness = RSortedness.UNKNOWN;
+        data()[toIndex] = other.getDataAt(fromIndex);
     }
 
     @Override
@@ -22,14 +22,17 @@
  */
 package com.oracle.truffle.r.runtime.data;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.RootCallTarget;
 import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.r.runtime.HasSignature;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.VirtualEvalFrame;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.builtins.RBuiltinDescriptor;
 import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.env.frame.FrameSlotChangeMonitor;
 
 /**
  * An instance of {@link RFunction} represents a function defined in R. The properties of a function
@@ -49,11 +52,17 @@ public final class RFunction extends RSharingAttributeStorage implements RTypedV
 
     private final String name;
     private final String packageName;
-    private final RootCallTarget target;
+    private RootCallTarget target;
     private final RBuiltinDescriptor builtin;
 
     private final MaterializedFrame enclosingFrame;
 
+    /**
+     * The call target of the closure this one was copied from while {@link #target} is
+     * {@code null}, see {@link #RFunction(RFunction, MaterializedFrame)}.
+     */
+    private RootCallTarget sourceTarget;
+
     RFunction(String name, String packageName, RootCallTarget target, RBuiltinDescriptor builtin, MaterializedFrame enclosingFrame) {
         this.packageName = packageName;
         this.target = target;
@@ -66,6 +75,23 @@ public final class RFunction extends RSharingAttributeStorage implements RTypedV
         this.enclosingFrame = enclosingFrame instanceof VirtualEvalFrame ? ((VirtualEvalFrame) enclosingFrame).getOriginalFrame() : enclosingFrame;
     }
 
+    /**
+     * Creates a copy of the closure {@code function} on {@code enclosingFrame}, the copy of its
+     * enclosing frame in another environment graph. The code needs a frame descriptor of its own
+     * for the new enclosing frame, but it is only duplicated when the copy is first called or
+     * inspected through {@link #getTarget()}, until then the copy refers to the call target of
+     * {@code function}.
+     */
+    RFunction(RFunction function, MaterializedFrame enclosingFrame) {
+        assert !function.isBuiltin();
+        this.packageName = function.packageName;
+        this.builtin = null;
+        this.name = function.name;
+        this.enclosingFrame = enclosingFrame;
+        RootCallTarget functionTarget = function.target;
+        this.sourceTarget = functionTarget != null ? functionTarget : function.sourceTarget;
+    }
+
     @Override
     public RType getRType() {
         return isBuiltin() ? RType.Builtin : RType.Closure;
@@ -88,11 +114,23 @@ public final class RFunction extends RSharingAttributeStorage implements RTypedV
     }
 
     public RootCallTarget getTarget() {
+        RootCallTarget value = target;
+        return value != null ? value : duplicateTarget();
+    }
+
+    @TruffleBoundary
+    private synchronized RootCallTarget duplicateTarget() {
+        if (target == null) {
+            RootCallTarget newTarget = ((HasSignature) sourceTarget.getRootNode()).duplicateWithNewFrameDescriptor();
+            FrameSlotChangeMonitor.initializeEnclosingFrame(newTarget.getRootNode().getFrameDescriptor(), enclosingFrame);
+            target = newTarget;
+            sourceTarget = null;
+        }
         return target;
     }
 
     public RootNode getRootNode() {
-        return target.getRootNode();
+        return getTarget().getRootNode();
     }
 
     public MaterializedFrame getEnclosingFrame() {
@@ -108,7 +146,8 @@ public final class RFunction extends RSharingAttributeStorage implements RTypedV
 
     @Override
     public String toString() {
-        return target.toString();
+        RootCallTarget value = target;
+        return (value != null ? value : sourceTarget).toString();
     }
 
     @Override
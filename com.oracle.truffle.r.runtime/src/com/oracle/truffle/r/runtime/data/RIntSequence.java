@@ -24,6 +24,7 @@ package com.oracle.truffle.r.runtime.data;
 
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.data.closures.RClosures;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
@@ -103,13 +104,25 @@ public final class RIntSequence extends RSequence implements RAbstractIntVector
         return "[" + start + " - " + getEnd() + "]";
     }
 
+    @Override
+    public RSortedness getSortedness() {
+        return RSortedness.fromStride(Integer.signum(stride));
+    }
+
+    @Override
+    public boolean isKnownNoNA() {
+        return true;
+    }
+
     public int getEnd() {
         return start + (getLength() - 1) * stride;
     }
 
     @Override
     public RIntVector materialize() {
-        return this.internalCreateVector();
+        RIntVector result = this.internalCreateVector();
+        PerfEventTracer.reportMaterialize(this, result);
+        return result;
     }
 
     @Override
@@ -37,11 +37,27 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
 
     public static final RStringVector implicitClassHeader = RDataFactory.createStringVectorFromScalar(RType.Integer.getClazz());
 
-    private final int[] data;
+    private int[] data;
+
+    /**
+     * Known order of the elements, e.g. for the result of {@code sort}. This is reset on writes:
+     * by {@link #setDataAt}, {@link #getInternalStoreWithCapacity()}, {@link #getDataNonShared()},
+     * {@link #getDataTemp()} and {@link #resetDataHash()}. It is kept when the store is handed out
+     * for reading, e.g. by {@link #getInternalStore()}, so code that writes such a store must call
+     * {@link #resetDataHash()}.
+     */
+    private RSortedness sortedness = RSortedness.UNKNOWN;
+
+    /**
+     * Number of elements, can be less than the length of {@link #data} if the vector was extended
+     * by {@link #growInPlace}, the remaining elements are spare capacity for further appends.
+     */
+    private int length;
 
     RIntVector(int[] data, boolean complete, int[] dims, RStringVector names) {
         super(complete, data.length, dims, names);
         this.data = data;
+        this.length = data.length;
         assert verify();
     }
 
@@ -67,11 +83,48 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
         }
     }
 
+    /**
+     * Returns the store trimmed to the length of the vector, so that consumers can rely on its
+     * length. A vector that is still being grown should be accessed through
+     * {@link #getInternalStoreWithCapacity()} instead. The sortedness is kept, so code writing the
+     * store other than through {@link #setDataAt} must call {@link #resetDataHash()}.
+     */
     @Override
     public int[] getInternalStore() {
+        return trimmedData();
+    }
+
+    @Override
+    public int[] getInternalStoreWithCapacity() {
+        sortedness = RSortedness.UNKNOWN;
         return data;
     }
 
+    /**
+     * Returns the store for reading only, without trimming it, so it can be longer than the vector,
+     * see {@link #growInPlace}.
+     */
+    public int[] getReadonlyStore() {
+        return data;
+    }
+
+    @Override
+    public RSortedness getSortedness() {
+        return sortedness;
+    }
+
+    @Override
+    public boolean isKnownNoNA() {
+        return isComplete();
+    }
+
+    /**
+     * Records that the elements are sorted in the given order. The vector must be complete.
+     */
+    public void setSortedness(RSortedness sortedness) {
+        this.sortedness = sortedness;
+    }
+
     @Override
     public int getDataAt(int index) {
         return data[index];
@@ -86,12 +139,13 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
     @Override
     public void setDataAt(Object store, int index, int value) {
         assert data == store;
+        sortedness = RSortedness.UNKNOWN;
         ((int[]) store)[index] = value;
     }
 
     @Override
     protected RIntVector internalCopy() {
-        return new RIntVector(Arrays.copyOf(data, data.length), isComplete(), null);
+        return new RIntVector(Arrays.copyOf(data, length), isComplete(), null);
     }
 
     public RIntVector copyResetData(int[] newData) {
@@ -109,7 +163,7 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
 
     @Override
     public int getLength() {
-        return data.length;
+        return length;
     }
 
     @Override
@@ -120,8 +174,8 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
     @Override
     protected boolean internalVerify() {
         if (isComplete()) {
-            for (int x : data) {
-                if (x == RRuntime.INT_NA) {
+            for (int i = 0; i < length; i++) {
+                if (data[i] == RRuntime.INT_NA) {
                     return false;
                 }
             }
@@ -131,7 +185,18 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
 
     @Override
     public int[] getDataCopy() {
-        return Arrays.copyOf(data, data.length);
+        return Arrays.copyOf(data, length);
+    }
+
+    /**
+     * Returns the store without spare capacity, for the callers that expect the length of the
+     * array to be the length of the vector.
+     */
+    private int[] trimmedData() {
+        if (data.length != length) {
+            data = Arrays.copyOf(data, length);
+        }
+        return data;
     }
 
     /**
@@ -140,16 +205,23 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
      */
     @Override
     public int[] getDataWithoutCopying() {
-        return data;
+        return trimmedData();
+    }
+
+    @Override
+    protected void elementsChanged() {
+        sortedness = RSortedness.UNKNOWN;
     }
 
     @Override
     public RIntVector copyWithNewDimensions(int[] newDimensions) {
-        return RDataFactory.createIntVector(data, isComplete(), newDimensions);
+        sortedness = RSortedness.UNKNOWN;
+        return RDataFactory.createIntVector(trimmedData(), isComplete(), newDimensions);
     }
 
     public RIntVector updateDataAt(int i, int right, NACheck valueNACheck) {
         assert !this.isShared();
+        sortedness = RSortedness.UNKNOWN;
         data[i] = right;
         if (valueNACheck.check(right)) {
             setComplete(false);
@@ -185,10 +257,25 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
 
     @Override
     protected RIntVector internalCopyResized(int size, boolean fillNA) {
-        boolean isComplete = isComplete() && ((data.length >= size) || !fillNA);
+        boolean isComplete = isComplete() && ((length >= size) || !fillNA);
         return RDataFactory.createIntVector(copyResizedData(size, fillNA), isComplete);
     }
 
+    @Override
+    public boolean growInPlace(int newLength, boolean fillNA) {
+        assert !isShared() && newLength >= length;
+        if (newLength > data.length) {
+            data = Arrays.copyOf(data, growCapacity(data.length, newLength));
+        }
+        if (fillNA && newLength > length) {
+            Arrays.fill(data, length, newLength, RRuntime.INT_NA);
+            complete = false;
+        }
+        sortedness = RSortedness.UNKNOWN;
+        length = newLength;
+        return true;
+    }
+
     @Override
     public RIntVector materialize() {
         return this;
@@ -202,6 +289,7 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
     @Override
     public void transferElementSameType(int toIndex, RAbstractVector fromVector, int fromIndex) {
         RAbstractIntVector other = (RAbstractIntVector) fromVector;
+        sortedness = RSortedness.UNKNOWN;
         data[toIndex] = other.getDataAt(fromIndex);
     }
 
@@ -217,6 +305,7 @@ public final class RIntVector extends RVector<int[]> implements RAbstractIntVect
 
     @Override
     public void setElement(int i, Object value) {
+        sortedness = RSortedness.UNKNOWN;
         data[i] = (int) value;
     }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.data.closures.RClosures;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * A double vector stored in a memory-mapped file, see {@link RMappedVector}.
+ */
+public final class RMappedDoubleVector extends RMappedVector implements RAbstractDoubleVector {
+
+    private static final int SHIFT = chunkShift(3);
+    private static final int MASK = (1 << SHIFT) - 1;
+
+    private final DoubleBuffer[] chunks;
+
+    RMappedDoubleVector(String path, long length, boolean writable, ByteBuffer[] mapped) {
+        super(path, length, writable);
+        this.chunks = new DoubleBuffer[mapped.length];
+        for (int i = 0; i < mapped.length; i++) {
+            chunks[i] = mapped[i].asDoubleBuffer();
+        }
+    }
+
+    @Override
+    public DoubleBuffer[] getInternalStore() {
+        return chunks;
+    }
+
+    @Override
+    public DoubleBuffer getDirectBuffer() {
+        return chunks.length == 1 && isWritable() ? chunks[0] : null;
+    }
+
+    @Override
+    public double getDataAt(int index) {
+        return chunks[index >>> SHIFT].get(index & MASK);
+    }
+
+    @Override
+    public double getDataAt(Object store, int index) {
+        return ((DoubleBuffer[]) store)[index >>> SHIFT].get(index & MASK);
+    }
+
+    @Override
+    public void setDataAt(Object store, int index, double value) {
+        assert isWritable();
+        ((DoubleBuffer[]) store)[index >>> SHIFT].put(index & MASK, value);
+    }
+
+    public double getDataAt(long index) {
+        return chunks[(int) (index >>> SHIFT)].get((int) (index & MASK));
+    }
+
+    public void setDataAt(long index, double value) {
+        assert isWritable();
+        chunks[(int) (index >>> SHIFT)].put((int) (index & MASK), value);
+    }
+
+    @Override
+    public Object getDataAtAsObject(long index) {
+        return getDataAt(index);
+    }
+
+    @Override
+    public void setDataAtAsObject(long index, Object value) {
+        setDataAt(index, (Double) value);
+    }
+
+    /**
+     * Copies the elements {@code [from, from + n)} to {@code dest}, chunk by chunk.
+     */
+    @TruffleBoundary
+    public void copyTo(long from, double[] dest, int destOffset, int n) {
+        int done = 0;
+        while (done < n) {
+            long index = from + done;
+            DoubleBuffer chunk = chunks[(int) (index >>> SHIFT)].duplicate();
+            chunk.position((int) (index & MASK));
+            int count = Math.min(n - done, chunk.remaining());
+            chunk.get(dest, destOffset + done, count);
+            done += count;
+        }
+    }
+
+    @Override
+    public RAbstractVector castSafe(RType type, ConditionProfile isNAProfile) {
+        switch (type) {
+            case Double:
+                return this;
+            case Integer:
+                return RClosures.createDoubleToIntVector(this);
+            case Complex:
+                return RClosures.createDoubleToComplexVector(this);
+            case Character:
+                return RClosures.createDoubleToStringVector(this);
+            case List:
+                return RClosures.createAbstractVectorToListVector(this);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public RDoubleVector materialize() {
+        double[] data = new double[getLength()];
+        copyTo(0, data, 0, data.length);
+        RDoubleVector result = RDataFactory.createDoubleVector(data, isComplete());
+        MemoryCopyTracer.reportCopying(this, result);
+        return result;
+    }
+
+    @Override
+    public RDoubleVector copyResized(int size, boolean fillNA) {
+        double[] data = new double[size];
+        copyTo(0, data, 0, Math.min(size, getLength()));
+        RDoubleVector.resizeData(data, data, getLength(), fillNA);
+        return RDataFactory.createDoubleVector(data, isComplete() && !(fillNA && size > getLength()));
+    }
+
+    @Override
+    public RDoubleVector createEmptySameType(int newLength, boolean newIsComplete) {
+        return RDataFactory.createDoubleVector(new double[newLength], newIsComplete);
+    }
+
+    @Override
+    public RStringVector getImplicitClass() {
+        return RDoubleVector.implicitClassHeader;
+    }
+}
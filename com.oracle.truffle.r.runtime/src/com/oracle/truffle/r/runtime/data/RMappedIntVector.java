@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.data.closures.RClosures;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * An integer vector stored in a memory-mapped file, see {@link RMappedVector}.
+ */
+public final class RMappedIntVector extends RMappedVector implements RAbstractIntVector {
+
+    private static final int SHIFT = chunkShift(2);
+    private static final int MASK = (1 << SHIFT) - 1;
+
+    private final IntBuffer[] chunks;
+
+    RMappedIntVector(String path, long length, boolean writable, ByteBuffer[] mapped) {
+        super(path, length, writable);
+        this.chunks = new IntBuffer[mapped.length];
+        for (int i = 0; i < mapped.length; i++) {
+            chunks[i] = mapped[i].asIntBuffer();
+        }
+    }
+
+    @Override
+    public IntBuffer[] getInternalStore() {
+        return chunks;
+    }
+
+    @Override
+    public IntBuffer getDirectBuffer() {
+        return chunks.length == 1 && isWritable() ? chunks[0] : null;
+    }
+
+    @Override
+    public int getDataAt(int index) {
+        return chunks[index >>> SHIFT].get(index & MASK);
+    }
+
+    @Override
+    public int getDataAt(Object store, int index) {
+        return ((IntBuffer[]) store)[index >>> SHIFT].get(index & MASK);
+    }
+
+    @Override
+    public void setDataAt(Object store, int index, int value) {
+        assert isWritable();
+        ((IntBuffer[]) store)[index >>> SHIFT].put(index & MASK, value);
+    }
+
+    public int getDataAt(long index) {
+        return chunks[(int) (index >>> SHIFT)].get((int) (index & MASK));
+    }
+
+    public void setDataAt(long index, int value) {
+        assert isWritable();
+        chunks[(int) (index >>> SHIFT)].put((int) (index & MASK), value);
+    }
+
+    @Override
+    public Object getDataAtAsObject(long index) {
+        return getDataAt(index);
+    }
+
+    @Override
+    public void setDataAtAsObject(long index, Object value) {
+        setDataAt(index, (Integer) value);
+    }
+
+    /**
+     * Copies the elements {@code [from, from + n)} to {@code dest}, chunk by chunk.
+     */
+    @TruffleBoundary
+    public void copyTo(long from, int[] dest, int destOffset, int n) {
+        int done = 0;
+        while (done < n) {
+            long index = from + done;
+            IntBuffer chunk = chunks[(int) (index >>> SHIFT)].duplicate();
+            chunk.position((int) (index & MASK));
+            int count = Math.min(n - done, chunk.remaining());
+            chunk.get(dest, destOffset + done, count);
+            done += count;
+        }
+    }
+
+    @Override
+    public RAbstractVector castSafe(RType type, ConditionProfile isNAProfile) {
+        switch (type) {
+            case Double:
+                return RClosures.createIntToDoubleVector(this);
+            case Integer:
+                return this;
+            case Complex:
+                return RClosures.createIntToComplexVector(this);
+            case Character:
+                return RClosures.createIntToStringVector(this);
+            case List:
+                return RClosures.createAbstractVectorToListVector(this);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public RIntVector materialize() {
+        int[] data = new int[getLength()];
+        copyTo(0, data, 0, data.length);
+        RIntVector result = RDataFactory.createIntVector(data, isComplete());
+        MemoryCopyTracer.reportCopying(this, result);
+        return result;
+    }
+
+    @Override
+    public RIntVector copyResized(int size, boolean fillNA) {
+        int[] data = new int[size];
+        copyTo(0, data, 0, Math.min(size, getLength()));
+        RIntVector.resizeData(data, data, getLength(), fillNA);
+        return RDataFactory.createIntVector(data, isComplete() && !(fillNA && size > getLength()));
+    }
+
+    @Override
+    public RIntVector createEmptySameType(int newLength, boolean newIsComplete) {
+        return RDataFactory.createIntVector(new int[newLength], newIsComplete);
+    }
+
+    @Override
+    public RStringVector getImplicitClass() {
+        return RIntVector.implicitClassHeader;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import java.nio.ByteBuffer;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.data.closures.RClosures;
+import com.oracle.truffle.r.runtime.data.model.RAbstractRawVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * A raw vector stored in a memory-mapped file, see {@link RMappedVector}.
+ */
+public final class RMappedRawVector extends RMappedVector implements RAbstractRawVector {
+
+    private static final int SHIFT = chunkShift(0);
+    private static final int MASK = (1 << SHIFT) - 1;
+
+    private final ByteBuffer[] chunks;
+
+    RMappedRawVector(String path, long length, boolean writable, ByteBuffer[] mapped) {
+        super(path, length, writable);
+        this.chunks = mapped;
+        // raw vectors never contain NA
+        setComplete(true);
+    }
+
+    @Override
+    public ByteBuffer[] getInternalStore() {
+        return chunks;
+    }
+
+    @Override
+    public ByteBuffer getDirectBuffer() {
+        return chunks.length == 1 && isWritable() ? chunks[0] : null;
+    }
+
+    @Override
+    public byte getRawDataAt(int index) {
+        return chunks[index >>> SHIFT].get(index & MASK);
+    }
+
+    @Override
+    public RRaw getDataAt(int index) {
+        return RDataFactory.createRaw(getRawDataAt(index));
+    }
+
+    @Override
+    public byte getRawDataAt(Object store, int index) {
+        return ((ByteBuffer[]) store)[index >>> SHIFT].get(index & MASK);
+    }
+
+    @Override
+    public void setRawDataAt(Object store, int index, byte value) {
+        assert isWritable();
+        ((ByteBuffer[]) store)[index >>> SHIFT].put(index & MASK, value);
+    }
+
+    public byte getRawDataAt(long index) {
+        return chunks[(int) (index >>> SHIFT)].get((int) (index & MASK));
+    }
+
+    public void setRawDataAt(long index, byte value) {
+        assert isWritable();
+        chunks[(int) (index >>> SHIFT)].put((int) (index & MASK), value);
+    }
+
+    @Override
+    public Object getDataAtAsObject(long index) {
+        return RDataFactory.createRaw(getRawDataAt(index));
+    }
+
+    @Override
+    public void setDataAtAsObject(long index, Object value) {
+        setRawDataAt(index, ((RRaw) value).getValue());
+    }
+
+    /**
+     * Copies the elements {@code [from, from + n)} to {@code dest}, chunk by chunk.
+     */
+    @TruffleBoundary
+    public void copyTo(long from, byte[] dest, int destOffset, int n) {
+        int done = 0;
+        while (done < n) {
+            long index = from + done;
+            ByteBuffer chunk = chunks[(int) (index >>> SHIFT)].duplicate();
+            chunk.position((int) (index & MASK));
+            int count = Math.min(n - done, chunk.remaining());
+            chunk.get(dest, destOffset + done, count);
+            done += count;
+        }
+    }
+
+    @Override
+    public RAbstractVector castSafe(RType type, ConditionProfile isNAProfile) {
+        switch (type) {
+            case Raw:
+                return this;
+            case Integer:
+                return RClosures.createRawToIntVector(this);
+            case Double:
+                return RClosures.createRawToDoubleVector(this);
+            case Complex:
+                return RClosures.createRawToComplexVector(this);
+            case Character:
+                return RClosures.createRawToStringVector(this);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public RRawVector materialize() {
+        byte[] data = new byte[getLength()];
+        copyTo(0, data, 0, data.length);
+        RRawVector result = RDataFactory.createRawVector(data);
+        MemoryCopyTracer.reportCopying(this, result);
+        return result;
+    }
+
+    @Override
+    public RVector<?> copyResized(int size, boolean fillNA) {
+        return materialize().copyResized(size, fillNA);
+    }
+
+    @Override
+    public RRawVector createEmptySameType(int newLength, boolean newIsComplete) {
+        assert newIsComplete;
+        return RDataFactory.createRawVector(new byte[newLength]);
+    }
+
+    @Override
+    public RStringVector getImplicitClass() {
+        return RRawVector.implicitClassHeader;
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * A vector whose elements live in a memory-mapped file instead of a Java array, so that its size
+ * is not limited by the heap and only the pages that are actually accessed are loaded. The file
+ * contains the elements in native byte order without any header, i.e. the format produced by
+ * {@code writeBin(x, con, size = <element size>)}.
+ *
+ * The internal store is the array of buffers mapping consecutive chunks of the file (a single
+ * mapping is limited to 2GB), the access nodes read the elements through it without copying. A
+ * mapped vector has no reference count and any number of variables may refer to it, so like a
+ * shared vector it is never updated by R code: subassignment and all other operations that modify
+ * a vector work on a copy in the heap, created by {@link #materialize()}, and leave the file alone.
+ * The file of a writable mapped vector is only written explicitly, through
+ * {@link #setDataAtAsObject(long, Object)} as used by {@code .fastr.mmap.write}, and such writes
+ * are visible through all references to the vector.
+ *
+ * {@link #createOffHeap} creates the same kind of vector in anonymous off-heap memory, which is
+ * what native code gets a pointer to without copying.
+ *
+ * Mapped vectors may have more than {@link Integer#MAX_VALUE} elements. Such long vectors report
+ * their length only through {@link #getLongLength()}, {@link #getLength()} raises the
+ * {@code "long vectors not supported yet"} error known from GnuR. The operations that support long
+ * vectors ({@code length}, {@code [}, {@code [[}, {@code .fastr.mmap.write} and serialization) use
+ * the {@code long} accessors of the concrete classes. Subassignment to a long vector is an error,
+ * since it cannot be copied to the heap.
+ */
+public abstract class RMappedVector implements RAbstractVector {
+
+    /**
+     * Log2 of the size of the chunks mapped by one buffer.
+     */
+    private static final int CHUNK_SHIFT_BYTES = 30;
+
+    private final String path;
+    private final long length;
+    private final boolean writable;
+    private boolean complete;
+
+    protected RMappedVector(String path, long length, boolean writable) {
+        this.path = path;
+        this.length = length;
+        this.writable = writable;
+    }
+
+    /**
+     * Maps {@code length} elements of {@code type} from the file at {@code path}. A negative
+     * {@code length} maps the whole file. A writable mapping creates or extends the file if needed,
+     * extended parts are filled with zeros.
+     */
+    @TruffleBoundary
+    public static RMappedVector create(RType type, String path, long length, boolean writable) throws IOException {
+        int elementShift = elementShift(type);
+        StandardOpenOption[] options = writable ? new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE}
+                        : new StandardOpenOption[]{StandardOpenOption.READ};
+        try (FileChannel channel = FileChannel.open(Paths.get(path), options)) {
+            long size = channel.size();
+            long elements = length < 0 ? size >> elementShift : length;
+            long bytes = elements << elementShift;
+            if (bytes > size && !writable) {
+                throw new IOException("file is shorter than " + elements + " elements");
+            }
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((bytes + (1L << CHUNK_SHIFT_BYTES) - 1) >> CHUNK_SHIFT_BYTES)];
+            for (int i = 0; i < chunks.length; i++) {
+                long offset = (long) i << CHUNK_SHIFT_BYTES;
+                chunks[i] = channel.map(writable ? MapMode.READ_WRITE : MapMode.READ_ONLY, offset, Math.min(bytes - offset, 1L << CHUNK_SHIFT_BYTES));
+                chunks[i].order(ByteOrder.nativeOrder());
+            }
+            return create(type, path, elements, writable, chunks);
+        }
+    }
+
+    /**
+     * Allocates a writable vector of {@code length} elements of {@code type} in off-heap memory
+     * instead of a file, filled with zeros. Unlike the arrays of heap vectors, the memory does not
+     * move, so native code can access it directly, see {@link #getDirectBuffer()}. The
+     * {@link #getPath() path} of such a vector is {@code null}.
+     */
+    @TruffleBoundary
+    public static RMappedVector createOffHeap(RType type, long length) {
+        int elementShift = elementShift(type);
+        long bytes = length << elementShift;
+        ByteBuffer[] chunks = new ByteBuffer[(int) ((bytes + (1L << CHUNK_SHIFT_BYTES) - 1) >> CHUNK_SHIFT_BYTES)];
+        for (int i = 0; i < chunks.length; i++) {
+            long offset = (long) i << CHUNK_SHIFT_BYTES;
+            chunks[i] = ByteBuffer.allocateDirect((int) Math.min(bytes - offset, 1L << CHUNK_SHIFT_BYTES));
+            chunks[i].order(ByteOrder.nativeOrder());
+        }
+        return create(type, null, length, true, chunks);
+    }
+
+    private static RMappedVector create(RType type, String path, long length, boolean writable, ByteBuffer[] chunks) {
+        switch (type) {
+            case Double:
+                return new RMappedDoubleVector(path, length, writable, chunks);
+            case Integer:
+                return new RMappedIntVector(path, length, writable, chunks);
+            case Raw:
+                return new RMappedRawVector(path, length, writable, chunks);
+            default:
+                throw RInternalError.shouldNotReachHere();
+        }
+    }
+
+    /**
+     * Returns the log2 of the element size of the supported types, -1 for all other types.
+     */
+    public static int elementShift(RType type) {
+        switch (type) {
+            case Double:
+                return 3;
+            case Integer:
+                return 2;
+            case Raw:
+                return 0;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Number of elements per chunk for elements of size {@code 1 << elementShift}.
+     */
+    protected static int chunkShift(int elementShift) {
+        return CHUNK_SHIFT_BYTES - elementShift;
+    }
+
+    public final String getPath() {
+        return path;
+    }
+
+    public final boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * Returns {@code true} if the vector has more than {@link Integer#MAX_VALUE} elements.
+     */
+    public final boolean isLong() {
+        return length > Integer.MAX_VALUE;
+    }
+
+    @Override
+    public final long getLongLength() {
+        return length;
+    }
+
+    @Override
+    public final int getLength() {
+        if (length > Integer.MAX_VALUE) {
+            throw RError.error(RError.SHOW_CALLER, RError.Message.LONG_VECTORS_NOT_SUPPORTED);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Reads the element at {@code index}, which may exceed the {@code int} range.
+     */
+    public abstract Object getDataAtAsObject(long index);
+
+    /**
+     * Writes {@code value}, which must be an element of the same type, at {@code index}.
+     */
+    public abstract void setDataAtAsObject(long index, Object value);
+
+    @Override
+    public abstract Object getInternalStore();
+
+    /**
+     * Returns the buffer holding all elements if the memory can be handed out to native code as a
+     * single block, i.e. if the vector is writable and fits into one chunk, otherwise {@code null}.
+     */
+    public abstract Buffer getDirectBuffer();
+
+    @Override
+    public RAbstractContainer resize(int size) {
+        return materialize().resize(size);
+    }
+
+    /**
+     * Nothing is known about the contents of the file, so a mapped vector is not complete unless
+     * {@link #setComplete(boolean)} says otherwise.
+     */
+    @Override
+    public final boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public final void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    @Override
+    public final boolean hasDimensions() {
+        return false;
+    }
+
+    @Override
+    public final int[] getDimensions() {
+        return null;
+    }
+
+    @Override
+    public void setDimensions(int[] newDimensions) {
+        // should only be used on materialized vector
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public final RAbstractVector copy() {
+        return materialize();
+    }
+
+    @Override
+    public final RAbstractVector copyDropAttributes() {
+        return materialize();
+    }
+
+    @Override
+    public final RAbstractVector copyWithNewDimensions(int[] newDimensions) {
+        return materialize().copyWithNewDimensions(newDimensions);
+    }
+
+    @Override
+    public final RStringVector getNames(RAttributeProfiles attrProfiles) {
+        return null;
+    }
+
+    @Override
+    public void setNames(RStringVector newNames) {
+        // should only be used on materialized vector
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public final RList getDimNames(RAttributeProfiles attrProfiles) {
+        return null;
+    }
+
+    @Override
+    public void setDimNames(RList newDimNames) {
+        // should only be used on materialized vector
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public final Object getRowNames(RAttributeProfiles attrProfiles) {
+        return RNull.instance;
+    }
+
+    @Override
+    public void setRowNames(RAbstractVector rowNames) {
+        // should only be used on materialized vector
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public final DynamicObject initAttributes() {
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public final void initAttributes(DynamicObject newAttributes) {
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public final DynamicObject getAttributes() {
+        return null;
+    }
+
+    @Override
+    public final boolean isMatrix() {
+        return false;
+    }
+
+    @Override
+    public final boolean isArray() {
+        return false;
+    }
+
+    @Override
+    public final boolean isObject(RAttributeProfiles attrProfiles) {
+        return false;
+    }
+
+    @Override
+    public final RStringVector getClassHierarchy() {
+        return getImplicitClass();
+    }
+
+    @Override
+    public final RTypedValue getNonShared() {
+        return materialize().getNonShared();
+    }
+
+    @Override
+    public final RShareable materializeToShareable() {
+        return materialize();
+    }
+
+    @Override
+    public final RVector<?> copyResizedWithDimensions(int[] newDimensions, boolean fillNA) {
+        assert newDimensions.length == 2;
+        RVector<?> result = copyResized(newDimensions[0] * newDimensions[1], fillNA);
+        result.setDimensions(newDimensions);
+        return result;
+    }
+
+    @Override
+    public int getTypedValueInfo() {
+        return 0;
+    }
+
+    @Override
+    public void setTypedValueInfo(int value) {
+        throw RInternalError.shouldNotReachHere();
+    }
+
+    @Override
+    public boolean isS4() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        CompilerAsserts.neverPartOfCompilation();
+        return "mapped " + getRType().getName() + "[" + length + "] " + path;
+    }
+}
@@ -27,6 +27,12 @@ import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
+/**
+ * Compact representation of the arithmetic sequence {@code start + stride * i}. A stride of
+ * {@code 0} represents a constant vector, e.g. the result of {@code rep(x, n)}. The elements are
+ * never stored, {@link #materialize()} creates a new vector, and the order of the elements is
+ * reported through {@link #getSortedness()} without computing them.
+ */
 public abstract class RSequence implements RAbstractVector {
 
     private final int length;
@@ -50,6 +50,16 @@ public abstract class RSharingAttributeStorage extends RAttributeStorage impleme
         assert refCount != SHARED_PERMANENT_VAL : "cannot decRefCount of shared permanent value";
         assert refCount > 0 : "cannot decRefCount when refCount <= 0";
         refCount--;
+        if (refCount == 1) {
+            sharingLost();
+        }
+    }
+
+    /**
+     * Called when the value stops being shared, i.e. when it may be updated in place again.
+     */
+    protected void sharingLost() {
+        // nothing to invalidate by default
     }
 
     @Override
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+/**
+ * Order of the elements of a vector as far as it is known without looking at them, see
+ * {@link com.oracle.truffle.r.runtime.data.model.RAbstractVector#getSortedness()}. Only vectors
+ * without {@code NA} (and {@code NaN}) values report an ordering other than {@link #UNKNOWN}.
+ * Equal elements are compared with {@code ==}, i.e., {@code -0} and {@code 0} are ties.
+ */
+public enum RSortedness {
+    UNKNOWN(false, false, false),
+    /**
+     * All elements are equal, e.g. the result of {@code rep(x, n)}.
+     */
+    CONSTANT(true, true, false),
+    INCREASING(true, false, false),
+    STRICTLY_INCREASING(true, false, true),
+    DECREASING(false, true, false),
+    STRICTLY_DECREASING(false, true, true);
+
+    private final boolean increasing;
+    private final boolean decreasing;
+    private final boolean strict;
+
+    RSortedness(boolean increasing, boolean decreasing, boolean strict) {
+        this.increasing = increasing;
+        this.decreasing = decreasing;
+        this.strict = strict;
+    }
+
+    /**
+     * Returns {@code true} if {@code x[i] <= x[i + 1]} holds for all elements.
+     */
+    public boolean isIncreasing() {
+        return increasing;
+    }
+
+    /**
+     * Returns {@code true} if {@code x[i] >= x[i + 1]} holds for all elements.
+     */
+    public boolean isDecreasing() {
+        return decreasing;
+    }
+
+    /**
+     * Returns {@code true} if there are no ties.
+     */
+    public boolean isStrict() {
+        return strict;
+    }
+
+    public boolean isSorted() {
+        return increasing || decreasing;
+    }
+
+    /**
+     * Sortedness of a vector whose consecutive elements differ by a value with the sign
+     * {@code strideSign}.
+     */
+    public static RSortedness fromStride(int strideSign) {
+        return strideSign > 0 ? STRICTLY_INCREASING : strideSign < 0 ? STRICTLY_DECREASING : CONSTANT;
+    }
+}
@@ -24,12 +24,16 @@ package com.oracle.truffle.r.runtime.data;
 
 import java.util.Arrays;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.Utils;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.closures.RClosures;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
@@ -38,7 +42,14 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
 
     public static final RStringVector implicitClassHeader = RDataFactory.createStringVectorFromScalar(RType.Character.getClazz());
 
-    private final String[] data;
+    private String[] data;
+
+    /**
+     * Non-null if this vector is the not yet converted result of {@code as.character} on an
+     * integer or double vector, single elements are then converted on access and the store is only
+     * created when requested.
+     */
+    private RAbstractVector deferredSource;
 
     RStringVector(String[] data, boolean complete, int[] dims, RStringVector names) {
         super(complete, data.length, dims, names);
@@ -46,6 +57,61 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
         assert verify();
     }
 
+    RStringVector(RAbstractVector deferredSource) {
+        super(deferredSource.isComplete(), deferredSource.getLength(), null, null);
+        assert deferredSource instanceof RAbstractIntVector || deferredSource instanceof RAbstractDoubleVector;
+        this.deferredSource = snapshot(deferredSource);
+    }
+
+    /**
+     * A vector that may be updated in place later on is copied, which is still much cheaper than
+     * converting the elements. Holding a reference count instead would keep the source from being
+     * updated in place for good if this vector is dropped before being converted.
+     */
+    private static RAbstractVector snapshot(RAbstractVector source) {
+        if (source instanceof RShareable && !((RShareable) source).isSharedPermanent()) {
+            return source.copyDropAttributes();
+        }
+        return source;
+    }
+
+    private String[] data() {
+        String[] result = data;
+        if (result == null) {
+            result = convertDeferred();
+        }
+        return result;
+    }
+
+    @TruffleBoundary
+    private String[] convertDeferred() {
+        RAbstractVector source = deferredSource;
+        String[] result = new String[source.getLength()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = convertElement(source, i);
+        }
+        data = result;
+        deferredSource = null;
+        return result;
+    }
+
+    /**
+     * Converts one element the same way as the cast to character does.
+     */
+    private static String convertElement(RAbstractVector source, int index) {
+        if (source instanceof RAbstractIntVector) {
+            return RRuntime.intToString(((RAbstractIntVector) source).getDataAt(index));
+        }
+        double value = ((RAbstractDoubleVector) source).getDataAt(index);
+        int intValue = (int) value;
+        if (intValue == value && RRuntime.isCachedNumberString(intValue)) {
+            return RRuntime.getCachedNumberString(intValue);
+        } else if (RRuntime.isNA(value)) {
+            return RRuntime.STRING_NA;
+        }
+        return RContext.getRRuntimeASTAccess().encodeDouble(value);
+    }
+
     private RStringVector(String[] data, boolean complete, int[] dims) {
         this(data, complete, dims, null);
     }
@@ -64,35 +130,38 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
 
     @Override
     public String[] getInternalStore() {
-        return data;
+        return data();
     }
 
     @Override
     public void setDataAt(Object store, int index, String value) {
-        assert data == store;
+        assert data() == store;
         ((String[]) store)[index] = value;
     }
 
     @Override
     public String getDataAt(Object store, int index) {
-        assert data == store;
+        assert data() == store;
         return ((String[]) store)[index];
     }
 
     @Override
     protected RStringVector internalCopy() {
-        return new RStringVector(Arrays.copyOf(data, data.length), isComplete(), null);
+        String[] values = data();
+        return new RStringVector(Arrays.copyOf(values, values.length), isComplete(), null);
     }
 
     @Override
     public int getLength() {
-        return data.length;
+        String[] values = data;
+        return values != null ? values.length : deferredSource.getLength();
     }
 
     @Override
     public String[] getDataCopy() {
-        String[] copy = new String[data.length];
-        System.arraycopy(data, 0, copy, 0, data.length);
+        String[] values = data();
+        String[] copy = new String[values.length];
+        System.arraycopy(values, 0, copy, 0, values.length);
         return copy;
     }
 
@@ -102,7 +171,7 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
      */
     @Override
     public String[] getDataWithoutCopying() {
-        return data;
+        return data();
     }
 
     @Override
@@ -113,7 +182,7 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
     @Override
     protected boolean internalVerify() {
         if (isComplete()) {
-            for (String b : data) {
+            for (String b : data()) {
                 if (b == RRuntime.STRING_NA) {
                     return false;
                 }
@@ -124,14 +193,18 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
 
     @Override
     public String getDataAt(int i) {
-        return data[i];
+        String[] values = data;
+        if (values == null) {
+            return convertElement(deferredSource, i);
+        }
+        return values[i];
     }
 
     public RStringVector updateDataAt(int i, String right, NACheck rightNACheck) {
         if (this.isShared()) {
             throw RInternalError.shouldNotReachHere("update shared vector");
         }
-        data[i] = right;
+        data()[i] = right;
         if (rightNACheck.check(right)) {
             setComplete(false);
         }
@@ -146,15 +219,16 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
     }
 
     private String[] copyResizedData(int size, String fill) {
-        String[] newData = Arrays.copyOf(data, size);
+        String[] values = data();
+        String[] newData = Arrays.copyOf(values, size);
         if (size > this.getLength()) {
             if (fill != null) {
-                for (int i = data.length; i < size; i++) {
+                for (int i = values.length; i < size; i++) {
                     newData[i] = fill;
                 }
             } else {
-                for (int i = data.length, j = 0; i < size; ++i, j = Utils.incMod(j, data.length)) {
-                    newData[i] = data[j];
+                for (int i = values.length, j = 0; i < size; ++i, j = Utils.incMod(j, values.length)) {
+                    newData[i] = values[j];
                 }
             }
         }
@@ -167,7 +241,7 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
 
     @Override
     protected RStringVector internalCopyResized(int size, boolean fillNA) {
-        boolean isComplete = isComplete() && ((data.length >= size) || !fillNA);
+        boolean isComplete = isComplete() && ((getLength() >= size) || !fillNA);
         return RDataFactory.createStringVector(copyResizedData(size, fillNA ? RRuntime.STRING_NA : null), isComplete);
     }
 
@@ -183,12 +257,12 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
     @Override
     public void transferElementSameType(int toIndex, RAbstractVector fromVector, int fromIndex) {
         RAbstractStringVector other = (RAbstractStringVector) fromVector;
-        data[toIndex] = other.getDataAt(fromIndex);
+        data()[toIndex] = other.getDataAt(fromIndex);
     }
 
     @Override
     public RStringVector copyWithNewDimensions(int[] newDimensions) {
-        return RDataFactory.createStringVector(data, isComplete(), newDimensions);
+        return RDataFactory.createStringVector(data(), isComplete(), newDimensions);
     }
 
     @Override
@@ -208,6 +282,6 @@ public final class RStringVector extends RVector<String[]> implements RAbstractS
 
     @Override
     public void setElement(int i, Object value) {
-        data[i] = (String) value;
+        data()[i] = (String) value;
     }
 }
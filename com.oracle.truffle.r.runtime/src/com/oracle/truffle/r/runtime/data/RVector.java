@@ -35,7 +35,13 @@ import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.SuppressFBWarnings;
 import com.oracle.truffle.r.runtime.data.RAttributesLayout.RAttribute;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
+import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractListBaseVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractRawVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.nodes.RBaseNode;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
@@ -59,12 +65,21 @@ public abstract class RVector<ArrayT> extends RSharingAttributeStorage implement
     private static final RStringVector implicitClassHeaderArray = RDataFactory.createStringVector(new String[]{RType.Array.getName()}, true);
     private static final RStringVector implicitClassHeaderMatrix = RDataFactory.createStringVector(new String[]{RType.Matrix.getName()}, true);
 
+    private static final int MIN_CAPACITY_INCREMENT = 8;
+    // some VMs reserve header words in arrays
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
     protected boolean complete; // "complete" means: does not contain NAs
     protected int[] dimensions;
     protected RStringVector names;
     private RList dimNames;
     // cache rownames for data frames as they are accessed at every data frame access
     private Object rowNames;
+    /**
+     * Cached result of {@link #getDataHash()}, {@code 0} if not known. It is only stored while the
+     * vector is shared, because shared vectors are not updated in place.
+     */
+    private int dataHash;
 
     protected RVector(boolean complete, int length, int[] dimensions, RStringVector names) {
         this.complete = complete;
@@ -113,7 +128,11 @@ public abstract class RVector<ArrayT> extends RSharingAttributeStorage implement
      * @return vector data
      */
     public final ArrayT getDataNonShared() {
-        return isShared() ? getDataCopy() : getDataWithoutCopying();
+        if (isShared()) {
+            return getDataCopy();
+        }
+        resetDataHash();
+        return getDataWithoutCopying();
     }
 
     /**
@@ -123,7 +142,162 @@ public abstract class RVector<ArrayT> extends RSharingAttributeStorage implement
      * @return vector data
      */
     public final ArrayT getDataTemp() {
-        return isTemporary() ? getDataWithoutCopying() : getDataCopy();
+        if (isTemporary()) {
+            resetDataHash();
+            return getDataWithoutCopying();
+        }
+        return getDataCopy();
+    }
+
+    /**
+     * Returns a hash of the elements (not the attributes) such that vectors that are
+     * {@code identical} under any combination of its {@code num.eq} and {@code single.NA} flags
+     * have the same hash: all {@code NaN} payloads hash alike and {@code -0} hashes like {@code 0}.
+     * Different hashes therefore prove that two vectors are not identical. The hash is cached
+     * while the vector is shared; for lists only if all the vector elements are shared, too.
+     */
+    @TruffleBoundary
+    public final int getDataHash() {
+        if (dataHash != 0) {
+            return dataHash;
+        }
+        int hash = hashElements(this);
+        if (hash == 0) {
+            hash = 1;
+        }
+        if (isShared() && (!(this instanceof RListBase) || hasSharedElements((RListBase) this))) {
+            dataHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Drops the cached {@link #getDataHash() hash} and what subclasses know about the elements
+     * (see {@link #elementsChanged()}), for code that writes the store directly, e.g. native code.
+     */
+    public final void resetDataHash() {
+        dataHash = 0;
+        elementsChanged();
+    }
+
+    /**
+     * Called when the elements may be written through the store, subclasses drop the metadata they
+     * keep about the elements. Reading the store does not call this.
+     */
+    protected void elementsChanged() {
+        // nothing known about the elements by default
+    }
+
+    @Override
+    protected final void sharingLost() {
+        dataHash = 0;
+    }
+
+    private static boolean hasSharedElements(RListBase list) {
+        for (int i = 0; i < list.getLength(); i++) {
+            Object element = list.getDataAt(i);
+            if (element instanceof RVector) {
+                if (!((RVector<?>) element).isShared()) {
+                    return false;
+                }
+            } else if (element instanceof RAbstractVector && !(element instanceof RScalarVector || element instanceof RSequence)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hashElements(RAbstractVector vector) {
+        int length = vector.getLength();
+        int hash = 31 * vector.getRType().ordinal() + length;
+        switch (vector.getRType()) {
+            case Integer:
+                RAbstractIntVector intVector = (RAbstractIntVector) vector;
+                for (int i = 0; i < length; i++) {
+                    hash = 31 * hash + intVector.getDataAt(i);
+                }
+                break;
+            case Double:
+                RAbstractDoubleVector doubleVector = (RAbstractDoubleVector) vector;
+                for (int i = 0; i < length; i++) {
+                    hash = 31 * hash + hashDouble(doubleVector.getDataAt(i));
+                }
+                break;
+            case Logical:
+                RAbstractLogicalVector logicalVector = (RAbstractLogicalVector) vector;
+                for (int i = 0; i < length; i++) {
+                    hash = 31 * hash + logicalVector.getDataAt(i);
+                }
+                break;
+            case Raw:
+                RAbstractRawVector rawVector = (RAbstractRawVector) vector;
+                for (int i = 0; i < length; i++) {
+                    hash = 31 * hash + rawVector.getRawDataAt(i);
+                }
+                break;
+            case Complex:
+                RAbstractComplexVector complexVector = (RAbstractComplexVector) vector;
+                for (int i = 0; i < length; i++) {
+                    RComplex value = complexVector.getDataAt(i);
+                    hash = 31 * (31 * hash + hashDouble(value.getRealPart())) + hashDouble(value.getImaginaryPart());
+                }
+                break;
+            case Character:
+                RAbstractStringVector stringVector = (RAbstractStringVector) vector;
+                for (int i = 0; i < length; i++) {
+                    hash = 31 * hash + stringVector.getDataAt(i).hashCode();
+                }
+                break;
+            case List:
+            case Expression:
+                RAbstractListBaseVector listVector = (RAbstractListBaseVector) vector;
+                for (int i = 0; i < length; i++) {
+                    hash = 31 * hash + hashElement(listVector.getDataAt(i));
+                }
+                break;
+            default:
+                // other types are compared element-wise
+                break;
+        }
+        return hash;
+    }
+
+    private static int hashElement(Object element) {
+        // scalars must hash like the equivalent vectors of length one
+        if (element instanceof RVector) {
+            return ((RVector<?>) element).getDataHash();
+        } else if (element instanceof RAbstractVector) {
+            int hash = hashElements((RAbstractVector) element);
+            return hash == 0 ? 1 : hash;
+        } else if (element instanceof Integer) {
+            return hashScalar(RType.Integer, (Integer) element);
+        } else if (element instanceof Double) {
+            return hashScalar(RType.Double, hashDouble((Double) element));
+        } else if (element instanceof Byte) {
+            return hashScalar(RType.Logical, (Byte) element);
+        } else if (element instanceof String) {
+            return hashScalar(RType.Character, element.hashCode());
+        } else {
+            // environments, functions, language objects etc. are only compared structurally
+            return 0;
+        }
+    }
+
+    private static int hashScalar(RType type, int elementHash) {
+        int hash = 31 * (31 * type.ordinal() + 1) + elementHash;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int hashDouble(double value) {
+        long bits;
+        if (Double.isNaN(value)) {
+            bits = 0x7ff8000000000000L;
+        } else if (value == 0) {
+            bits = 0;
+        } else {
+            bits = Double.doubleToRawLongBits(value);
+        }
+        return (int) (bits ^ (bits >>> 32));
     }
 
     public final int[] getInternalDimensions() {
@@ -763,6 +937,57 @@ public abstract class RVector<ArrayT> extends RSharingAttributeStorage implement
         return resize(size, true);
     }
 
+    /**
+     * Variant of {@link #resize(int)} for {@code length<-}, which may update its argument if it is
+     * not shared: if the representation supports it (see {@link #growInPlace}), the vector is
+     * extended in place instead of being copied.
+     */
+    public final RVector<ArrayT> resizeNonShared(int size) {
+        if (isShared() || size <= getLength() || !growInPlace(size, true)) {
+            return resize(size, true);
+        }
+        RStringVector oldNames = names;
+        resetAllAttributes(oldNames == null);
+        if (oldNames != null) {
+            oldNames = oldNames.resizeWithEmpty(size);
+            putAttribute(RRuntime.NAMES_ATTR_KEY, oldNames);
+            names = oldNames;
+        }
+        return this;
+    }
+
+    /**
+     * Extends this vector to {@code newLength} elements without creating a new vector. The store
+     * is over-allocated geometrically, so that a sequence of appends to a vector that is not shared
+     * takes amortized constant time per element. If {@code fillNA} is {@code true} the new elements
+     * are set to NA, otherwise the caller must set all of them. The attributes are not touched.
+     *
+     * Returns {@code false} if the representation does not support growing, in which case a
+     * resized copy has to be created instead.
+     */
+    public boolean growInPlace(int newLength, boolean fillNA) {
+        return false;
+    }
+
+    /**
+     * Like {@link #getInternalStore()}, but the store of a vector grown by {@link #growInPlace} is
+     * returned with its spare capacity instead of being trimmed. Only suitable for callers that
+     * access the elements below {@link #getLength()} and do not keep the store, which lets a vector
+     * that is still growing keep its capacity.
+     */
+    public Object getInternalStoreWithCapacity() {
+        return getInternalStore();
+    }
+
+    /**
+     * Capacity of a store grown by {@link #growInPlace} from {@code capacity} to (at least)
+     * {@code minCapacity} elements.
+     */
+    protected static int growCapacity(int capacity, int minCapacity) {
+        long newCapacity = Math.min((long) capacity + (capacity >> 1) + MIN_CAPACITY_INCREMENT, MAX_CAPACITY);
+        return (int) Math.max(newCapacity, minCapacity);
+    }
+
     private RVector<ArrayT> resize(int size, boolean resetAll) {
         this.complete &= getLength() >= size;
         RVector<ArrayT> res = this;
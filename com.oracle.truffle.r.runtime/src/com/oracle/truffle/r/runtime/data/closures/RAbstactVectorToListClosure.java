@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.r.runtime.data.closures;
 
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RVector;
@@ -55,7 +56,9 @@ final class RAbstactVectorToListClosure extends RToVectorClosure implements RAbs
             Object data = getDataAtAsObject(i);
             result[i] = data;
         }
-        return RDataFactory.createList(result);
+        RList materialized = RDataFactory.createList(result);
+        PerfEventTracer.reportMaterialize(this, materialized);
+        return materialized;
     }
 
     @Override
@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.r.runtime.data.closures;
 
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RComplexVector;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -50,7 +51,9 @@ abstract class RToComplexVectorClosure extends RToVectorClosure implements RAbst
             result[index] = data.getRealPart();
             result[index + 1] = data.getImaginaryPart();
         }
-        return RDataFactory.createComplexVector(result, vector.isComplete());
+        RComplexVector materialized = RDataFactory.createComplexVector(result, vector.isComplete());
+        PerfEventTracer.reportMaterialize(this, materialized);
+        return materialized;
     }
 
     @Override
@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.r.runtime.data.closures;
 
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RVector;
@@ -47,7 +48,9 @@ abstract class RToDoubleVectorClosure extends RToVectorClosure implements RAbstr
             double data = getDataAt(i);
             result[i] = data;
         }
-        return RDataFactory.createDoubleVector(result, vector.isComplete());
+        RDoubleVector materialized = RDataFactory.createDoubleVector(result, vector.isComplete());
+        PerfEventTracer.reportMaterialize(this, materialized);
+        return materialized;
     }
 
     @Override
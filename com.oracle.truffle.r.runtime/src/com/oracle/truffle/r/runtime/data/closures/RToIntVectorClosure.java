@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.r.runtime.data.closures;
 
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RVector;
@@ -47,7 +48,9 @@ abstract class RToIntVectorClosure extends RToVectorClosure implements RAbstract
             int data = getDataAt(i);
             result[i] = data;
         }
-        return RDataFactory.createIntVector(result, vector.isComplete());
+        RIntVector materialized = RDataFactory.createIntVector(result, vector.isComplete());
+        PerfEventTracer.reportMaterialize(this, materialized);
+        return materialized;
     }
 
     @Override
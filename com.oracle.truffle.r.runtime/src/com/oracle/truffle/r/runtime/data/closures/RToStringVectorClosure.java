@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.r.runtime.data.closures;
 
+import com.oracle.truffle.r.runtime.PerfEventTracer;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.RVector;
@@ -47,7 +48,9 @@ abstract class RToStringVectorClosure extends RToVectorClosure implements RAbstr
             String data = getDataAt(i);
             result[i] = data;
         }
-        return RDataFactory.createStringVector(result, vector.isComplete(), getDimensions(), getNames(null));
+        RStringVector materialized = RDataFactory.createStringVector(result, vector.isComplete(), getDimensions(), getNames(null));
+        PerfEventTracer.reportMaterialize(this, materialized);
+        return materialized;
     }
 
     @Override
@@ -35,6 +35,15 @@ public interface RAbstractContainer extends RAttributable, RTypedValue {
 
     int getLength();
 
+    /**
+     * Returns the length of the container, which may exceed {@link Integer#MAX_VALUE} for long
+     * vectors. {@link #getLength()} raises an error for such vectors, so code that supports long
+     * vectors must use this method instead.
+     */
+    default long getLongLength() {
+        return getLength();
+    }
+
     RAbstractContainer resize(int size);
 
     boolean hasDimensions();
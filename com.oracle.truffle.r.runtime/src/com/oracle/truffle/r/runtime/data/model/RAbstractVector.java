@@ -25,10 +25,19 @@ package com.oracle.truffle.r.runtime.data.model;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.data.MemoryCopyTracer;
+import com.oracle.truffle.r.runtime.data.RSortedness;
 import com.oracle.truffle.r.runtime.data.RVector;
 
 /**
  * When implementing, make sure to invoke related {@link MemoryCopyTracer} methods.
+ *
+ * Besides the plain array-backed {@link RVector}s there are alternative representations of vectors
+ * that compute their elements on demand (e.g. sequences, constant vectors, deferred arithmetic or
+ * coercions). Such representations can describe their contents through the metadata methods
+ * {@link #getSortedness()}, {@link #isKnownNoNA()}, {@link #getKnownMin()} and
+ * {@link #getKnownMax()}, which builtins like {@code order}, {@code unique}, {@code match},
+ * {@code max}/{@code min} and {@code anyNA} use to avoid looking at the elements. The metadata is
+ * conservative: the defaults claim nothing.
  */
 public interface RAbstractVector extends RAbstractContainer {
 
@@ -77,6 +86,48 @@ public interface RAbstractVector extends RAbstractContainer {
         }
     }
 
+    /**
+     * Returns the order of the elements if it is known without inspecting them. Anything other than
+     * {@link RSortedness#UNKNOWN} implies {@link #isKnownNoNA()}.
+     */
+    default RSortedness getSortedness() {
+        return RSortedness.UNKNOWN;
+    }
+
+    /**
+     * Returns {@code true} if the vector is known to contain neither {@code NA} nor {@code NaN}
+     * values. Unlike {@link #isComplete()}, this also excludes {@code NaN}.
+     */
+    default boolean isKnownNoNA() {
+        return false;
+    }
+
+    /**
+     * Returns the smallest element (boxed) if it can be determined without a scan, {@code null}
+     * otherwise.
+     */
+    default Object getKnownMin() {
+        int length = getLength();
+        RSortedness sortedness = getSortedness();
+        if (length == 0 || sortedness == RSortedness.UNKNOWN) {
+            return null;
+        }
+        return getDataAtAsObject(sortedness.isIncreasing() ? 0 : length - 1);
+    }
+
+    /**
+     * Returns the largest element (boxed) if it can be determined without a scan, {@code null}
+     * otherwise.
+     */
+    default Object getKnownMax() {
+        int length = getLength();
+        RSortedness sortedness = getSortedness();
+        if (length == 0 || sortedness == RSortedness.UNKNOWN) {
+            return null;
+        }
+        return getDataAtAsObject(sortedness.isIncreasing() ? length - 1 : 0);
+    }
+
     void setComplete(boolean complete);
 
     void setNA(Object store, int index);
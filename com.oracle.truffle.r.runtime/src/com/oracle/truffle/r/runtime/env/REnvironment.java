@@ -22,7 +22,9 @@
  */
 package com.oracle.truffle.r.runtime.env;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.regex.Pattern;
 
 import com.oracle.truffle.api.CompilerAsserts;
@@ -47,6 +49,7 @@ import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RFunction;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RPromise;
+import com.oracle.truffle.r.runtime.data.RShareable;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.env.frame.NSBaseMaterializedFrame;
 import com.oracle.truffle.r.runtime.env.frame.REnvEmptyFrameAccess;
@@ -169,6 +172,25 @@ public abstract class REnvironment extends RAttributeStorage {
             this.namespaceRegistry = namespaceRegistry;
         }
 
+        /**
+         * Copies the complete environment graph of this state, i.e., the global environment, the
+         * search path, the base environment and all registered namespaces, into {@code target},
+         * which must not have been set up yet. The returned {@link Copier} can be used to map
+         * other values of the source context (e.g. options) into the copied graph.
+         * {@code snapshot} is {@code true} if this is the state of a running context, whose
+         * values are then copied, otherwise (i.e. for a template) they are shared with the target.
+         */
+        @TruffleBoundary
+        public Copier copyTo(ContextStateImpl target, boolean snapshot) {
+            Copier copier = new Copier(target.globalFrame, snapshot);
+            Base newBaseEnv = copier.copyBase(baseEnv);
+            Global newGlobalEnv = (Global) copier.copy(getGlobalEnv());
+            REnvironment newNamespaceRegistry = copier.copy(namespaceRegistry);
+            copier.drain();
+            target.initialize(initSearchList(newGlobalEnv), newBaseEnv, newNamespaceRegistry);
+            return copier;
+        }
+
         @Override
         public RContext.ContextState initialize(RContext context) {
             setupContext(this, context, globalFrame);
@@ -223,6 +245,165 @@ public abstract class REnvironment extends RAttributeStorage {
         }
     }
 
+    /**
+     * Copies a graph of environments, as used for context templates (see
+     * {@link ContextStateImpl#copyTo}). Every environment is copied exactly once and keeps its
+     * name, except {@link Function} environments, which are copied as {@link NewEnv}s as the
+     * function frame itself cannot be recreated. Closures whose enclosing environment was copied
+     * are re-created on the copy, but their code is only duplicated when they are first called
+     * (see {@link RDataFactory#createFunctionCopy}), so the many functions of the loaded
+     * namespaces that a context never calls cost no more than the binding.
+     *
+     * Lists are re-created with their elements mapped, as they may refer to environments and
+     * closures. When taking a snapshot of a running context, all other {@link RShareable} values
+     * are copied and made shared permanent, so the template does not depend on the state of the
+     * source context. When restoring a context from a template, these values are shared between
+     * the template and the context, which copies them on write.
+     */
+    public static final class Copier {
+        private final MaterializedFrame globalFrame;
+        private final boolean snapshot;
+        private final IdentityHashMap<Object, Object> copies = new IdentityHashMap<>();
+        private final ArrayDeque<REnvironment> pending = new ArrayDeque<>();
+
+        private Copier(MaterializedFrame globalFrame, boolean snapshot) {
+            this.globalFrame = globalFrame;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Returns the value corresponding to {@code value} in the copied graph.
+         */
+        @TruffleBoundary
+        public Object copyValue(Object value) {
+            Object result = map(value);
+            drain();
+            return result;
+        }
+
+        private Object map(Object value) {
+            if (value instanceof REnvironment) {
+                return copy((REnvironment) value);
+            } else if (value instanceof RFunction) {
+                return copyFunction((RFunction) value);
+            } else if (value instanceof RPromise) {
+                return copyPromise((RPromise) value);
+            } else if (value instanceof RList) {
+                return copyList((RList) value);
+            } else if (snapshot && value instanceof RShareable) {
+                RShareable newValue = ((RShareable) value).copy();
+                newValue.makeSharedPermanent();
+                return newValue;
+            }
+            return value;
+        }
+
+        private Base copyBase(Base env) {
+            Base newEnv = new Base(RRuntime.createNonFunctionFrame("base"), globalFrame);
+            copies.put(env, newEnv);
+            copies.put(env.namespaceEnv, newEnv.namespaceEnv);
+            pending.add(env);
+            return newEnv;
+        }
+
+        private REnvironment copy(REnvironment env) {
+            if (env == emptyEnv) {
+                return env;
+            }
+            REnvironment newEnv = (REnvironment) copies.get(env);
+            if (newEnv == null) {
+                if (env instanceof Global) {
+                    newEnv = new Global(globalFrame);
+                } else {
+                    /*
+                     * The name identifies package and imports environments on the search path, the
+                     * namespaces are identified by their .__NAMESPACE__. binding, which is copied
+                     * with the other bindings.
+                     */
+                    String name = env.getName();
+                    newEnv = RDataFactory.createNewEnv(name.isEmpty() ? null : name);
+                    if (env instanceof NewEnv) {
+                        ((NewEnv) newEnv).setHashed(((NewEnv) env).isHashed());
+                        ((NewEnv) newEnv).setInitialSize(((NewEnv) env).getInitialSize());
+                    }
+                }
+                copies.put(env, newEnv);
+                if (env.attributes != null) {
+                    newEnv.initAttributes(RAttributesLayout.copy(env.attributes));
+                }
+                RArguments.initializeEnclosingFrame(newEnv.getFrame(), copy(env.getParent()).getFrame());
+                pending.add(env);
+            }
+            return newEnv;
+        }
+
+        private Object copyFunction(RFunction function) {
+            if (function.isBuiltin()) {
+                return function;
+            }
+            RFunction newFunction = (RFunction) copies.get(function);
+            if (newFunction == null) {
+                REnvironment newEnv = copy(frameToEnvironment(function.getEnclosingFrame()));
+                newFunction = RDataFactory.createFunctionCopy(function, newEnv.getFrame());
+                if (function.getAttributes() != null) {
+                    newFunction.initAttributes(RAttributesLayout.copy(function.getAttributes()));
+                }
+                newFunction.setTypedValueInfo(function.getTypedValueInfo());
+                copies.put(function, newFunction);
+            }
+            return newFunction;
+        }
+
+        private Object copyList(RList list) {
+            RList newList = (RList) copies.get(list);
+            if (newList == null) {
+                Object[] data = new Object[list.getLength()];
+                for (int i = 0; i < data.length; i++) {
+                    data[i] = map(list.getDataAt(i));
+                }
+                newList = RDataFactory.createList(data);
+                if (list.getAttributes() != null) {
+                    newList.initAttributes(RAttributesLayout.copy(list.getAttributes()));
+                }
+                newList.makeSharedPermanent();
+                copies.put(list, newList);
+            }
+            return newList;
+        }
+
+        private Object copyPromise(RPromise promise) {
+            if (promise.isEvaluated()) {
+                return RDataFactory.createEvaluatedPromise(promise.getState(), promise.getClosure(), map(promise.getValue()));
+            } else if (promise.isNullFrame()) {
+                return promise;
+            } else {
+                return RDataFactory.createPromise(promise.getState(), promise.getClosure(), copy(frameToEnvironment(promise.getFrame())).getFrame());
+            }
+        }
+
+        /**
+         * Copies the bindings (and locks) of all environments created so far. This is done
+         * iteratively as namespaces and closures can form arbitrarily deep chains.
+         */
+        private void drain() {
+            REnvironment env;
+            while ((env = pending.poll()) != null) {
+                REnvironment newEnv = (REnvironment) copies.get(env);
+                RStringVector bindings = env.ls(true, null, false);
+                for (int i = 0; i < bindings.getLength(); i++) {
+                    String binding = bindings.getDataAt(i);
+                    newEnv.safePut(binding, map(env.get(binding)));
+                    if (env.bindingIsLocked(binding)) {
+                        newEnv.lockBinding(binding);
+                    }
+                }
+                if (env.isLocked()) {
+                    newEnv.lock(false);
+                }
+            }
+        }
+    }
+
     public static final String UNNAMED = new String("");
     private static final String NAME_ATTR_KEY = "name";
     private static final Empty emptyEnv = new Empty();
@@ -375,7 +556,8 @@ public abstract class REnvironment extends RAttributeStorage {
             }
 
             case SHARE_NOTHING: {
-                // SHARE_NOTHING: baseInitialize takes care of everything
+                // SHARE_NOTHING: baseInitialize takes care of everything, unless the context is
+                // restored from a ContextTemplate, which replaces this state via copyTo
                 contextState.initialize(new SearchPath());
                 break;
             }
@@ -500,7 +682,7 @@ public abstract class REnvironment extends RAttributeStorage {
         for (int i = 0; i < searchPath.size(); i++) {
             REnvironment env = searchPath.get(i);
             String searchName = env.getSearchName();
-            if (searchName.equals(name)) {
+            if (name.equals(searchName)) {
                 return i + 1;
             }
         }
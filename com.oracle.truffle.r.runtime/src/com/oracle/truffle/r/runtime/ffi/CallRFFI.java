@@ -24,6 +24,13 @@ package com.oracle.truffle.r.runtime.ffi;
 
 /**
  * Support for the {.Call} and {.External} calls.
+ *
+ * {@link #invokeCall} and {@link #invokeVoidCall} are reentrant: native code may call back into R,
+ * which may in turn invoke native code again. Implementations keep any per-call state per thread,
+ * but serialize the calls of different threads (e.g. contexts running in parallel) unless
+ * {@link com.oracle.truffle.r.runtime.FastROptions#ConcurrentNativeCalls} is set, as package code
+ * is generally not thread-safe. {@link #setTempDir} and {@link #setInteractive} set process-wide
+ * values and are not reentrant.
  */
 public interface CallRFFI {
     /**
@@ -31,6 +31,9 @@ import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLanguage;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.data.RMappedDoubleVector;
+import com.oracle.truffle.r.runtime.data.RMappedIntVector;
+import com.oracle.truffle.r.runtime.data.RMappedRawVector;
 import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RPairList;
@@ -71,8 +74,8 @@ public enum SEXPTYPE {
     BUILTINSXP(8), /* builtin non-special forms */
     CHARSXP(9), /* "scalar" string type (GnuR internal only) */
     LGLSXP(10, RLogicalVector.class), /* logical vectors */
-    INTSXP(13, RIntVector.class, RIntSequence.class), /* integer vectors */
-    REALSXP(14, RDoubleVector.class, RDoubleSequence.class), /* real variables */
+    INTSXP(13, RIntVector.class, RIntSequence.class, RMappedIntVector.class), /* integer vectors */
+    REALSXP(14, RDoubleVector.class, RDoubleSequence.class, RMappedDoubleVector.class), /* real variables */
     CPLXSXP(15, RComplexVector.class), /* complex variables */
     STRSXP(16, RStringVector.class, String.class), /* string vectors */
     DOTSXP(17, RArgsValuesAndNames.class), /* dot-dot-dot object */
@@ -82,7 +85,7 @@ public enum SEXPTYPE {
     BCODESXP(21), /* byte code */
     EXTPTRSXP(22, RExternalPtr.class), /* external pointer */
     WEAKREFSXP(23), /* weak reference */
-    RAWSXP(24, RRawVector.class, RRaw.class), /* raw bytes */
+    RAWSXP(24, RRawVector.class, RRaw.class, RMappedRawVector.class), /* raw bytes */
     S4SXP(25, RS4Object.class), /* S4 non-vector */
 
     NEWSXP(30), /* fresh node created in new page */
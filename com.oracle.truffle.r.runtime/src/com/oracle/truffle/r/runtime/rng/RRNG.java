@@ -26,14 +26,15 @@ import com.oracle.truffle.r.runtime.data.RPromise;
 import com.oracle.truffle.r.runtime.data.RTypedValue;
 import com.oracle.truffle.r.runtime.env.REnvironment;
 import com.oracle.truffle.r.runtime.ffi.RFFIFactory;
+import com.oracle.truffle.r.runtime.rng.lecuyer.LEcuyerCMRG;
 import com.oracle.truffle.r.runtime.rng.mm.MarsagliaMulticarry;
 import com.oracle.truffle.r.runtime.rng.mt.MersenneTwister;
 import com.oracle.truffle.r.runtime.rng.user.UserRNG;
 
 /**
  * Facade class to the R random number generators, (see src/main/RNG.c in GnuR). The individual
- * generators are implemented in their own class. Currently there are only two implemented, the
- * default, {@link MersenneTwister} and {@link MarsagliaMulticarry}.
+ * generators are implemented in their own class. Currently there are only three implemented, the
+ * default, {@link MersenneTwister}, {@link MarsagliaMulticarry} and {@link LEcuyerCMRG}.
  *
  * The fact that the R programmer can set {@code .Random.seed} explicitly, as opposed to the
  * recommended approach of calling {@code set.seed}, is something of a pain as it changes the
@@ -58,7 +59,7 @@ public class RRNG {
         KNUTH_TAOCP(),
         USER_UNIF(UserRNG::new),
         KNUTH_TAOCP2(),
-        LECUYER_CMRG();
+        LECUYER_CMRG(LEcuyerCMRG::new);
 
         @CompilationFinal static final Kind[] VALUES = values();
 
@@ -109,6 +110,17 @@ public class RRNG {
         private final RandomNumberGenerator[] allGenerators;
         private NormKind currentNormKind;
 
+        /**
+         * The stream most recently handed to a child context, see {@link RRNG#nextChildStream()}.
+         */
+        private int[] lastChildStream;
+
+        /**
+         * {@code true} if the generator was initialized with a stream assigned by the parent
+         * context that has not been stored in {@code .Random.seed} yet.
+         */
+        private boolean streamPending;
+
         private ContextStateImpl() {
             this.currentNormKind = DEFAULT_NORM_KIND;
             this.allGenerators = new RandomNumberGenerator[Kind.VALUES.length];
@@ -116,9 +128,18 @@ public class RRNG {
 
         @Override
         public RContext.ContextState initialize(RContext context) {
-            int seed = timeToSeed();
-            RandomNumberGenerator rng = DEFAULT_KIND.create();
-            initGenerator(rng, seed);
+            RandomNumberGenerator rng;
+            int[] stream = context.getRNGStream();
+            if (stream != null) {
+                rng = Kind.LECUYER_CMRG.create();
+                rng.setISeed(stream);
+                this.currentNormKind = intToNormKind(stream[0] / 100);
+                this.streamPending = true;
+            } else {
+                int seed = timeToSeed();
+                rng = DEFAULT_KIND.create();
+                initGenerator(rng, seed);
+            }
             this.currentGenerator = rng;
             this.allGenerators[rng.getKind().ordinal()] = rng;
             return this;
@@ -220,6 +241,7 @@ public class RRNG {
     @TruffleBoundary
     public static void doSetSeed(int seed, int kindAsInt, int normKindAsInt) {
         getRNGKind(RNull.instance);
+        getContextState().lastChildStream = null;
         changeKindsAndInitGenerator(seed, kindAsInt, normKindAsInt);
         putRNGState();
     }
@@ -230,6 +252,7 @@ public class RRNG {
      */
     public static void doRNGKind(int kindAsInt, int normKindAsInt) {
         getRNGKind(RNull.instance);
+        getContextState().lastChildStream = null;
         changeKindsAndInitGenerator(SAME_SEED, kindAsInt, normKindAsInt);
     }
 
@@ -375,7 +398,13 @@ public class RRNG {
     public static void getRNGState() {
         Object seedsObj = getDotRandomSeed();
         if (seedsObj == null) {
-            randomize(currentKind());
+            if (getContextState().streamPending) {
+                // keep the stream assigned by the parent context
+                getContextState().streamPending = false;
+                putRNGState();
+            } else {
+                randomize(currentKind());
+            }
         } else {
             getRNGKind(seedsObj);
             int[] seeds;
@@ -404,6 +433,37 @@ public class RRNG {
         }
     }
 
+    /**
+     * Returns the seeds (in the {@code .Random.seed} format) of an independent L'Ecuyer-CMRG stream
+     * for a new child context, or {@code null} if the current generator is not L'Ecuyer-CMRG. The
+     * first child gets {@code nextRNGStream(.Random.seed)} and every further child the stream
+     * after the one of its predecessor, as {@code mclapply} does with {@code mc.set.seed = TRUE}.
+     * Setting the seed or the kind restarts the sequence, so that the streams are reproducible.
+     * Must be invoked in the parent context.
+     *
+     * Only a parent that uses the generator, i.e. has a {@code .Random.seed}, hands out streams.
+     * Its state is only read, not loaded into the generator, so that creating a child has no
+     * effect on the random numbers of the parent.
+     */
+    @TruffleBoundary
+    public static int[] nextChildStream() {
+        Object seedsObj = getDotRandomSeed();
+        if (!(seedsObj instanceof RIntVector)) {
+            return null;
+        }
+        RIntVector seedsVec = (RIntVector) seedsObj;
+        if (seedsVec.getLength() != LEcuyerCMRG.NSEED + 1 || seedsVec.getDataAt(0) % 100 != Kind.LECUYER_CMRG.ordinal()) {
+            return null;
+        }
+        ContextStateImpl state = getContextState();
+        int[] base = state.lastChildStream;
+        if (base == null) {
+            base = seedsVec.getDataCopy();
+        }
+        state.lastChildStream = LEcuyerCMRG.nextStream(base);
+        return state.lastChildStream.clone();
+    }
+
     /**
      * Saves the state of RNG into global environment under {@code .Random.seed}. This should be
      * invoked after any random numbers generation.
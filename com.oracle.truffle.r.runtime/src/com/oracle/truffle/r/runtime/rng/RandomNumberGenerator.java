@@ -29,6 +29,17 @@ public interface RandomNumberGenerator {
 
     double genrandDouble();
 
+    /**
+     * Stores the next {@code count} values that {@link #genrandDouble()} would return into
+     * {@code result}, starting at index {@code offset}. Generators that produce their values in
+     * batches should override this to avoid the per-value call overhead.
+     */
+    default void genrandDoubles(double[] result, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            result[offset + i] = genrandDouble();
+        }
+    }
+
     Kind getKind();
 
     /**
@@ -0,0 +1,179 @@
+/*
+ * This material is distributed under the GNU General Public License
+ * Version 2. You may review the terms of this license at
+ * http://www.gnu.org/licenses/gpl-2.0.html
+ *
+ * Copyright (c) 1995-2012, The R Core Team
+ * Copyright (c) 2003, The R Foundation
+ * Copyright (c) 2016, Oracle and/or its affiliates
+ *
+ * All rights reserved.
+ */
+package com.oracle.truffle.r.runtime.rng.lecuyer;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.rng.RNGInitAdapter;
+import com.oracle.truffle.r.runtime.rng.RRNG;
+import com.oracle.truffle.r.runtime.rng.RRNG.Kind;
+
+/**
+ * L'Ecuyer's combined multiple-recursive generator MRG32k3a, transcribed from GNU R, RNG.c. The
+ * period of the generator is split into streams (of length 2^127) and substreams (of length 2^76),
+ * {@link #nextStream} and {@link #nextSubStream} (from library/parallel/src/rngstream.c) advance a
+ * seed to the beginning of the next stream/substream, which is how independent generators for
+ * parallel computations are obtained.
+ */
+public final class LEcuyerCMRG extends RNGInitAdapter {
+
+    /**
+     * The number of seeds, {@code .Random.seed} has one more element for the kinds.
+     */
+    public static final int NSEED = 6;
+
+    private static final long M1 = 4294967087L;
+    private static final long M2 = 4294944443L;
+    private static final double NORMC = 2.328306549295727688e-10;
+    private static final long A12 = 1403580;
+    private static final long A13N = 810728;
+    private static final long A21 = 527612;
+    private static final long A23N = 1370589;
+
+    private static final long[][] A1P76 = {
+                    {82758667L, 1871391091L, 4127413238L},
+                    {3672831523L, 69195019L, 1871391091L},
+                    {3672091415L, 3528743235L, 69195019L}
+    };
+
+    private static final long[][] A2P76 = {
+                    {1511326704L, 3759209742L, 1610795712L},
+                    {4292754251L, 1511326704L, 3889917532L},
+                    {3859662829L, 4292754251L, 3708466080L}
+    };
+
+    private static final long[][] A1P127 = {
+                    {2427906178L, 3580155704L, 949770784L},
+                    {226153695L, 1230515664L, 3580155704L},
+                    {1988835001L, 986791581L, 1230515664L}
+    };
+
+    private static final long[][] A2P127 = {
+                    {1464411153L, 277697599L, 1610723613L},
+                    {32183930L, 1464411153L, 1022607788L},
+                    {2824425944L, 32183930L, 2093834863L}
+    };
+
+    @Override
+    @TruffleBoundary
+    public void init(int seedParam) {
+        int seed = seedParam;
+        for (int i = 0; i < getNSeed(); i++) {
+            seed = (69069 * seed + 1);
+            while (Integer.toUnsignedLong(seed) >= M2) {
+                seed = (69069 * seed + 1);
+            }
+            setISeedItem(i, seed);
+        }
+    }
+
+    /**
+     * The first three seeds must be in {@code [0, m1)} and the last three in {@code [0, m2)}, not
+     * all of them zero, otherwise the generator is re-initialized (cf. FixupSeeds in RNG.c).
+     */
+    @Override
+    @TruffleBoundary
+    public void fixupSeeds(boolean initial) {
+        boolean notAllZero = false;
+        boolean allOK = true;
+        for (int i = 0; i < 3; i++) {
+            long tmp = Integer.toUnsignedLong(getISeedItem(i));
+            if (tmp != 0) {
+                notAllZero = true;
+            }
+            if (tmp >= M1) {
+                allOK = false;
+            }
+        }
+        for (int i = 3; i < 6; i++) {
+            long tmp = Integer.toUnsignedLong(getISeedItem(i));
+            if (tmp != 0) {
+                notAllZero = true;
+            }
+            if (tmp >= M2) {
+                allOK = false;
+            }
+        }
+        if (!notAllZero || !allOK) {
+            init(RRNG.timeToSeed());
+        }
+    }
+
+    @Override
+    public double genrandDouble() {
+        long p1 = A12 * Integer.toUnsignedLong(getISeedItem(1)) - A13N * Integer.toUnsignedLong(getISeedItem(0));
+        long k = p1 / M1;
+        p1 -= k * M1;
+        if (p1 < 0) {
+            p1 += M1;
+        }
+        setISeedItem(0, getISeedItem(1));
+        setISeedItem(1, getISeedItem(2));
+        setISeedItem(2, (int) p1);
+
+        long p2 = A21 * Integer.toUnsignedLong(getISeedItem(5)) - A23N * Integer.toUnsignedLong(getISeedItem(3));
+        k = p2 / M2;
+        p2 -= k * M2;
+        if (p2 < 0) {
+            p2 += M2;
+        }
+        setISeedItem(3, getISeedItem(4));
+        setISeedItem(4, getISeedItem(5));
+        setISeedItem(5, (int) p2);
+
+        return ((p1 > p2) ? (p1 - p2) : (p1 - p2 + M1)) * NORMC;
+    }
+
+    @Override
+    public Kind getKind() {
+        return Kind.LECUYER_CMRG;
+    }
+
+    @Override
+    public int getNSeed() {
+        return NSEED;
+    }
+
+    /**
+     * Returns the seed (in the format of {@code .Random.seed}) of the stream following the one
+     * given by {@code seeds}, cf. {@code nextRNGStream}.
+     */
+    public static int[] nextStream(int[] seeds) {
+        return advance(seeds, A1P127, A2P127);
+    }
+
+    /**
+     * Returns the seed (in the format of {@code .Random.seed}) of the substream following the one
+     * given by {@code seeds}, cf. {@code nextRNGSubStream}.
+     */
+    public static int[] nextSubStream(int[] seeds) {
+        return advance(seeds, A1P76, A2P76);
+    }
+
+    private static int[] advance(int[] seeds, long[][] a1, long[][] a2) {
+        int[] result = new int[7];
+        result[0] = seeds[0];
+        for (int i = 0; i < 3; i++) {
+            result[i + 1] = (int) matVecMod(a1[i], seeds, 1, M1);
+            result[i + 4] = (int) matVecMod(a2[i], seeds, 4, M2);
+        }
+        return result;
+    }
+
+    private static long matVecMod(long[] row, int[] seeds, int offset, long m) {
+        long tmp = 0;
+        for (int j = 0; j < 3; j++) {
+            // the product of two unsigned 32 bit values (plus tmp < m) fits into unsigned 64 bits
+            tmp = Long.remainderUnsigned(tmp + row[j] * Integer.toUnsignedLong(seeds[offset + j]), m);
+        }
+        return tmp;
+    }
+}
@@ -41,6 +41,12 @@ void dotCModifiedArguments(int* len, int* idata, double* rdata, int* ldata) {
     }
 }
 
+void dotCScale(int* len, double* data, double* factor) {
+    for (int i = 0; i < len[0]; i++) {
+	data[i] *= factor[0];
+    }
+}
+
 SEXP addInt(SEXP a, SEXP b) {
 	int aInt = INTEGER_VALUE(a);
 	int bInt = INTEGER_VALUE(b);
@@ -31,4 +31,11 @@ public class TestBuiltin_anyNA extends TestBase {
         assertEval("anyNA(list(list(4,5,NA), 3), recursive=TRUE)");
     }
 
+    @Test
+    public void testanyNASorted() {
+        assertEval("{ anyNA(1:10) }");
+        assertEval("{ anyNA(sort(c(3, NaN, 1))) }");
+        assertEval("{ x <- sort(c(3, 2, 1)); x[2] <- NaN; anyNA(x) }");
+        assertEval("{ anyNA(c(1L, 2L, NA)) }");
+    }
 }
@@ -270,4 +270,15 @@ public class TestBuiltin_ascharacter extends TestBase {
         assertEval("{ f1<-function() 7; f2<-function(x) { sys.call() }; as.character(f2(f1())) }");
         assertEval("{ f1<-function(x) 7; f2<-function(y) { sys.call() }; as.character(f2(f1(42))) }");
     }
+
+    @Test
+    public void testAsCharacterLarge() {
+        assertEval("{ x <- as.character(1:100); c(length(x), x[1], x[100]) }");
+        assertEval("{ x <- as.character(c(seq(0.5, 50, by=0.5), NA, 1e10, 1/3)); x[c(1, 2, 100:103)] }");
+        assertEval("{ y <- c(a=1L, b=2L); x <- as.character(rep(y, 50)); c(length(x), is.null(names(x))) }");
+        assertEval("{ y <- as.double(1:100); x <- as.character(y); y[1] <- 42; x[1:3] }");
+        assertEval("{ x <- as.character(1:100); x[3] <- \"a\"; paste(x[1:5], collapse=\",\") }");
+        assertEval("{ y <- as.double(1:100); for (i in 1:3) x <- as.character(y); y[1] <- 42; c(x[1], y[1]) }");
+        assertEval("{ f <- function(y) { x <- as.character(y); y[2] <- 7L; c(x[2], y[2]) }; f(1:100 + 0L) }");
+    }
 }
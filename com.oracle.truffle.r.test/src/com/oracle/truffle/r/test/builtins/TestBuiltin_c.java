@@ -543,4 +543,17 @@ public class TestBuiltin_c extends TestBase {
     public void testCombineBroken() {
         assertEval("{ c(1i,0/0) }");
     }
+
+    @Test
+    public void testCombineAppend() {
+        assertEval("{ x <- c(); for (i in 1:100) x <- c(x, i); x }");
+        assertEval("{ x <- numeric(); for (i in 1:20) x <- c(x, i, NA); x }");
+        assertEval("{ x <- 1L; for (i in 1:10) x <- c(x, i, TRUE); x }");
+        assertEval("{ x <- 1L; for (i in 1:3) x <- c(x, 2.5); x }");
+        assertEval("{ x <- c(1, 2); y <- x; x <- c(x, 3); list(x, y) }");
+        assertEval("{ x <- c(1, 2); f <- function() { x <- c(x, 3); x }; list(f(), x) }");
+        assertEval("{ x <- c(a=1); for (i in 1:3) x <- c(x, i); x }");
+        assertEval("{ x <- 1:3; x <- c(x, x); x }");
+        assertEval("{ c <- function(...) 42; x <- 1; x <- c(x, 2); x }");
+    }
 }
@@ -91,4 +91,13 @@ public class TestBuiltin_colSums extends TestBase {
         // colSums on array have correct values
         assertEval("{ a = colSums(array(1:24,c(2,3,4))); c(a[1,1],a[2,2],a[3,3],a[3,4]) }");
     }
+
+    @Test
+    public void testColSumsKernels() {
+        assertEval("{ m <- matrix(c(1, NA, NaN, 4, NaN, NA, 7, 8, 9, Inf, -Inf, 12), 3); list(colSums(m), colSums(m, na.rm=TRUE)) }");
+        assertEval("{ m <- matrix(c(1L, NA, 3L, 4L, 5L, 6L, NA, NA, NA), 3); list(colSums(m), colSums(m, na.rm=TRUE), colMeans(m), colMeans(m, na.rm=TRUE)) }");
+        assertEval("{ m <- matrix(c(TRUE, NA, FALSE, TRUE, TRUE, TRUE), 2); list(colSums(m), colSums(m, na.rm=TRUE), colMeans(m)) }");
+        assertEval("{ m <- matrix(as.double(1:600), 20); m[3, 7] <- NA; m[5, 9] <- NaN; list(colSums(m), colMeans(m), colMeans(m, na.rm=TRUE)) }");
+        assertEval("{ colSums(matrix(1, 2, 3)[, 0]) }");
+    }
 }
@@ -71,4 +71,12 @@ public class TestBuiltin_cummax extends TestBase {
         assertEval(Ignored.Unknown, "{ cummax(c(1+1i,2-3i,4+5i)) }");
         assertEval(Ignored.Unknown, "{ cummax(c(1+1i, NA, 2+3i)) }");
     }
+
+    @Test
+    public void testCummaxLarge() {
+        assertEval("{ x <- cummax(c(seq(1, 2e5), 5, NaN, 3)); c(x[2e5], x[2e5 + 1], x[2e5 + 2], x[2e5 + 3]) }");
+        assertEval("{ x <- cummax(c(rev(seq_len(3e5)), NA, 1L)); c(x[3e5], x[3e5 + 1]) }");
+        assertEval("{ cummax(c(1, NaN, 2, NA, 3)) }");
+        assertEval("{ cummax(numeric(0)) }");
+    }
 }
@@ -72,4 +72,11 @@ public class TestBuiltin_cummin extends TestBase {
         assertEval(Ignored.Unknown, "{ cummin(c(1+1i,2-3i,4+5i)) }");
         assertEval(Ignored.Unknown, "{ cummin(c(1+1i, NA, 2+3i)) }");
     }
+
+    @Test
+    public void testCumminLarge() {
+        assertEval("{ x <- cummin(c(seq(2e5, 1), 5, NaN, 3)); c(x[2e5], x[2e5 + 1], x[2e5 + 2], x[2e5 + 3]) }");
+        assertEval("{ x <- cummin(c(seq_len(3e5), NA, 1L)); c(x[3e5], x[3e5 + 1]) }");
+        assertEval("{ cummin(c(1, NaN, 0, NA, 3)) }");
+    }
 }
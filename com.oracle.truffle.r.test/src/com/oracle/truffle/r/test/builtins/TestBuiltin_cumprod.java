@@ -67,4 +67,13 @@ public class TestBuiltin_cumprod extends TestBase {
     public void testcumprod10() {
         assertEval("argv <- list(c(0.982149602642989, 0.91866776738084, 0.859369083800704, 0.921182928974104));cumprod(argv[[1]]);");
     }
+
+    @Test
+    public void testCumprodLarge() {
+        assertEval("{ x <- cumprod(rep(c(2, 0.5), 2e5)); c(x[1], x[4e5 - 1], x[4e5]) }");
+        assertEval("{ cumprod(c(2L, 3L, NA, 4L)) }");
+        assertEval("{ cumprod(c(65536L, 65536L, 2L)) }");
+        assertEval("{ x <- cumprod(c(0, rep(10, 2^17))); c(x[1], x[2^17], x[2^17 + 1], any(is.nan(x))) }");
+        assertEval("{ x <- cumprod(c(rep(10, 2^17), 0, 1)); c(x[2^17], x[2^17 + 1], x[2^17 + 2]) }");
+    }
 }
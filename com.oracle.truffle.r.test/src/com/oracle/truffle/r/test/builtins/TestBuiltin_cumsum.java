@@ -111,9 +111,17 @@ public class TestBuiltin_cumsum extends TestBase {
         assertEval("{ cumsum(as.raw(1:6)) }");
         assertEval("{ cumsum(rep(1e308, 3) ) }");
         assertEval("{ cumsum(c(1e308, 1e308, NA, 1, 2)) }");
-        // FIXME missing warning
-        assertEval(Ignored.Unknown, "{ cumsum(c(2000000000L, 2000000000L)) }");
-        // FIXME missing warning
-        assertEval(Ignored.Unknown, "{ cumsum(c(-2147483647L, -1L)) }");
+        assertEval("{ cumsum(c(2000000000L, 2000000000L)) }");
+        assertEval("{ cumsum(c(-2147483647L, -1L)) }");
+    }
+
+    @Test
+    public void testCumsumLarge() {
+        assertEval("{ x <- cumsum(rep(1L, 3e5)); c(x[1], x[150000], x[3e5]) }");
+        assertEval("{ x <- cumsum(c(rep(0.5, 2e5), NA, 1)); c(x[2e5], x[2e5 + 1], x[2e5 + 2]) }");
+        assertEval("{ x <- cumsum(rep(c(1e4L, -1L), 2e5)); c(x[4e5 - 1], x[4e5]) }");
+        assertEval("{ x <- cumsum(c(rep(10000L, 214748), 10000L, 1L)); c(x[214748], x[214749], x[214750]) }");
+        assertEval("{ x <- cumsum(rep(0.1, 3e5)); sprintf('%.17g', x[c(2^14, 2^14 + 1, 3e5)]) }");
+        assertEval("{ x <- cumsum(c(1e308, rep(1e308, 2^17), -Inf)); c(x[1], x[2], x[2^17 + 2]) }");
     }
 }
@@ -272,4 +272,21 @@ public class TestBuiltin_identical extends TestBase {
                         new String[]{"T", "F"}
         }));
     }
+
+    @Test
+    public void testVectors() {
+        assertEval("{ identical(c(1, NA), c(1, NaN)) }");
+        assertEval("{ identical(c(0, 1), c(-0, 1)) }");
+        assertEval("{ identical(c(0, 1), c(-0, 1), num.eq=FALSE) }");
+        assertEval("{ identical(c(1+2i, NA), c(1+2i, NA)) }");
+        assertEval("{ identical(c('a', NA), c('a', 'NA')) }");
+        assertEval("{ identical(c('a', NA), c('a', NA)) }");
+        assertEval("{ identical(as.raw(1:3), as.raw(c(1, 2, 4))) }");
+        assertEval("{ identical(c(TRUE, NA), c(TRUE, NA)) }");
+        assertEval("{ x <- runif(1000); identical(x, x) }");
+        assertEval("{ x <- c(1:1000, NA); y <- x; z <- x; z[1001] <- 1L; c(identical(x, y), identical(x, z), identical(x, as.integer(c(1:1000, NA)))) }");
+        assertEval("{ x <- c(as.double(1:1000), NaN); y <- x; z <- x; z[1001] <- NA; c(identical(x, y), identical(x, z), identical(z, y), identical(y, x)) }");
+        assertEval("{ x <- list(a=1:100, b=letters); y <- x; z <- x; z$b[26] <- 'Z'; c(identical(x, y), identical(x, z), identical(y, z)) }");
+        assertEval("{ x <- 1:100; dim(x) <- c(10, 10); y <- as.vector(x); c(identical(x, y), identical(as.vector(x), y)) }");
+    }
 }
@@ -75,4 +75,17 @@ public class TestBuiltin_lengthassign extends TestBase {
         assertEval("{ x<-c(42, 1); length(x)<-3.1; x }");
         assertEval("{ x<-c(42, 1); length(x)<-c(1,2) }");
     }
+
+    @Test
+    public void testGrowInPlace() {
+        assertEval("{ x <- numeric(); for (i in 1:50) x[length(x) + 1] <- i; x }");
+        assertEval("{ x <- integer(); for (i in 1:50) x[[i]] <- i; x }");
+        assertEval("{ x <- 1:3 + 0L; y <- x; x[5] <- 5L; list(x, y) }");
+        assertEval("{ x <- c(a=1, b=2); for (i in 3:5) x[i] <- i; x }");
+        assertEval("{ x <- c(1, 2); for (i in 1:5) length(x) <- length(x) + 2; x }");
+        assertEval("{ x <- c(1, 2); y <- x; length(x) <- 4; list(x, y) }");
+        assertEval("{ `length<-`(numeric(3), 10) + 1 }");
+        assertEval("{ -`length<-`(1:3 + 0L, 7) }");
+        assertEval("{ x <- numeric(); for (i in 1:20) { x[i] <- i; y <- x * 2 }; list(x, y, sum(x)) }");
+    }
 }
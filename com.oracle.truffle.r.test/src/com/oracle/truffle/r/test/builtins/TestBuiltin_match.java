@@ -205,4 +205,14 @@ public class TestBuiltin_match extends TestBase {
         assertEval("{ match(c(7, 42), NULL, 1L) }");
         assertEval("{ match(NULL, NULL) }");
     }
+
+    @Test
+    public void testMatchSorted() {
+        assertEval("{ match(c(3L, 0L, 10L, NA), 1:10) }");
+        assertEval("{ match(c(2.5, 3, NA, NaN), seq(1, 5, by=0.5)) }");
+        assertEval("{ match(c(1, 2, 3, 4), sort(c(3, 1, 3, 2, 1))) }");
+        assertEval("{ match(c(1L, 2L, 3L, 4L), sort(c(3L, 1L, 3L, 2L, 1L), decreasing=TRUE)) }");
+        assertEval("{ match(c(0, -0), sort(c(-0, 0, 1))) }");
+        assertEval("{ match(10:1, 10:1) }");
+    }
 }
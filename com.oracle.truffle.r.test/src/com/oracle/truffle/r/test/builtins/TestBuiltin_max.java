@@ -220,4 +220,14 @@ public class TestBuiltin_max extends TestBase {
         assertEval(Ignored.Unknown, Output.IgnoreWarningContext, "{ max(as.integer(NA), na.rm=TRUE) }");
         assertEval(Ignored.Unknown, Output.IgnoreWarningContext, "{ max(as.integer(NA), as.integer(NA), na.rm=TRUE) }");
     }
+
+    @Test
+    public void testMaxSorted() {
+        assertEval("{ max(1:100) }");
+        assertEval("{ max(seq(10, 1, by=-0.5)) }");
+        assertEval("{ max(sort(c(3, 1, 2))) }");
+        assertEval("{ x <- sort(c(3L, 1L, 2L)); x[1] <- 10L; max(x) }");
+        assertEval("{ min(sort(c(3, 1, 2), decreasing=TRUE)) }");
+        assertEval("{ min(rep(5L, 100)) }");
+    }
 }
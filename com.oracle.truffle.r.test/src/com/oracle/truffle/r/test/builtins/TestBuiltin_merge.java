@@ -46,4 +46,39 @@ public class TestBuiltin_merge extends TestBase {
         assertEval(init + "merge(x, y, by = 'k1')");
         assertEval(Ignored.ImplementationError, init + "merge(x, y, by = 'k2', incomparables = NA)");
     }
+
+    @Test
+    public void testMergeJoins() {
+        String init = "x <- data.frame(k = c(3, 1, 2, 1, 4), a = 1:5); y <- data.frame(k = c(1, 5, 3, 1), b = letters[1:4]);";
+        assertEval(init + "merge(x, y)");
+        assertEval(init + "merge(x, y, all.x = TRUE)");
+        assertEval(init + "merge(x, y, all = TRUE)");
+        assertEval(init + "merge(x, y, sort = FALSE)");
+        assertEval("{ .Internal(merge(c(2L, 0L, 1L, 2L), c(1L, 2L, 2L, 0L), TRUE, TRUE)) }");
+        assertEval("{ .Internal(merge(c(1L, 0L), c(0L, 0L), FALSE, TRUE)) }");
+    }
+
+    @Test
+    public void testMergeDuplicateKeys() {
+        // more than 9 rows, where the shell sort of the keys is not stable
+        assertEval("{ .Internal(merge(rep_len(c(2L, 1L, 0L, 2L), 23), c(1L, 2L, 0L, 1L, 2L), TRUE, TRUE)) }");
+        assertEval("{ .Internal(merge(c(1L, 1L, 0L, 1L, 0L, 1L, 1L, 0L, 1L, 1L, 0L, 1L), rep_len(c(0L, 1L), 11), TRUE, TRUE)) }");
+        String init = "x <- data.frame(k = rep_len(c(3, 1, 2, 1), 14), a = 1:14); y <- data.frame(k = c(1, 5, 3, 1, 3), b = letters[1:5]);";
+        assertEval(init + "merge(x, y)");
+        assertEval(init + "merge(x, y, all = TRUE)");
+        assertEval(init + "merge(x, y, sort = FALSE)");
+    }
+
+    @Test
+    public void testMergeMultipleKeys() {
+        String init = "x <- data.frame(k = rep_len(c(3, 1, 2, 1), 14), j = rep_len(c('a', 'b'), 14), a = 1:14); y <- data.frame(k = c(1L, 5L, 3L, 1L, 3L), j = factor(c('b', 'a', 'a', 'b', 'b')), b = letters[1:5]);";
+        assertEval(init + "merge(x, y)");
+        assertEval(init + "merge(x, y, all = TRUE)");
+        assertEval(init + "merge(x, y, all.y = TRUE, sort = FALSE)");
+        assertEval(init + "merge(x, y, by = 'k')");
+        assertEval(init + "merge(x, y, by.x = c('j', 'k'), by.y = c('j', 'k'))");
+        // a numeric and a character key compare as character
+        assertEval("{ merge(data.frame(k = c(1, 2, 10), a = 1:3), data.frame(k = c('10', '1'), b = 1:2)) }");
+        assertEval("{ merge(data.frame(k = c(1, NA, 2), a = 1:3), data.frame(k = c(NA, 1), b = 1:2), incomparables = NA) }");
+    }
 }
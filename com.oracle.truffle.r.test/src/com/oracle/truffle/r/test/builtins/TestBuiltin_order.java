@@ -163,4 +163,16 @@ public class TestBuiltin_order extends TestBase {
 
         assertEval("order(c('40 50', '405', '40 51', '4028', '40 20', '40 30', '404'))");
     }
+
+    @Test
+    public void testOrderSorted() {
+        assertEval("{ order(1:10, decreasing=TRUE) }");
+        assertEval("{ order(seq(10, 1, by=-1)) }");
+        assertEval("{ x <- sort(c(3, 1, 2, 1, 3)); order(x); order(x, decreasing=TRUE) }");
+        assertEval("{ x <- sort(c(3L, 1L, 2L, 1L)); order(x, decreasing=TRUE) }");
+        assertEval("{ x <- sort(c(3L, 1L, 2L, 1L)); x[2] <- 5L; order(x) }");
+        assertEval("{ order(-sort(c(3, 1, 2))) }");
+        assertEval("{ order(sort(c(3L, 1L, 2L)) * -1L) }");
+        assertEval("{ x <- sort(c(3, 1, 2)); y <- x + 0; order(x); order(y) }");
+    }
 }
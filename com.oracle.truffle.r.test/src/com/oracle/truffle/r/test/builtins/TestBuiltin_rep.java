@@ -219,4 +219,15 @@ public class TestBuiltin_rep extends TestBase {
         assertEval("{ rep(c(7, 42), times=c(2, NA)) }");
         assertEval(Output.IgnoreWarningContext, "{ rep(7, times=\"foo\") }");
     }
+
+    @Test
+    public void testRepConstant() {
+        assertEval("{ x <- rep(3, 100); c(length(x), x[1], x[100], sum(x)) }");
+        assertEval("{ x <- rep(7L, 100); c(typeof(x), length(unique(x)), max(x), min(x)) }");
+        assertEval("{ x <- rep(0, 100); x[5] <- 1; c(sum(x), which(x == 1)) }");
+        assertEval("{ x <- rep(1, 100); y <- x * Inf; y[1:3] }");
+        assertEval("{ x <- 1:10; x[rep(2L, 100)] <- 5L; x }");
+        assertEval("{ x <- rep(2.5, 100); order(x)[1:5]; order(x, decreasing=TRUE)[1:5] }");
+        assertEval("{ rep(NA_integer_, 100)[1:3] }");
+    }
 }
@@ -102,4 +102,13 @@ public class TestBuiltin_rowSums extends TestBase {
 
         assertEval("{x<-matrix(c(\"1\",\"2\",\"3\",\"4\"),ncol=2);rowSums(x)}");
     }
+
+    @Test
+    public void testRowSumsKernels() {
+        assertEval("{ m <- matrix(c(1, NA, NaN, 4, NaN, NA, 7, 8, 9, Inf, -Inf, 12), 3); list(rowSums(m), rowSums(m, na.rm=TRUE), rowMeans(m), rowMeans(m, na.rm=TRUE)) }");
+        assertEval("{ m <- matrix(c(1L, NA, 3L, 4L, 5L, 6L), 2); list(rowSums(m), rowSums(m, na.rm=TRUE), rowMeans(m, na.rm=TRUE)) }");
+        assertEval("{ m <- matrix(as.double(1:6000), 2000); m[1500, 2] <- NA; x <- rowSums(m); list(x[1:5], x[1498:1502], sum(x, na.rm=TRUE)) }");
+        assertEval("{ m <- matrix(c(NA, NA, 1, 2), 2); rowMeans(m, na.rm=TRUE) }");
+        assertEval("{ rowSums(matrix(1:6, 2), dims=1L) }");
+    }
 }
@@ -101,4 +101,18 @@ public class TestBuiltin_sample extends TestBase {
         assertEval(Output.IgnoreErrorContext, "set.seed(42); sample(4, prob=c(1,2))");
         assertEval(Output.IgnoreErrorContext, "set.seed(42); sample(4, prob=c(-1,1,1,2))");
     }
+
+    @Test
+    public void testSampleLarge() {
+        // Walker alias method
+        assertEval("{ set.seed(42); x <- sample(1000, 20, TRUE, prob=(1:1000)/1000); x }");
+        assertEval("{ set.seed(42); w <- rep(c(1, 3), 250); s <- 0; for (i in 1:20) s <- s + sum(sample(500, 500, TRUE, w)); s }");
+        assertEval("{ set.seed(42); w <- c(rep(0, 100), 1:400); x <- sample(500, 1000, TRUE, w); c(min(x), max(x), x[1:10]) }");
+        // reused table for an updated prob vector
+        assertEval("{ set.seed(42); w <- rep(1, 10); x <- sample(10, 5, TRUE, w); w[3] <- 100; c(x, sample(10, 5, TRUE, w)) }");
+        assertEval("{ set.seed(42); w <- rep(1, 1000); x <- sample(1000, 5, TRUE, w); w[3] <- 1e6; c(x, sample(1000, 5, TRUE, w)) }");
+        // sparse sampling without replacement
+        assertEval("{ set.seed(42); sample(100000, 10) }");
+        assertEval("{ set.seed(42); x <- sample(1e6, 5000); c(length(unique(x)), x[4990:5000]) }");
+    }
 }
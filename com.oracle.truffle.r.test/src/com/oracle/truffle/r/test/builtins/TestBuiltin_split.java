@@ -118,4 +118,11 @@ public class TestBuiltin_split extends TestBase {
         assertEval("{ g <- factor(round(c(0.4,1.3,0.6,1.8,2.5,4.1,2.2,1.0))) ; x <- c(0.1,3.2,1,0.6,1.9,3.3,1.6,1.7) + sqrt(as.numeric(g)) ; xg <- split(x, g) ; xg }");
         assertEval("{ x <- factor(c(\"a\", \"b\", \"a\")); attr(x, \"levels\")<-c(7L, 42L) ; split(1:3, x) }");
     }
+
+    @Test
+    public void testSplitNAFactor() {
+        assertEval("{ split(c(1, 2, NA, 4, 5), factor(c('a', NA, 'b', 'a', 'b'))) }");
+        assertEval("{ split(c('x', 'y', 'z'), factor(c(NA, 'u', 'u'), levels=c('u', 'v'))) }");
+        assertEval("{ x <- split(seq_len(1e5), rep_len(1:3, 1e5)); lengths(x) }");
+    }
 }
@@ -191,4 +191,12 @@ public class TestBuiltin_unique extends TestBase {
         assertEval(Ignored.Unknown, "{ unique(c(1,2,1), incomparables=function() 42) }");
 
     }
+
+    @Test
+    public void testUniqueSorted() {
+        assertEval("{ unique(1:10) }");
+        assertEval("{ unique(sort(c(3, 1, 2, 1, 3, -0, 0))) }");
+        assertEval("{ unique(sort(c(3L, 1L, 2L, 1L, 3L), decreasing=TRUE)) }");
+        assertEval("{ unique(rep(4L, 100)) }");
+    }
 }
@@ -106,6 +106,20 @@ public class TestSimpleArithmetic extends TestBase {
         assertEval("{ c(2,3) + c(1L,NA)}");
     }
 
+    @Test
+    public void testVectorsLarge() {
+        // long enough for the operations to be deferred and fused
+        assertEval("{ n <- 200000; a <- (1:n) / 7; b <- rev(a); c <- a * 3; x <- a * b + c * 2 - a / 4; c(length(x), x[1], x[n], sum(x)) }");
+        assertEval("{ n <- 200000; a <- as.double(1:n); a[10] <- NA; b <- a; b[20] <- NaN; x <- (a + 1) * (b - 1); c(x[9:11], x[19:21], sum(is.na(x)), sum(is.nan(x))) }");
+        assertEval("{ n <- 200000; a <- as.double(1:n); x <- a * 2; a[1] <- 100; c(x[1], a[1]) }");
+        assertEval("{ n <- 200000; a <- as.double(1:n); d <- a * 2; e <- d + 1; a[1] <- 100; d[2] <- 0; c(e[1], e[2], d[1], d[2], a[1]) }");
+        assertEval("{ n <- 200000; a <- as.double(1:n); for (i in 1:3) { d <- a * i; e <- d - 1 }; a[1] <- 0; d[1] <- 0; c(a[1:2], d[1:2], e[1:2]) }");
+        assertEval("{ n <- 200000; a <- as.double(1:n); x <- a + 1; y <- x * x; x[2] <- 0; c(x[1:3], y[1:3]) }");
+        assertEval("{ n <- 200000; a <- as.double(1:n); x <- a; for (i in 1:40) x <- x * 1.5 - a; c(x[1], x[n]) }");
+        assertEval("{ n <- 200000; a <- as.double(1:n); x <- 1 / (a + 0.5); names(x) <- NULL; c(x[1], mean(x), max(x)) }");
+        assertEval("{ n <- 200000; a <- as.double(1:n); m <- matrix(a, 400); x <- m * 2 + a; dim(x) }");
+    }
+
     @Test
     public void testScalarsComplexIgnore() {
         assertEval("{ (1+2i)^(-2) }");
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestDistBlock extends TestBase {
+
+    @Test
+    public void testDistBlock() {
+        assertEvalFastR("{ set.seed(3); x <- matrix(runif(40), 10); identical(c(.fastr.dist.block(x, 'euclidean', 1, 4), .fastr.dist.block(x, 'euclidean', 5, 10)), as.vector(dist(x))) }", "TRUE");
+        assertEvalFastR("{ set.seed(3); x <- matrix(runif(40), 10); identical(.fastr.dist.block(x, 'minkowski', 1, 10, p=1.5), as.vector(dist(x, 'minkowski', p=1.5))) }", "TRUE");
+        assertEvalFastR("{ x <- matrix(1:6, 3); .fastr.dist.block(x, 'manhattan', 2, 2) }", "2");
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestGroupedAggregate extends TestBase {
+
+    @Test
+    public void testGroupedAggregate() {
+        assertEvalFastR("{ .fastr.grouped.aggregate(c(1, 2, 3, 4, 5), c(1L, 2L, 1L, 2L, NA), 3L, 'sum') }", "c(4, 6, 0)");
+        assertEvalFastR("{ .fastr.grouped.aggregate(c(1, 2, 3, NA), c(1L, 1L, 2L, 2L), 2L, 'mean') }", "c(1.5, NA)");
+        assertEvalFastR("{ .fastr.grouped.aggregate(c(1, 2, 3, NA), c(1L, 1L, 2L, 2L), 2L, 'mean', na.rm=TRUE) }", "c(1.5, 3)");
+        assertEvalFastR("{ .fastr.grouped.aggregate(c(5, NaN, 3, NA, 7), c(1L, 1L, 2L, 2L, 1L), 3L, 'min') }", "c(NaN, NA, Inf)");
+        assertEvalFastR("{ .fastr.grouped.aggregate(c(5, NaN, 3, NA, 7), c(1L, 1L, 2L, 2L, 1L), 2L, 'max', na.rm=TRUE) }", "c(7, 3)");
+        assertEvalFastR("{ .fastr.grouped.aggregate(c(1, 2, 4, 8, 16), c(1L, 1L, 1L, 2L, 3L), 3L, 'var') }", "c(var(c(1, 2, 4)), NA, NA)");
+        assertEvalFastR("{ .fastr.grouped.aggregate(c(1, NA, 3), c(2L, 2L, 2L), 2L, 'count', na.rm=TRUE) }", "c(0L, 2L)");
+    }
+
+    @Test
+    public void testGroupedAggregateLarge() {
+        // aggregated in blocks, the results must match the per-group functions
+        assertEvalFastR("{ set.seed(1); x <- runif(5e5); g <- sample(1:7, 5e5, replace=TRUE); " +
+                        "all.equal(.fastr.grouped.aggregate(x, g, 7L, 'var'), sapply(split(x, g), var), check.names=FALSE) }", "TRUE");
+        assertEvalFastR("{ set.seed(1); x <- runif(5e5); g <- sample(1:7, 5e5, replace=TRUE); " +
+                        "identical(.fastr.grouped.aggregate(x, g, 7L, 'max'), unname(sapply(split(x, g), max))) }", "TRUE");
+    }
+
+    @Test
+    public void testTapply() {
+        assertEvalFastR("{ tapply(c(1, 2, 3, 4), factor(c('a', 'b', 'a', 'c'), levels=c('a', 'b', 'c', 'd')), sum) }", "array(c(4, 2, 4, NA), 4L, list(c('a', 'b', 'c', 'd')))");
+        assertEvalFastR("{ tapply(c(1, NA, 3, 4), list(c(1, 1, 2, 2), c('x', 'y', 'x', 'y')), mean, na.rm=TRUE) }", "matrix(c(1, 3, NaN, 4), 2, dimnames=list(c('1', '2'), c('x', 'y')))");
+        assertEvalFastR("{ tapply(letters[1:5], c(1, 2, 1, 1, 2), length) }", "array(c(3L, 2L), 2L, list(c('1', '2')))");
+        assertEvalFastR("{ tapply(c(2, 5, 1), c('u', 'v', 'u'), function(x) max(x) * 2) }", "array(c(4, 10), 2L, list(c('u', 'v')))");
+    }
+
+    @Test
+    public void testGroupedAggregateErrors() {
+        assertEvalFastR("{ tryCatch(.fastr.grouped.aggregate(1:3, 1:2, 2L), error=function(e) conditionMessage(e)) }", "'arguments must have same length'");
+        assertEvalFastR("{ tryCatch(.fastr.grouped.aggregate(1:3, 1:3, 3L, 'median'), error=function(e) 'error') }", "'error'");
+    }
+}
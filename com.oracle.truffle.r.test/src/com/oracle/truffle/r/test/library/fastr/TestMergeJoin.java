@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestMergeJoin extends TestBase {
+
+    @Test
+    public void testMergeJoin() {
+        assertEvalFastR("{ .fastr.merge.join(c(3, 1, 2, 1), c(1, 3, 1)) }", "list(xi = c(1L, 2L, 2L, 4L, 4L), yi = c(2L, 1L, 3L, 1L, 3L), x.alone = NULL, y.alone = NULL)");
+        assertEvalFastR("{ .fastr.merge.join(c(3L, NA, 5L), c(NA, 3, 4), all.x=TRUE, all.y=TRUE) }", "list(xi = 1:2, yi = c(2L, 1L), x.alone = 3L, y.alone = 3L)");
+        assertEvalFastR("{ .fastr.merge.join(c('a', 'NA', NA), factor(c(NA, 'a', 'NA'))) }", "list(xi = 1:3, yi = c(2L, 3L, 1L), x.alone = NULL, y.alone = NULL)");
+        assertEvalFastR("{ .fastr.merge.join(c(0, NaN, NA), c(NA, -0, NaN)) }", "list(xi = 1:3, yi = c(2L, 3L, 1L), x.alone = NULL, y.alone = NULL)");
+    }
+
+    @Test
+    public void testMergeJoinDuplicateKeys() {
+        // the rows of a key stay in their original order
+        assertEvalFastR("{ .fastr.merge.join(rep(c(2, 1), 6), c(1, 2, 1)) }",
+                        "list(xi = c(1L, 3L, 5L, 7L, 9L, 11L, 2L, 2L, 4L, 4L, 6L, 6L, 8L, 8L, 10L, 10L, 12L, 12L), yi = c(2L, 2L, 2L, 2L, 2L, 2L, 1L, 3L, 1L, 3L, 1L, 3L, 1L, 3L, 1L, 3L, 1L, 3L), x.alone = NULL, y.alone = NULL)");
+        assertEvalFastR("{ .fastr.merge.join(c(1, 1), rep(c(1, 2), 6), all.y=TRUE) }",
+                        "list(xi = c(1L, 1L, 1L, 1L, 1L, 1L, 2L, 2L, 2L, 2L, 2L, 2L), yi = c(1L, 3L, 5L, 7L, 9L, 11L, 1L, 3L, 5L, 7L, 9L, 11L), x.alone = NULL, y.alone = c(2L, 4L, 6L, 8L, 10L, 12L))");
+    }
+
+    @Test
+    public void testMergeJoinMultipleKeys() {
+        assertEvalFastR("{ x <- data.frame(a = c(1, 1, 2, 2), b = c('u', 'v', 'u', 'v')); y <- data.frame(a = c(2L, 1L, 2L), b = c('v', 'v', 'w')); .fastr.merge.join(x, y, all.y=TRUE) }",
+                        "list(xi = c(2L, 4L), yi = c(2L, 1L), x.alone = NULL, y.alone = 3L)");
+        // larger than the probe blocks and with the build side on y
+        assertEvalFastR("{ n <- 1e5; x <- list(rep_len(1:10, n), rep_len(c('a', 'b'), n)); y <- list(c(3L, 4L), c('a', 'b')); m <- .fastr.merge.join(x, y); " +
+                        "c(length(m$xi), range(m$yi), all(x[[1]][m$xi] == y[[1]][m$yi] & x[[2]][m$xi] == y[[2]][m$yi])) }", "c(20000, 1, 2, 1)");
+    }
+
+    @Test
+    public void testMergeJoinErrors() {
+        assertEvalFastR("{ tryCatch(.fastr.merge.join(list(1, 2), list(1)), error=function(e) 'error') }", "'error'");
+        assertEvalFastR("{ tryCatch(.fastr.merge.join(1:3, c('1', '2')), error=function(e) 'error') }", "'error'");
+        assertEvalFastR("{ tryCatch(.fastr.merge.join(list(1:2, 1:3), list(1, 2)), error=function(e) 'error') }", "'error'");
+    }
+}
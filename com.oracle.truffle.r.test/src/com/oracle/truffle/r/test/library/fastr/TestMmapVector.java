@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestMmapVector extends TestBase {
+
+    @Test
+    public void testMmapVector() {
+        assertEvalFastR("{ f <- tempfile(); writeBin(c(1.5, 2.5, NA, 4.5), f); x <- .fastr.mmap.vector(f); r <- list(length(x), x[2:3], x * 2, sum(x, na.rm=TRUE)); unlink(f); r }",
+                        "list(4L, c(2.5, NA), c(3, 5, NA, 9), 8.5)");
+        assertEvalFastR("{ f <- tempfile(); writeBin(1:10, f); x <- .fastr.mmap.vector(f, 'integer', 5); r <- list(typeof(x), x, x[x > 2L] + 1L); unlink(f); r }", "list('integer', 1:5, 4:6)");
+        assertEvalFastR("{ f <- tempfile(); writeBin(as.raw(1:3), f); x <- .fastr.mmap.vector(f, 'raw'); r <- x[[3]]; unlink(f); r }", "as.raw(3)");
+    }
+
+    @Test
+    public void testMmapVectorWrite() {
+        // subassignment has value semantics and never touches the file
+        assertEvalFastR("{ f <- tempfile(); writeBin(c(1, 2, 3, 4), f); x <- .fastr.mmap.vector(f, writable=TRUE); y <- x; x[2:3] <- c(7, 9); r <- list(x, y, readBin(f, 'double', 10)); unlink(f); r }",
+                        "list(c(1, 7, 9, 4), c(1, 2, 3, 4), c(1, 2, 3, 4))");
+        assertEvalFastR("{ f <- tempfile(); writeBin(c(1, 2, 3), f); x <- .fastr.mmap.vector(f, writable=TRUE); g <- function(v) { v[1] <- 10; v }; r <- list(g(x), x, readBin(f, 'double', 10)); unlink(f); r }",
+                        "list(c(10, 2, 3), c(1, 2, 3), c(1, 2, 3))");
+        assertEvalFastR("{ f <- tempfile(); writeBin(c(1, 2), f); x <- .fastr.mmap.vector(f, writable=TRUE); x[3] <- 3; r <- list(x, readBin(f, 'double', 10)); unlink(f); r }", "list(c(1, 2, 3), c(1, 2))");
+        // explicit writes go to the file and are seen through every reference
+        assertEvalFastR("{ f <- tempfile(); x <- .fastr.mmap.vector(f, 'integer', 4, writable=TRUE); y <- x; .fastr.mmap.write(x, 2:3, c(7L, 9L)); r <- list(y, readBin(f, 'integer', 10)); unlink(f); r }",
+                        "list(c(0L, 7L, 9L, 0L), c(0L, 7L, 9L, 0L))");
+        assertEvalFastR("{ f <- tempfile(); writeBin(c(1, -2, 3, -4), f); x <- .fastr.mmap.vector(f, writable=TRUE); .fastr.mmap.write(x, which(x < 0), 0); r <- readBin(f, 'double', 10); unlink(f); r }",
+                        "c(1, 0, 3, 0)");
+        assertEvalFastR("{ f <- tempfile(); writeBin(c(1, 2), f); x <- .fastr.mmap.vector(f); r <- tryCatch(.fastr.mmap.write(x, 1, 5), error=function(e) conditionMessage(e)); unlink(f); r }",
+                        "'memory-mapped vector is read-only'");
+        assertEvalFastR("{ f <- tempfile(); writeBin(c(1, 2), f); x <- .fastr.mmap.vector(f, writable=TRUE); r <- tryCatch(.fastr.mmap.write(x, c(1, 3), 5), error=function(e) 'error'); r <- list(r, readBin(f, 'double', 10)); unlink(f); r }",
+                        "list('error', c(1, 2))");
+    }
+
+    @Test
+    public void testMmapLongVector() {
+        // sparse file, only the touched pages are allocated
+        assertEvalFastR("{ f <- tempfile(); x <- .fastr.mmap.vector(f, 'raw', 2^31 + 10, writable=TRUE); .fastr.mmap.write(x, 2^31 + 5, as.raw(7)); .fastr.mmap.write(x, c(1, 2^31 + 4), as.raw(3:4)); " +
+                        "r <- list(length(x), x[c(2^31 + 4, 2^31 + 5, 2^31 + 20)], x[[1]]); unlink(f); r }",
+                        "list(2^31 + 10, as.raw(c(4, 7, 0)), as.raw(3))");
+        assertEvalFastR("{ f <- tempfile(); x <- .fastr.mmap.vector(f, 'raw', 2^31 + 10, writable=TRUE); r <- tryCatch({ x[[1]] <- as.raw(1); 'ok' }, error=function(e) 'error'); unlink(f); r }", "'error'");
+    }
+
+    @Test
+    public void testMmapVectorErrors() {
+        assertEvalFastR("{ tryCatch(.fastr.mmap.vector(tempfile(), 'character'), error=function(e) conditionMessage(e)) }", "'invalid \\'type\\', must be \"double\", \"integer\" or \"raw\"'");
+        assertEvalFastR("{ f <- tempfile(); writeBin(1:2, f); r <- tryCatch(.fastr.mmap.vector(f, 'integer', 3), error=function(e) 'error'); unlink(f); r }", "'error'");
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestOffHeapVector extends TestBase {
+
+    @Test
+    public void testOffHeapVector() {
+        assertEvalFastR("{ x <- .fastr.offheap.vector(c(1.5, NA, 3)); list(typeof(x), length(x), x, sum(x, na.rm=TRUE)) }", "list('double', 3L, c(1.5, NA, 3), 4.5)");
+        assertEvalFastR("{ x <- .fastr.offheap.vector(1:5); y <- x; x[2] <- 7L; list(x, y, x * 2L) }", "list(c(1L, 7L, 3L, 4L, 5L), c(1L, 7L, 3L, 4L, 5L), c(2L, 14L, 6L, 8L, 10L))");
+        assertEvalFastR("{ .fastr.offheap.vector(as.raw(c(1, 255))) }", "as.raw(c(1, 255))");
+        assertEvalFastR("{ x <- .fastr.offheap.vector(c(a=1, b=2)); x[3] <- 3; list(names(x), x) }", "list(NULL, c(1, 2, 3))");
+        assertEvalFastR("{ tryCatch(.fastr.offheap.vector('a'), error=function(e) conditionMessage(e)) }", "'\\'x\\' must be a double, integer or raw vector'");
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestPerfReport extends TestBase {
+
+    @Test
+    public void testPerfReport() {
+        assertEvalFastR("{ invisible(.fastr.perfreport(TRUE)); f <- function(x) { x[1] <- 0; x }; y <- c(1, 2, 3); z <- f(y); r <- .fastr.perfreport(FALSE); any(r$kind == 'COPY' & r$bytes >= 24) }",
+                        "TRUE");
+        assertEvalFastR("{ invisible(.fastr.perfreport(TRUE)); x <- 1:10; x[2] <- 5L; r <- .fastr.perfreport(FALSE); any(r$kind == 'MATERIALIZE' & r$detail == 'RIntSequence') }", "TRUE");
+        assertEvalFastR("{ r <- .fastr.perfreport(FALSE); list(names(r), class(r)) }", "list(c('kind', 'location', 'detail', 'count', 'bytes'), 'data.frame')");
+        assertEvalFastR("{ invisible(.fastr.perfreport(TRUE)); for (i in 1:3) { y <- c(1, 2); z <- y; z[1] <- i }; nrow(.fastr.perfreport(FALSE, top = 1)) }", "1L");
+    }
+
+    @Test
+    public void testPerfReportWithOtherTracers() {
+        // turning off the tracing of tracemem or of Rprof does not stop the recording of copies
+        assertEvalFastR("{ invisible(.fastr.perfreport(TRUE)); old <- tracingState(FALSE); y <- c(1, 2, 3); z <- y; z[1] <- 0; tracingState(old); r <- .fastr.perfreport(FALSE); any(r$kind == 'COPY') }",
+                        "TRUE");
+        assertEvalFastR("{ f <- tempfile(); Rprof(f, memory.profiling = TRUE); invisible(.fastr.perfreport(TRUE)); Rprof(NULL); unlink(f); y <- c(1, 2, 3); z <- y; z[1] <- 0; r <- .fastr.perfreport(FALSE); any(r$kind == 'COPY') }",
+                        "TRUE");
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestProfFunctions extends TestBase {
+
+    @Test
+    public void testProfFunctions() {
+        assertEvalFastR("{ invisible(.fastr.prof.functions(TRUE)); g <- function(n) numeric(n); f <- function() { for (i in 1:3) g(100) }; f(); r <- .fastr.prof.functions(FALSE); list(r$calls[r$name == 'f'], r$calls[r$name == 'g']) }",
+                        "list(1, 3)");
+        assertEvalFastR("{ invisible(.fastr.prof.functions(TRUE)); g <- function(n) numeric(n); f <- function() g(1000); f(); r <- .fastr.prof.functions(FALSE); r$allocated[r$name == 'g'] >= 8000 && r$inclusive[r$name == 'f'] >= r$inclusive[r$name == 'g'] }",
+                        "TRUE");
+        assertEvalFastR("{ invisible(.fastr.prof.functions(TRUE)); f <- function(x) { x[1] <- 0; x }; y <- c(1, 2, 3); z <- f(y); r <- .fastr.prof.functions(FALSE); r$copied[r$name == 'f'] >= 24 }", "TRUE");
+        assertEvalFastR("{ r <- .fastr.prof.functions(FALSE); list(names(r), class(r)) }",
+                        "list(c('name', 'location', 'calls', 'inclusive', 'exclusive', 'allocated', 'copied'), 'data.frame')");
+        assertEvalFastR("{ invisible(.fastr.prof.functions(TRUE)); f <- function() 1; g <- function() 2; f(); g(); g(); r <- .fastr.prof.functions(FALSE, sort = 'calls', top = 1); r$name }", "'g'");
+    }
+
+    @Test
+    public void testProfFunctionsRecursion() {
+        // every activation is a call, but only the outermost one counts for the inclusive time
+        assertEvalFastR("{ invisible(.fastr.prof.functions(TRUE)); f <- function(n) if (n > 0) f(n - 1) else sum(as.double(1:1e5)); w <- function() f(20); w(); r <- .fastr.prof.functions(FALSE); " +
+                        "list(r$calls[r$name == 'f'], r$inclusive[r$name == 'f'] <= r$inclusive[r$name == 'w'], r$exclusive[r$name == 'f'] <= r$inclusive[r$name == 'f']) }", "list(21, TRUE, TRUE)");
+        // closures created from one definition are one function
+        assertEvalFastR("{ invisible(.fastr.prof.functions(TRUE)); mk <- function(k) function(x) x + k; a <- mk(1); b <- mk(2); a(1); b(1); b(2); r <- .fastr.prof.functions(FALSE); " +
+                        "list(sum(r$name != 'mk'), sum(r$calls[r$name != 'mk']), r$calls[r$name == 'mk']) }", "list(1L, 3, 2)");
+    }
+
+    @Test
+    public void testProfFunctionsExclusiveTime() {
+        // the exclusive times of the functions called by w add up to the inclusive time of w
+        assertEvalFastR("{ invisible(.fastr.prof.functions(TRUE)); h <- function() sum(as.double(1:2e5)); g <- function() { h(); h() }; w <- function() { g(); h() }; w(); r <- .fastr.prof.functions(FALSE); " +
+                        "r <- r[r$name %in% c('w', 'g', 'h'), ]; list(r$calls[order(r$name)], isTRUE(all.equal(sum(r$exclusive), r$inclusive[r$name == 'w'])), " +
+                        "r$exclusive[r$name == 'g'] < r$inclusive[r$name == 'g']) }", "list(c(1, 3, 1), TRUE, TRUE)");
+    }
+
+    @Test
+    public void testProfFunctionsWithRprofmem() {
+        // stopping the profiler does not stop the allocation tracing of Rprofmem
+        assertEvalFastR("{ f <- tempfile(); Rprofmem(f, threshold = 1000); invisible(.fastr.prof.functions(TRUE)); invisible(.fastr.prof.functions(FALSE)); g <- function() numeric(1e4); g(); Rprofmem(NULL); " +
+                        "r <- length(readLines(f)) > 0; unlink(f); r }", "TRUE");
+    }
+}
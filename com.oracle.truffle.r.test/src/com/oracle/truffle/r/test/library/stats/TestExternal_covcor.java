@@ -34,6 +34,20 @@ public class TestExternal_covcor extends TestBase {
         assertEval(".Call(stats:::C_cov, 1:5, c(1,5,1,5,10), 4, FALSE)");
     }
 
+    @Test
+    public void testCovcorUse() {
+        assertEval("{ m <- matrix(c(1,2,NA,4,5,3,1,7,2,9,8,6,4,NA,2), 5); cor(m, use='complete.obs') }");
+        assertEval("{ m <- matrix(c(1,2,NA,4,5,3,1,7,2,9,8,6,4,NA,2), 5); cov(m, use='complete.obs') }");
+        assertEval("{ m <- matrix(c(1,2,NA,4,5,3,1,7,2,9,8,6,4,NA,2), 5); cor(m, use='pairwise.complete.obs') }");
+        assertEval("{ m <- matrix(c(1,2,NA,4,5,3,1,7,2,9,8,6,4,NA,2), 5); cov(m, use='pairwise.complete.obs') }");
+        assertEval("{ m <- matrix(c(1,2,NA,4,5,3,1,7,2,9,8,6,4,NA,2), 5); cor(m, m[,2:3], use='complete.obs') }");
+        assertEval("{ m <- matrix(c(1,2,NA,4,5,3,1,7,2,9,8,6,4,NA,2), 5); cor(m, m[,2:3], use='pairwise.complete.obs') }");
+        assertEval("{ m <- matrix(c(1,2,NA,4,5,3,1,7,2,9,8,6,4,NA,2), 5); cor(m, use='na.or.complete') }");
+        assertEval("{ m <- matrix(c(1,2,NA,4,5,3,1,7,2,9,8,6,4,NA,2), 5); cor(m, use='all.obs') }");
+        assertEval("{ m <- matrix(c(1,1,1,1,5,3,1,7,2,9), 5); cor(m, use='pairwise.complete.obs') }");
+        assertEval("{ set.seed(1); m <- matrix(rnorm(200*70), 200); max(abs(cor(m) - t(cor(m)))) }");
+    }
+
     @Test
     public void testCovcorArgsCasts() {
         assertEval(".Call(stats:::C_cov, c('1','2','3','4','5'), 1:5, 4, FALSE)");
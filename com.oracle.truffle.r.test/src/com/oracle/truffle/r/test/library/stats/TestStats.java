@@ -44,6 +44,18 @@ public class TestStats extends TestBase {
         assertEval("{ cov(c(1,2,3),c(1,2,5)) }");
     }
 
+    @Test
+    public void testDist() {
+        assertEval("{ x <- matrix(c(1,4,2,8,5,7,3,NA,6,1,0,2), 4); dist(x) }");
+        assertEval("{ x <- matrix(c(1,4,2,8,5,7,3,NA,6,1,0,2), 4); dist(x, 'manhattan') }");
+        assertEval("{ x <- matrix(c(1,4,2,8,5,7,3,NA,6,1,0,2), 4); dist(x, 'maximum') }");
+        assertEval("{ x <- matrix(c(1,4,2,8,5,7,3,NA,6,1,0,2), 4); dist(x, 'canberra') }");
+        assertEval("{ x <- matrix(c(1,0,2,0,5,0,3,NA,6,1,0,2), 4); dist(x, 'binary') }");
+        assertEval("{ x <- matrix(c(1,4,2,8,5,7,3,NA,6,1,0,2), 4); dist(x, 'minkowski', p=3) }");
+        assertEval("{ x <- matrix(c(1,4,NA,8,5,7,NA,NA,6), 3); dist(x) }");
+        assertEval("{ set.seed(11); x <- matrix(runif(300*5), 300); d <- dist(x); c(length(d), round(sum(d), 4)) }");
+    }
+
     @Test
     public void testFFT() {
         assertEval("{ fft(1:4) }");
@@ -144,9 +156,21 @@ public class TestStats extends TestBase {
         assertEval("{ set.seed(7); round( runif(3), digits = 5 ) }");
         assertEval("{ set.seed(7); round( runif(3,1,10), digits = 5 ) }");
         assertEval("{ set.seed(7); round( rnorm(3,c(1000,2,3),c(10,11)), digits = 5 ) }");
+        assertEval("{ set.seed(7); x <- runif(2000, 2, 5); round( c(x[1:3], x[623:626], x[1999:2000], runif(2)), digits = 5 ) }");
+        assertEval("{ set.seed(7); x <- rnorm(1000, 10, 2); round( c(x[1:3], x[311:313], x[999:1000], rnorm(2)), digits = 5 ) }");
+        assertEval("{ set.seed(7); a <- rnorm(700); set.seed(7); b <- vapply(1:700, function(i) rnorm(1), 0); identical(a, b) }");
+        assertEval("{ set.seed(7); a <- runif(700, 1, 3); set.seed(7); b <- vapply(1:700, function(i) runif(1, 1, 3), 0); identical(a, b) }");
 
         assertEval("{ set.seed(7); round( rbinom(3,3,0.9), digits = 5 ) }");
         assertEval("{ set.seed(7); round( rbinom(3,10,(1:5)/5), digits = 5 ) }");
+
+        assertEval("{ set.seed(123, \"L'Ecuyer-CMRG\"); .Random.seed }");
+        assertEval("{ set.seed(123, \"L'Ecuyer-CMRG\"); runif(5) }");
+        assertEval("{ set.seed(123, \"L'Ecuyer-CMRG\"); round( rnorm(5), digits = 5 ) }");
+        assertEval("{ RNGkind(\"L'Ecuyer-CMRG\"); RNGkind() }");
+        assertEval("{ set.seed(123, \"L'Ecuyer-CMRG\"); s <- parallel::nextRNGStream(.Random.seed); s }");
+        assertEval("{ set.seed(123, \"L'Ecuyer-CMRG\"); s <- parallel::nextRNGSubStream(.Random.seed); s }");
+        assertEval("{ set.seed(123, \"L'Ecuyer-CMRG\"); assign('.Random.seed', parallel::nextRNGStream(.Random.seed), envir=.GlobalEnv); runif(3) }");
     }
 
     @Test
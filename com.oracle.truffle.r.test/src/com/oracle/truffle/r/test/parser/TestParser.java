@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2016, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -23,12 +23,24 @@
 package com.oracle.truffle.r.test.parser;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.r.nodes.RASTBuilder;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinPackage;
+import com.oracle.truffle.r.parser.ParseCache;
+import com.oracle.truffle.r.parser.ParseImage;
+import com.oracle.truffle.r.parser.ParserConformance;
+import com.oracle.truffle.r.runtime.RDeparse;
 import com.oracle.truffle.r.runtime.RParserFactory;
+import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RSource;
 import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
 import com.oracle.truffle.r.test.TestBase;
@@ -90,6 +102,109 @@ public class TestParser extends TestBase {
         assertEval(Output.IgnoreErrorMessage, "%0");
     }
 
+    @Test
+    public void testParseImage() throws Exception {
+        String code = "f <- function(x, y = 2L, ...) { if (x > 1) x[[1]] <- y$z else repeat break; -x %in% c(NA, 1i, 'a', NULL, TRUE, 0x10) }\n" +
+                        "f(1, )\n`g`(a = , b = 3e10) # comment\nbase::c(NA_real_, NaN, Inf) ~ y ; x@s -> z";
+        Source source = Source.newBuilder(code).name("testParseImage").mimeType(RRuntime.R_APP_MIME).build();
+        ParseImage.Recording<RSyntaxNode> recording = ParseImage.record(source, new RASTBuilder());
+        Assert.assertNotNull(recording.image);
+        List<RSyntaxNode> replayed = ParseImage.replay(recording.image, source, new RASTBuilder());
+        Assert.assertEquals(recording.result.size(), replayed.size());
+        for (int i = 0; i < replayed.size(); i++) {
+            Assert.assertEquals(RDeparse.deparseSyntaxElement(recording.result.get(i)), RDeparse.deparseSyntaxElement(replayed.get(i)));
+            SourceSection expected = recording.result.get(i).getSourceSection();
+            SourceSection actual = replayed.get(i).getSourceSection();
+            Assert.assertEquals(expected.getCharIndex(), actual.getCharIndex());
+            Assert.assertEquals(expected.getCharLength(), actual.getCharLength());
+        }
+        // an image is not used for a different source
+        Source changed = Source.newBuilder(code + " ").name("testParseImage").mimeType(RRuntime.R_APP_MIME).build();
+        Assert.assertNull(ParseImage.replay(recording.image, changed, new RASTBuilder()));
+    }
+
+    @Test
+    public void testParseCache() throws Exception {
+        File dir = Files.createTempDirectory("parsecache").toFile();
+        File file = new File(dir, "script.R");
+        try {
+            String code = "f <- function(x, y = 2L, ...) { if (x > 1) x[[1]] <- y$z else repeat break; -x %in% c(NA, 1i, 'a', NULL, TRUE, 0x10) }\n";
+            Files.write(file.toPath(), code.getBytes(StandardCharsets.UTF_8));
+            List<RSyntaxNode> parsed = parseCached(file, dir);
+            File[] entries = dir.listFiles((d, name) -> name.endsWith(".parse"));
+            Assert.assertEquals(1, entries.length);
+            // re-sourcing, from memory and from disk, gives the same code and source sections
+            assertSameParse(parsed, parseCached(file, dir));
+            ParseCache.clear();
+            assertSameParse(parsed, parseCached(file, dir));
+
+            // a stale entry is not used for a modified file
+            Files.write(file.toPath(), (code + "g <- function() NULL\n").getBytes(StandardCharsets.UTF_8));
+            Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+            ParseCache.clear();
+            List<RSyntaxNode> modified = parseCached(file, dir);
+            Assert.assertEquals(2, modified.size());
+            Source source = Source.newBuilder(file).name(file.getName()).mimeType(RRuntime.R_APP_MIME).build();
+            assertSameParse(ParseImage.record(source, new RASTBuilder()).result, modified);
+
+            // a corrupt entry is ignored and replaced
+            for (byte[] corrupt : new byte[][]{new byte[0], new byte[]{0, 0, 0, 2, 0}, Arrays.copyOf(Files.readAllBytes(entries[0].toPath()), 40)}) {
+                Files.write(entries[0].toPath(), corrupt);
+                ParseCache.clear();
+                assertSameParse(modified, parseCached(file, dir));
+                ParseCache.clear();
+                assertSameParse(modified, parseCached(file, dir));
+            }
+        } finally {
+            ParseCache.clear();
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static List<RSyntaxNode> parseCached(File file, File dir) throws Exception {
+        Source source = Source.newBuilder(file).name(file.getName()).mimeType(RRuntime.R_APP_MIME).build();
+        return ParseCache.script(source, new RASTBuilder(), dir);
+    }
+
+    private static void assertSameParse(List<RSyntaxNode> expected, List<RSyntaxNode> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(RDeparse.deparseSyntaxElement(expected.get(i)), RDeparse.deparseSyntaxElement(actual.get(i)));
+            SourceSection expectedSection = expected.get(i).getSourceSection();
+            SourceSection actualSection = actual.get(i).getSourceSection();
+            Assert.assertEquals(expectedSection.getCharIndex(), actualSection.getCharIndex());
+            Assert.assertEquals(expectedSection.getCharLength(), actualSection.getCharLength());
+        }
+    }
+
+    @Test
+    public void testHandWrittenParser() {
+        String[] sources = new String[]{
+                        "f <- function(x, y = 2L, ...) { if (x > 1) x[[1]] <- y$z else repeat break; -x %in% c(NA, 1i, 'a', NULL, TRUE, 0x10) }",
+                        "f(1, )\n`g`(a = , b = 3e10) # comment\nbase::c(NA_real_, NaN, Inf) ~ y ; x@s -> z",
+                        "-2^-3^2; !a == b; a == !b + c; ~ x + y ~ z; a -> b ->> c; x = y <- 5; x <- y = 5; 1:3 %o% -1:2; a %% b * c",
+                        "if (a) b\nelse c\nif (a) b\n\nx\n{ a; b\n c ;; }\n(function(x) x)(1)(2)",
+                        "x[[1]][2, , drop = FALSE]; x[]; x[, 1]; x$'a'$b@c; \"f\"(1); ..1; ...; f(NULL = 1, 'a' = )",
+                        "'a\\tb\\x41\\u00e9\\101\\\"'; \"\\U0001F600\\'\"; `a b`; .5; 1.; 1e-3; 0x1.8p3; 0xaL; 5L; 2i; .x; ._; x.y_1",
+                        "for (i in 1:10) next(1)\nwhile (TRUE) break\nfunction(a,\n b = {\n 1 }) NULL",
+                        "y <- 2; z <- 5; x <- ({(a[[y \n * z]])}); x <- (y \n + z)\r\n# end",
+                        "x <- ", "f(1,", "{ a", "1 +* 2", "x y", "a[[1]", "if (x) 1 else",
+        };
+        for (String code : sources) {
+            Source source = Source.newBuilder(code).name("testHandWrittenParser").mimeType(RRuntime.R_APP_MIME).build();
+            Assert.assertNull(code, ParserConformance.check(source));
+        }
+        // the R sources that override parts of the base packages
+        for (String pkg : new String[]{"base", "utils", "parallel"}) {
+            for (Source source : RBuiltinPackage.getRFiles(pkg)) {
+                Assert.assertNull(pkg + ": " + source.getCode(1), ParserConformance.check(source));
+            }
+        }
+    }
+
     /**
      * Recursively look for .r source files in the args[0] directory and parse them.
      */
@@ -51,6 +51,10 @@ public class TestRFFIPackage extends TestRPackages {
         assertEvalWithLibWithSetup("", test);
     }
 
+    private void assertEvalFastRWithLibWithSetup(String setup, String test, String gnuROutput) {
+        assertEvalFastR(TestBase.template("{ library(\"testrffi\", lib.loc = \"%0\"); " + setup + "x <- " + test + "; detach(\"package:testrffi\"); x }", new String[]{TestRPackages.libLoc()})[0], gnuROutput);
+    }
+
     @Test
     public void testRFFI1() {
         assertEvalWithLib("rffi.addInt(2L, 3L)");
@@ -145,4 +149,29 @@ public class TestRFFIPackage extends TestRPackages {
     public void testRFFI19() {
         assertEvalWithLibWithSetup("x <- 1; ", "rffi.findVar(x, globalenv())");
     }
+
+    @Test
+    public void testDotCTemporaryArgument() {
+        assertEvalWithLib("rffi.dotCScaleTemporary(3, 2)");
+    }
+
+    @Test
+    public void testDotCUnchangedArgument() {
+        assertEvalWithLibWithSetup("a <- c(1, 2, 3); ", "list(rffi.dotCScale(a, 1), a)");
+        // the argument itself comes back when the native code does not change it
+        assertEvalFastRWithLibWithSetup("a <- c(1, 2, 3); ", ".fastr.identity(rffi.dotCScale(a, 1)) == .fastr.identity(a)", "TRUE");
+    }
+
+    @Test
+    public void testDotCModifiedArgument() {
+        // the caller's vector is not changed
+        assertEvalWithLibWithSetup("a <- c(1, 2, 3); b <- a; ", "list(rffi.dotCScale(a, 2), a, b)");
+        assertEvalFastRWithLibWithSetup("a <- c(1, 2, 3); ", "{ r <- rffi.dotCScale(a, 2); .fastr.identity(r) != .fastr.identity(a) && identical(a, c(1, 2, 3)) }", "TRUE");
+    }
+
+    @Test
+    public void testCallReadOnlyMappedVector() {
+        // native code that only reads a read-only mapping gets a copy of it
+        assertEvalFastRWithLibWithSetup("f <- tempfile(); writeBin(1:3, f); x <- .fastr.mmap.vector(f, 'integer'); ", "{ r <- rffi.iterate_iptr(x); unlink(f); r }", "1:3");
+    }
 }
@@ -242,6 +242,7 @@ def _fastr_gate_runner(args, tasks):
     1. Copyright check
     2. Check that ExpectedTestOutput file is in sync with unit tests
     3. Unit tests
+    4. Conformance of the hand-written parser
     '''
     # FastR has custom copyright check
     with mx_gate.Task('Copyright check', tasks) as t:
@@ -249,6 +250,12 @@ def _fastr_gate_runner(args, tasks):
             if mx.checkcopyrights(['--primary']) != 0:
                 t.abort('copyright errors')
 
+    # the hand-written parser is the default, it must parse like the one generated from R.g
+    with mx_gate.Task('Parser conformance', tasks) as t:
+        if t:
+            if rparsercheck([], nonZeroIsFatal=False) != 0:
+                t.abort('the hand-written parser differs from the ANTLR parser')
+
     # check that the expected test output file is up to date
     with mx_gate.Task('UnitTests: ExpectedTestOutput file check', tasks) as t:
         if t:
@@ -460,6 +467,18 @@ def _unset_conflicting_envs():
 def unittest(args):
     print "use 'junit --tests testclasses' or 'junitsimple' to run FastR unit tests"
 
+def rparsercheck(args, nonZeroIsFatal=True):
+    '''Checks that the hand-written parser conforms to the ANTLR generated one
+
+    Parses all R sources in the given files and directories, by default the
+    sources of the library and the tests, with both parsers and reports the
+    sources on which they differ.'''
+    if not args:
+        args = [join(_fastr_suite.dir, 'library'), join(_fastr_suite.dir, 'com.oracle.truffle.r.test'), join(_fastr_suite.dir, 'com.oracle.truffle.r.test.native')]
+    vmArgs = mx.get_runtime_jvm_args('com.oracle.truffle.r.parser')
+    vmArgs += ['com.oracle.truffle.r.parser.ParserConformance']
+    return mx.run_java(vmArgs + args, nonZeroIsFatal=nonZeroIsFatal)
+
 def rbcheck(args):
     '''Checks FastR builtins against GnuR
 
@@ -572,6 +591,7 @@ _commands = {
     'junitnopkgs' : [junit_nopkgs, ['options']],
     'unittest' : [unittest, ['options']],
     'rbcheck' : [rbcheck, '--filter [gnur-only,fastr-only,both,both-diff]'],
+    'rparsercheck' : [rparsercheck, '[file|dir]*'],
     'rbdiag' : [rbdiag, '(builtin)* [-v] [-n] [-m] [--sweep | --sweep=lite | --sweep=total] [--mnonly] [--noSelfTest] [--matchLevel=same | --matchLevel=error] [--maxSweeps=N] [--outMaxLev=N]'],
     'rrepl' : [rrepl, '[options]'],
     'rembed' : [rembed, '[options]'],
@@ -52,7 +52,7 @@ class FastRNativeProject(FastRProjectAdapter):
         FastRProjectAdapter.__init__(self, suite, name, deps, workingSets, theLicense)
 
     def getBuildTask(self, args):
-        return mx.NativeBuildTask(args, self)
+        return FastRNativeBuildTask(self, args)
 
     def _get_gnur_files(self, gnur_dir, files, results):
         for f in files:
@@ -111,6 +111,25 @@ class FastRNativeProject(FastRProjectAdapter):
 
         return results
 
+class FastRNativeBuildTask(mx.NativeBuildTask):
+    '''
+    The native build also creates library/base/R/base, so this task makes the parse images from it.
+    They are outputs of this task: created by build, removed by clean and, as they live in the
+    library directory, part of anything that is built later, e.g. the FASTR_RELEASE distribution.
+    '''
+    def __init__(self, project, args):
+        mx.NativeBuildTask.__init__(self, args, project)
+
+    def build(self):
+        mx.NativeBuildTask.build(self)
+        _create_parse_images()
+
+    def clean(self, forBuild=False):
+        mx.NativeBuildTask.clean(self, forBuild)
+        for image in _parse_images():
+            if os.path.exists(image):
+                os.remove(image)
+
 class FastRTestNativeProject(FastRProjectAdapter):
     '''
     Custom class for building the com.oracle.truffle.r.native project.
@@ -287,6 +306,21 @@ class NativeRecommendedBuildTask(mx.NativeBuildTask):
         mx.archive(['@FASTR'])
         mx.NativeBuildTask.build(self)
 
+def _parse_image_sources():
+    base_r_dir = join(mx_fastr._fastr_suite.dir, 'library', 'base', 'R')
+    return [join(base_r_dir, f) for f in ['base', 'Rprofile']]
+
+def _parse_images():
+    return [f + '.image' for f in _parse_image_sources()]
+
+def _create_parse_images():
+    '''
+    Creates the parse images of the base package and the system profile, so that a context
+    start does not have to parse them. An image is only used while its source is unchanged,
+    see com.oracle.truffle.r.parser.ParseImage.
+    '''
+    mx.run_java(['-cp', mx.classpath('com.oracle.truffle.r.parser'), 'com.oracle.truffle.r.parser.ParseImage'] + _parse_image_sources())
+
 
 class FastRArchiveParticipant:
     def __init__(self, dist):
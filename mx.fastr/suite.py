@@ -237,6 +237,8 @@ suite = {
         "GNUR",
         "GNU_ICONV",
       ],
+      # for the parse images made from library/base/R/base, see FastRNativeBuildTask
+      "buildDependencies" : ["com.oracle.truffle.r.parser"],
       "native" : "true",
       "class" : "FastRNativeProject",
       "output" : "com.oracle.truffle.r.native",